@@ -0,0 +1,58 @@
+package com.lunch.micro.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn -Pbenchmark test -Dtest=ChildOrdersReadAllocationBenchmark
+@Tag("benchmark")
+class ChildOrdersReadAllocationBenchmark {
+
+    @Test
+    void compareAllocationPerRequest() throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(ChildOrdersReadJmhBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .jvmArgs("-Xms1g", "-Xmx1g")
+                .warmupIterations(Integer.getInteger("benchmark.warmups", 5))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("benchmark.iterations", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        double entityBytes = 0;
+        double projectionBytes = 0;
+
+        for (RunResult result : results) {
+
+            String benchmark = result.getParams().getBenchmark();
+            Result allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+
+            System.out.printf("[benchmark] %-30s time=%10.1f us/op  allocated=%10.0f B/op%n",
+                    benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                    result.getPrimaryResult().getScore(), allocation.getScore());
+
+            if (benchmark.endsWith("managedEntities")) {
+                entityBytes = allocation.getScore();
+            } else {
+                projectionBytes = allocation.getScore();
+            }
+        }
+
+        assertThat(projectionBytes).isLessThan(entityBytes);
+    }
+}
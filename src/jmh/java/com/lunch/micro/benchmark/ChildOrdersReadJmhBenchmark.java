@@ -0,0 +1,123 @@
+package com.lunch.micro.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lunch.micro.LunchSvcApplication;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.LunchOrderService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one GET /children/{childId}/lunches without the cache: query plus JSON serialisation.
+// Run through ChildOrdersReadAllocationBenchmark, which attaches the GC profiler (gc.alloc.rate.norm = bytes per request).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChildOrdersReadJmhBenchmark {
+
+    // findOrderResponsesByChildId's query selecting entities instead of the response DTO.
+    private static final String ENTITY_QUERY =
+            "SELECT o FROM LunchOrder o WHERE o.childId = :childId AND o.status = :paidStatus " +
+            "UNION ALL " +
+            "SELECT o FROM LunchOrder o WHERE o.childId = :childId AND o.status = :completedStatus " +
+            "AND o.completedOn > :completedAfter";
+
+    @Param({"40"})
+    public int visibleOrders;
+
+    private ConfigurableApplicationContext context;
+    private LunchOrderRepository repository;
+    private EntityManager entityManager;
+    private TransactionTemplate readWriteTransaction;
+    private ObjectMapper objectMapper;
+    private UUID childId;
+    private Instant sevenHoursAgo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(LunchSvcApplication.class)
+                .profiles("test")
+                .properties("spring.main.web-application-type=none",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+
+        repository = context.getBean(LunchOrderRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        readWriteTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        objectMapper = context.getBean(ObjectMapper.class);
+        childId = UUID.randomUUID();
+        sevenHoursAgo = Instant.now().minus(LunchOrderService.COMPLETED_VISIBILITY);
+
+        List<LunchOrder> orders = new ArrayList<>();
+        for (int i = 0; i < visibleOrders; i++) {
+            boolean completed = i % 2 == 1;
+            orders.add(LunchOrder.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(childId)
+                    .meal(Meal.values()[i % Meal.values().length])
+                    .quantity(1)
+                    .dayOfWeek(DayOfWeek.of(1 + i % 5))
+                    .unitPrice(new BigDecimal("2.50"))
+                    .total(new BigDecimal("2.50"))
+                    .status(completed ? OrderStatus.COMPLETED : OrderStatus.PAID)
+                    .completedOn(completed ? Instant.now().minus(1, ChronoUnit.HOURS) : null)
+                    .build());
+        }
+        repository.saveAll(orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.deleteAll();
+        context.close();
+    }
+
+    // The read path before the projection: managed entities, loaded in a read-write transaction.
+    @Benchmark
+    public byte[] managedEntities() throws Exception {
+
+        List<LunchOrder> orders = readWriteTransaction.execute(status -> entityManager
+                .createQuery(ENTITY_QUERY, LunchOrder.class)
+                .setParameter("childId", childId)
+                .setParameter("paidStatus", OrderStatus.PAID)
+                .setParameter("completedStatus", OrderStatus.COMPLETED)
+                .setParameter("completedAfter", sevenHoursAgo)
+                .getResultList());
+
+        return objectMapper.writeValueAsBytes(orders);
+    }
+
+    @Benchmark
+    public byte[] readOnlyProjection() throws Exception {
+
+        return objectMapper.writeValueAsBytes(
+                repository.findOrderResponsesByChildId(childId, OrderStatus.PAID, OrderStatus.COMPLETED, sevenHoursAgo));
+    }
+}
@@ -0,0 +1,124 @@
+package com.lunch.micro.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn -Pbenchmark test -Dtest=LunchOrderServiceBenchmark
+//     [-Dbenchmark.include=getByChild] [-Dbenchmark.rows=1000,100000] [-Dbenchmark.ordersPerChild=20]
+//     [-Dbenchmark.result=target/jmh/lunch-order-service.json] [-Dbenchmark.baseline=<result of an earlier commit>]
+// Results are written in JMH's JSON format. Given a baseline, each score is printed next to the baseline's and the
+// run fails if benchmark.max-regression-percent is set and any score is worse by more than that.
+@Tag("benchmark")
+class LunchOrderServiceBenchmark {
+
+    private static final String RESULT = System.getProperty("benchmark.result", "target/jmh/lunch-order-service.json");
+    private static final String BASELINE = System.getProperty("benchmark.baseline");
+    private static final String MAX_REGRESSION_PERCENT = System.getProperty("benchmark.max-regression-percent");
+
+    @Test
+    void runHotPaths() throws Exception {
+
+        Files.createDirectories(Path.of(RESULT).toAbsolutePath().getParent());
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(LunchOrderServiceJmhBenchmark.class.getName() + "." + System.getProperty("benchmark.include", ""))
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .jvmArgs("-Xms2g", "-Xmx4g")
+                .warmupIterations(Integer.getInteger("benchmark.warmups", 5))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("benchmark.iterations", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT);
+
+        String rows = System.getProperty("benchmark.rows");
+        if (rows != null) {
+            options.param("rows", rows.split(","));
+        }
+        String ordersPerChild = System.getProperty("benchmark.ordersPerChild");
+        if (ordersPerChild != null) {
+            options.param("ordersPerChild", ordersPerChild.split(","));
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            Result allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            System.out.printf("[benchmark] %-22s %-14s rows=%-8s perChild=%-3s %12.3f %-8s allocated=%10.0f B/op%n",
+                    benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getParams().getMode(),
+                    result.getParams().getParam("rows"), result.getParams().getParam("ordersPerChild"),
+                    result.getPrimaryResult().getScore(), result.getPrimaryResult().getScoreUnit(),
+                    allocation != null ? allocation.getScore() : Double.NaN);
+        }
+        System.out.printf("[benchmark] results written to %s%n", new File(RESULT).getAbsolutePath());
+
+        if (BASELINE != null) {
+            compareWithBaseline();
+        }
+    }
+
+    // Matches runs by benchmark, mode and parameters. Throughput is better when higher, every time-based mode when lower.
+    private void compareWithBaseline() throws Exception {
+
+        Map<String, JsonNode> baseline = byKey(BASELINE);
+        Map<String, JsonNode> current = byKey(RESULT);
+        Map<String, Double> regressions = new TreeMap<>();
+
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("[benchmark] %-70s no baseline%n", entry.getKey());
+                continue;
+            }
+            double was = before.path("primaryMetric").path("score").asDouble();
+            double now = entry.getValue().path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double regression = 100.0 * (higherIsBetter ? was - now : now - was) / was;
+
+            System.out.printf("[benchmark] %-70s %12.3f -> %12.3f %s (%+.1f%% %s)%n", entry.getKey(), was, now,
+                    entry.getValue().path("primaryMetric").path("scoreUnit").asText(), Math.abs(regression),
+                    regression > 0 ? "worse" : "better");
+            regressions.put(entry.getKey(), regression);
+        }
+
+        if (MAX_REGRESSION_PERCENT != null) {
+            double limit = Double.parseDouble(MAX_REGRESSION_PERCENT);
+            assertThat(regressions).allSatisfy((benchmark, regression) ->
+                    assertThat(regression).as(benchmark).isLessThanOrEqualTo(limit));
+        }
+    }
+
+    private static Map<String, JsonNode> byKey(String file) throws Exception {
+
+        Map<String, JsonNode> runs = new HashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(new File(file))) {
+            String benchmark = run.path("benchmark").asText();
+            runs.put(benchmark.substring(benchmark.lastIndexOf('.') + 1) + " " + run.path("mode").asText()
+                    + " " + run.path("params"), run);
+        }
+        return runs;
+    }
+}
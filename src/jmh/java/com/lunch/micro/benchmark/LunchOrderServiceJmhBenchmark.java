@@ -0,0 +1,172 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.LunchSvcApplication;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.service.PartitionedCompletionService;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// LunchOrderService hot paths and the completion run behind both OrderStatusUpdateService jobs, against the JPA layer
+// on embedded H2. Each trial boots the context and seeds `rows` orders, `ordersPerChild` to a child.
+// Run through LunchOrderServiceBenchmark, which attaches the GC profiler and writes the results as JSON.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LunchOrderServiceJmhBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"1", "20"})
+    public int ordersPerChild;
+
+    private ConfigurableApplicationContext context;
+    private LunchOrderService lunchOrderService;
+    private LunchOrderRepository repository;
+    private OrderCompletionService completionService;
+    private PartitionedCompletionService partitionedCompletionService;
+    private JdbcTemplate jdbcTemplate;
+    private List<UUID> children;
+    private Instant seededOn;
+
+    // The jobs complete today's orders once a day; the run is measured on a seeded weekday instead.
+    private final LocalDate businessDate = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+    private final DayOfWeek orderDay = LocalDate.now().getDayOfWeek().plus(2);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(LunchSvcApplication.class)
+                .profiles("test")
+                .properties("spring.main.web-application-type=none",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+
+        lunchOrderService = context.getBean(LunchOrderService.class);
+        repository = context.getBean(LunchOrderRepository.class);
+        completionService = context.getBean(OrderCompletionService.class);
+        partitionedCompletionService = context.getBean(PartitionedCompletionService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, 42L);
+        seeder.truncate();
+        children = seeder.seedOrders(rows, ordersPerChild);
+        seededOn = Instant.now();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM order_outbox");
+        new BenchmarkDataSeeder(jdbcTemplate, 42L).truncate();
+        context.close();
+    }
+
+    @Benchmark
+    public LunchOrder createAndPayOrder() {
+
+        return lunchOrderService.createAndPayOrder(LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(randomChild())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(orderDay)
+                .build());
+    }
+
+    @Benchmark
+    public void cancelOrder(PaidOrder paidOrder) {
+        lunchOrderService.cancelOrder(paidOrder.order.getId(), paidOrder.order.getChildId());
+    }
+
+    @Benchmark
+    public List<LunchOrderResponse> getByChild() {
+        return lunchOrderService.getByChild(randomChild());
+    }
+
+    // One completion run per invocation; CompletionReset puts the orders it completed back to PAID in between.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public CompletionRunStats chunkedCompletion(CompletionReset reset) {
+        return completionService.completePaidOrders(businessDate, Instant.now());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public CompletionRunStats partitionedCompletion(CompletionReset reset) {
+        return partitionedCompletionService.completePaidOrders(businessDate, Instant.now());
+    }
+
+    private UUID randomChild() {
+        return children.get(ThreadLocalRandom.current().nextInt(children.size()));
+    }
+
+    // A fresh PAID order for each cancelOrder call, saved outside the measurement.
+    @State(Scope.Thread)
+    public static class PaidOrder {
+
+        LunchOrder order;
+
+        @Setup(Level.Invocation)
+        public void create(LunchOrderServiceJmhBenchmark benchmark) {
+
+            order = benchmark.repository.save(LunchOrder.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(benchmark.randomChild())
+                    .meal(Meal.BEAN_WITH_SALAD)
+                    .quantity(1)
+                    .dayOfWeek(benchmark.orderDay)
+                    .unitPrice(new BigDecimal("2.50"))
+                    .total(new BigDecimal("2.50"))
+                    .status(OrderStatus.PAID)
+                    .build());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CompletionReset {
+
+        @Setup(Level.Invocation)
+        public void reset(LunchOrderServiceJmhBenchmark benchmark) {
+
+            JdbcTemplate jdbcTemplate = benchmark.jdbcTemplate;
+            jdbcTemplate.update("UPDATE lunch_orders SET status = ?, completed_on = NULL WHERE status = ? AND completed_on >= ?",
+                    OrderStatus.PAID.getCode(), OrderStatus.COMPLETED.getCode(), Timestamp.from(benchmark.seededOn));
+            jdbcTemplate.execute("DELETE FROM completion_checkpoints");
+            jdbcTemplate.execute("DELETE FROM completion_partitions");
+            jdbcTemplate.execute("DELETE FROM order_outbox");
+        }
+    }
+}
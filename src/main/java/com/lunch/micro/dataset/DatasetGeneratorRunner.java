@@ -0,0 +1,75 @@
+package com.lunch.micro.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Loads a synthetic dataset into the configured datasource at startup, then exits:
+// java -jar lunch-svc.jar --dataset.generator.enabled=true --spring.main.web-application-type=none
+//     --dataset.generator.rows=10000000 [--dataset.generator.seed=7 --dataset.generator.truncate=true ...]
+@Component
+@ConditionalOnProperty(name = "dataset.generator.enabled", havingValue = "true")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGeneratorRunner.class);
+
+    private final SyntheticOrderGenerator generator;
+    private final ApplicationContext context;
+    private final boolean exitWhenDone;
+
+    public DatasetGeneratorRunner(JdbcTemplate jdbcTemplate,
+                                  ApplicationContext context,
+                                  @Value("${dataset.generator.rows:1000000}") long rows,
+                                  @Value("${dataset.generator.seed:42}") long seed,
+                                  @Value("${dataset.generator.schools:200}") int schools,
+                                  @Value("${dataset.generator.children-per-school:400}") int childrenPerSchool,
+                                  @Value("${dataset.generator.years:3}") int years,
+                                  @Value("${dataset.generator.end-date:}") LocalDate endDate,
+                                  @Value("${dataset.generator.order-rate:0.7}") double orderRate,
+                                  @Value("${dataset.generator.cancel-rate:0.05}") double cancelRate,
+                                  @Value("${dataset.generator.meal-skew:1.0}") double mealSkew,
+                                  @Value("${dataset.generator.max-children-per-parent:3}") int maxChildrenPerParent,
+                                  @Value("${dataset.generator.rows-per-statement:1000}") int rowsPerStatement,
+                                  @Value("${dataset.generator.writer-threads:4}") int writerThreads,
+                                  @Value("${dataset.generator.truncate:false}") boolean truncate,
+                                  @Value("${dataset.generator.exit-when-done:true}") boolean exitWhenDone) {
+        this.generator = new SyntheticOrderGenerator(jdbcTemplate, SyntheticOrderGenerator.Settings.builder()
+                .rows(rows)
+                .seed(seed)
+                .schools(schools)
+                .childrenPerSchool(childrenPerSchool)
+                .years(years)
+                .endDate(endDate != null ? endDate : LocalDate.now())
+                .orderRate(orderRate)
+                .cancelRate(cancelRate)
+                .mealSkew(mealSkew)
+                .maxChildrenPerParent(maxChildrenPerParent)
+                .rowsPerStatement(rowsPerStatement)
+                .writerThreads(writerThreads)
+                .truncate(truncate)
+                .build());
+        this.context = context;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+
+        SyntheticOrderGenerator.Stats stats = generator.generate();
+        logger.info("Dataset loaded: {} PAID, {} COMPLETED, {} CANCELLED orders, {} parents, {} statements",
+                stats.getPaid(), stats.getCompleted(), stats.getCancelled(), stats.getParents(), stats.getStatements());
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
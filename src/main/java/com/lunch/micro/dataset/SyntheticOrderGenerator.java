@@ -0,0 +1,417 @@
+package com.lunch.micro.dataset;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.UuidV7Generator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.lunch.micro.service.OrderCompletionService.COMPLETION_TIME;
+
+// Streams synthetic lunch orders into lunch_orders for benchmarks and capacity tests. One thread produces the rows from
+// a SplittableRandom seeded with settings.seed, so the same settings always give the same rows, ids included; writer
+// threads insert them rowsPerStatement at a time with multi-row INSERTs, one statement per transaction.
+// Shape: children are spread over schools, and each school ranks the meals its own way with Zipf popularity
+// (mealSkew, 0 = uniform). A child is enrolled on a random day of the last `years` and orders on each school day up to
+// endDate with orderRate; those orders are COMPLETED, or CANCELLED with cancelRate. Orders for endDate and the school
+// days of the week after it are PAID. One to maxChildrenPerParent siblings share a parent and a wallet.
+public class SyntheticOrderGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticOrderGenerator.class);
+
+    private static final String INSERT = "INSERT INTO lunch_orders " +
+            "(id, parent_id, wallet_id, child_id, child_bucket, meal, quantity, day_of_week, unit_price, total, status, " +
+            "created_on, updated_on, completed_on, version) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final int PARAMETERS_PER_ROW = 14;
+
+    // MySQL accepts at most 65535 placeholders per statement.
+    private static final int MAX_ROWS_PER_STATEMENT = 65_535 / PARAMETERS_PER_ROW;
+
+    private static final BigDecimal UNIT_PRICE = new BigDecimal("2.50");
+    private static final List<Object[]> END = new ArrayList<>();
+
+    // Typed, so the driver is not asked for the parameter's type on every row.
+    private static final SqlParameterValue NULL_TIMESTAMP = new SqlParameterValue(Types.TIMESTAMP, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Settings settings;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final String fullStatement;
+
+    public SyntheticOrderGenerator(JdbcTemplate jdbcTemplate, Settings settings) {
+
+        if (settings.getRowsPerStatement() < 1 || settings.getRowsPerStatement() > MAX_ROWS_PER_STATEMENT) {
+            throw new IllegalArgumentException("rowsPerStatement must be between 1 and " + MAX_ROWS_PER_STATEMENT);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = settings;
+        this.fullStatement = statementFor(settings.getRowsPerStatement());
+    }
+
+    public Stats generate() {
+
+        long start = System.nanoTime();
+
+        // Hibernate maps UUID to H2's UUID type but to BINARY(16) on MySQL, where the driver needs the bytes.
+        boolean uuidsAsBytes = !"H2".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+
+        if (settings.isTruncate()) {
+            jdbcTemplate.execute("TRUNCATE TABLE lunch_orders");
+        }
+
+        int writerThreads = settings.getWriterThreads();
+        BlockingQueue<List<Object[]>> queue = new ArrayBlockingQueue<>(writerThreads * 4);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        LongAdder statements = new LongAdder();
+
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writerThreads; i++) {
+            writers.execute(() -> write(queue, uuidsAsBytes, failure, statements));
+        }
+
+        Counts counts = new Counts();
+        try {
+            produce(queue, failure, counts);
+        } finally {
+            for (int i = 0; i < writerThreads; i++) {
+                put(queue, END);
+            }
+            writers.shutdown();
+            awaitWriters(writers);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Stats stats = Stats.builder()
+                .rows(counts.paid + counts.completed + counts.cancelled)
+                .children(counts.children)
+                .parents(counts.parents)
+                .paid(counts.paid)
+                .completed(counts.completed)
+                .cancelled(counts.cancelled)
+                .statements(statements.sum())
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(1000.0 * (counts.paid + counts.completed + counts.cancelled) / Math.max(elapsedMillis, 1))
+                .build();
+
+        logger.info("Generated {} orders for {} children in {} ms ({} rows/s)",
+                stats.getRows(), stats.getChildren(), stats.getElapsedMillis(), Math.round(stats.getRowsPerSecond()));
+        return stats;
+    }
+
+    private void produce(BlockingQueue<List<Object[]>> queue, AtomicReference<RuntimeException> failure, Counts counts) {
+
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        Meal[][] rankings = schoolRankings(random.split());
+        double[] popularity = zipfCumulative(Meal.values().length, settings.getMealSkew());
+
+        LocalDate endDate = settings.getEndDate();
+        LocalDate firstDate = endDate.minusYears(settings.getYears());
+        int spanDays = (int) ChronoUnit.DAYS.between(firstDate, endDate);
+        LocalDate lastDate = endDate.plusDays(7);
+
+        List<Object[]> batch = new ArrayList<>(settings.getRowsPerStatement());
+        long rows = 0;
+        int siblingsLeft = 0;
+        UUID parentId = null;
+        UUID walletId = null;
+
+        while (rows < settings.getRows()) {
+
+            if (failure.get() != null) {
+                return;
+            }
+            if (siblingsLeft == 0) {
+                parentId = randomUuid(random);
+                walletId = randomUuid(random);
+                siblingsLeft = 1 + random.nextInt(settings.getMaxChildrenPerParent());
+                counts.parents++;
+            }
+            siblingsLeft--;
+
+            UUID childId = randomUuid(random);
+            Meal[] ranking = rankings[(int) (counts.children / settings.getChildrenPerSchool() % rankings.length)];
+            counts.children++;
+
+            LocalDate enrolled = firstDate.plusDays(random.nextInt(Math.max(spanDays, 1)));
+            for (LocalDate date = enrolled; date.isBefore(lastDate) && rows < settings.getRows(); date = date.plusDays(1)) {
+
+                if (date.getDayOfWeek().getValue() > 5 || random.nextDouble() >= settings.getOrderRate()) {
+                    continue;
+                }
+
+                batch.add(order(random, parentId, walletId, childId, ranking[rank(random.nextDouble(), popularity)],
+                        date, counts));
+                rows++;
+
+                if (batch.size() == settings.getRowsPerStatement()) {
+                    put(queue, batch);
+                    batch = new ArrayList<>(settings.getRowsPerStatement());
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            put(queue, batch);
+        }
+    }
+
+    private Object[] order(SplittableRandom random, UUID parentId, UUID walletId, UUID childId, Meal meal,
+                           LocalDate date, Counts counts) {
+
+        int quantity = random.nextInt(10) == 0 ? 2 : 1;
+
+        // Placed one to three days ahead, but never after the start of endDate.
+        Instant endOfHistory = settings.getEndDate().atStartOfDay(zone).toInstant();
+        Instant createdOn = date.minusDays(1 + random.nextInt(3))
+                .atTime(7 + random.nextInt(14), random.nextInt(60), random.nextInt(60)).atZone(zone).toInstant();
+        if (createdOn.isAfter(endOfHistory)) {
+            createdOn = endOfHistory.minusSeconds(1 + random.nextInt(86_400));
+        }
+
+        OrderStatus status;
+        Instant updatedOn;
+        Instant completedOn = null;
+        if (!date.isBefore(settings.getEndDate())) {
+            status = OrderStatus.PAID;
+            updatedOn = createdOn;
+            counts.paid++;
+        } else if (random.nextDouble() < settings.getCancelRate()) {
+            status = OrderStatus.CANCELLED;
+            updatedOn = createdOn.plusSeconds(random.nextInt(12 * 3_600));
+            counts.cancelled++;
+        } else {
+            status = OrderStatus.COMPLETED;
+            completedOn = date.atTime(COMPLETION_TIME).atZone(zone).toInstant().plusSeconds(random.nextInt(300));
+            updatedOn = completedOn;
+            counts.completed++;
+        }
+
+        return new Object[]{
+                UuidV7Generator.generate(createdOn.toEpochMilli(), random), parentId, walletId, childId,
+                LunchOrder.bucketOf(childId), meal.name(), quantity, date.getDayOfWeek().getValue(),
+                UNIT_PRICE, UNIT_PRICE.multiply(BigDecimal.valueOf(quantity)), status.getCode(),
+                Timestamp.from(createdOn), Timestamp.from(updatedOn),
+                completedOn != null ? Timestamp.from(completedOn) : NULL_TIMESTAMP};
+    }
+
+    // Every writer keeps taking batches until END, after a failure too, so the producer never blocks on a full queue.
+    private void write(BlockingQueue<List<Object[]>> queue, boolean uuidsAsBytes,
+                       AtomicReference<RuntimeException> failure, LongAdder statements) {
+
+        while (true) {
+            List<Object[]> rows;
+            try {
+                rows = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (rows == END) {
+                return;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                insert(rows, uuidsAsBytes);
+                statements.increment();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                logger.error("Dataset insert failed, stopping: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void insert(List<Object[]> rows, boolean uuidsAsBytes) {
+
+        Object[] parameters = new Object[rows.size() * PARAMETERS_PER_ROW];
+        int i = 0;
+        for (Object[] row : rows) {
+            for (Object value : row) {
+                parameters[i++] = uuidsAsBytes && value instanceof UUID uuid ? bytes(uuid) : value;
+            }
+        }
+        String sql = rows.size() == settings.getRowsPerStatement() ? fullStatement : statementFor(rows.size());
+        jdbcTemplate.update(sql, parameters);
+    }
+
+    private Meal[][] schoolRankings(SplittableRandom random) {
+
+        Meal[][] rankings = new Meal[Math.max(settings.getSchools(), 1)][];
+        for (int school = 0; school < rankings.length; school++) {
+            Meal[] ranking = Meal.values();
+            for (int i = ranking.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Meal swap = ranking[i];
+                ranking[i] = ranking[j];
+                ranking[j] = swap;
+            }
+            rankings[school] = ranking;
+        }
+        return rankings;
+    }
+
+    // Cumulative probabilities of ranks 1..n with weight 1 / rank^skew.
+    private static double[] zipfCumulative(int n, double skew) {
+
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int rank(double u, double[] cumulative) {
+
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (u < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    private static UUID randomUuid(SplittableRandom random) {
+        return new UUID(random.nextLong() & ~0xF000L | 0x4000L,
+                random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L);
+    }
+
+    private static byte[] bytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    private static String statementFor(int rows) {
+        return INSERT + String.join(", ", Collections.nCopies(rows, ROW));
+    }
+
+    private static void put(BlockingQueue<List<Object[]>> queue, List<Object[]> batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating orders", e);
+        }
+    }
+
+    private static void awaitWriters(ExecutorService writers) {
+        try {
+            writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Only touched by the producing thread.
+    private static class Counts {
+        private long children;
+        private long parents;
+        private long paid;
+        private long completed;
+        private long cancelled;
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Settings {
+
+        private long rows;
+
+        private long seed;
+
+        private int schools;
+
+        private int childrenPerSchool;
+
+        // How far back histories go from endDate.
+        private int years;
+
+        // Orders before it are COMPLETED or CANCELLED; orders on it and in the week after are PAID.
+        private LocalDate endDate;
+
+        // Chance that an enrolled child orders on a school day.
+        private double orderRate;
+
+        private double cancelRate;
+
+        // Zipf exponent of meal popularity within a school; 0 makes every meal as popular.
+        private double mealSkew;
+
+        private int maxChildrenPerParent;
+
+        private int rowsPerStatement;
+
+        private int writerThreads;
+
+        // Empties lunch_orders first.
+        private boolean truncate;
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private long rows;
+
+        private long children;
+
+        private long parents;
+
+        private long paid;
+
+        private long completed;
+
+        private long cancelled;
+
+        private long statements;
+
+        private long elapsedMillis;
+
+        private double rowsPerSecond;
+    }
+}
@@ -2,6 +2,8 @@ package com.lunch.micro.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -43,6 +45,47 @@ public class GlobalExceptionHandler {
                 .body(createErrorResponse(exceptionMessage, HttpStatus.BAD_REQUEST));
     }
 
+    @ExceptionHandler(OrderConflictException.class)
+    public ResponseEntity<Map<String, String>> handleOrderConflictException(OrderConflictException e) {
+
+        logger.warn("Order conflict occurred: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(createErrorResponse(e.getMessage(), HttpStatus.CONFLICT));
+    }
+
+    // A version check failed on a write that does not retry by itself.
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+
+        String message = "The order was changed by another request, please try again";
+
+        logger.warn("Optimistic locking failure occurred: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(createErrorResponse(message, HttpStatus.CONFLICT));
+    }
+
+    @ExceptionHandler(IntakeOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleIntakeOverloadedException(IntakeOverloadedException e) {
+
+        logger.warn("Order intake overloaded: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(createErrorResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @ExceptionHandler(WalletUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleWalletUnavailableException(WalletUnavailableException e) {
+
+        logger.warn("Wallet unavailable: {}", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(createErrorResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationException(MethodArgumentNotValidException e) {
 
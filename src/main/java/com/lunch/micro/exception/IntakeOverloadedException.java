@@ -0,0 +1,9 @@
+package com.lunch.micro.exception;
+
+// The group-commit intake queue stayed full for longer than the caller is allowed to wait.
+public class IntakeOverloadedException extends RuntimeException {
+
+    public IntakeOverloadedException(String message) {
+        super(message);
+    }
+}
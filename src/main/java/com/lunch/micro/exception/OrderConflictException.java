@@ -0,0 +1,9 @@
+package com.lunch.micro.exception;
+
+// An order kept changing under a write until its retries ran out; the client may try again.
+public class OrderConflictException extends RuntimeException {
+
+    public OrderConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.lunch.micro.exception;
+
+// The wallet service could not be asked in time: it timed out, failed, or is shed by the circuit breaker or bulkhead.
+public class WalletUnavailableException extends RuntimeException {
+
+    public WalletUnavailableException(String message) {
+        super(message);
+    }
+
+    public WalletUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,66 @@
+package com.lunch.micro.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.time.LocalDate;
+
+// One chunk of the 13:00 completion run, chunked or partitioned. dbTime is the chunk's transaction; lockHoldTime is
+// the part of it after the UPDATE, while the completed rows stay locked.
+@Name(CompletionBatchEvent.NAME)
+@Label("Completion Batch")
+@Category({"Lunch", "Completion"})
+@Description("A chunk of PAID orders moved to COMPLETED by the completion run")
+@StackTrace(false)
+public class CompletionBatchEvent extends Event {
+
+    public static final String NAME = "com.lunch.micro.CompletionBatch";
+
+    public static final String OPERATION = "completionBatch";
+
+    @Label("Business Date")
+    private String businessDate;
+
+    @Label("Partition")
+    @Description("Partition number, or -1 for the chunked run")
+    private int partition;
+
+    @Label("Rows Selected")
+    private int rowsSelected;
+
+    @Label("Rows Updated")
+    private int rowsUpdated;
+
+    @Label("Database Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long dbTime;
+
+    @Label("Lock Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long lockHoldTime;
+
+    public static CompletionBatchEvent start() {
+        CompletionBatchEvent event = new CompletionBatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(LocalDate businessDate, int partition, int rowsSelected, int rowsUpdated,
+                       long dbNanos, long lockHoldNanos) {
+        end();
+        if (shouldCommit()) {
+            this.businessDate = businessDate.toString();
+            this.partition = partition;
+            this.rowsSelected = rowsSelected;
+            this.rowsUpdated = rowsUpdated;
+            this.dbTime = dbNanos;
+            this.lockHoldTime = lockHoldNanos;
+            commit();
+        }
+    }
+}
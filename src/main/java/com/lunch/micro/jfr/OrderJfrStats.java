@@ -0,0 +1,203 @@
+package com.lunch.micro.jfr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads this JVM's OrderOperationEvent and CompletionBatchEvent back through JFR event streaming and keeps rolling
+// statistics per operation over the last window-seconds, in one-second buckets. The stream is its own recording of
+// just these two events, so it runs alongside any -XX:StartFlightRecording; events reach it when the recording is
+// flushed, about once a second. With order.jfr.stream.enabled=false the events are still emitted for other
+// recordings to pick up, and the statistics stay empty.
+@Component
+public class OrderJfrStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderJfrStats.class);
+
+    private final boolean enabled;
+    private final int windowSeconds;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    private volatile RecordingStream stream;
+
+    public OrderJfrStats(@Value("${order.jfr.stream.enabled:true}") boolean enabled,
+                         @Value("${order.jfr.stream.window-seconds:60}") int windowSeconds) {
+        this.enabled = enabled;
+        this.windowSeconds = windowSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(OrderOperationEvent.NAME);
+            recording.enable(CompletionBatchEvent.NAME);
+            // The statistics are the output; the stream's on-disk chunks are dropped soon after they are read.
+            recording.setMaxAge(Duration.ofSeconds(windowSeconds));
+            recording.onEvent(OrderOperationEvent.NAME,
+                    event -> record(event.getString("operation"), event, event.getInt("rows")));
+            recording.onEvent(CompletionBatchEvent.NAME,
+                    event -> record(CompletionBatchEvent.OPERATION, event, event.getInt("rowsUpdated")));
+            recording.startAsync();
+            stream = recording;
+        } catch (RuntimeException e) {
+            logger.warn("JFR event streaming is unavailable, order operation statistics stay empty: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        RecordingStream recording = stream;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    public Map<String, Stats> stats() {
+
+        long now = Instant.now().getEpochSecond();
+        Map<String, Stats> stats = new TreeMap<>();
+        windows.forEach((operation, window) -> stats.put(operation, window.snapshot(now)));
+        return stats;
+    }
+
+    private void record(String operation, RecordedEvent event, int rows) {
+        windows.computeIfAbsent(operation, key -> new Window(windowSeconds))
+                .add(event.getEndTime().getEpochSecond(), event.getDuration().toNanos(),
+                        event.getDuration("dbTime").toNanos(), rows);
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private int windowSeconds;
+
+        // Events in the window.
+        private long count;
+
+        private double perSecond;
+
+        private long rows;
+
+        private double avgMillis;
+
+        private double maxMillis;
+
+        // Start of the second the slowest event in the window ended in.
+        private Instant maxAt;
+
+        private double avgDbMillis;
+
+        // Share of the time spent in the database, over all events in the window.
+        private double dbPercent;
+
+        // Events since the stream started.
+        private long totalCount;
+    }
+
+    // Ring of one-second buckets, filled by the stream's thread and read by admin requests.
+    private static final class Window {
+
+        private final long[] seconds;
+        private final long[] counts;
+        private final long[] rows;
+        private final long[] totalNanos;
+        private final long[] maxNanos;
+        private final long[] dbNanos;
+        private long totalCount;
+
+        private Window(int size) {
+            seconds = new long[size];
+            counts = new long[size];
+            rows = new long[size];
+            totalNanos = new long[size];
+            maxNanos = new long[size];
+            dbNanos = new long[size];
+            Arrays.fill(seconds, Long.MIN_VALUE);
+        }
+
+        synchronized void add(long second, long nanos, long db, int eventRows) {
+
+            int i = (int) Math.floorMod(second, (long) seconds.length);
+            if (seconds[i] != second) {
+                if (seconds[i] > second) {
+                    // Arrived more than a window late: its bucket already holds a newer second.
+                    totalCount++;
+                    return;
+                }
+                seconds[i] = second;
+                counts[i] = 0;
+                rows[i] = 0;
+                totalNanos[i] = 0;
+                maxNanos[i] = 0;
+                dbNanos[i] = 0;
+            }
+            counts[i]++;
+            rows[i] += eventRows;
+            totalNanos[i] += nanos;
+            maxNanos[i] = Math.max(maxNanos[i], nanos);
+            dbNanos[i] += db;
+            totalCount++;
+        }
+
+        synchronized Stats snapshot(long now) {
+
+            long count = 0;
+            long rowSum = 0;
+            long nanos = 0;
+            long db = 0;
+            long max = 0;
+            long maxSecond = 0;
+
+            for (int i = 0; i < seconds.length; i++) {
+                if (seconds[i] <= now - seconds.length || seconds[i] > now) {
+                    continue;
+                }
+                count += counts[i];
+                rowSum += rows[i];
+                nanos += totalNanos[i];
+                db += dbNanos[i];
+                if (maxNanos[i] > max) {
+                    max = maxNanos[i];
+                    maxSecond = seconds[i];
+                }
+            }
+
+            return Stats.builder()
+                    .windowSeconds(seconds.length)
+                    .count(count)
+                    .perSecond((double) count / seconds.length)
+                    .rows(rowSum)
+                    .avgMillis(count > 0 ? nanos / 1_000_000.0 / count : 0)
+                    .maxMillis(max / 1_000_000.0)
+                    .maxAt(count > 0 ? Instant.ofEpochSecond(maxSecond) : null)
+                    .avgDbMillis(count > 0 ? db / 1_000_000.0 / count : 0)
+                    .dbPercent(nanos > 0 ? 100.0 * db / nanos : 0)
+                    .totalCount(totalCount)
+                    .build();
+        }
+    }
+}
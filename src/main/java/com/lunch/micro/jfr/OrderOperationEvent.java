@@ -0,0 +1,60 @@
+package com.lunch.micro.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.UUID;
+
+// One createAndPayOrder, cancelOrder or getByChild call. The event's duration is the whole call; dbTime is the part
+// spent in its transactions and queries, so a slow call can be told apart from one waiting on the database.
+// The child is identified by its UUID's hash only. With no recording running, begin() and commit() cost next to nothing.
+@Name(OrderOperationEvent.NAME)
+@Label("Order Operation")
+@Category({"Lunch", "Orders"})
+@Description("An order operation of LunchOrderService, with its rows and database time")
+@StackTrace(false)
+public class OrderOperationEvent extends Event {
+
+    public static final String NAME = "com.lunch.micro.OrderOperation";
+
+    public static final String CREATE = "createAndPayOrder";
+    public static final String CANCEL = "cancelOrder";
+    public static final String GET_BY_CHILD = "getByChild";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Child Id Hash")
+    private int childIdHash;
+
+    @Label("Rows")
+    @Description("Orders created, cancelled or returned")
+    private int rows;
+
+    @Label("Database Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long dbTime;
+
+    public static OrderOperationEvent start(String operation, UUID childId) {
+        OrderOperationEvent event = new OrderOperationEvent();
+        event.operation = operation;
+        event.childIdHash = childId != null ? childId.hashCode() : 0;
+        event.begin();
+        return event;
+    }
+
+    public void addDbTime(long nanos) {
+        dbTime += nanos;
+    }
+
+    // Called from a finally block, so failed calls are recorded too, with the rows they got to.
+    public void finish(int rows) {
+        this.rows = rows;
+        commit();
+    }
+}
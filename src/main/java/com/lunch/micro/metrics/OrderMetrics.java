@@ -0,0 +1,49 @@
+package com.lunch.micro.metrics;
+
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.OrderEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Counts order status transitions from the lifecycle events OrderOutbox appends on this node. The bus hands them over
+// once their transaction has committed, so a rolled-back cancel or completion is never counted, and each transition is
+// counted by the node that made it only. A CREATED event is the order
+// entering PAID; CANCELLED and COMPLETED are the two ways out of it.
+@Component
+public class OrderMetrics {
+
+    public static final String TRANSITIONS = "lunch.orders.transitions";
+
+    private final Map<OrderEventType, Counter> transitions = new EnumMap<>(OrderEventType.class);
+
+    public OrderMetrics(OrderEventBus eventBus, MeterRegistry meterRegistry) {
+
+        transitions.put(OrderEventType.CREATED, transition(meterRegistry, "NONE", OrderStatus.PAID));
+        transitions.put(OrderEventType.CANCELLED, transition(meterRegistry, OrderStatus.PAID.name(), OrderStatus.CANCELLED));
+        transitions.put(OrderEventType.COMPLETED, transition(meterRegistry, OrderStatus.PAID.name(), OrderStatus.COMPLETED));
+
+        eventBus.subscribeLocal(this::count);
+    }
+
+    private void count(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            transitions.get(event.getEventType()).increment();
+        }
+    }
+
+    // Registered up front, so every transition is exported from zero rather than from its first occurrence.
+    private static Counter transition(MeterRegistry meterRegistry, String from, OrderStatus to) {
+        return Counter.builder(TRANSITIONS)
+                .description("Committed order status transitions")
+                .tag("from", from)
+                .tag("to", to.name())
+                .register(meterRegistry);
+    }
+}
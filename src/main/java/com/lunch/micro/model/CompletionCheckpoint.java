@@ -0,0 +1,46 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "completion_checkpoints",
+        uniqueConstraints = @UniqueConstraint(name = "uk_completion_checkpoint_job_date", columnNames = {"job_name", "business_date"}))
+public class CompletionCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "last_order_id")
+    private UUID lastOrderId;
+
+    @Column(nullable = false)
+    private long rowsCompleted;
+
+    @Column(nullable = false)
+    private int chunksCompleted;
+
+    private Instant updatedOn;
+
+    @PrePersist
+    @PreUpdate
+    public void onSave() {
+        updatedOn = Instant.now();
+    }
+}
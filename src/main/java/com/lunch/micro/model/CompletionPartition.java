@@ -0,0 +1,57 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "completion_partitions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_completion_partition_job_date_no",
+                columnNames = {"job_name", "business_date", "partition_no"}))
+public class CompletionPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "partition_no", nullable = false)
+    private int partitionNo;
+
+    @Column(nullable = false)
+    private int bucketFrom;
+
+    @Column(nullable = false)
+    private int bucketTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PartitionStatus status;
+
+    private String owner;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private Instant claimedUntil;
+
+    private UUID lastOrderId;
+
+    @Column(nullable = false)
+    private long rowsCompleted;
+
+    private Instant finishedOn;
+}
@@ -0,0 +1,21 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.DayOfWeek;
+
+// Stores the ISO day number (1 = Monday ... 7 = Sunday).
+@Converter
+public class DayOfWeekConverter implements AttributeConverter<DayOfWeek, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(DayOfWeek day) {
+        return day == null ? null : (byte) day.getValue();
+    }
+
+    @Override
+    public DayOfWeek convertToEntityAttribute(Byte code) {
+        return code == null ? null : DayOfWeek.of(code);
+    }
+}
@@ -0,0 +1,45 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// A client-supplied Idempotency-Key and the order it created. Written in the same transaction as the order,
+// so a key is recorded exactly when its order exists.
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_key", columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_idempotency_keys_created_on", columnList = "created_on"))
+public class IdempotencyKey {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Id
+    @UuidV7
+    private UUID id;
+
+    @Column(name = "idempotency_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String idempotencyKey;
+
+    // SHA-256 of the request fields; a key reused for a different request is rejected.
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id", nullable = false)
+    private UUID orderId;
+
+    @Column(name = "created_on", nullable = false)
+    private Instant createdOn;
+
+    @PrePersist
+    public void onCreate() {
+        createdOn = Instant.now();
+    }
+}
@@ -0,0 +1,47 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_runs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_job_run_job_date", columnNames = {"job_name", "business_date"}))
+public class JobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobRunStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private String owner;
+
+    private Long fencingToken;
+
+    private long rowsProcessed;
+
+    private String errorMessage;
+
+    private Instant startedOn;
+    private Instant finishedOn;
+}
@@ -0,0 +1,16 @@
+package com.lunch.micro.model;
+
+import lombok.Getter;
+
+@Getter
+public enum JobRunStatus {
+    RUNNING ("Running"),
+    SUCCEEDED ("Succeeded"),
+    FAILED ("Failed");
+
+    private String displayName;
+
+    JobRunStatus(String displayName) {
+        this.displayName = displayName;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -14,11 +15,18 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table (name = "lunch_orders")
+@Table (name = "lunch_orders", indexes = {
+        @Index(name = "idx_lunch_orders_status_day", columnList = "status, day_of_week"),
+        @Index(name = "idx_lunch_orders_child_status_completed", columnList = "child_id, status, completed_on"),
+        @Index(name = "idx_lunch_orders_parent_status_child", columnList = "parent_id, status, child_id"),
+        @Index(name = "idx_lunch_orders_wallet_status", columnList = "wallet_id, status")
+})
 public class LunchOrder {
 
+    public static final int CHILD_BUCKETS = 64;
+
    @Id
-   @GeneratedValue(strategy = GenerationType.UUID)
+   @UuidV7
     private UUID id;
 
     @Column(name = "parent_id", nullable = false)
@@ -30,6 +38,9 @@ public class LunchOrder {
     @Column(name = "child_id", nullable = false)
     private UUID childId;
 
+    @Column(name = "child_bucket", nullable = false)
+    private Integer childBucket;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Meal meal;
@@ -37,8 +48,9 @@ public class LunchOrder {
     @Column(nullable = false)
     private int quantity;
 
-    @Column(nullable = false)
-    private String dayOfWeek;
+    @Convert(converter = DayOfWeekConverter.class)
+    @Column(name = "day_of_week", nullable = false)
+    private DayOfWeek dayOfWeek;
 
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal unitPrice;
@@ -46,18 +58,29 @@ public class LunchOrder {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal total;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = OrderStatusConverter.class)
+    @Column(name = "status")
     @JsonProperty("status")
     private OrderStatus status;
 
     private Instant createdOn;
     private Instant updatedOn;
+    @Column(name = "completed_on")
     private Instant completedOn;
 
+    // Bumped by every write, including the bulk UPDATEs in LunchOrderRepository, so an entity written back from a
+    // stale read fails instead of overwriting a concurrent cancel or completion.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void onCreate() {
         createdOn = Instant.now();
         updatedOn = Instant.now();
+        if (childId != null) {
+            childBucket = bucketOf(childId);
+        }
     }
 
     @PreUpdate
@@ -65,5 +88,8 @@ public class LunchOrder {
         updatedOn = Instant.now();
     }
 
+    // Hash partition of the child used to split bulk work; taken from the low bits of the random UUID.
+    public static int bucketOf(UUID childId) {
+        return (int) (childId.getLeastSignificantBits() & (CHILD_BUCKETS - 1));
+    }
 }
-
@@ -0,0 +1,7 @@
+package com.lunch.micro.model;
+
+public enum OrderEventType {
+    CREATED,
+    CANCELLED,
+    COMPLETED
+}
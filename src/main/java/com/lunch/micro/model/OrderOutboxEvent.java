@@ -0,0 +1,62 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.UUID;
+
+// An order lifecycle change waiting to be delivered downstream. Appended in the transaction that changed the order,
+// so an event exists exactly when its change was committed; OrderOutboxRelay delivers it and sets publishedOn.
+// seq, assigned by the database on insert, gives the delivery order. A child's changes are serialized by its order
+// rows' locks, so their events get increasing seqs on any node; ids from different nodes' clocks would not.
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_published_seq", columnList = "published_on, seq")
+})
+public class OrderOutboxEvent {
+
+    @Id
+    @UuidV7
+    private UUID id;
+
+    @Column(name = "seq", insertable = false, updatable = false,
+            columnDefinition = "BIGINT NOT NULL AUTO_INCREMENT UNIQUE")
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 16)
+    private OrderEventType eventType;
+
+    @Column(name = "order_id", nullable = false)
+    private UUID orderId;
+
+    @Column(name = "child_id", nullable = false)
+    private UUID childId;
+
+    @Column(name = "parent_id", nullable = false)
+    private UUID parentId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private UUID walletId;
+
+    @Convert(converter = DayOfWeekConverter.class)
+    @Column(name = "day_of_week", nullable = false)
+    private DayOfWeek dayOfWeek;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "occurred_on", nullable = false)
+    private Instant occurredOn;
+
+    @Column(name = "published_on")
+    private Instant publishedOn;
+}
@@ -4,13 +4,25 @@ import lombok.Getter;
 
 @Getter
 public enum OrderStatus {
-    PAID ("Paid"),
-    CANCELLED ("Cancelled"),
-    COMPLETED ("Completed");
+    PAID ((byte) 1, "Paid"),
+    CANCELLED ((byte) 2, "Cancelled"),
+    COMPLETED ((byte) 3, "Completed");
 
+    // Persisted value; never renumber an existing status.
+    private byte code;
     private String displayName;
 
-    OrderStatus(String displayName) {
+    OrderStatus(byte code, String displayName) {
+        this.code = code;
         this.displayName = displayName;
     }
+
+    public static OrderStatus fromCode(byte code) {
+        for (OrderStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown order status code: " + code);
+    }
 }
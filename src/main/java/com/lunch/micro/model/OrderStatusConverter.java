@@ -0,0 +1,18 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(OrderStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public OrderStatus convertToEntityAttribute(Byte code) {
+        return code == null ? null : OrderStatus.fromCode(code);
+    }
+}
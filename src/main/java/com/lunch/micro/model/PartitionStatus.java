@@ -0,0 +1,16 @@
+package com.lunch.micro.model;
+
+import lombok.Getter;
+
+@Getter
+public enum PartitionStatus {
+    PENDING ("Pending"),
+    CLAIMED ("Claimed"),
+    DONE ("Done");
+
+    private String displayName;
+
+    PartitionStatus(String displayName) {
+        this.displayName = displayName;
+    }
+}
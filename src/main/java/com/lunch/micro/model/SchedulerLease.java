@@ -0,0 +1,30 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "lease_name", nullable = false)
+    private String name;
+
+    private String owner;
+
+    @Column(nullable = false)
+    private long fencingToken;
+
+    private Instant acquiredOn;
+
+    @Column(nullable = false)
+    private Instant leaseUntil;
+}
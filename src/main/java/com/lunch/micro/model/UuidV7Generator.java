@@ -0,0 +1,66 @@
+package com.lunch.micro.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+// Time-ordered UUIDs (RFC 9562 version 7): 48 bits of Unix milliseconds, a 12-bit counter, 62 random bits.
+// Ids are stored big-endian as BINARY(16), so consecutive inserts land at the right edge of the primary key instead
+// of a random leaf page. The counter keeps ids from one JVM strictly increasing within a millisecond; if it
+// overflows, the timestamp is advanced by one millisecond rather than going backwards.
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    public static UUID generate() {
+        return generate(lastTimestampAndCounter, System.currentTimeMillis());
+    }
+
+    static UUID generate(AtomicLong lastTimestampAndCounter, long epochMillis) {
+
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(last + 1, epochMillis << 12));
+
+        long mostSignificant = (timestampAndCounter >>> 12) << 16 | 0x7000L | (timestampAndCounter & 0xFFFL);
+        long leastSignificant = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    // A version 7 id for the given instant whose random bits come from the caller, so a seeded generator
+    // (SyntheticOrderGenerator) produces the same ids on every run.
+    public static UUID generate(long epochMillis, RandomGenerator random) {
+
+        long mostSignificant = epochMillis << 16 | 0x7000L | random.nextLong() & 0xFFFL;
+        long leastSignificant = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    // An id assigned before the insert (an order paid for under its id) is kept.
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return currentValue != null ? currentValue : generate();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,43 @@
+package com.lunch.micro.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// One node's wallet-hold position on one wallet, written by WalletHolds on every settlement run: what it has spent and
+// not had settled yet, and when it last spent or refunded. recordedOn is refreshed on each run, so rows of a node that
+// stopped running age out. Lets the node reconciling a wallet see what the other nodes still owe it.
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "wallet_hold_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_wallet_hold_ledger_node_wallet",
+                columnNames = {"node_id", "wallet_id"}))
+public class WalletHoldLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private UUID walletId;
+
+    // Spent net of refunds, including a settlement sent but not yet confirmed.
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal unsettled;
+
+    @Column(name = "last_used_on", nullable = false)
+    private Instant lastUsedOn;
+
+    @Column(name = "recorded_on", nullable = false)
+    private Instant recordedOn;
+}
@@ -0,0 +1,43 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.web.dto.OrderEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+
+// POSTs each batch as a JSON array to order.outbox.http.url. Any non-2xx answer or I/O error leaves the batch
+// undelivered, so the receiver must accept a batch it has already seen.
+@Component
+@ConditionalOnProperty(name = "order.outbox.sink", havingValue = "http")
+public class HttpOrderEventSink implements OrderEventSink {
+
+    private final RestClient restClient;
+    private final String url;
+
+    public HttpOrderEventSink(RestClient.Builder restClientBuilder,
+                              @Value("${order.outbox.http.url}") String url,
+                              @Value("${order.outbox.http.timeout-ms:5000}") long timeoutMillis) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(timeoutMillis));
+        requestFactory.setReadTimeout(Duration.ofMillis(timeoutMillis));
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+        this.url = url;
+    }
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+
+        restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(events)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
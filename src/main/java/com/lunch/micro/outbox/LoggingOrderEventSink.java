@@ -0,0 +1,27 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.web.dto.OrderEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Default sink until a consumer is configured: the events are only logged.
+@Component
+@ConditionalOnProperty(name = "order.outbox.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingOrderEventSink implements OrderEventSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingOrderEventSink.class);
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+
+        if (logger.isDebugEnabled()) {
+            events.forEach(event -> logger.debug("Order event {} {} for order {} (child {})",
+                    event.getEventId(), event.getEventType(), event.getOrderId(), event.getChildId()));
+        }
+        logger.info("Published {} order events to the log", events.size());
+    }
+}
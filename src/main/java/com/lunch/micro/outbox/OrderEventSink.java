@@ -0,0 +1,12 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.web.dto.OrderEvent;
+
+import java.util.List;
+
+// Where OrderOutboxRelay delivers order events. A batch is delivered as a whole and in order; throwing means none of
+// it counts as delivered, and the relay offers the same batch again on its next run.
+public interface OrderEventSink {
+
+    void publish(List<OrderEvent> events);
+}
@@ -0,0 +1,104 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderOutboxEvent;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.UuidV7Generator;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import com.lunch.micro.web.dto.OrderEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Appends order lifecycle events to order_outbox. Every method must join the transaction that changes the order,
+// so an event is committed exactly when its change is; OrderOutboxRelay delivers them downstream and OrderOutboxFeed
+// to every node's OrderEventBus afterwards. The same events go to this node's local bus listeners once the
+// transaction commits.
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class OrderOutbox {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final LunchOrderRepository orderRepository;
+    private final OrderEventBus eventBus;
+
+    public OrderOutbox(OrderOutboxRepository outboxRepository, LunchOrderRepository orderRepository,
+                       OrderEventBus eventBus) {
+        this.outboxRepository = outboxRepository;
+        this.orderRepository = orderRepository;
+        this.eventBus = eventBus;
+    }
+
+    public void orderCreated(LunchOrder order) {
+        append(List.of(event(OrderEventType.CREATED, LunchOrderResponse.from(order), order.getCreatedOn())));
+    }
+
+    public void ordersCreated(List<LunchOrder> orders) {
+        append(orders.stream()
+                .map(order -> event(OrderEventType.CREATED, LunchOrderResponse.from(order), order.getCreatedOn()))
+                .toList());
+    }
+
+    public void orderCompleted(LunchOrder order) {
+        append(List.of(event(OrderEventType.COMPLETED, LunchOrderResponse.from(order), order.getCompletedOn())));
+    }
+
+    // Called after the conditional cancel UPDATE matched; the event is copied from the row in the same statement.
+    // The local listeners only get what the caller knows; the feed reads the full row back.
+    public void orderCancelled(UUID orderId, UUID childId, Instant cancelledOn) {
+
+        UUID eventId = UuidV7Generator.generate();
+        outboxRepository.appendForOrder(eventId, OrderEventType.CANCELLED, orderId, cancelledOn);
+
+        eventBus.publishLocal(List.of(OrderEvent.builder()
+                .eventId(eventId)
+                .eventType(OrderEventType.CANCELLED)
+                .orderId(orderId)
+                .childId(childId)
+                .occurredOn(cancelledOn)
+                .build()));
+    }
+
+    // Called after completePaidOrdersByIds(ids, ..., completedOn) in the same transaction. Under InnoDB's repeatable
+    // read an order another transaction completed meanwhile still reads as PAID here, so only this run's orders match;
+    // at weaker isolation such an order gets a second COMPLETED event, which at-least-once consumers already ignore.
+    // Returns the children whose orders got an event.
+    public Set<UUID> ordersCompleted(List<UUID> ids, Instant completedOn) {
+
+        List<OrderOutboxEvent> events = orderRepository.findOrderResponsesByIdsAndStatus(ids, OrderStatus.COMPLETED)
+                .stream()
+                .map(order -> event(OrderEventType.COMPLETED, order, completedOn))
+                .toList();
+
+        append(events);
+        return events.stream().map(OrderOutboxEvent::getChildId).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private void append(List<OrderOutboxEvent> events) {
+        eventBus.publishLocal(outboxRepository.saveAll(events).stream().map(OrderEvent::from).toList());
+    }
+
+    private static OrderOutboxEvent event(OrderEventType eventType, LunchOrderResponse order, Instant occurredOn) {
+        return OrderOutboxEvent.builder()
+                .eventType(eventType)
+                .orderId(order.getId())
+                .childId(order.getChildId())
+                .parentId(order.getParentId())
+                .walletId(order.getWalletId())
+                .dayOfWeek(order.getDayOfWeek())
+                .total(order.getTotal())
+                .occurredOn(occurredOn != null ? occurredOn : Instant.now())
+                .build();
+    }
+}
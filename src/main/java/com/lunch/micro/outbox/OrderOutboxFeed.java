@@ -0,0 +1,187 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.model.OrderOutboxEvent;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.OrderEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Tails order_outbox on every node and publishes what other nodes, and this one, committed to the local OrderEventBus,
+// so a stream or cache on any node sees every order change. It follows seq from where the table stood at startup.
+// seqs are taken at insert and committed in any order, so a seq skipped over may still commit: it is kept as a gap and
+// looked up again on every poll until it shows up or gap-grace-ms has passed, after which it is taken for a rollback.
+// Delivery is at-most-once per node; a subscriber that must not miss anything re-reads its orders when it connects.
+@Component
+public class OrderOutboxFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxFeed.class);
+    private static final int MAX_GAPS = 10_000;
+
+    private final OrderOutboxRepository outboxRepository;
+    private final OrderEventBus eventBus;
+    private final int batchSize;
+    private final long gapGraceNanos;
+
+    // Missing seqs below position, with the time they were first passed over.
+    private final Map<Long, Long> gaps = new TreeMap<>();
+    private long position;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishedLate = new LongAdder();
+    private final LongAdder gapsExpired = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+
+    public OrderOutboxFeed(OrderOutboxRepository outboxRepository,
+                           OrderEventBus eventBus,
+                           @Value("${order.outbox.feed.batch-size:1000}") int batchSize,
+                           @Value("${order.outbox.feed.gap-grace-ms:10000}") long gapGraceMillis) {
+        this.outboxRepository = outboxRepository;
+        this.eventBus = eventBus;
+        this.batchSize = batchSize;
+        this.gapGraceNanos = TimeUnit.MILLISECONDS.toNanos(gapGraceMillis);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        position = currentMaxSeq();
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.feed.interval-ms:200}")
+    public void follow() {
+
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.warn("Reading order_outbox for the event bus failed, retrying on the next poll: {}", e.getMessage());
+        }
+    }
+
+    // Publishes everything committed since the last poll and returns how many events that was.
+    public synchronized int poll() {
+
+        long now = System.nanoTime();
+        int count = publishLateEvents(now);
+
+        while (true) {
+
+            List<OrderOutboxEvent> events = outboxRepository.findAfterSeq(position, Limit.of(batchSize));
+            if (events.isEmpty()) {
+                restartIfTableWasReset();
+                break;
+            }
+
+            for (OrderOutboxEvent event : events) {
+                for (long missing = position + 1; missing < event.getSeq() && gaps.size() < MAX_GAPS; missing++) {
+                    gaps.put(missing, now);
+                }
+                position = event.getSeq();
+            }
+            publish(events);
+            count += events.size();
+
+            if (events.size() < batchSize) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int publishLateEvents(long now) {
+
+        Iterator<Map.Entry<Long, Long>> expiring = gaps.entrySet().iterator();
+        while (expiring.hasNext()) {
+            if (now - expiring.next().getValue() > gapGraceNanos) {
+                expiring.remove();
+                gapsExpired.increment();
+            }
+        }
+        if (gaps.isEmpty()) {
+            return 0;
+        }
+
+        List<OrderOutboxEvent> late = outboxRepository.findBySeqIn(new ArrayList<>(gaps.keySet()));
+        late.forEach(event -> gaps.remove(event.getSeq()));
+        publish(late);
+        publishedLate.add(late.size());
+        return late.size();
+    }
+
+    // A recreated table numbers from the start again; without this the feed would wait for it to pass the old position.
+    private void restartIfTableWasReset() {
+
+        long max = currentMaxSeq();
+        if (max < position) {
+            logger.warn("order_outbox seq went back from {} to {}, following it from there", position, max);
+            position = max;
+            gaps.clear();
+        }
+    }
+
+    private long currentMaxSeq() {
+        Long max = outboxRepository.findMaxSeq();
+        return max != null ? max : 0;
+    }
+
+    private void publish(List<OrderOutboxEvent> events) {
+
+        if (events.isEmpty()) {
+            return;
+        }
+        eventBus.publish(events.stream().map(OrderEvent::from).toList());
+        published.add(events.size());
+        OrderOutboxEvent newest = events.get(events.size() - 1);
+        lastLagMillis.set(Math.max(0, System.currentTimeMillis() - newest.getOccurredOn().toEpochMilli()));
+    }
+
+    public synchronized Stats stats() {
+        return Stats.builder()
+                .position(position)
+                .openGaps(gaps.size())
+                .publishedCount(published.sum())
+                .publishedLateCount(publishedLate.sum())
+                .expiredGapCount(gapsExpired.sum())
+                .lastLagMillis(lastLagMillis.get())
+                .build();
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        // Highest seq published.
+        private long position;
+
+        // seqs passed over that may still commit.
+        private int openGaps;
+
+        private long publishedCount;
+
+        // Events found in a gap, committed after a higher seq was already published.
+        private long publishedLateCount;
+
+        // Gaps given up on after gap-grace-ms, mostly rolled-back inserts.
+        private long expiredGapCount;
+
+        // From the newest published event's change to its publication.
+        private long lastLagMillis;
+    }
+}
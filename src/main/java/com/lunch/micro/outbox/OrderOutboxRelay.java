@@ -0,0 +1,196 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.model.OrderOutboxEvent;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.scheduling.ClusterSingleton;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import com.lunch.micro.web.dto.OrderEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Delivers order_outbox to the configured OrderEventSink. Events are read in seq order in batches; a batch is marked
+// published only after the sink accepted it, so delivery is at-least-once. A failed batch stops the run and is offered
+// again next time before anything behind it. One node relays at a time, and only takes the lease when there is work.
+// An order's events arrive in order: each is written only after the previous one committed. Events of different
+// orders, even of one child, can arrive out of commit order, since a seq taken earlier may commit after a later one
+// was delivered.
+@Service
+public class OrderOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxRelay.class);
+    public static final String ORDER_OUTBOX_RELAY_JOB = "order-outbox-relay";
+    private static final Duration RELAY_LEASE = Duration.ofSeconds(60);
+
+    private final OrderOutboxRepository outboxRepository;
+    private final OrderEventSink sink;
+    private final SchedulerLeaseService leaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration retention;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder deliveryFailures = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final LongAdder totalDrainNanos = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private volatile double lastRunEventsPerSecond;
+
+    public OrderOutboxRelay(OrderOutboxRepository outboxRepository,
+                            OrderEventSink sink,
+                            SchedulerLeaseService leaseService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${order.outbox.relay.batch-size:500}") int batchSize,
+                            @Value("${order.outbox.relay.max-batches-per-run:20}") int maxBatchesPerRun,
+                            @Value("${order.outbox.retention-hours:24}") long retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.leaseService = leaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    // Runs every second on every node, so an empty outbox is checked with a plain read instead of a lease write.
+    @Scheduled(fixedDelayString = "${order.outbox.relay.interval-ms:1000}")
+    public void relay() {
+
+        if (!outboxRepository.existsByPublishedOnIsNull()) {
+            return;
+        }
+
+        int delivered = leaseService.runWithLease(ORDER_OUTBOX_RELAY_JOB, RELAY_LEASE, this::drain).orElse(0);
+        if (delivered > 0) {
+            logger.info("Outbox relay delivered {} order events", delivered);
+        }
+    }
+
+    @Scheduled(cron = "${order.outbox.purge-cron:0 30 3 * * ?}")
+    @ClusterSingleton(ORDER_OUTBOX_RELAY_JOB)
+    public void purgePublished() {
+
+        Integer purged = transactionTemplate.execute(status ->
+                outboxRepository.deletePublishedBefore(Instant.now().minus(retention)));
+        logger.info("Purged {} published order events older than {}", purged, retention);
+    }
+
+    // Delivers up to max-batches-per-run batches and returns how many events were delivered.
+    public int drain() {
+
+        long start = System.nanoTime();
+        int delivered = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+
+            List<OrderOutboxEvent> events = outboxRepository.findUnpublished(Limit.of(batchSize));
+            if (events.isEmpty()) {
+                break;
+            }
+
+            try {
+                sink.publish(events.stream().map(OrderEvent::from).toList());
+            } catch (RuntimeException e) {
+                deliveryFailures.increment();
+                logger.warn("Delivering {} order events starting at {} failed, retrying on the next run: {}",
+                        events.size(), events.get(0).getId(), e.getMessage());
+                break;
+            }
+
+            Instant publishedOn = Instant.now();
+            List<UUID> ids = events.stream().map(OrderOutboxEvent::getId).toList();
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.markPublished(ids, publishedOn));
+
+            recordBatch(events, publishedOn);
+            delivered += events.size();
+
+            if (events.size() < batchSize) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        if (delivered > 0) {
+            totalDrainNanos.add(elapsedNanos);
+            lastRunEventsPerSecond = delivered * 1_000_000_000.0 / Math.max(elapsedNanos, 1);
+        }
+        return delivered;
+    }
+
+    // Lag runs from the moment the order changed to the moment the sink accepted its event.
+    private void recordBatch(List<OrderOutboxEvent> events, Instant publishedOn) {
+
+        long batchLagMillis = 0;
+        for (OrderOutboxEvent event : events) {
+            long lagMillis = Math.max(0, Duration.between(event.getOccurredOn(), publishedOn).toMillis());
+            totalLagMillis.add(lagMillis);
+            batchLagMillis = Math.max(batchLagMillis, lagMillis);
+        }
+        published.add(events.size());
+        lastBatchSize.set(events.size());
+        lastLagMillis.set(batchLagMillis);
+        maxLagMillis.accumulateAndGet(batchLagMillis, Math::max);
+    }
+
+    public Stats stats() {
+
+        long publishedCount = published.sum();
+        long drainNanos = totalDrainNanos.sum();
+
+        return Stats.builder()
+                .pendingCount(outboxRepository.countUnpublished())
+                .publishedCount(publishedCount)
+                .deliveryFailures(deliveryFailures.sum())
+                .lastBatchSize(lastBatchSize.get())
+                .lastLagMillis(lastLagMillis.get())
+                .maxLagMillis(maxLagMillis.get())
+                .averageLagMillis(publishedCount == 0 ? 0 : totalLagMillis.sum() / (double) publishedCount)
+                .lastRunEventsPerSecond(lastRunEventsPerSecond)
+                .averageEventsPerSecond(drainNanos == 0 ? 0 : publishedCount * 1_000_000_000.0 / drainNanos)
+                .build();
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        // Events committed but not yet delivered.
+        private long pendingCount;
+
+        private long publishedCount;
+
+        private long deliveryFailures;
+
+        private long lastBatchSize;
+
+        // Oldest event of the last delivered batch: time from the change to its delivery.
+        private long lastLagMillis;
+
+        private long maxLagMillis;
+
+        private double averageLagMillis;
+
+        private double lastRunEventsPerSecond;
+
+        private double averageEventsPerSecond;
+    }
+}
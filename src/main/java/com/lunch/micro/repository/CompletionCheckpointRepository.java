@@ -0,0 +1,15 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.CompletionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CompletionCheckpointRepository extends JpaRepository<CompletionCheckpoint, UUID> {
+
+    Optional<CompletionCheckpoint> findByJobNameAndBusinessDate(String jobName, LocalDate businessDate);
+}
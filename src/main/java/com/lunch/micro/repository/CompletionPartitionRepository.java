@@ -0,0 +1,63 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.CompletionPartition;
+import com.lunch.micro.model.PartitionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CompletionPartitionRepository extends JpaRepository<CompletionPartition, UUID> {
+
+    long countByJobNameAndBusinessDate(String jobName, LocalDate businessDate);
+
+    List<CompletionPartition> findByJobNameAndBusinessDateOrderByPartitionNo(String jobName, LocalDate businessDate);
+
+    @Query("SELECT p.id FROM CompletionPartition p WHERE p.jobName = :jobName AND p.businessDate = :businessDate " +
+           "AND (p.status = :pendingStatus OR (p.status = :claimedStatus AND p.claimedUntil < :now)) ORDER BY p.partitionNo")
+    List<UUID> findClaimableIds(@Param("jobName") String jobName,
+                                @Param("businessDate") LocalDate businessDate,
+                                @Param("pendingStatus") PartitionStatus pendingStatus,
+                                @Param("claimedStatus") PartitionStatus claimedStatus,
+                                @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE CompletionPartition p SET p.status = :claimedStatus, p.owner = :owner, p.attempts = p.attempts + 1, " +
+           "p.claimedUntil = :claimedUntil " +
+           "WHERE p.id = :id AND (p.status = :pendingStatus OR (p.status = :claimedStatus AND p.claimedUntil < :now))")
+    int claim(@Param("id") UUID id,
+              @Param("owner") String owner,
+              @Param("pendingStatus") PartitionStatus pendingStatus,
+              @Param("claimedStatus") PartitionStatus claimedStatus,
+              @Param("now") Instant now,
+              @Param("claimedUntil") Instant claimedUntil);
+
+    @Modifying
+    @Query("UPDATE CompletionPartition p SET p.claimedUntil = :claimedUntil, p.lastOrderId = :lastOrderId, " +
+           "p.rowsCompleted = p.rowsCompleted + :rows " +
+           "WHERE p.id = :id AND p.owner = :owner AND p.attempts = :attempt AND p.status = :claimedStatus")
+    int recordProgress(@Param("id") UUID id,
+                       @Param("owner") String owner,
+                       @Param("attempt") int attempt,
+                       @Param("claimedStatus") PartitionStatus claimedStatus,
+                       @Param("lastOrderId") UUID lastOrderId,
+                       @Param("rows") long rows,
+                       @Param("claimedUntil") Instant claimedUntil);
+
+    @Modifying
+    @Query("UPDATE CompletionPartition p SET p.status = :doneStatus, p.finishedOn = :now " +
+           "WHERE p.id = :id AND p.owner = :owner AND p.attempts = :attempt AND p.status = :claimedStatus")
+    int markDone(@Param("id") UUID id,
+                 @Param("owner") String owner,
+                 @Param("attempt") int attempt,
+                 @Param("claimedStatus") PartitionStatus claimedStatus,
+                 @Param("doneStatus") PartitionStatus doneStatus,
+                 @Param("now") Instant now);
+}
@@ -0,0 +1,25 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, UUID> {
+
+    // Declared as JPQL rather than derived from the method name: a derived query is rebuilt as a criteria query
+    // on every call, which Hibernate does not plan-cache, and this lookup runs on every keyed create.
+    @Query("SELECT k FROM IdempotencyKey k WHERE k.idempotencyKey = :idempotencyKey")
+    Optional<IdempotencyKey> findByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdOn < :createdBefore")
+    int deleteCreatedBefore(@Param("createdBefore") Instant createdBefore);
+}
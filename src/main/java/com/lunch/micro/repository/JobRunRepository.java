@@ -0,0 +1,50 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.model.JobRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface JobRunRepository extends JpaRepository<JobRun, UUID> {
+
+    Optional<JobRun> findByJobNameAndBusinessDate(String jobName, LocalDate businessDate);
+
+    List<JobRun> findByJobNameAndBusinessDateBetween(String jobName, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("UPDATE JobRun r SET r.status = :runningStatus, r.attempts = r.attempts + 1, r.owner = :owner, " +
+           "r.fencingToken = :fencingToken, r.startedOn = :now, r.finishedOn = NULL, r.errorMessage = NULL " +
+           "WHERE r.id = :id AND r.status = :expectedStatus AND r.attempts = :expectedAttempts")
+    int claim(@Param("id") UUID id,
+              @Param("expectedStatus") JobRunStatus expectedStatus,
+              @Param("expectedAttempts") int expectedAttempts,
+              @Param("runningStatus") JobRunStatus runningStatus,
+              @Param("owner") String owner,
+              @Param("fencingToken") Long fencingToken,
+              @Param("now") Instant now);
+
+    // Closes the given attempt only while it still owns the run: a worker whose run was taken over as stale
+    // updates nothing and leaves the newer attempt's entry alone.
+    @Modifying
+    @Query("UPDATE JobRun r SET r.status = :status, r.rowsProcessed = :rowsProcessed, r.finishedOn = :finishedOn, " +
+           "r.errorMessage = :errorMessage " +
+           "WHERE r.id = :id AND r.status = :runningStatus AND r.attempts = :attempts AND r.owner = :owner")
+    int finish(@Param("id") UUID id,
+               @Param("runningStatus") JobRunStatus runningStatus,
+               @Param("attempts") int attempts,
+               @Param("owner") String owner,
+               @Param("status") JobRunStatus status,
+               @Param("rowsProcessed") long rowsProcessed,
+               @Param("finishedOn") Instant finishedOn,
+               @Param("errorMessage") String errorMessage);
+}
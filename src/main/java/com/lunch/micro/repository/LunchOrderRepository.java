@@ -2,24 +2,116 @@ package com.lunch.micro.repository;
 
 import com.lunch.micro.model.LunchOrder;
 import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface LunchOrderRepository extends JpaRepository<LunchOrder, UUID> {
 
-    @Query("SELECT o FROM LunchOrder o WHERE o.childId = :childId AND " +
-           "o.status != :cancelledStatus AND " +
-           "(o.status != :completedStatus OR (o.status = :completedStatus AND o.completedOn IS NOT NULL AND o.completedOn > :sevenHoursAgo))")
-    List<LunchOrder> findAllByChildIdExcludingOldCompleted(
+    // Read path of getByChild: a child's PAID orders, then its recently COMPLETED ones. The two equality/range
+    // branches are each a range scan on (child_id, status, completed_on), where a status != / OR predicate would
+    // read the child's whole history. Rows are built straight into the response DTO, so no managed entities or
+    // dirty-checking snapshots are created. When this method opens the transaction, readOnly also switches the
+    // session to FlushMode.MANUAL; inside a caller's read-write transaction it still auto-flushes, so pending
+    // writes of that caller are visible.
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.lunch.micro.web.dto.LunchOrderResponse(o.id, o.parentId, o.walletId, o.childId, o.meal, " +
+           "o.quantity, o.dayOfWeek, o.unitPrice, o.total, o.status, o.createdOn, o.updatedOn, o.completedOn) " +
+           "FROM LunchOrder o WHERE o.childId = :childId AND o.status = :paidStatus " +
+           "UNION ALL " +
+           "SELECT new com.lunch.micro.web.dto.LunchOrderResponse(o.id, o.parentId, o.walletId, o.childId, o.meal, " +
+           "o.quantity, o.dayOfWeek, o.unitPrice, o.total, o.status, o.createdOn, o.updatedOn, o.completedOn) " +
+           "FROM LunchOrder o WHERE o.childId = :childId AND o.status = :completedStatus " +
+           "AND o.completedOn > :completedAfter")
+    List<LunchOrderResponse> findOrderResponsesByChildId(
             @Param("childId") UUID childId,
+            @Param("paidStatus") OrderStatus paidStatus,
             @Param("completedStatus") OrderStatus completedStatus,
+            @Param("completedAfter") Instant completedAfter);
+
+    // Children of a parent with an order in the given status; an index-only range scan on (parent_id, status, child_id).
+    @Transactional(readOnly = true)
+    @Query("SELECT DISTINCT o.childId FROM LunchOrder o WHERE o.parentId = :parentId AND o.status = :status")
+    List<UUID> findChildIdsByParentIdAndStatus(
+            @Param("parentId") UUID parentId,
+            @Param("status") OrderStatus status);
+
+    // What a wallet has been charged for, for reconciling wallet holds; a range scan on (wallet_id, status).
+    @Transactional(readOnly = true)
+    @Query("SELECT COALESCE(SUM(o.total), 0) FROM LunchOrder o WHERE o.walletId = :walletId AND o.status IN :statuses")
+    BigDecimal sumTotalByWalletIdAndStatusIn(
+            @Param("walletId") UUID walletId,
+            @Param("statuses") Collection<OrderStatus> statuses);
+
+    // When any of the wallet's orders last changed, for reconciling only wallets that have been quiet.
+    @Transactional(readOnly = true)
+    @Query("SELECT MAX(o.updatedOn) FROM LunchOrder o WHERE o.walletId = :walletId")
+    Instant findLastUpdatedOnByWalletId(@Param("walletId") UUID walletId);
+
+    @Query("SELECT o.id FROM LunchOrder o WHERE o.status = :paidStatus AND o.dayOfWeek = :dayOfWeek " +
+           "AND o.createdOn < :createdBefore AND o.id > :afterId ORDER BY o.id")
+    List<UUID> findPaidOrderIdsForDayAfter(
+            @Param("dayOfWeek") DayOfWeek dayOfWeek,
+            @Param("paidStatus") OrderStatus paidStatus,
+            @Param("createdBefore") Instant createdBefore,
+            @Param("afterId") UUID afterId,
+            Limit limit);
+
+    @Query("SELECT o.id FROM LunchOrder o WHERE o.status = :paidStatus AND o.dayOfWeek = :dayOfWeek " +
+           "AND o.childBucket >= :bucketFrom AND o.childBucket < :bucketTo " +
+           "AND o.createdOn < :createdBefore AND o.id > :afterId ORDER BY o.id")
+    List<UUID> findPaidOrderIdsForDayAndBucketsAfter(
+            @Param("dayOfWeek") DayOfWeek dayOfWeek,
+            @Param("paidStatus") OrderStatus paidStatus,
+            @Param("bucketFrom") int bucketFrom,
+            @Param("bucketTo") int bucketTo,
+            @Param("createdBefore") Instant createdBefore,
+            @Param("afterId") UUID afterId,
+            Limit limit);
+
+    @Modifying
+    @Query("UPDATE LunchOrder o SET o.status = :completedStatus, o.completedOn = :now, o.updatedOn = :now, o.version = o.version + 1 " +
+           "WHERE o.id IN :ids AND o.status = :paidStatus")
+    int completePaidOrdersByIds(
+            @Param("ids") List<UUID> ids,
+            @Param("paidStatus") OrderStatus paidStatus,
+            @Param("completedStatus") OrderStatus completedStatus,
+            @Param("now") Instant now);
+
+    // The orders of a chunk after this transaction's completePaidOrdersByIds, for their outbox events. completedOn is
+    // not compared: the column may hold fewer fractional digits than the Instant the UPDATE was given.
+    @Query("SELECT new com.lunch.micro.web.dto.LunchOrderResponse(o.id, o.parentId, o.walletId, o.childId, o.meal, " +
+           "o.quantity, o.dayOfWeek, o.unitPrice, o.total, o.status, o.createdOn, o.updatedOn, o.completedOn) " +
+           "FROM LunchOrder o WHERE o.id IN :ids AND o.status = :status")
+    List<LunchOrderResponse> findOrderResponsesByIdsAndStatus(
+            @Param("ids") List<UUID> ids,
+            @Param("status") OrderStatus status);
+
+    // Compare-and-set cancel: matches only the child's PAID order whose day can still be cancelled, so ownership,
+    // status and cut-off are decided by the row lock of this one statement. Returns 0 when the order cannot be cancelled.
+    // Flushes pending changes first and clears afterwards, so a caller sharing the persistence context
+    // does not read back the order as it was before the update.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE LunchOrder o SET o.status = :cancelledStatus, o.updatedOn = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.childId = :childId AND o.status = :paidStatus AND o.dayOfWeek IN :cancellableDays")
+    int cancelPaidOrder(
+            @Param("id") UUID id,
+            @Param("childId") UUID childId,
+            @Param("paidStatus") OrderStatus paidStatus,
             @Param("cancelledStatus") OrderStatus cancelledStatus,
-            @Param("sevenHoursAgo") Instant sevenHoursAgo);
+            @Param("cancellableDays") Collection<DayOfWeek> cancellableDays,
+            @Param("now") Instant now);
 }
@@ -0,0 +1,56 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, UUID> {
+
+    // Copies the event fields from the order row, so a cancel costs no read. The id is passed in: Hibernate cannot
+    // run its own generator inside an INSERT ... SELECT.
+    @Modifying
+    @Query("INSERT INTO OrderOutboxEvent (id, eventType, orderId, childId, parentId, walletId, dayOfWeek, total, occurredOn) " +
+           "SELECT :id, :eventType, o.id, o.childId, o.parentId, o.walletId, o.dayOfWeek, o.total, :now " +
+           "FROM LunchOrder o WHERE o.id = :orderId")
+    int appendForOrder(
+            @Param("id") UUID id,
+            @Param("eventType") OrderEventType eventType,
+            @Param("orderId") UUID orderId,
+            @Param("now") Instant now);
+
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.publishedOn IS NULL ORDER BY e.seq")
+    List<OrderOutboxEvent> findUnpublished(Limit limit);
+
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.seq > :after ORDER BY e.seq")
+    List<OrderOutboxEvent> findAfterSeq(@Param("after") long after, Limit limit);
+
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.seq IN :seqs ORDER BY e.seq")
+    List<OrderOutboxEvent> findBySeqIn(@Param("seqs") Collection<Long> seqs);
+
+    @Query("SELECT MAX(e.seq) FROM OrderOutboxEvent e")
+    Long findMaxSeq();
+
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedOn = :now WHERE e.id IN :ids")
+    int markPublished(@Param("ids") List<UUID> ids, @Param("now") Instant now);
+
+    @Query("SELECT COUNT(e) FROM OrderOutboxEvent e WHERE e.publishedOn IS NULL")
+    long countUnpublished();
+
+    boolean existsByPublishedOnIsNull();
+
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.publishedOn < :publishedBefore")
+    int deletePublishedBefore(@Param("publishedBefore") Instant publishedBefore);
+}
@@ -0,0 +1,40 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = :owner, l.fencingToken = l.fencingToken + 1, " +
+           "l.acquiredOn = :now, l.leaseUntil = :leaseUntil " +
+           "WHERE l.name = :name AND l.leaseUntil < :now")
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("now") Instant now,
+                @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = :leaseUntil " +
+           "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :fencingToken AND l.leaseUntil >= :now")
+    int renew(@Param("name") String name,
+              @Param("owner") String owner,
+              @Param("fencingToken") long fencingToken,
+              @Param("now") Instant now,
+              @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.leaseUntil = :now " +
+           "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :fencingToken")
+    int release(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("fencingToken") long fencingToken,
+                @Param("now") Instant now);
+}
@@ -0,0 +1,27 @@
+package com.lunch.micro.repository;
+
+import com.lunch.micro.model.WalletHoldLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WalletHoldLedgerRepository extends JpaRepository<WalletHoldLedgerEntry, UUID> {
+
+    List<WalletHoldLedgerEntry> findByNodeId(String nodeId);
+
+    // Marks every row of the node as current, changed or not.
+    @Modifying
+    @Query("UPDATE WalletHoldLedgerEntry e SET e.recordedOn = :now WHERE e.nodeId = :nodeId")
+    int markRecorded(@Param("nodeId") String nodeId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM WalletHoldLedgerEntry e WHERE e.recordedOn < :recordedBefore")
+    int deleteRecordedBefore(@Param("recordedBefore") Instant recordedBefore);
+}
@@ -0,0 +1,17 @@
+package com.lunch.micro.scheduling;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a scheduled method that must run on one node of the cluster at a time.
+// The method only executes on the node that acquires the named lease in scheduler_leases.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClusterSingleton {
+
+    String value();
+
+    long leaseSeconds() default 600;
+}
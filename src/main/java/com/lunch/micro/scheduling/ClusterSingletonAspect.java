@@ -0,0 +1,48 @@
+package com.lunch.micro.scheduling;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Aspect
+@Component
+public class ClusterSingletonAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterSingletonAspect.class);
+
+    private final SchedulerLeaseService leaseService;
+
+    public ClusterSingletonAspect(SchedulerLeaseService leaseService) {
+        this.leaseService = leaseService;
+    }
+
+    @Around("@annotation(clusterSingleton)")
+    public Object runOnLeaseHolder(ProceedingJoinPoint joinPoint, ClusterSingleton clusterSingleton) throws Throwable {
+
+        if (LeaseContext.current().isPresent()) {
+            return joinPoint.proceed();
+        }
+
+        Optional<Lease> lease = leaseService.tryAcquire(clusterSingleton.value(), Duration.ofSeconds(clusterSingleton.leaseSeconds()));
+
+        if (lease.isEmpty()) {
+            logger.debug("Skipping {}: lease {} is held by another node",
+                    joinPoint.getSignature().toShortString(), clusterSingleton.value());
+            return null;
+        }
+
+        LeaseContext.bind(lease.get());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            LeaseContext.clear();
+            leaseService.release(lease.get());
+        }
+    }
+}
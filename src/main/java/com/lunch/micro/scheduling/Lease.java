@@ -0,0 +1,7 @@
+package com.lunch.micro.scheduling;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public record Lease(String name, String owner, long fencingToken, Duration duration, Instant acquiredOn) {
+}
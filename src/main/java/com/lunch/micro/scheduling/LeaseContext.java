@@ -0,0 +1,25 @@
+package com.lunch.micro.scheduling;
+
+import java.util.Optional;
+
+// Carries the lease held by the current scheduler thread so that code running inside a
+// @ClusterSingleton method can fence its writes with the lease's token.
+public final class LeaseContext {
+
+    private static final ThreadLocal<Lease> CURRENT = new ThreadLocal<>();
+
+    private LeaseContext() {
+    }
+
+    public static Optional<Lease> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void bind(Lease lease) {
+        CURRENT.set(lease);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
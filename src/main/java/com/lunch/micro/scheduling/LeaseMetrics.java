@@ -0,0 +1,115 @@
+package com.lunch.micro.scheduling;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class LeaseMetrics {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    void recordAcquireAttempt(String name, boolean acquired, long elapsedNanos) {
+
+        Counters lease = counters(name);
+        lease.attempts.increment();
+        (acquired ? lease.acquired : lease.contended).increment();
+        lease.totalAcquireNanos.add(elapsedNanos);
+        lease.maxAcquireNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    void recordHold(String name, long fencingToken, long heldNanos) {
+
+        Counters lease = counters(name);
+        lease.lastFencingToken.set(fencingToken);
+        lease.holds.increment();
+        lease.totalHoldNanos.add(heldNanos);
+        lease.lastHoldNanos.set(heldNanos);
+        lease.maxHoldNanos.accumulateAndGet(heldNanos, Math::max);
+    }
+
+    void recordLost(String name) {
+        counters(name).lost.increment();
+    }
+
+    public Map<String, LeaseStats> snapshot() {
+
+        Map<String, LeaseStats> snapshot = new TreeMap<>();
+        counters.forEach((name, lease) -> snapshot.put(name, lease.toStats()));
+        return snapshot;
+    }
+
+    private Counters counters(String name) {
+        return counters.computeIfAbsent(name, key -> new Counters());
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class LeaseStats {
+
+        private long attempts;
+
+        private long acquired;
+
+        private long contended;
+
+        private long lost;
+
+        private double avgAcquireMillis;
+
+        private double maxAcquireMillis;
+
+        private long holds;
+
+        private double avgHoldMillis;
+
+        private double lastHoldMillis;
+
+        private double maxHoldMillis;
+
+        private long lastFencingToken;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder lost = new LongAdder();
+        private final LongAdder totalAcquireNanos = new LongAdder();
+        private final AtomicLong maxAcquireNanos = new AtomicLong();
+        private final LongAdder holds = new LongAdder();
+        private final LongAdder totalHoldNanos = new LongAdder();
+        private final AtomicLong lastHoldNanos = new AtomicLong();
+        private final AtomicLong maxHoldNanos = new AtomicLong();
+        private final AtomicLong lastFencingToken = new AtomicLong();
+
+        private LeaseStats toStats() {
+
+            long attemptCount = attempts.sum();
+            long holdCount = holds.sum();
+
+            return LeaseStats.builder()
+                    .attempts(attemptCount)
+                    .acquired(acquired.sum())
+                    .contended(contended.sum())
+                    .lost(lost.sum())
+                    .avgAcquireMillis(attemptCount > 0 ? totalAcquireNanos.sum() / 1_000_000.0 / attemptCount : 0)
+                    .maxAcquireMillis(maxAcquireNanos.get() / 1_000_000.0)
+                    .holds(holdCount)
+                    .avgHoldMillis(holdCount > 0 ? totalHoldNanos.sum() / 1_000_000.0 / holdCount : 0)
+                    .lastHoldMillis(lastHoldNanos.get() / 1_000_000.0)
+                    .maxHoldMillis(maxHoldNanos.get() / 1_000_000.0)
+                    .lastFencingToken(lastFencingToken.get())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.lunch.micro.scheduling;
+
+import com.lunch.micro.exception.LeaseLostException;
+import com.lunch.micro.model.SchedulerLease;
+import com.lunch.micro.repository.SchedulerLeaseRepository;
+import com.lunch.micro.service.NodeIdentity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLeaseService.class);
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final NodeIdentity nodeIdentity;
+    private final LeaseMetrics leaseMetrics;
+    private final TransactionTemplate requiresNew;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SchedulerLeaseService(SchedulerLeaseRepository leaseRepository,
+                                 NodeIdentity nodeIdentity,
+                                 LeaseMetrics leaseMetrics,
+                                 PlatformTransactionManager transactionManager) {
+        this.leaseRepository = leaseRepository;
+        this.nodeIdentity = nodeIdentity;
+        this.leaseMetrics = leaseMetrics;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Acquires the named lease when it is free or expired. Every acquisition increments the
+    // fencing token, so writes made under an older token can be rejected. The owner is unique to
+    // the acquisition, not just the node: a second thread on the holder's node is turned away like
+    // any other node instead of re-acquiring the lease and fencing out the first.
+    public Optional<Lease> tryAcquire(String name, Duration duration) {
+
+        String owner = nodeIdentity.getNodeId() + ":" + UUID.randomUUID();
+        long start = System.nanoTime();
+        Optional<Lease> lease;
+
+        try {
+            lease = requiresNew.execute(status -> {
+
+                Instant now = Instant.now();
+
+                if (leaseRepository.acquire(name, owner, now, now.plus(duration)) == 1) {
+                    SchedulerLease acquired = leaseRepository.findById(name).orElseThrow();
+                    return Optional.of(new Lease(name, owner, acquired.getFencingToken(), duration, now));
+                }
+
+                if (leaseRepository.existsById(name)) {
+                    return Optional.<Lease>empty();
+                }
+
+                entityManager.persist(SchedulerLease.builder()
+                        .name(name)
+                        .owner(owner)
+                        .fencingToken(1)
+                        .acquiredOn(now)
+                        .leaseUntil(now.plus(duration))
+                        .build());
+                entityManager.flush();
+                return Optional.of(new Lease(name, owner, 1, duration, now));
+            });
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            lease = Optional.empty();
+        }
+
+        leaseMetrics.recordAcquireAttempt(name, lease.isPresent(), System.nanoTime() - start);
+
+        if (lease.isPresent()) {
+            logger.debug("Lease {} acquired by {} with fencing token {}", name, owner, lease.get().fencingToken());
+        } else {
+            logger.debug("Lease {} is held by another node or thread, {} skips this run", name, owner);
+        }
+
+        return lease;
+    }
+
+    // Extends the lease inside the caller's transaction. The conditional UPDATE keeps the lease
+    // row locked until that transaction commits, so no other node can take the lease over while
+    // a fenced write is in flight, and a holder whose token is outdated is rejected.
+    @Transactional
+    public void renew(Lease lease) {
+
+        Instant now = Instant.now();
+
+        int renewed = leaseRepository.renew(lease.name(), lease.owner(), lease.fencingToken(), now, now.plus(lease.duration()));
+
+        if (renewed == 0) {
+            leaseMetrics.recordLost(lease.name());
+            logger.warn("Lease {} with fencing token {} is no longer held by {}", lease.name(), lease.fencingToken(), lease.owner());
+            throw new LeaseLostException("Lease " + lease.name() + " with fencing token " + lease.fencingToken() + " has been lost");
+        }
+    }
+
+    // Programmatic form of @ClusterSingleton, for callers that decide whether there is work before taking
+    // the lease. Runs the work only if the lease is acquired, with the lease bound to the thread for fenced
+    // writes; returns empty when the lease is held elsewhere.
+    public <T> Optional<T> runWithLease(String name, Duration duration, Supplier<T> work) {
+
+        if (LeaseContext.current().isPresent()) {
+            return Optional.ofNullable(work.get());
+        }
+
+        Optional<Lease> lease = tryAcquire(name, duration);
+
+        if (lease.isEmpty()) {
+            return Optional.empty();
+        }
+
+        LeaseContext.bind(lease.get());
+        try {
+            return Optional.ofNullable(work.get());
+        } finally {
+            LeaseContext.clear();
+            release(lease.get());
+        }
+    }
+
+    public void release(Lease lease) {
+
+        requiresNew.executeWithoutResult(status ->
+                leaseRepository.release(lease.name(), lease.owner(), lease.fencingToken(), Instant.now()));
+
+        leaseMetrics.recordHold(lease.name(), lease.fencingToken(),
+                Duration.between(lease.acquiredOn(), Instant.now()).toNanos());
+    }
+}
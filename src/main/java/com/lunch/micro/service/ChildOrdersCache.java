@@ -0,0 +1,271 @@
+package com.lunch.micro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.OrderEvent;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// In-process cache of the orders getByChild returns, keyed by child. An entry lives until the earliest moment its
+// content can change on its own: a COMPLETED order leaving the visibility window or a PAID order reaching its
+// completion run. Writes made through this node invalidate the child when they are made and again once their
+// transaction commits; writes on other nodes reach it through OrderEventBus, a feed interval after their commit.
+// Misses are coalesced: concurrent readers of one child share a single in-flight load. Loads run outside any map lock;
+// the in-flight map is a ConcurrentHashMap, so registering and joining a load is a CAS, not a global lock.
+@Component
+public class ChildOrdersCache {
+
+    private final OrderEventBus eventBus;
+    private final Cache<UUID, List<LunchOrderResponse>> cache;
+    private final ConcurrentHashMap<UUID, CompletableFuture<List<LunchOrderResponse>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final Duration pendingCompletionRecheck;
+    private final Duration maxStaleness;
+
+    public ChildOrdersCache(OrderEventBus eventBus,
+                            @Value("${order.cache.child-orders.maximum-size:10000}") long maximumSize,
+                            @Value("${order.cache.child-orders.pending-completion-recheck-seconds:30}") long pendingCompletionRecheckSeconds,
+                            @Value("${order.cache.child-orders.max-staleness-seconds:300}") long maxStalenessSeconds) {
+        this.eventBus = eventBus;
+        this.pendingCompletionRecheck = Duration.ofSeconds(pendingCompletionRecheckSeconds);
+        this.maxStaleness = Duration.ofSeconds(maxStalenessSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ContentExpiry())
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void listen() {
+        eventBus.subscribe(this::onCommitted);
+    }
+
+    // Order changes committed on any node, this one included.
+    private void onCommitted(List<OrderEvent> events) {
+        invalidateChildren(events.stream().map(OrderEvent::getChildId).toList());
+    }
+
+    public List<LunchOrderResponse> get(UUID childId, Function<UUID, List<LunchOrderResponse>> loader) {
+
+        List<LunchOrderResponse> cached = cache.getIfPresent(childId);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<List<LunchOrderResponse>> call = new CompletableFuture<>();
+        CompletableFuture<List<LunchOrderResponse>> leader = inFlight.putIfAbsent(childId, call);
+
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        return load(childId, call, loader);
+    }
+
+    private List<LunchOrderResponse> load(UUID childId, CompletableFuture<List<LunchOrderResponse>> call,
+                                  Function<UUID, List<LunchOrderResponse>> loader) {
+
+        long start = System.nanoTime();
+
+        try {
+            List<LunchOrderResponse> orders = List.copyOf(loader.apply(childId));
+            loads.increment();
+            totalLoadNanos.add(System.nanoTime() - start);
+
+            // Publish only if no invalidation removed this call meanwhile; invalidate() drops the call before the
+            // entry, and compute serialises with it on the key, so a stale result can never land after it.
+            cache.asMap().compute(childId, (key, current) -> inFlight.remove(key, call) ? orders : current);
+
+            call.complete(orders);
+            return orders;
+
+        } catch (RuntimeException e) {
+            inFlight.remove(childId, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static List<LunchOrderResponse> await(CompletableFuture<List<LunchOrderResponse>> call) {
+
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Drops the entry now and again once the surrounding transaction commits, so a read that raced the write
+    // cannot leave the pre-commit state behind.
+    public void invalidate(UUID childId) {
+
+        if (childId == null) {
+            return;
+        }
+        invalidateNowAndAfterCommit(() -> {
+            inFlight.remove(childId);
+            cache.invalidate(childId);
+        });
+    }
+
+    // Same for many children, with one synchronization for all of them; used by the bulk completion runs.
+    public void invalidateChildren(Collection<UUID> childIds) {
+
+        Set<UUID> children = new LinkedHashSet<>(childIds);
+        children.remove(null);
+        if (children.isEmpty()) {
+            return;
+        }
+        invalidateNowAndAfterCommit(() -> {
+            children.forEach(inFlight::remove);
+            cache.invalidateAll(children);
+        });
+    }
+
+    private void invalidateNowAndAfterCommit(Runnable invalidation) {
+
+        invalidation.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    public Stats stats() {
+
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        long loadCount = loads.sum();
+
+        return Stats.builder()
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loadCount(loadCount)
+                .coalescedCount(coalesced.sum())
+                .averageLoadMillis(loadCount == 0 ? 0 : totalLoadNanos.sum() / (double) loadCount / 1_000_000.0)
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    Instant expiresAt(List<LunchOrderResponse> orders, Instant now) {
+
+        Instant expiresAt = maxStaleness.isZero() ? Instant.MAX : now.plus(maxStaleness);
+
+        for (LunchOrderResponse order : orders) {
+
+            Instant changesAt = null;
+
+            if (order.getStatus() == OrderStatus.COMPLETED && order.getCompletedOn() != null) {
+                changesAt = order.getCompletedOn().plus(LunchOrderService.COMPLETED_VISIBILITY);
+            } else if (order.getStatus() == OrderStatus.PAID && order.getDayOfWeek() != null) {
+                Instant due = completionDue(order, now);
+                // Past due means the completion run has not reached this order yet; look again shortly.
+                changesAt = due.isAfter(now) ? due : now.plus(pendingCompletionRecheck);
+            }
+
+            if (changesAt != null && changesAt.isBefore(expiresAt)) {
+                expiresAt = changesAt;
+            }
+        }
+
+        return expiresAt;
+    }
+
+    // The completion run for a day picks up PAID orders of that weekday created before its 13:00 cut-off.
+    static Instant completionDue(LunchOrderResponse order, Instant now) {
+
+        Instant createdOn = order.getCreatedOn() != null ? order.getCreatedOn() : now;
+        LocalDate date = LocalDate.ofInstant(createdOn, ZoneId.systemDefault())
+                .with(TemporalAdjusters.nextOrSame(order.getDayOfWeek()));
+        Instant due = OrderCompletionService.completionInstant(date);
+
+        return due.isAfter(createdOn) ? due : OrderCompletionService.completionInstant(date.plusWeeks(1));
+    }
+
+    private final class ContentExpiry implements Expiry<UUID, List<LunchOrderResponse>> {
+
+        @Override
+        public long expireAfterCreate(UUID childId, List<LunchOrderResponse> orders, long currentTime) {
+
+            Instant now = Instant.now();
+            Instant expiresAt = expiresAt(orders, now);
+
+            if (expiresAt == Instant.MAX) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(0, Duration.between(now, expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID childId, List<LunchOrderResponse> orders, long currentTime, long currentDuration) {
+            return expireAfterCreate(childId, orders, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(UUID childId, List<LunchOrderResponse> orders, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private long size;
+
+        private long hitCount;
+
+        private long missCount;
+
+        private double hitRate;
+
+        private long loadCount;
+
+        // Misses that joined another caller's in-flight load instead of querying the database.
+        private long coalescedCount;
+
+        private double averageLoadMillis;
+
+        private long evictionCount;
+    }
+}
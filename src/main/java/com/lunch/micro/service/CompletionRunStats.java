@@ -0,0 +1,40 @@
+package com.lunch.micro.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Builder
+@Getter
+@AllArgsConstructor
+@ToString
+public class CompletionRunStats {
+
+    private String jobName;
+
+    private LocalDate businessDate;
+
+    private int chunkSize;
+
+    private int partitions;
+
+    private int chunks;
+
+    private long rowsCompleted;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private double avgLockHoldMillis;
+
+    private double maxLockHoldMillis;
+
+    private Instant startedOn;
+
+    private Instant finishedOn;
+}
@@ -0,0 +1,402 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.exception.IntakeOverloadedException;
+import com.lunch.micro.jfr.OrderOperationEvent;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Optional intake for the cut-off rush (order.intake.mode=group-commit). A request is validated, and with
+// wallet.mode=debit paid for, on the caller's thread and queued; one writer thread drains the queue and inserts what
+// has accumulated, up to max-batch-size orders or max-wait-ms after the first one, in a single transaction.
+// Callers block until the transaction holding their order has committed, so a response still means a durable order,
+// but a burst holds one connection instead of one per request. If that transaction fails, its orders are retried one
+// per transaction, so a single bad order fails alone and is refunded. A caller waits at most await-timeout-ms, so a
+// stalled writer turns into 503s instead of hung request threads. Each call is recorded as LunchOrderService's
+// createAndPayOrder would be, in its OrderOperationEvent and lunch.service timer.
+@Component
+public class GroupCommitOrderIntake {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitOrderIntake.class);
+    private static final String GROUP_COMMIT_MODE = "group-commit";
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final LunchOrderService lunchOrderService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final BlockingQueue<PendingOrder> queue;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long offerTimeoutMillis;
+    private final long awaitTimeoutMillis;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder totalCommitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong largestBatchSize = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public GroupCommitOrderIntake(LunchOrderService lunchOrderService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${order.intake.mode:direct}") String intakeMode,
+                                  @Value("${order.intake.group-commit.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${order.intake.group-commit.max-batch-size:500}") int maxBatchSize,
+                                  @Value("${order.intake.group-commit.max-wait-ms:5}") long maxWaitMillis,
+                                  @Value("${order.intake.group-commit.offer-timeout-ms:1000}") long offerTimeoutMillis,
+                                  @Value("${order.intake.group-commit.await-timeout-ms:10000}") long awaitTimeoutMillis) {
+        this.lunchOrderService = lunchOrderService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = GROUP_COMMIT_MODE.equalsIgnoreCase(intakeMode);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Group-commit order intake started. maxBatchSize: {}, maxWaitMs: {}, queueCapacity: {}",
+                maxBatchSize, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos), queueCapacity);
+    }
+
+    // Commits everything already queued before the context closes.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+
+        // Offers that slipped in after the writer's last drain.
+        List<PendingOrder> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        leftovers.stream()
+                .filter(pending -> pending.taken().compareAndSet(false, true))
+                .forEach(pending -> fail(pending,
+                        new IntakeOverloadedException("Order intake is shutting down, please try again")));
+    }
+
+    public LunchOrder createAndPayOrder(LunchOrderRequest lunchOrderRequest) {
+
+        if (!enabled) {
+            return lunchOrderService.createAndPayOrder(lunchOrderRequest);
+        }
+
+        OrderOperationEvent event = OrderOperationEvent.start(OrderOperationEvent.CREATE, lunchOrderRequest.getChildId());
+        long start = System.nanoTime();
+        RuntimeException failure = null;
+        PendingOrder pending = null;
+        try {
+            LunchOrder order = lunchOrderService.preparePaidOrder(lunchOrderRequest);
+
+            pending = new PendingOrder(order, new CompletableFuture<>(), new AtomicLong(), new AtomicBoolean());
+            if (!offer(pending)) {
+                rejected.increment();
+                lunchOrderService.refundUnsavedOrders(List.of(order));
+                logger.warn("Order intake queue is full ({} orders), rejecting order for childId: {}, orderId: {}",
+                        queueCapacity, lunchOrderRequest.getChildId(), order.getId());
+                throw new IntakeOverloadedException("Too many orders are being placed right now, please try again");
+            }
+            accepted.increment();
+
+            return await(pending);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (pending != null) {
+                event.addDbTime(pending.commitNanos().get());
+            }
+            event.finish(failure == null ? 1 : 0);
+            recordCreate(System.nanoTime() - start, failure);
+        }
+    }
+
+    // The same timer @Timed gives LunchOrderService.createAndPayOrder, so both intake modes show up in one series.
+    // This class is not @Timed itself: in direct mode that would count the call a second time.
+    private void recordCreate(long elapsedNanos, RuntimeException failure) {
+        Timer.builder("lunch.service")
+                .tag("class", LunchOrderService.class.getName())
+                .tag("method", OrderOperationEvent.CREATE)
+                .tag("exception", failure == null ? "none" : failure.getClass().getSimpleName())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean offer(PendingOrder pending) {
+
+        if (!running) {
+            return false;
+        }
+        try {
+            return queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void writeLoop() {
+
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                // Callers that gave up waiting have refunded their orders already.
+                batch.removeIf(pending -> !pending.taken().compareAndSet(false, true));
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> fail(pending, e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Tops the batch up with whatever arrives until it is full or the first order has waited max-wait-ms.
+    private void collect(List<PendingOrder> batch) throws InterruptedException {
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+
+        while (batch.size() < maxBatchSize) {
+
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+
+        long start = System.nanoTime();
+
+        try {
+            List<LunchOrder> saved = lunchOrderService.savePaidOrders(batch.stream().map(PendingOrder::order).toList());
+            long commitNanos = System.nanoTime() - start;
+            recordBatch(batch.size(), commitNanos);
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).commitNanos().set(commitNanos);
+                batch.get(i).result().complete(saved.get(i));
+            }
+
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                logger.error("Group commit of 1 order failed: {}", e.getMessage());
+                fail(batch.get(0), e);
+                return;
+            }
+            logger.warn("Group commit of {} orders failed, committing them one at a time: {}",
+                    batch.size(), e.getMessage());
+            batch.forEach(this::commitAlone);
+        }
+    }
+
+    private void commitAlone(PendingOrder pending) {
+
+        long start = System.nanoTime();
+
+        try {
+            // The rolled-back insert left its version behind, which would make the retry a merge.
+            pending.order().setVersion(null);
+            LunchOrder saved = lunchOrderService.savePaidOrders(List.of(pending.order())).get(0);
+            long commitNanos = System.nanoTime() - start;
+            recordBatch(1, commitNanos);
+            pending.commitNanos().set(commitNanos);
+            pending.result().complete(saved);
+        } catch (RuntimeException e) {
+            logger.error("Order for childId: {}, orderId: {} could not be saved: {}",
+                    pending.order().getChildId(), pending.order().getId(), e.getMessage());
+            fail(pending, e);
+        }
+    }
+
+    // The order was paid for on the caller's thread but never saved.
+    private void fail(PendingOrder pending, Exception e) {
+
+        failed.increment();
+        try {
+            lunchOrderService.refundUnsavedOrders(List.of(pending.order()));
+        } catch (RuntimeException refundFailure) {
+            logger.error("Refund for unsaved orderId: {} failed: {}", pending.order().getId(), refundFailure.getMessage());
+        }
+        pending.result().completeExceptionally(e);
+    }
+
+    private void recordBatch(int size, long commitNanos) {
+
+        batches.increment();
+        committed.add(size);
+        totalCommitNanos.add(commitNanos);
+        maxCommitNanos.accumulateAndGet(commitNanos, Math::max);
+        lastBatchSize.set(size);
+        largestBatchSize.accumulateAndGet(size, Math::max);
+    }
+
+    private LunchOrder await(PendingOrder pending) {
+
+        try {
+            return pending.result().get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw giveUp(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw giveUp(pending);
+        }
+    }
+
+    // An order the writer has not taken yet is withdrawn and refunded. One it has taken is left to finish: it is
+    // either saved or refunded by the writer, so the caller cannot know which and is told to check before retrying.
+    private IntakeOverloadedException giveUp(PendingOrder pending) {
+
+        timedOut.increment();
+        LunchOrder order = pending.order();
+
+        if (pending.taken().compareAndSet(false, true)) {
+            queue.remove(pending);
+            failed.increment();
+            lunchOrderService.refundUnsavedOrders(List.of(order));
+            logger.warn("Order for childId: {}, orderId: {} was not committed within {} ms, withdrawn and refunded",
+                    order.getChildId(), order.getId(), awaitTimeoutMillis);
+            return new IntakeOverloadedException("Too many orders are being placed right now, please try again");
+        }
+
+        logger.warn("Commit of order for childId: {}, orderId: {} did not finish within {} ms, leaving it to the writer",
+                order.getChildId(), order.getId(), awaitTimeoutMillis);
+        return new IntakeOverloadedException("Order " + order.getId() + " could not be confirmed in time, " +
+                "check the child's orders before placing it again");
+    }
+
+    public Stats stats() {
+
+        long batchCount = batches.sum();
+
+        return Stats.builder()
+                .enabled(enabled)
+                .queueDepth(queue.size())
+                .queueCapacity(queueCapacity)
+                .acceptedCount(accepted.sum())
+                .rejectedCount(rejected.sum())
+                .committedCount(committed.sum())
+                .failedCount(failed.sum())
+                .timedOutCount(timedOut.sum())
+                .batchCount(batchCount)
+                .averageBatchSize(batchCount == 0 ? 0 : committed.sum() / (double) batchCount)
+                .lastBatchSize(lastBatchSize.get())
+                .largestBatchSize(largestBatchSize.get())
+                .averageCommitMillis(batchCount == 0 ? 0 : totalCommitNanos.sum() / (double) batchCount / 1_000_000.0)
+                .maxCommitMillis(maxCommitNanos.get() / 1_000_000.0)
+                .build();
+    }
+
+    // taken decides, once, whether the writer commits the order or the caller withdraws it.
+    private record PendingOrder(LunchOrder order, CompletableFuture<LunchOrder> result, AtomicLong commitNanos,
+                                AtomicBoolean taken) {
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private boolean enabled;
+
+        private int queueDepth;
+
+        private int queueCapacity;
+
+        private long acceptedCount;
+
+        // Requests turned away because the queue stayed full for offer-timeout-ms.
+        private long rejectedCount;
+
+        private long committedCount;
+
+        private long failedCount;
+
+        // Callers that stopped waiting after await-timeout-ms.
+        private long timedOutCount;
+
+        private long batchCount;
+
+        private double averageBatchSize;
+
+        private long lastBatchSize;
+
+        private long largestBatchSize;
+
+        private double averageCommitMillis;
+
+        private double maxCommitMillis;
+    }
+}
@@ -0,0 +1,163 @@
+package com.lunch.micro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.IdempotencyKey;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.repository.IdempotencyKeyRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.scheduling.ClusterSingleton;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// createAndPayOrder for callers that retry (the main app's Feign client): a request carrying an Idempotency-Key
+// that was already used returns the order the first request created, in its current state, instead of inserting
+// another one. The order is paid for before any transaction starts; the key row is then inserted in the order's
+// transaction, and its unique constraint decides between two requests racing with the same key. The loser's order
+// is rolled back and its payment given back by LunchOrderService. A bounded cache of recent keys answers most
+// retries with a primary-key read of the order instead of a key lookup first. Keys are kept for
+// order.idempotency.retention-hours, long enough for any client retry; after that the same key creates a new order.
+@Service
+@Timed("lunch.service")
+public class IdempotentOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentOrderService.class);
+    public static final String IDEMPOTENCY_PURGE_JOB = "idempotency-key-purge";
+
+    private final LunchOrderService lunchOrderService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final LunchOrderRepository lunchOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Cache<String, Replay> recentKeys;
+
+    public IdempotentOrderService(LunchOrderService lunchOrderService,
+                                  IdempotencyKeyRepository idempotencyKeyRepository,
+                                  LunchOrderRepository lunchOrderRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${order.idempotency.cache.maximum-size:10000}") long cacheMaximumSize,
+                                  @Value("${order.idempotency.cache.expire-after-write-minutes:60}") long cacheExpireAfterWriteMinutes,
+                                  @Value("${order.idempotency.retention-hours:48}") long retentionHours) {
+        this.lunchOrderService = lunchOrderService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.lunchOrderRepository = lunchOrderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = Duration.ofHours(retentionHours);
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheExpireAfterWriteMinutes))
+                .build();
+    }
+
+    public KeyedOrder createAndPayOrder(LunchOrderRequest lunchOrderRequest, String idempotencyKey) {
+
+        validateKey(idempotencyKey);
+        String requestHash = requestHash(lunchOrderRequest);
+
+        Replay cached = recentKeys.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            checkSameRequest(cached.requestHash(), requestHash, idempotencyKey);
+            return new KeyedOrder(replay(cached.orderId(), idempotencyKey), true);
+        }
+
+        KeyedOrder result = idempotencyKeyRepository.findByIdempotencyKey(idempotencyKey)
+                .map(existing -> new KeyedOrder(replay(existing, requestHash), true))
+                .orElseGet(() -> create(lunchOrderRequest, idempotencyKey, requestHash));
+
+        recentKeys.put(idempotencyKey, new Replay(requestHash, result.order().getId()));
+        return result;
+    }
+
+    @Scheduled(cron = "${order.idempotency.purge-cron:0 45 3 * * ?}")
+    @ClusterSingleton(IDEMPOTENCY_PURGE_JOB)
+    public void purgeExpiredKeys() {
+
+        Integer purged = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(retention)));
+        logger.info("Purged {} idempotency keys older than {}", purged, retention);
+    }
+
+    private KeyedOrder create(LunchOrderRequest lunchOrderRequest, String idempotencyKey, String requestHash) {
+
+        try {
+            return new KeyedOrder(lunchOrderService.createAndPayOrder(lunchOrderRequest, order ->
+                    idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                            .idempotencyKey(idempotencyKey)
+                            .requestHash(requestHash)
+                            .orderId(order.getId())
+                            .build())), false);
+        } catch (DataIntegrityViolationException e) {
+            // Another request with the same key committed first; this one's order was rolled back and refunded.
+            logger.info("Idempotency-Key {} was used concurrently, replaying the committed order", idempotencyKey);
+            return idempotencyKeyRepository.findByIdempotencyKey(idempotencyKey)
+                    .map(key -> new KeyedOrder(replay(key, requestHash), true))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private LunchOrder replay(IdempotencyKey key, String requestHash) {
+
+        checkSameRequest(key.getRequestHash(), requestHash, key.getIdempotencyKey());
+        return replay(key.getOrderId(), key.getIdempotencyKey());
+    }
+
+    // Cached or not, a replay returns the order as it is now, e.g. COMPLETED rather than the PAID it was created as.
+    private LunchOrder replay(UUID orderId, String idempotencyKey) {
+
+        logger.info("Replaying order {} for Idempotency-Key {}", orderId, idempotencyKey);
+
+        return lunchOrderRepository.findById(orderId)
+                .orElseThrow(() -> new DomainException("Order not found"));
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash, String idempotencyKey) {
+
+        if (!storedHash.equals(requestHash)) {
+            logger.warn("Idempotency-Key {} reused with a different request", idempotencyKey);
+            throw new DomainException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private static void validateKey(String idempotencyKey) {
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyKey.MAX_KEY_LENGTH) {
+            throw new DomainException("Idempotency-Key must be between 1 and " + IdempotencyKey.MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    static String requestHash(LunchOrderRequest request) {
+
+        String fields = request.getParentId() + "|" + request.getWalletId() + "|" + request.getChildId() + "|" +
+                request.getMeal() + "|" + request.getQuantity() + "|" + request.getDayOfWeek();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Replay(String requestHash, UUID orderId) {
+    }
+
+    // replayed is false only for the request that created the order.
+    public record KeyedOrder(LunchOrder order, boolean replayed) {
+    }
+}
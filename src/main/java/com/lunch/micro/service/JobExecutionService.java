@@ -0,0 +1,216 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.model.JobRunStatus;
+import com.lunch.micro.repository.JobRunRepository;
+import com.lunch.micro.scheduling.Lease;
+import com.lunch.micro.scheduling.LeaseContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+@Service
+public class JobExecutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobExecutionService.class);
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final JobRunRepository jobRunRepository;
+    private final NodeIdentity nodeIdentity;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration staleRunTimeout;
+    private final MeterRegistry meterRegistry;
+
+    public JobExecutionService(JobRunRepository jobRunRepository,
+                               NodeIdentity nodeIdentity,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${order.jobs.stale-run-timeout-minutes:30}") long staleRunTimeoutMinutes) {
+        this.jobRunRepository = jobRunRepository;
+        this.meterRegistry = meterRegistry;
+        this.nodeIdentity = nodeIdentity;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.staleRunTimeout = Duration.ofMinutes(staleRunTimeoutMinutes);
+    }
+
+    // Runs the work at most once per job and business date. A FAILED run, or a RUNNING run whose owner
+    // has not finished within the stale timeout, is taken over; a SUCCEEDED run is never repeated.
+    // Returns the finished ledger entry when this call executed the work and still owned the run when it finished.
+    public Optional<JobRun> runOnce(String jobName, LocalDate businessDate, LongSupplier work) {
+
+        Optional<JobRun> claimed = claim(jobName, businessDate);
+
+        if (claimed.isEmpty()) {
+            return Optional.empty();
+        }
+
+        JobRun run = claimed.get();
+        long start = System.nanoTime();
+
+        try {
+            long rows = work.getAsLong();
+            recordRun(jobName, "succeeded", System.nanoTime() - start);
+            rowsCounter(jobName).increment(rows);
+
+            run.setStatus(JobRunStatus.SUCCEEDED);
+            run.setRowsProcessed(rows);
+            run.setFinishedOn(Instant.now());
+
+            if (!finish(run)) {
+                return Optional.empty();
+            }
+
+            logger.info("Job {} for {} succeeded on attempt {}: {} rows processed",
+                    jobName, businessDate, run.getAttempts(), rows);
+
+            return Optional.of(run);
+
+        } catch (RuntimeException e) {
+
+            recordRun(jobName, "failed", System.nanoTime() - start);
+            run.setStatus(JobRunStatus.FAILED);
+            run.setFinishedOn(Instant.now());
+            run.setErrorMessage(truncate(e.getMessage()));
+
+            if (finish(run)) {
+                logger.error("Job {} for {} failed on attempt {}: {}", jobName, businessDate, run.getAttempts(), e.getMessage());
+            }
+
+            throw e;
+        }
+    }
+
+    public boolean hasSucceeded(String jobName, LocalDate businessDate) {
+
+        return jobRunRepository.findByJobNameAndBusinessDate(jobName, businessDate)
+                .map(run -> run.getStatus() == JobRunStatus.SUCCEEDED)
+                .orElse(false);
+    }
+
+    public List<JobRun> findRuns(String jobName, LocalDate from, LocalDate to) {
+        return jobRunRepository.findByJobNameAndBusinessDateBetween(jobName, from, to);
+    }
+
+    private Optional<JobRun> claim(String jobName, LocalDate businessDate) {
+
+        try {
+            return transactionTemplate.execute(status -> {
+
+                Instant now = Instant.now();
+                Long fencingToken = LeaseContext.current().map(Lease::fencingToken).orElse(null);
+                Optional<JobRun> existing = jobRunRepository.findByJobNameAndBusinessDate(jobName, businessDate);
+
+                if (existing.isEmpty()) {
+                    JobRun run = JobRun.builder()
+                            .jobName(jobName)
+                            .businessDate(businessDate)
+                            .status(JobRunStatus.RUNNING)
+                            .attempts(1)
+                            .owner(nodeIdentity.getNodeId())
+                            .fencingToken(fencingToken)
+                            .startedOn(now)
+                            .build();
+                    return Optional.of(jobRunRepository.saveAndFlush(run));
+                }
+
+                JobRun run = existing.get();
+
+                if (!isClaimable(run, now)) {
+                    logger.info("Job {} for {} skipped: already {} by {}", jobName, businessDate,
+                            run.getStatus(), run.getOwner());
+                    return Optional.<JobRun>empty();
+                }
+
+                int claimed = jobRunRepository.claim(run.getId(), run.getStatus(), run.getAttempts(),
+                        JobRunStatus.RUNNING, nodeIdentity.getNodeId(), fencingToken, now);
+
+                if (claimed == 0) {
+                    logger.info("Job {} for {} skipped: claimed concurrently by another node", jobName, businessDate);
+                    return Optional.<JobRun>empty();
+                }
+
+                logger.warn("Job {} for {} taken over from previous {} attempt by {}", jobName, businessDate,
+                        run.getStatus(), run.getOwner());
+
+                run.setStatus(JobRunStatus.RUNNING);
+                run.setAttempts(run.getAttempts() + 1);
+                run.setOwner(nodeIdentity.getNodeId());
+                run.setFencingToken(fencingToken);
+                run.setStartedOn(now);
+                run.setFinishedOn(null);
+                run.setErrorMessage(null);
+                return Optional.of(run);
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Job {} for {} skipped: ledger entry created concurrently by another node", jobName, businessDate);
+            return Optional.empty();
+        }
+    }
+
+    private boolean isClaimable(JobRun run, Instant now) {
+
+        return switch (run.getStatus()) {
+            case SUCCEEDED -> false;
+            case FAILED -> true;
+            case RUNNING -> run.getStartedOn() == null || run.getStartedOn().plus(staleRunTimeout).isBefore(now);
+        };
+    }
+
+    // Only runs this node executed: skipped and concurrently claimed runs are not measured.
+    private void recordRun(String jobName, String outcome, long elapsedNanos) {
+        Timer.builder("lunch.jobs.duration")
+                .description("Time taken by a job run, from the work starting to it returning or failing")
+                .tag("job", jobName)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter rowsCounter(String jobName) {
+        return Counter.builder("lunch.jobs.rows")
+                .description("Rows processed by successful job runs; for order-completion, orders moved to COMPLETED")
+                .tag("job", jobName)
+                .register(meterRegistry);
+    }
+
+    // The ledger entry is written only if this attempt still owns it. A run that outlived the stale timeout may
+    // have been taken over; its late result is logged and dropped rather than overwriting the newer attempt.
+    private boolean finish(JobRun run) {
+
+        Integer updated = transactionTemplate.execute(status -> jobRunRepository.finish(run.getId(),
+                JobRunStatus.RUNNING, run.getAttempts(), run.getOwner(), run.getStatus(), run.getRowsProcessed(),
+                run.getFinishedOn(), run.getErrorMessage()));
+
+        if (updated == null || updated == 0) {
+            logger.warn("Job {} for {} lost ownership of attempt {} before finishing as {}; the result is not recorded",
+                    run.getJobName(), run.getBusinessDate(), run.getAttempts(), run.getStatus());
+            return false;
+        }
+        return true;
+    }
+
+    private String truncate(String message) {
+
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
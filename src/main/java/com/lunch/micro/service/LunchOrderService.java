@@ -1,72 +1,242 @@
 package com.lunch.micro.service;
 
 import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.exception.OrderConflictException;
+import com.lunch.micro.jfr.OrderOperationEvent;
 import com.lunch.micro.model.LunchOrder;
 import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.outbox.OrderOutbox;
 import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.wallet.WalletPayments;
+import com.lunch.micro.web.dto.LunchOrderBatchItemResult;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
 import com.lunch.micro.web.dto.LunchOrderRequest;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
+@Timed("lunch.service")
 public class LunchOrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(LunchOrderService.class);
     private static final BigDecimal PRICE = new BigDecimal("2.50");
     private static final Set<DayOfWeek> ALLOWED_DAYS = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
 
-    private final LunchOrderRepository repository;
-    
-    @PersistenceContext
-    private EntityManager entityManager;
+    // How long a COMPLETED order stays visible in the child's order list.
+    public static final Duration COMPLETED_VISIBILITY = Duration.ofHours(7);
 
-    public LunchOrderService(LunchOrderRepository repository) {
+    private final LunchOrderRepository repository;
+    private final ChildOrdersCache childOrdersCache;
+    private final OrderOutbox orderOutbox;
+    private final WalletPayments walletPayments;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int conflictMaxAttempts;
+
+    public LunchOrderService(LunchOrderRepository repository,
+                             ChildOrdersCache childOrdersCache,
+                             OrderOutbox orderOutbox,
+                             WalletPayments walletPayments,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${order.conflict.max-attempts:3}") int conflictMaxAttempts) {
         this.repository = repository;
+        this.childOrdersCache = childOrdersCache;
+        this.orderOutbox = orderOutbox;
+        this.walletPayments = walletPayments;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.conflictMaxAttempts = conflictMaxAttempts;
     }
 
-    @Transactional
+    // The wallet is debited before the insert's transaction starts, so a slow wallet call never holds a connection.
     public LunchOrder createAndPayOrder(LunchOrderRequest lunchOrderRequest) {
+        return createAndPayOrder(lunchOrderRequest, saved -> { });
+    }
+
+    // Same, with one more write in the order's transaction after the insert (IdempotentOrderService records its key
+    // there). If that write or the commit fails, the order is not saved and its payment is given back.
+    public LunchOrder createAndPayOrder(LunchOrderRequest lunchOrderRequest, Consumer<LunchOrder> alsoInTransaction) {
+
+        OrderOperationEvent event = OrderOperationEvent.start(OrderOperationEvent.CREATE, lunchOrderRequest.getChildId());
+        int created = 0;
+        try {
+            LunchOrder order = preparePaidOrder(lunchOrderRequest);
+
+            LunchOrder savedOrder;
+            try {
+                savedOrder = db(event, () -> transactionTemplate.execute(status -> {
+                    LunchOrder saved = repository.save(order);
+                    orderOutbox.orderCreated(saved);
+                    alsoInTransaction.accept(saved);
+                    childOrdersCache.invalidate(lunchOrderRequest.getChildId());
+                    return saved;
+                }));
+            } catch (RuntimeException e) {
+                refundUnsavedOrders(List.of(order));
+                throw e;
+            }
+            created = 1;
+
+            logger.info("Order created and paid successfully. orderId: {}, total: {}, status: {}", 
+                    savedOrder.getId(), savedOrder.getTotal(), savedOrder.getStatus());
+
+            return savedOrder;
+        } finally {
+            event.finish(created);
+        }
+    }
+
+    // Validates every item up front and inserts the valid ones in one transaction; with hibernate.jdbc.batch_size and
+    // order_inserts set, the flush at commit sends them as batched INSERTs. Invalid items are reported, not thrown;
+    // so are items the wallet declines, which are all paid for before the transaction starts.
+    public LunchOrderBatchResponse createAndPayOrders(List<LunchOrderRequest> lunchOrderRequests) {
+
+        List<LunchOrderBatchItemResult> results = new ArrayList<>(lunchOrderRequests.size());
+        List<LunchOrderBatchItemResult> valid = new ArrayList<>();
+        List<LunchOrder> validOrders = new ArrayList<>();
+
+        for (int i = 0; i < lunchOrderRequests.size(); i++) {
+
+            LunchOrderRequest request = lunchOrderRequests.get(i);
+            LunchOrderBatchItemResult result = LunchOrderBatchItemResult.builder()
+                    .index(i)
+                    .childId(request.getChildId())
+                    .dayOfWeek(request.getDayOfWeek())
+                    .build();
+            results.add(result);
+
+            try {
+                if (request.getChildId() == null) {
+                    throw new DomainException("Child ID is required");
+                }
+                validateRequest(request);
+            } catch (DomainException e) {
+                result.setError(e.getMessage());
+                continue;
+            }
+
+            valid.add(result);
+            validOrders.add(toPaidOrder(request));
+        }
+
+        List<String> paymentErrors = walletPayments.payAll(validOrders);
+        List<LunchOrderBatchItemResult> accepted = new ArrayList<>();
+        List<LunchOrder> orders = new ArrayList<>();
+        for (int i = 0; i < validOrders.size(); i++) {
+            if (paymentErrors.get(i) != null) {
+                valid.get(i).setError(paymentErrors.get(i));
+                continue;
+            }
+            accepted.add(valid.get(i));
+            orders.add(validOrders.get(i));
+        }
+
+        if (!orders.isEmpty()) {
+
+            List<LunchOrder> savedOrders;
+            try {
+                savedOrders = transactionTemplate.execute(status -> {
+                    List<LunchOrder> saved = repository.saveAll(orders);
+                    orderOutbox.ordersCreated(saved);
+                    new LinkedHashSet<>(orders.stream().map(LunchOrder::getChildId).toList())
+                            .forEach(childOrdersCache::invalidate);
+                    return saved;
+                });
+            } catch (RuntimeException e) {
+                refundUnsavedOrders(orders);
+                throw e;
+            }
+
+            for (int i = 0; i < savedOrders.size(); i++) {
+                accepted.get(i).setCreated(true);
+                accepted.get(i).setOrder(LunchOrderResponse.from(savedOrders.get(i)));
+            }
+        }
+
+        logger.info("Batch of {} orders processed. created: {}, rejected: {}",
+                lunchOrderRequests.size(), orders.size(), lunchOrderRequests.size() - orders.size());
+
+        return LunchOrderBatchResponse.builder()
+                .created(orders.size())
+                .rejected(lunchOrderRequests.size() - orders.size())
+                .results(results)
+                .build();
+    }
+
+    // Validates the request and pays for the order, without saving it.
+    public LunchOrder preparePaidOrder(LunchOrderRequest lunchOrderRequest) {
 
         validateRequest(lunchOrderRequest);
 
+        LunchOrder order = toPaidOrder(lunchOrderRequest);
+        walletPayments.pay(order);
+
+        return order;
+    }
+
+    // Gives back what was paid for orders that were prepared but could not be saved.
+    public void refundUnsavedOrders(List<LunchOrder> orders) {
+        walletPayments.refundUnsaved(orders);
+    }
+
+    // Inserts orders that GroupCommitOrderIntake has already prepared, all in one transaction.
+    @Transactional
+    public List<LunchOrder> savePaidOrders(List<LunchOrder> orders) {
+
+        List<LunchOrder> savedOrders = repository.saveAll(orders);
+        orderOutbox.ordersCreated(savedOrders);
+
+        new LinkedHashSet<>(orders.stream().map(LunchOrder::getChildId).toList())
+                .forEach(childOrdersCache::invalidate);
+
+        logger.info("Group commit of {} orders created and paid successfully", savedOrders.size());
+
+        return savedOrders;
+    }
+
+    private LunchOrder toPaidOrder(LunchOrderRequest lunchOrderRequest) {
+
         BigDecimal totalAmount = PRICE.multiply(new BigDecimal(lunchOrderRequest.getQuantity()));
 
-        LunchOrder order = LunchOrder.builder()
+        return LunchOrder.builder()
                 .parentId(lunchOrderRequest.getParentId())
                 .walletId(lunchOrderRequest.getWalletId())
                 .childId(lunchOrderRequest.getChildId())
                 .meal(lunchOrderRequest.getMeal())
                 .quantity(lunchOrderRequest.getQuantity())
-                .dayOfWeek(lunchOrderRequest.getDayOfWeek().name())
+                .dayOfWeek(lunchOrderRequest.getDayOfWeek())
                 .unitPrice(PRICE)
                 .total(totalAmount)
                 .status(OrderStatus.PAID)
                 .build();
-
-        LunchOrder savedOrder = repository.save(order);
-
-        logger.info("Order created and paid successfully. orderId: {}, total: {}, status: {}", 
-                savedOrder.getId(), savedOrder.getTotal(), savedOrder.getStatus());
-
-        return savedOrder;
     }
 
-    private void validateRequest(LunchOrderRequest lunchOrderRequest) {
+    void validateRequest(LunchOrderRequest lunchOrderRequest) {
 
         DayOfWeek requestedDay = lunchOrderRequest.getDayOfWeek();
 
@@ -82,17 +252,86 @@ public class LunchOrderService {
         }
     }
 
-    @Transactional
+    // Each attempt commits on its own, so a retry sees the row as the conflicting writer left it, and the
+    // completion nudge in validateCancellation does not wait on a lock held by this request.
     public void cancelOrder(UUID orderId, UUID childId) {
 
+        OrderOperationEvent event = OrderOperationEvent.start(OrderOperationEvent.CANCEL, childId);
+        int cancelledRows = 0;
+        try {
+            for (int attempt = 1; attempt <= conflictMaxAttempts; attempt++) {
+
+                Integer cancelled = db(event, () -> transactionTemplate.execute(status -> {
+                    Instant now = Instant.now();
+                    int rows = repository.cancelPaidOrder(orderId, childId, OrderStatus.PAID, OrderStatus.CANCELLED,
+                            cancellableDays(), now);
+                    if (rows > 0) {
+                        orderOutbox.orderCancelled(orderId, childId, now);
+                        childOrdersCache.invalidate(childId);
+                    }
+                    return rows;
+                }));
+
+                if (cancelled != null && cancelled > 0) {
+                    cancelledRows = cancelled;
+                    logger.info("Order cancelled successfully. orderId: {}, previousStatus: {}, newStatus: {}",
+                            orderId, OrderStatus.PAID, OrderStatus.CANCELLED);
+                    refundCancelledOrder(orderId, event);
+                    return;
+                }
+
+                if (!db(event, () -> diagnoseFailedCancellation(orderId, childId))) {
+                    return;
+                }
+
+                logger.warn("Order {} changed while being cancelled (attempt {}/{})", orderId, attempt, conflictMaxAttempts);
+            }
+
+            throw new OrderConflictException("Order " + orderId + " is being changed by another request, please try again");
+        } finally {
+            event.finish(cancelledRows);
+        }
+    }
+
+    // With wallet holds, the total goes back to the wallet's allowance. The update does not return the order, so this
+    // one read is made only in that mode; if it fails, reconciliation books the refund.
+    private void refundCancelledOrder(UUID orderId, OrderOperationEvent event) {
+
+        if (!walletPayments.refundsCancelledOrders()) {
+            return;
+        }
+        try {
+            db(event, () -> repository.findOrderResponsesByIdsAndStatus(List.of(orderId), OrderStatus.CANCELLED))
+                    .forEach(order -> walletPayments.refundCancelled(order.getWalletId(), order.getTotal()));
+        } catch (RuntimeException e) {
+            logger.warn("Could not refund cancelled order {} to its wallet hold: {}", orderId, e.getMessage());
+        }
+    }
+
+    // Days whose PAID orders can be cancelled right now: every day except today once today's cut-off has passed.
+    private Set<DayOfWeek> cancellableDays() {
+
+        Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+        LocalTime currentTime = LocalTime.now();
+        LocalTime cutoffTime = LocalTime.of(10, 0); // 10:00 AM
+
+        if (currentTime.isAfter(cutoffTime) || currentTime.equals(cutoffTime)) {
+            days.remove(LocalDate.now().getDayOfWeek());
+        }
+        return days;
+    }
+
+    // The conditional UPDATE matched nothing; one read tells the caller why, with the same errors as before.
+    // Returns false when the order is already cancelled and true when it still looks cancellable, i.e. it changed
+    // between the two statements and the update is worth another attempt.
+    private boolean diagnoseFailedCancellation(UUID orderId, UUID childId) {
+
         LunchOrder order = repository.findById(orderId)
                 .orElseThrow(() -> {
                     logger.warn("Order not found for orderId: {}", orderId);
                     return new DomainException("Order not found");
                 });
 
-        entityManager.refresh(order);
-
         if (order.getChildId() == null || !order.getChildId().equals(childId)) {
 
             logger.warn("Order {} does not belong to child {}", orderId, childId);
@@ -101,12 +340,13 @@ public class LunchOrderService {
         }
 
         validateCancellation(order);
-        
-        order.setStatus(OrderStatus.CANCELLED);
-        repository.save(order);
 
-        logger.info("Order cancelled successfully. orderId: {}, previousStatus: {}, newStatus: {}", 
-                orderId, order.getStatus(), OrderStatus.CANCELLED);
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            logger.info("Order {} was already cancelled", orderId);
+            return false;
+        }
+
+        return true;
     }
 
     private void validateCancellation(LunchOrder order) {
@@ -120,83 +360,127 @@ public class LunchOrderService {
             throw exception;
         }
 
-        try {
-            DayOfWeek orderDay = DayOfWeek.valueOf(order.getDayOfWeek());
-            DayOfWeek currentDay = LocalDate.now().getDayOfWeek();
-            LocalTime currentTime = LocalTime.now();
-            LocalTime cutoffTime = LocalTime.of(10, 0); // 10:00 AM
-            LocalTime noon = LocalTime.of(12, 0); // 12:00 PM (noon)
-
-            boolean isOrderDay = orderDay == currentDay;
-            
-            if (isOrderDay) {
+        DayOfWeek orderDay = order.getDayOfWeek();
+        DayOfWeek currentDay = LocalDate.now().getDayOfWeek();
+        LocalTime currentTime = LocalTime.now();
+        LocalTime cutoffTime = LocalTime.of(10, 0); // 10:00 AM
+        LocalTime noon = LocalTime.of(12, 0); // 12:00 PM (noon)
 
-                boolean isAtOrAfter10AM = currentTime.isAfter(cutoffTime) || currentTime.equals(cutoffTime);
+        boolean isOrderDay = orderDay == currentDay;
+        
+        if (isOrderDay) {
 
-                if (isAtOrAfter10AM) {
+            boolean isAtOrAfter10AM = currentTime.isAfter(cutoffTime) || currentTime.equals(cutoffTime);
 
-                    boolean isAtOrAfterNoon = currentTime.isAfter(noon) || currentTime.equals(noon);
+            if (isAtOrAfter10AM) {
 
-                    if (isAtOrAfterNoon) {
+                boolean isAtOrAfterNoon = currentTime.isAfter(noon) || currentTime.equals(noon);
 
-                        try {
-                            updateOrderToCompleted(order.getId());
-                            logger.info("Successfully updated order {} to COMPLETED status", order.getId());
-                        } catch (Exception e) {
-                            logger.error("Failed to update order {} to COMPLETED status, but still blocking cancellation: {}", order.getId(), e.getMessage());
-                        }
+                if (isAtOrAfterNoon) {
 
-                        DomainException exception = new DomainException("Cannot cancel a completed order");
-                        throw exception;
+                    try {
+                        updateOrderToCompleted(order.getId());
+                        logger.info("Successfully updated order {} to COMPLETED status", order.getId());
+                    } catch (Exception e) {
+                        logger.error("Failed to update order {} to COMPLETED status, but still blocking cancellation: {}", order.getId(), e.getMessage());
                     }
 
-                    logger.warn("Cannot cancel order {} - it is after 10:00 AM on order day", order.getId());
-                    throw new DomainException("Your lunch is almost completed, we are afraid it is too late to cancel this order.");
+                    DomainException exception = new DomainException("Cannot cancel a completed order");
+                    throw exception;
                 }
+
+                logger.warn("Cannot cancel order {} - it is after 10:00 AM on order day", order.getId());
+                throw new DomainException("Your lunch is almost completed, we are afraid it is too late to cancel this order.");
             }
-        } catch (IllegalArgumentException e) {
-            throw new DomainException("Invalid day of week in order: " + order.getDayOfWeek());
         }
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    // Runs in its own transaction. The version check fails the commit when a cancel or the completion run wrote the
+    // order after it was read; the attempt is then repeated on the fresh row, where a cancellation wins.
     public void updateOrderToCompleted(UUID orderId) {
 
-        try {
-            LunchOrder order = repository.findById(orderId)
-                    .orElseThrow(() -> new RuntimeException("Order not found for status update"));
-            order.setStatus(OrderStatus.COMPLETED);
-            order.setCompletedOn(Instant.now());
-            repository.save(order);
-            logger.info("Order {} updated to COMPLETED status in separate transaction", orderId);
-        } catch (Exception e) {
-            logger.error("Failed to update order {} to COMPLETED status: {}", orderId, e.getMessage());
+        for (int attempt = 1; attempt <= conflictMaxAttempts; attempt++) {
+            try {
+                requiresNew.executeWithoutResult(status -> completeOrder(orderId));
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                logger.warn("Order {} changed while being completed (attempt {}/{})", orderId, attempt, conflictMaxAttempts);
+            } catch (Exception e) {
+                logger.error("Failed to update order {} to COMPLETED status: {}", orderId, e.getMessage());
+                return;
+            }
         }
+
+        logger.error("Failed to update order {} to COMPLETED status: still conflicting after {} attempts",
+                orderId, conflictMaxAttempts);
     }
 
-    public List<LunchOrder> getByChild(UUID childId) {
+    private void completeOrder(UUID orderId) {
+
+        LunchOrder order = repository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found for status update"));
 
-        Instant sevenHoursAgo = Instant.now().minusSeconds(7 * 60 * 60);
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            logger.info("Order {} was cancelled, leaving it as it is", orderId);
+            return;
+        }
 
-        List<LunchOrder> orders = repository.findAllByChildIdExcludingOldCompleted(
-                childId, OrderStatus.COMPLETED, OrderStatus.CANCELLED, sevenHoursAgo);
-        
-        int completedCount = (int) orders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.COMPLETED)
-                .count();
-        int paidCount = (int) orders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.PAID)
-                .count();
-
-        if (completedCount > 0) {
-            logger.debug("Including {} COMPLETED orders (completed within last 7 hours) for childId: {}", 
-                    completedCount, childId);
-        }
-        logger.debug("Including {} PAID orders for childId: {}", paidCount, childId);
+        order.setStatus(OrderStatus.COMPLETED);
+        order.setCompletedOn(Instant.now());
+        repository.save(order);
+        orderOutbox.orderCompleted(order);
+        childOrdersCache.invalidate(order.getChildId());
+        logger.info("Order {} updated to COMPLETED status in separate transaction", orderId);
+    }
+
+    public List<LunchOrderResponse> getByChild(UUID childId) {
+
+        OrderOperationEvent event = OrderOperationEvent.start(OrderOperationEvent.GET_BY_CHILD, childId);
+        List<LunchOrderResponse> orders = List.of();
+        try {
+            orders = childOrdersCache.get(childId, id -> db(event, () -> loadByChild(id)));
+        } finally {
+            event.finish(orders.size());
+        }
         
+        if (logger.isDebugEnabled()) {
+
+            int completedCount = (int) orders.stream()
+                    .filter(order -> order.getStatus() == OrderStatus.COMPLETED)
+                    .count();
+            int paidCount = (int) orders.stream()
+                    .filter(order -> order.getStatus() == OrderStatus.PAID)
+                    .count();
+
+            if (completedCount > 0) {
+                logger.debug("Including {} COMPLETED orders (completed within last 7 hours) for childId: {}",
+                        completedCount, childId);
+            }
+            logger.debug("Including {} PAID orders for childId: {}", paidCount, childId);
+        }
+
         logger.info("Found {} total orders for childId: {} (CANCELLED orders and completed orders older than 7 hours are excluded)", 
                 orders.size(), childId);
 
         return orders;
     }
+
+    // Runs a database call, adding its time to the operation's event; a cache hit adds none.
+    private static <T> T db(OrderOperationEvent event, Supplier<T> call) {
+
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            event.addDbTime(System.nanoTime() - start);
+        }
+    }
+
+    private List<LunchOrderResponse> loadByChild(UUID childId) {
+
+        Instant sevenHoursAgo = Instant.now().minus(COMPLETED_VISIBILITY);
+
+        return repository.findOrderResponsesByChildId(
+                childId, OrderStatus.PAID, OrderStatus.COMPLETED, sevenHoursAgo);
+    }
 }
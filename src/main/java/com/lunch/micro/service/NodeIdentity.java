@@ -0,0 +1,22 @@
+package com.lunch.micro.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+@Component
+public class NodeIdentity {
+
+    private final String nodeId;
+
+    public NodeIdentity(@Value("${order.node-id:}") String configuredNodeId) {
+        this.nodeId = configuredNodeId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName()
+                : configuredNodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
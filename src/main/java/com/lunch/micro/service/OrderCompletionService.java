@@ -0,0 +1,175 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.jfr.CompletionBatchEvent;
+import com.lunch.micro.model.CompletionCheckpoint;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.outbox.OrderOutbox;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.scheduling.LeaseContext;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@Timed("lunch.service")
+public class OrderCompletionService {
+
+    public static final String ORDER_COMPLETION_JOB = "order-completion";
+    public static final LocalTime COMPLETION_TIME = LocalTime.of(13, 0);
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderCompletionService.class);
+    private static final UUID LOWEST_ID = new UUID(0L, 0L);
+
+    private final LunchOrderRepository repository;
+    private final CompletionCheckpointRepository checkpointRepository;
+    private final SchedulerLeaseService leaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final ChildOrdersCache childOrdersCache;
+    private final OrderOutbox orderOutbox;
+    private final int chunkSize;
+
+    private volatile CompletionRunStats lastRunStats;
+
+    public OrderCompletionService(LunchOrderRepository repository,
+                                  CompletionCheckpointRepository checkpointRepository,
+                                  SchedulerLeaseService leaseService,
+                                  TransactionTemplate transactionTemplate,
+                                  ChildOrdersCache childOrdersCache,
+                                  OrderOutbox orderOutbox,
+                                  @Value("${order.completion.chunk-size:2000}") int chunkSize) {
+        this.repository = repository;
+        this.checkpointRepository = checkpointRepository;
+        this.leaseService = leaseService;
+        this.transactionTemplate = transactionTemplate;
+        this.childOrdersCache = childOrdersCache;
+        this.orderOutbox = orderOutbox;
+        this.chunkSize = chunkSize;
+    }
+
+    // Walks the PAID orders of the business date's day in id order and completes them chunk by chunk.
+    // Every chunk commits together with its checkpoint, so an interrupted run resumes after the last committed id.
+    // When running under a cluster lease, each chunk first renews it, which fences out a node whose lease expired.
+    // Orders placed after the business date's completion time belong to the following week and are left untouched.
+    public CompletionRunStats completePaidOrders(LocalDate businessDate, Instant now) {
+
+        DayOfWeek day = businessDate.getDayOfWeek();
+        Instant createdBefore = completionInstant(businessDate);
+        Instant startedOn = Instant.now();
+        long runStart = System.nanoTime();
+
+        int chunks = 0;
+        long rowsCompleted = 0;
+        long totalLockHoldNanos = 0;
+        long maxLockHoldNanos = 0;
+
+        while (true) {
+
+            CompletionBatchEvent event = CompletionBatchEvent.start();
+            long chunkStart = System.nanoTime();
+            ChunkResult chunk = transactionTemplate.execute(status -> completeNextChunk(businessDate, day, createdBefore, now));
+
+            if (chunk == null || chunk.selected() == 0) {
+                break;
+            }
+
+            long chunkEnd = System.nanoTime();
+            long lockHoldNanos = chunkEnd - chunk.lockStartNanos();
+            event.finish(businessDate, -1, chunk.selected(), chunk.updated(), chunkEnd - chunkStart, lockHoldNanos);
+
+            chunks++;
+            rowsCompleted += chunk.updated();
+            totalLockHoldNanos += lockHoldNanos;
+            maxLockHoldNanos = Math.max(maxLockHoldNanos, lockHoldNanos);
+
+            logger.debug("Completion chunk {} for {}: {} of {} selected orders completed, lock held {} ms",
+                    chunks, businessDate, chunk.updated(), chunk.selected(), lockHoldNanos / 1_000_000.0);
+
+            if (chunk.selected() < chunkSize) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - runStart;
+
+        CompletionRunStats stats = CompletionRunStats.builder()
+                .jobName(ORDER_COMPLETION_JOB)
+                .businessDate(businessDate)
+                .chunkSize(chunkSize)
+                .chunks(chunks)
+                .rowsCompleted(rowsCompleted)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos > 0 ? rowsCompleted * 1_000_000_000.0 / elapsedNanos : 0)
+                .avgLockHoldMillis(chunks > 0 ? totalLockHoldNanos / 1_000_000.0 / chunks : 0)
+                .maxLockHoldMillis(maxLockHoldNanos / 1_000_000.0)
+                .startedOn(startedOn)
+                .finishedOn(Instant.now())
+                .build();
+
+        lastRunStats = stats;
+
+        logger.info("Completion pipeline finished for {}: {} orders in {} chunks of {}, {} rows/s, max lock hold {} ms",
+                businessDate, rowsCompleted, chunks, chunkSize, Math.round(stats.getRowsPerSecond()), stats.getMaxLockHoldMillis());
+
+        return stats;
+    }
+
+    public Optional<CompletionRunStats> getLastRunStats() {
+        return Optional.ofNullable(lastRunStats);
+    }
+
+    public static Instant completionInstant(LocalDate businessDate) {
+        return businessDate.atTime(COMPLETION_TIME).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private ChunkResult completeNextChunk(LocalDate businessDate, DayOfWeek day, Instant createdBefore, Instant now) {
+
+        LeaseContext.current().ifPresent(leaseService::renew);
+
+        CompletionCheckpoint checkpoint = checkpointRepository
+                .findByJobNameAndBusinessDate(ORDER_COMPLETION_JOB, businessDate)
+                .orElseGet(() -> CompletionCheckpoint.builder()
+                        .jobName(ORDER_COMPLETION_JOB)
+                        .businessDate(businessDate)
+                        .build());
+
+        UUID afterId = checkpoint.getLastOrderId() != null ? checkpoint.getLastOrderId() : LOWEST_ID;
+
+        List<UUID> ids = repository.findPaidOrderIdsForDayAfter(
+                day, OrderStatus.PAID, createdBefore, afterId, Limit.of(chunkSize));
+
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, System.nanoTime());
+        }
+
+        long lockStartNanos = System.nanoTime();
+        int updated = repository.completePaidOrdersByIds(ids, OrderStatus.PAID, OrderStatus.COMPLETED, now);
+        if (updated > 0) {
+            childOrdersCache.invalidateChildren(orderOutbox.ordersCompleted(ids, now));
+        }
+
+        checkpoint.setLastOrderId(ids.get(ids.size() - 1));
+        checkpoint.setRowsCompleted(checkpoint.getRowsCompleted() + updated);
+        checkpoint.setChunksCompleted(checkpoint.getChunksCompleted() + 1);
+        checkpointRepository.save(checkpoint);
+
+        return new ChunkResult(ids.size(), updated, lockStartNanos);
+    }
+
+    private record ChunkResult(int selected, int updated, long lockStartNanos) {
+    }
+}
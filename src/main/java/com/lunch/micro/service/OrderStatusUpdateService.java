@@ -1,86 +1,98 @@
 package com.lunch.micro.service;
 
-import com.lunch.micro.model.LunchOrder;
-import com.lunch.micro.model.OrderStatus;
-import com.lunch.micro.repository.LunchOrderRepository;
-import jakarta.transaction.Transactional;
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.model.JobRunStatus;
+import com.lunch.micro.scheduling.ClusterSingleton;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.lunch.micro.service.OrderCompletionService.COMPLETION_TIME;
+import static com.lunch.micro.service.OrderCompletionService.ORDER_COMPLETION_JOB;
 
 @Service
 public class OrderStatusUpdateService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderStatusUpdateService.class);
-    private final LunchOrderRepository repository;
-    private LocalDate lastProcessedDate;
-
-    public OrderStatusUpdateService(LunchOrderRepository repository) {
-        this.repository = repository;
+    private static final String PARTITIONED_MODE = "partitioned";
+    // @ClusterSingleton's default, as taken by the cron and catch-up triggers.
+    private static final Duration COMPLETION_LEASE = Duration.ofSeconds(600);
+
+    private final OrderCompletionService completionService;
+    private final PartitionedCompletionService partitionedCompletionService;
+    private final JobExecutionService jobExecutionService;
+    private final SchedulerLeaseService leaseService;
+    private final boolean partitioned;
+    private final boolean catchUpEnabled;
+    private final int catchUpDays;
+
+    public OrderStatusUpdateService(OrderCompletionService completionService,
+                                    PartitionedCompletionService partitionedCompletionService,
+                                    JobExecutionService jobExecutionService,
+                                    SchedulerLeaseService leaseService,
+                                    @Value("${order.completion.mode:chunked}") String completionMode,
+                                    @Value("${order.completion.catch-up-enabled:true}") boolean catchUpEnabled,
+                                    @Value("${order.completion.catch-up-days:6}") int catchUpDays) {
+        this.completionService = completionService;
+        this.partitionedCompletionService = partitionedCompletionService;
+        this.jobExecutionService = jobExecutionService;
+        this.leaseService = leaseService;
+        this.partitioned = PARTITIONED_MODE.equalsIgnoreCase(completionMode);
+        this.catchUpEnabled = catchUpEnabled;
+        this.catchUpDays = catchUpDays;
     }
 
     @Scheduled(cron = "0 0 13 * * ?")
-    @Transactional
+    @ClusterSingleton(ORDER_COMPLETION_JOB)
     public void updateOrderStatusesCron() {
 
         LocalDate today = LocalDate.now();
         DayOfWeek currentDay = today.getDayOfWeek();
 
-        List<LunchOrder> paidOrders = repository.findAll().stream()
-                .filter(order -> order.getStatus() == OrderStatus.PAID)
-                .filter(order -> {
-                    try {
-                        DayOfWeek orderDay = DayOfWeek.valueOf(order.getDayOfWeek());
-                        boolean matches = orderDay == currentDay;
-                        if (matches) {
-                            logger.debug("Found PAID order {} for day {} that matches today ({})",
-                                    order.getId(), orderDay, currentDay);
-                        }
-                        return matches;
-                    } catch (IllegalArgumentException e) {
-                        logger.warn("Invalid day of week in order {}: {}", order.getId(), order.getDayOfWeek());
-
-                        return false;
-                    }
-                })
-                .toList();
-
-        if (!paidOrders.isEmpty()) {
-
-            Instant now = Instant.now();
-
-            for (LunchOrder order : paidOrders) {
-                order.setStatus(OrderStatus.COMPLETED);
-                order.setCompletedOn(now);
-                repository.save(order);
-            }
+        Optional<JobRun> run = runCompletion(today);
+
+        if (run.isEmpty()) {
+            logger.info("Cron job skipped: completion for {} has already been run or is running elsewhere.", today);
+            return;
+        }
+
+        long updated = run.get().getRowsProcessed();
+
+        if (updated > 0) {
             logger.info("Cron job completed: Successfully updated {} orders from PAID to COMPLETED status for day: {}", 
-                    paidOrders.size(), currentDay);
+                    updated, currentDay);
         } else {
             logger.info("Cron job completed: No PAID orders found for today ({}). No status updates needed.", currentDay);
         }
     }
 
+    // Checks the 13:00 window and the ledger before taking the lease, so the other ticks of the day neither
+    // write to scheduler_leases nor contend with a catch-up run holding it.
     @Scheduled(fixedDelay = 300000)
-    @Transactional
     public void updateOrderStatusesFixedDelay() {
 
         LocalDate today = LocalDate.now();
         LocalTime currentTime = LocalTime.now();
-        LocalTime targetTime = LocalTime.of(13, 0);
-        LocalTime windowEnd = LocalTime.of(13, 5);
+        LocalTime windowEnd = COMPLETION_TIME.plusMinutes(5);
 
-        boolean isInTimeWindow = (currentTime.isAfter(targetTime) || currentTime.equals(targetTime)) 
+        boolean isInTimeWindow = (currentTime.isAfter(COMPLETION_TIME) || currentTime.equals(COMPLETION_TIME)) 
                                  && currentTime.isBefore(windowEnd);
         boolean shouldProcess = isInTimeWindow && 
-                               (lastProcessedDate == null || !lastProcessedDate.equals(today));
+                               !jobExecutionService.hasSucceeded(ORDER_COMPLETION_JOB, today);
         
         if (!shouldProcess) {
             return;
@@ -89,36 +101,86 @@ public class OrderStatusUpdateService {
         logger.info("Scheduled fixed delay job started: updating order statuses to COMPLETED at {}", currentTime);
 
         DayOfWeek currentDay = today.getDayOfWeek();
-        
-        List<LunchOrder> paidOrders = repository.findAll().stream()
-                .filter(order -> order.getStatus() == OrderStatus.PAID)
-                .filter(order -> {
-                    try {
-                        DayOfWeek orderDay = DayOfWeek.valueOf(order.getDayOfWeek());
-                        return orderDay == currentDay;
-                    } catch (IllegalArgumentException e) {
-                        return false;
-                    }
-                })
-                .toList();
-
-        if (!paidOrders.isEmpty()) {
-
-            Instant now = Instant.now();
-
-            for (LunchOrder order : paidOrders) {
-                order.setStatus(OrderStatus.COMPLETED);
-                order.setCompletedOn(now);
-                repository.save(order);
-            }
 
+        Optional<JobRun> run = leaseService.runWithLease(ORDER_COMPLETION_JOB, COMPLETION_LEASE,
+                () -> runCompletion(today)).flatMap(completion -> completion);
+
+        if (run.isEmpty()) {
+            return;
+        }
+
+        long updated = run.get().getRowsProcessed();
+
+        if (updated > 0) {
             logger.info("Fixed delay job completed: Updated {} orders to COMPLETED status for day: {}", 
-                    paidOrders.size(), currentDay);
+                    updated, currentDay);
         } else {
             logger.info("Fixed delay job completed: No orders found to update for day: {}", currentDay);
         }
-        
-        lastProcessedDate = today;
     }
-}
 
+    // Re-runs completion windows that passed while no node was up. Only the job_runs ledger is
+    // consulted to find them; each missed date then goes through the regular indexed pipeline.
+    @EventListener(ApplicationReadyEvent.class)
+    @ClusterSingleton(ORDER_COMPLETION_JOB)
+    public void catchUpMissedCompletions() {
+
+        if (!catchUpEnabled) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate lastDue = LocalTime.now().isBefore(COMPLETION_TIME) ? today.minusDays(1) : today;
+        LocalDate firstDue = today.minusDays(catchUpDays);
+
+        Set<LocalDate> succeeded = jobExecutionService.findRuns(ORDER_COMPLETION_JOB, firstDue, lastDue).stream()
+                .filter(run -> run.getStatus() == JobRunStatus.SUCCEEDED)
+                .map(JobRun::getBusinessDate)
+                .collect(Collectors.toSet());
+
+        for (LocalDate date = firstDue; !date.isAfter(lastDue); date = date.plusDays(1)) {
+
+            if (succeeded.contains(date)) {
+                continue;
+            }
+
+            logger.warn("Catching up missed order completion for {}", date);
+
+            try {
+                runCompletion(date).ifPresent(run -> logger.info("Catch-up completion for {} updated {} orders",
+                        run.getBusinessDate(), run.getRowsProcessed()));
+            } catch (RuntimeException e) {
+                logger.error("Catch-up completion for {} failed: {}", date, e.getMessage());
+            }
+        }
+    }
+
+    // In partitioned mode the lease holder coordinates the run while every node, the holder included,
+    // contributes worker threads. Nodes without the lease join through this poller once partitions exist.
+    @Scheduled(fixedDelayString = "${order.completion.partitioned.join-interval-ms:5000}")
+    public void joinPartitionedCompletion() {
+
+        if (!partitioned || LocalTime.now().isBefore(COMPLETION_TIME)) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        CompletionRunStats stats = partitionedCompletionService.joinOpenPartitions(today, Instant.now());
+
+        if (stats.getPartitions() > 0) {
+            logger.info("Joined partitioned completion for {}: {} orders completed in {} partitions",
+                    today, stats.getRowsCompleted(), stats.getPartitions());
+        }
+    }
+
+    private Optional<JobRun> runCompletion(LocalDate businessDate) {
+
+        if (partitioned) {
+            return jobExecutionService.runOnce(ORDER_COMPLETION_JOB, businessDate,
+                    () -> partitionedCompletionService.completePaidOrders(businessDate, Instant.now()).getRowsCompleted());
+        }
+
+        return jobExecutionService.runOnce(ORDER_COMPLETION_JOB, businessDate,
+                () -> completionService.completePaidOrders(businessDate, Instant.now()).getRowsCompleted());
+    }
+}
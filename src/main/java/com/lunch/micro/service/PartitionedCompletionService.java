@@ -0,0 +1,415 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.exception.LeaseLostException;
+import com.lunch.micro.jfr.CompletionBatchEvent;
+import com.lunch.micro.model.CompletionPartition;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.PartitionStatus;
+import com.lunch.micro.outbox.OrderOutbox;
+import com.lunch.micro.repository.CompletionPartitionRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.scheduling.Lease;
+import com.lunch.micro.scheduling.LeaseContext;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.lunch.micro.service.OrderCompletionService.ORDER_COMPLETION_JOB;
+
+@Service
+@Timed("lunch.service")
+public class PartitionedCompletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedCompletionService.class);
+    private static final UUID LOWEST_ID = new UUID(0L, 0L);
+    private static final long AWAIT_POLL_MILLIS = 200;
+
+    private final LunchOrderRepository orderRepository;
+    private final CompletionPartitionRepository partitionRepository;
+    private final NodeIdentity nodeIdentity;
+    private final SchedulerLeaseService leaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final ChildOrdersCache childOrdersCache;
+    private final OrderOutbox orderOutbox;
+    private final int chunkSize;
+    private final int partitions;
+    private final int threads;
+    private final Duration claimTimeout;
+
+    private volatile CompletionRunStats lastRunStats;
+
+    public PartitionedCompletionService(LunchOrderRepository orderRepository,
+                                        CompletionPartitionRepository partitionRepository,
+                                        NodeIdentity nodeIdentity,
+                                        SchedulerLeaseService leaseService,
+                                        PlatformTransactionManager transactionManager,
+                                        ChildOrdersCache childOrdersCache,
+                                        OrderOutbox orderOutbox,
+                                        @Value("${order.completion.chunk-size:2000}") int chunkSize,
+                                        @Value("${order.completion.partitioned.partitions:16}") int partitions,
+                                        @Value("${order.completion.partitioned.threads:0}") int threads,
+                                        @Value("${order.completion.partitioned.claim-timeout-seconds:120}") long claimTimeoutSeconds) {
+        this.orderRepository = orderRepository;
+        this.partitionRepository = partitionRepository;
+        this.nodeIdentity = nodeIdentity;
+        this.leaseService = leaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.childOrdersCache = childOrdersCache;
+        this.orderOutbox = orderOutbox;
+        this.chunkSize = chunkSize;
+        this.partitions = Math.max(1, Math.min(partitions, LunchOrder.CHILD_BUCKETS));
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+    }
+
+    // Coordinator entry point: splits the day into child-bucket partitions, works on them with the
+    // local thread pool and waits until every partition is DONE, including those claimed by other nodes.
+    // The lease the caller runs under is renewed throughout, as the chunked pipeline does per chunk.
+    // Returns the total number of orders completed across the cluster.
+    public CompletionRunStats completePaidOrders(LocalDate businessDate, Instant now) {
+
+        LeaseKeeper leaseKeeper = new LeaseKeeper(LeaseContext.current());
+
+        planPartitions(businessDate);
+
+        CompletionRunStats local = runWorkers(businessDate, now, leaseKeeper);
+
+        while (!isFinished(businessDate)) {
+            leaseKeeper.renewIfDue();
+            if (hasClaimablePartitions(businessDate)) {
+                local = merge(local, runWorkers(businessDate, now, leaseKeeper));
+                continue;
+            }
+            try {
+                Thread.sleep(AWAIT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for completion partitions of " + businessDate, e);
+            }
+        }
+
+        long clusterRows = partitionRepository.findByJobNameAndBusinessDateOrderByPartitionNo(ORDER_COMPLETION_JOB, businessDate)
+                .stream()
+                .mapToLong(CompletionPartition::getRowsCompleted)
+                .sum();
+
+        logger.info("Partitioned completion for {} finished: {} orders cluster-wide, {} completed by {} in {} partitions",
+                businessDate, clusterRows, local.getRowsCompleted(), nodeIdentity.getNodeId(), local.getPartitions());
+
+        return CompletionRunStats.builder()
+                .jobName(ORDER_COMPLETION_JOB)
+                .businessDate(businessDate)
+                .chunkSize(chunkSize)
+                .partitions(local.getPartitions())
+                .chunks(local.getChunks())
+                .rowsCompleted(clusterRows)
+                .elapsedMillis(local.getElapsedMillis())
+                .rowsPerSecond(local.getRowsPerSecond())
+                .avgLockHoldMillis(local.getAvgLockHoldMillis())
+                .maxLockHoldMillis(local.getMaxLockHoldMillis())
+                .startedOn(local.getStartedOn())
+                .finishedOn(Instant.now())
+                .build();
+    }
+
+    // Worker entry point for nodes that do not coordinate the run: claims whatever partitions are still open.
+    public CompletionRunStats joinOpenPartitions(LocalDate businessDate, Instant now) {
+
+        if (!hasClaimablePartitions(businessDate)) {
+            return CompletionRunStats.builder().jobName(ORDER_COMPLETION_JOB).businessDate(businessDate).chunkSize(chunkSize).build();
+        }
+
+        return runWorkers(businessDate, now, new LeaseKeeper(Optional.empty()));
+    }
+
+    public boolean isFinished(LocalDate businessDate) {
+
+        List<CompletionPartition> planned = partitionRepository
+                .findByJobNameAndBusinessDateOrderByPartitionNo(ORDER_COMPLETION_JOB, businessDate);
+
+        return !planned.isEmpty() && planned.stream().allMatch(partition -> partition.getStatus() == PartitionStatus.DONE);
+    }
+
+    public List<CompletionPartition> getPartitions(LocalDate businessDate) {
+        return partitionRepository.findByJobNameAndBusinessDateOrderByPartitionNo(ORDER_COMPLETION_JOB, businessDate);
+    }
+
+    public Optional<CompletionRunStats> getLastRunStats() {
+        return Optional.ofNullable(lastRunStats);
+    }
+
+    private void planPartitions(LocalDate businessDate) {
+
+        if (partitionRepository.countByJobNameAndBusinessDate(ORDER_COMPLETION_JOB, businessDate) > 0) {
+            return;
+        }
+
+        List<CompletionPartition> plan = new ArrayList<>(partitions);
+        for (int partitionNo = 0; partitionNo < partitions; partitionNo++) {
+            plan.add(CompletionPartition.builder()
+                    .jobName(ORDER_COMPLETION_JOB)
+                    .businessDate(businessDate)
+                    .partitionNo(partitionNo)
+                    .bucketFrom(partitionNo * LunchOrder.CHILD_BUCKETS / partitions)
+                    .bucketTo((partitionNo + 1) * LunchOrder.CHILD_BUCKETS / partitions)
+                    .status(PartitionStatus.PENDING)
+                    .build());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> partitionRepository.saveAllAndFlush(plan));
+            logger.info("Planned {} completion partitions for {}", partitions, businessDate);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Completion partitions for {} were planned concurrently by another node", businessDate);
+        }
+    }
+
+    private boolean hasClaimablePartitions(LocalDate businessDate) {
+
+        return !partitionRepository.findClaimableIds(ORDER_COMPLETION_JOB, businessDate,
+                PartitionStatus.PENDING, PartitionStatus.CLAIMED, Instant.now()).isEmpty();
+    }
+
+    private CompletionRunStats runWorkers(LocalDate businessDate, Instant now, LeaseKeeper leaseKeeper) {
+
+        Instant startedOn = Instant.now();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<WorkerResult>> futures = new ArrayList<>(threads);
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> work(businessDate, now)));
+            }
+
+            WorkerResult total = new WorkerResult(0, 0, 0, 0, 0);
+            for (Future<WorkerResult> future : futures) {
+                total = total.plus(await(future, leaseKeeper));
+            }
+
+            long elapsedNanos = System.nanoTime() - start;
+
+            CompletionRunStats stats = CompletionRunStats.builder()
+                    .jobName(ORDER_COMPLETION_JOB)
+                    .businessDate(businessDate)
+                    .chunkSize(chunkSize)
+                    .partitions(total.partitions())
+                    .chunks(total.chunks())
+                    .rowsCompleted(total.rows())
+                    .elapsedMillis(elapsedNanos / 1_000_000)
+                    .rowsPerSecond(elapsedNanos > 0 ? total.rows() * 1_000_000_000.0 / elapsedNanos : 0)
+                    .avgLockHoldMillis(total.chunks() > 0 ? total.totalLockHoldNanos() / 1_000_000.0 / total.chunks() : 0)
+                    .maxLockHoldMillis(total.maxLockHoldNanos() / 1_000_000.0)
+                    .startedOn(startedOn)
+                    .finishedOn(Instant.now())
+                    .build();
+
+            if (stats.getPartitions() > 0) {
+                lastRunStats = stats;
+            }
+
+            return stats;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while completing partitions of " + businessDate, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Completion worker failed for " + businessDate + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static WorkerResult await(Future<WorkerResult> future, LeaseKeeper leaseKeeper)
+            throws InterruptedException, ExecutionException {
+
+        while (true) {
+            try {
+                return future.get(AWAIT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                leaseKeeper.renewIfDue();
+            }
+        }
+    }
+
+    // One worker thread: keeps claiming open partitions until none is left. Partitions are much smaller
+    // than a node's share of the day, so a node that finishes early simply claims more of them, and
+    // partitions whose claim expired on a dead or stalled node are taken over.
+    private WorkerResult work(LocalDate businessDate, Instant now) {
+
+        WorkerResult result = new WorkerResult(0, 0, 0, 0, 0);
+
+        Optional<CompletionPartition> claimed;
+        while ((claimed = claimNext(businessDate)).isPresent()) {
+            try {
+                result = result.plus(process(claimed.get(), now));
+            } catch (LeaseLostException e) {
+                logger.warn("Abandoning partition {} of {}: {}", claimed.get().getPartitionNo(), businessDate, e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    private Optional<CompletionPartition> claimNext(LocalDate businessDate) {
+
+        String owner = nodeIdentity.getNodeId();
+
+        List<UUID> candidates = partitionRepository.findClaimableIds(ORDER_COMPLETION_JOB, businessDate,
+                PartitionStatus.PENDING, PartitionStatus.CLAIMED, Instant.now());
+
+        for (UUID candidate : candidates) {
+
+            Optional<CompletionPartition> claimed = transactionTemplate.execute(status -> {
+                Instant now = Instant.now();
+                int updated = partitionRepository.claim(candidate, owner, PartitionStatus.PENDING, PartitionStatus.CLAIMED,
+                        now, now.plus(claimTimeout));
+                return updated == 1 ? partitionRepository.findById(candidate) : Optional.<CompletionPartition>empty();
+            });
+
+            if (claimed != null && claimed.isPresent()) {
+                return claimed;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private WorkerResult process(CompletionPartition partition, Instant now) {
+
+        DayOfWeek day = partition.getBusinessDate().getDayOfWeek();
+        Instant createdBefore = OrderCompletionService.completionInstant(partition.getBusinessDate());
+        String owner = nodeIdentity.getNodeId();
+
+        UUID afterId = partition.getLastOrderId() != null ? partition.getLastOrderId() : LOWEST_ID;
+        WorkerResult result = new WorkerResult(1, 0, 0, 0, 0);
+
+        while (true) {
+
+            UUID from = afterId;
+            CompletionBatchEvent event = CompletionBatchEvent.start();
+            long chunkStart = System.nanoTime();
+            ChunkResult chunk = transactionTemplate.execute(status -> {
+
+                List<UUID> ids = orderRepository.findPaidOrderIdsForDayAndBucketsAfter(day, OrderStatus.PAID,
+                        partition.getBucketFrom(), partition.getBucketTo(), createdBefore, from, Limit.of(chunkSize));
+
+                long lockStartNanos = System.nanoTime();
+                int updated = ids.isEmpty() ? 0 : orderRepository.completePaidOrdersByIds(ids, OrderStatus.PAID, OrderStatus.COMPLETED, now);
+                if (updated > 0) {
+                    childOrdersCache.invalidateChildren(orderOutbox.ordersCompleted(ids, now));
+                }
+                UUID lastId = ids.isEmpty() ? from : ids.get(ids.size() - 1);
+
+                int progressed = partitionRepository.recordProgress(partition.getId(), owner, partition.getAttempts(),
+                        PartitionStatus.CLAIMED, lastId, updated, Instant.now().plus(claimTimeout));
+
+                if (progressed == 0) {
+                    throw new LeaseLostException("Claim on partition " + partition.getPartitionNo() + " was taken over");
+                }
+
+                if (ids.size() < chunkSize) {
+                    partitionRepository.markDone(partition.getId(), owner, partition.getAttempts(),
+                            PartitionStatus.CLAIMED, PartitionStatus.DONE, Instant.now());
+                }
+
+                return new ChunkResult(ids.size(), updated, lastId, lockStartNanos);
+            });
+
+            long chunkEnd = System.nanoTime();
+            long lockHoldNanos = chunkEnd - chunk.lockStartNanos();
+            if (chunk.selected() > 0) {
+                event.finish(partition.getBusinessDate(), partition.getPartitionNo(), chunk.selected(), chunk.updated(),
+                        chunkEnd - chunkStart, lockHoldNanos);
+            }
+            result = result.plus(new WorkerResult(0, chunk.selected() > 0 ? 1 : 0, chunk.updated(), lockHoldNanos, lockHoldNanos));
+            afterId = chunk.lastId();
+
+            if (chunk.selected() < chunkSize) {
+                return result;
+            }
+        }
+    }
+
+    private CompletionRunStats merge(CompletionRunStats first, CompletionRunStats second) {
+
+        int chunks = first.getChunks() + second.getChunks();
+        long elapsedMillis = first.getElapsedMillis() + second.getElapsedMillis();
+        long rows = first.getRowsCompleted() + second.getRowsCompleted();
+
+        return CompletionRunStats.builder()
+                .jobName(ORDER_COMPLETION_JOB)
+                .businessDate(first.getBusinessDate())
+                .chunkSize(chunkSize)
+                .partitions(first.getPartitions() + second.getPartitions())
+                .chunks(chunks)
+                .rowsCompleted(rows)
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : 0)
+                .avgLockHoldMillis(chunks > 0
+                        ? (first.getAvgLockHoldMillis() * first.getChunks() + second.getAvgLockHoldMillis() * second.getChunks()) / chunks
+                        : 0)
+                .maxLockHoldMillis(Math.max(first.getMaxLockHoldMillis(), second.getMaxLockHoldMillis()))
+                .startedOn(first.getStartedOn())
+                .finishedOn(second.getFinishedOn())
+                .build();
+    }
+
+    // Renews the coordinator's lease every quarter of its duration; without a lease, as on a joining node, it
+    // does nothing. A lost lease ends the coordinator's run and stops its workers, whose claims then expire and
+    // are taken over.
+    private final class LeaseKeeper {
+
+        private final Optional<Lease> lease;
+        private long renewedNanos = System.nanoTime();
+
+        private LeaseKeeper(Optional<Lease> lease) {
+            this.lease = lease;
+        }
+
+        private void renewIfDue() {
+
+            if (lease.isEmpty() || System.nanoTime() - renewedNanos < lease.get().duration().toNanos() / 4) {
+                return;
+            }
+            leaseService.renew(lease.get());
+            renewedNanos = System.nanoTime();
+        }
+    }
+
+    private record ChunkResult(int selected, int updated, UUID lastId, long lockStartNanos) {
+    }
+
+    private record WorkerResult(int partitions, int chunks, long rows, long totalLockHoldNanos, long maxLockHoldNanos) {
+
+        private WorkerResult plus(WorkerResult other) {
+            return new WorkerResult(partitions + other.partitions, chunks + other.chunks, rows + other.rows,
+                    totalLockHoldNanos + other.totalLockHoldNanos, Math.max(maxLockHoldNanos, other.maxLockHoldNanos));
+        }
+    }
+}
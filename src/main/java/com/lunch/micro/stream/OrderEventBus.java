@@ -0,0 +1,76 @@
+package com.lunch.micro.stream;
+
+import com.lunch.micro.web.dto.OrderEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// In-process fan-out of order events to listeners on this node, in two scopes. subscribe() listeners get every event
+// committed on any node: OrderOutboxFeed reads them back from order_outbox and publishes them here, a feed interval
+// after their commit. subscribeLocal() listeners get only what OrderOutbox appended on this node, called once its
+// transaction has committed, so they count each change once across the cluster and never see a rolled-back one.
+// Listeners run on the publishing thread and must only hand the events off.
+@Component
+public class OrderEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventBus.class);
+
+    private final List<Consumer<List<OrderEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<List<OrderEvent>>> localListeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<List<OrderEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    public void subscribeLocal(Consumer<List<OrderEvent>> listener) {
+        localListeners.add(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    // Committed events from any node.
+    public void publish(List<OrderEvent> events) {
+
+        if (!events.isEmpty()) {
+            dispatch(listeners, events);
+        }
+    }
+
+    // Events this node is appending; inside a transaction they are dispatched once it commits.
+    public void publishLocal(List<OrderEvent> events) {
+
+        if (events.isEmpty() || localListeners.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(localListeners, events);
+                }
+            });
+        } else {
+            dispatch(localListeners, events);
+        }
+    }
+
+    private static void dispatch(List<Consumer<List<OrderEvent>>> listeners, List<OrderEvent> events) {
+
+        for (Consumer<List<OrderEvent>> listener : listeners) {
+            try {
+                listener.accept(events);
+            } catch (RuntimeException e) {
+                logger.warn("Order event listener failed on {} events: {}", events.size(), e.getMessage());
+            }
+        }
+    }
+}
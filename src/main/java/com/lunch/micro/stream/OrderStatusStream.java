@@ -0,0 +1,379 @@
+package com.lunch.micro.stream;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.web.dto.OrderEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Server-Sent Events of order changes, for a set of children or for a parent, so the parent app can stop polling
+// GET /{childId}/lunches. Events from OrderEventBus go into each matching subscriber's bounded buffer without blocking
+// the committing thread; a small writer pool empties the buffers onto the connections. A subscriber that falls a whole
+// buffer behind is disconnected instead of holding the others up; it reconnects and re-reads its orders once.
+// Streams with nothing to say get a heartbeat comment, which keeps proxies from closing them and finds dead clients.
+// Changes committed on any node are streamed, as OrderOutboxFeed reads them from order_outbox.
+@Component
+public class OrderStatusStream implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusStream.class);
+
+    private final OrderEventBus eventBus;
+    private final LunchOrderRepository repository;
+    private final int bufferSize;
+    private final int maxChildren;
+    private final long timeoutMillis;
+    private final long heartbeatIntervalNanos;
+    private final ExecutorService writers;
+
+    private final Map<UUID, Set<Subscriber>> byChild = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Subscriber>> byParent = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder heartbeats = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    private volatile boolean running;
+
+    public OrderStatusStream(OrderEventBus eventBus,
+                             LunchOrderRepository repository,
+                             @Value("${order.stream.buffer-size:64}") int bufferSize,
+                             @Value("${order.stream.writer-threads:4}") int writerThreads,
+                             @Value("${order.stream.max-children:20}") int maxChildren,
+                             @Value("${order.stream.timeout-minutes:30}") long timeoutMinutes,
+                             @Value("${order.stream.heartbeat-interval-ms:15000}") long heartbeatIntervalMillis) {
+        this.eventBus = eventBus;
+        this.repository = repository;
+        this.bufferSize = bufferSize;
+        this.maxChildren = maxChildren;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMillis);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "order-stream-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void listen() {
+        eventBus.subscribe(this::dispatch);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Ends every open stream before the web server's graceful shutdown, which would otherwise wait for all of them.
+    @Override
+    public void stop() {
+
+        running = false;
+        subscribers.forEach(subscriber -> subscriber.close(true));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    @PreDestroy
+    public void shutdownWriters() throws InterruptedException {
+
+        writers.shutdown();
+        writers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter subscribeChildren(Collection<UUID> childIds) {
+
+        Set<UUID> children = new LinkedHashSet<>(childIds);
+        if (children.isEmpty() || children.size() > maxChildren) {
+            throw new DomainException("Between 1 and " + maxChildren + " children can be streamed at once");
+        }
+        return register(new Subscriber(newEmitter(), null), children);
+    }
+
+    // The parent's children are those with orders still PAID, the only ones a cancellation (whose event carries
+    // no parent) can reach; children ordered for later are picked up from their CREATED events.
+    public SseEmitter subscribeParent(UUID parentId) {
+
+        List<UUID> children = repository.findChildIdsByParentIdAndStatus(parentId, OrderStatus.PAID);
+        return register(new Subscriber(newEmitter(), parentId), children);
+    }
+
+    protected SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private SseEmitter register(Subscriber subscriber, Collection<UUID> children) {
+
+        subscribers.add(subscriber);
+        children.forEach(childId -> watchChild(subscriber, childId));
+        if (subscriber.parentId != null) {
+            add(byParent, subscriber.parentId, subscriber);
+        }
+
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> subscriber.close(false));
+        emitter.onError(error -> subscriber.close(false));
+        emitter.onTimeout(() -> subscriber.close(true));
+
+        if (!running) {
+            subscriber.close(true);
+            return emitter;
+        }
+
+        // Opens the stream right away, so the client knows it is subscribed.
+        subscriber.heartbeat();
+        return emitter;
+    }
+
+    void dispatch(List<OrderEvent> events) {
+
+        received.add(events.size());
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        for (OrderEvent event : events) {
+
+            Set<Subscriber> forChild = byChild.get(event.getChildId());
+            Set<Subscriber> forParent = event.getParentId() != null ? byParent.get(event.getParentId()) : null;
+
+            if (forChild != null) {
+                forChild.forEach(subscriber -> subscriber.offer(event));
+            }
+            if (forParent != null) {
+                for (Subscriber subscriber : forParent) {
+                    boolean offered = forChild != null && forChild.contains(subscriber);
+                    watchChild(subscriber, event.getChildId());
+                    if (!offered) {
+                        subscriber.offer(event);
+                    }
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.stream.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (now - subscriber.lastSentNanos >= heartbeatIntervalNanos) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private void watchChild(Subscriber subscriber, UUID childId) {
+
+        if (subscriber.children.add(childId)) {
+            add(byChild, childId, subscriber);
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+
+        subscribers.remove(subscriber);
+        subscriber.children.forEach(childId -> remove(byChild, childId, subscriber));
+        if (subscriber.parentId != null) {
+            remove(byParent, subscriber.parentId, subscriber);
+        }
+    }
+
+    private static void add(Map<UUID, Set<Subscriber>> index, UUID key, Subscriber subscriber) {
+        index.compute(key, (id, set) -> {
+            Set<Subscriber> subscribersOfKey = set != null ? set : ConcurrentHashMap.newKeySet();
+            subscribersOfKey.add(subscriber);
+            return subscribersOfKey;
+        });
+    }
+
+    private static void remove(Map<UUID, Set<Subscriber>> index, UUID key, Subscriber subscriber) {
+        index.computeIfPresent(key, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public Stats stats() {
+
+        return Stats.builder()
+                .subscribers(subscribers.size())
+                .watchedChildren(byChild.size())
+                .eventsReceived(received.sum())
+                .eventsDelivered(delivered.sum())
+                .heartbeatsSent(heartbeats.sum())
+                .slowConsumersEvicted(evicted.sum())
+                .connectionsLost(disconnected.sum())
+                .build();
+    }
+
+    // One connection. Its buffer is drained by at most one writer at a time; scheduled is that writer's claim.
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final UUID parentId;
+        private final Set<UUID> children = ConcurrentHashMap.newKeySet();
+        private final ArrayBlockingQueue<OrderEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile boolean completeOnClose;
+        private volatile long lastSentNanos = System.nanoTime();
+
+        private Subscriber(SseEmitter emitter, UUID parentId) {
+            this.emitter = emitter;
+            this.parentId = parentId;
+        }
+
+        void offer(OrderEvent event) {
+
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evicted.increment();
+                logger.info("Disconnecting order stream subscriber that fell {} events behind", bufferSize);
+                close(true);
+                return;
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        // Unregisters at once; completing the response is left to this subscriber's writer, so a caller never waits
+        // on a connection that is in the middle of a slow write.
+        void close(boolean complete) {
+
+            if (closed.compareAndSet(false, true)) {
+                unregister(this);
+                completeOnClose = complete;
+                schedule();
+            }
+        }
+
+        private void schedule() {
+
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+
+            try {
+                while (true) {
+                    if (closed.get()) {
+                        buffer.clear();
+                        if (completeOnClose) {
+                            emitter.complete();
+                        }
+                        return;
+                    }
+
+                    OrderEvent event = buffer.poll();
+                    if (event != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(event.getEventId().toString())
+                                .name(event.getEventType().name())
+                                .data(event));
+                        delivered.increment();
+                        lastSentNanos = System.nanoTime();
+                        continue;
+                    }
+
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        heartbeats.increment();
+                        lastSentNanos = System.nanoTime();
+                        continue;
+                    }
+
+                    scheduled.set(false);
+                    boolean moreWork = !buffer.isEmpty() || heartbeatDue || closed.get();
+                    if (!moreWork || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // The client went away; the container reports it through onError as well.
+                disconnected.increment();
+                if (closed.compareAndSet(false, true)) {
+                    unregister(this);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private int subscribers;
+
+        // Children with at least one subscriber.
+        private int watchedChildren;
+
+        private long eventsReceived;
+
+        private long eventsDelivered;
+
+        private long heartbeatsSent;
+
+        private long slowConsumersEvicted;
+
+        // Connections found closed by the client while sending to them.
+        private long connectionsLost;
+    }
+}
@@ -0,0 +1,40 @@
+package com.lunch.micro.wallet;
+
+import com.lunch.micro.web.dto.WalletBalance;
+import com.lunch.micro.web.dto.WalletDebitBatchRequest;
+import com.lunch.micro.web.dto.WalletDebitBatchResponse;
+import com.lunch.micro.web.dto.WalletHold;
+import com.lunch.micro.web.dto.WalletHoldRequest;
+import com.lunch.micro.web.dto.WalletSettlementBatchRequest;
+import com.lunch.micro.web.dto.WalletSettlementBatchResponse;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.UUID;
+
+// The wallet service. Timeouts are set per client under spring.cloud.openfeign.client.config.wallet.
+@FeignClient(name = "wallet", url = "${wallet.url}")
+public interface WalletClient {
+
+    // Debits every item from one wallet; each is accepted or declined on its own.
+    @PostMapping("/api/v1/wallets/{walletId}/debits")
+    WalletDebitBatchResponse debit(@PathVariable("walletId") UUID walletId, @RequestBody WalletDebitBatchRequest request);
+
+    // Reserves up to the requested amount for lunch-svc.
+    @PostMapping("/api/v1/wallets/{walletId}/holds")
+    WalletHold hold(@PathVariable("walletId") UUID walletId, @RequestBody WalletHoldRequest request);
+
+    // Returns part of what is held to the wallet's available balance.
+    @PostMapping("/api/v1/wallets/{walletId}/holds/release")
+    WalletHold release(@PathVariable("walletId") UUID walletId, @RequestBody WalletHoldRequest request);
+
+    // Settles held amounts for many wallets at once.
+    @PostMapping("/api/v1/wallets/settlements")
+    WalletSettlementBatchResponse settle(@RequestBody WalletSettlementBatchRequest request);
+
+    @GetMapping("/api/v1/wallets/{walletId}/balance")
+    WalletBalance balance(@PathVariable("walletId") UUID walletId);
+}
@@ -0,0 +1,305 @@
+package com.lunch.micro.wallet;
+
+import com.lunch.micro.exception.WalletUnavailableException;
+import com.lunch.micro.web.dto.WalletDebit;
+import com.lunch.micro.web.dto.WalletDebitBatchRequest;
+import com.lunch.micro.web.dto.WalletDebitBatchResponse;
+import com.lunch.micro.web.dto.WalletDebitResult;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Coalesces debits for the same wallet: the first one opens a batch, and whatever else arrives for that wallet within
+// wallet.debit.batch-window-ms (or until max-batch-size) goes out in the same WalletClient call. A family paying for
+// a week of lunches for two children costs one round trip instead of ten.
+// Calls run on a bounded thread-pool bulkhead, so a slow wallet service ties up a fixed number of threads and excess
+// batches are refused at once; behind it a circuit breaker stops calling a failing service until it has had time to
+// recover. Either way the affected debits fail with WalletUnavailableException and nothing is debited.
+@Component
+public class WalletDebitBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletDebitBatcher.class);
+
+    private final WalletClient walletClient;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolBulkhead bulkhead;
+    private final ScheduledExecutorService timer;
+
+    private final Map<UUID, Batch> openBatches = new ConcurrentHashMap<>();
+
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+    private final LongAdder rejectedByCircuitBreaker = new LongAdder();
+    private final LongAdder totalCallNanos = new LongAdder();
+    private final AtomicLong maxCallNanos = new AtomicLong();
+
+    public WalletDebitBatcher(WalletClient walletClient,
+                              @Value("${wallet.debit.batch-window-ms:5}") long batchWindowMillis,
+                              @Value("${wallet.debit.max-batch-size:50}") int maxBatchSize,
+                              @Value("${wallet.bulkhead.max-concurrent-calls:16}") int maxConcurrentCalls,
+                              @Value("${wallet.bulkhead.queue-capacity:64}") int bulkheadQueueCapacity,
+                              @Value("${wallet.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                              @Value("${wallet.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                              @Value("${wallet.circuit-breaker.open-ms:10000}") long openMillis) {
+        this.walletClient = walletClient;
+        this.batchWindowMillis = batchWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+
+        this.circuitBreaker = CircuitBreaker.of("wallet", CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.min(slidingWindowSize, 10))
+                .waitDurationInOpenState(Duration.ofMillis(openMillis))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .build());
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("Wallet circuit breaker {}", event.getStateTransition()));
+
+        this.bulkhead = ThreadPoolBulkhead.of("wallet", ThreadPoolBulkheadConfig.custom()
+                .coreThreadPoolSize(maxConcurrentCalls)
+                .maxThreadPoolSize(maxConcurrentCalls)
+                .queueCapacity(bulkheadQueueCapacity)
+                .build());
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-debit-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Sends what is still waiting, then stops taking calls.
+    @PreDestroy
+    public void shutdown() throws Exception {
+
+        openBatches.values().forEach(this::flush);
+        timer.shutdownNow();
+        bulkhead.close();
+    }
+
+    // Completes with the wallet's answer for this debit, or exceptionally with WalletUnavailableException.
+    public CompletableFuture<WalletDebitResult> debit(UUID walletId, UUID reference, BigDecimal amount) {
+
+        PendingDebit debit = new PendingDebit(
+                WalletDebit.builder().reference(reference).amount(amount).build(),
+                new CompletableFuture<>());
+        requested.increment();
+
+        while (true) {
+            Batch batch = openBatches.computeIfAbsent(walletId, this::openBatch);
+            int size = batch.add(debit);
+            if (size > 0) {
+                if (size >= maxBatchSize) {
+                    flush(batch);
+                }
+                return debit.result();
+            }
+            // Filled or sent between the lookup and the add; the next lookup opens a new one.
+            openBatches.remove(walletId, batch);
+        }
+    }
+
+    private Batch openBatch(UUID walletId) {
+
+        Batch batch = new Batch(walletId);
+        try {
+            timer.schedule(() -> flush(batch), batchWindowMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new WalletUnavailableException("Wallet client is shutting down", e);
+        }
+        return batch;
+    }
+
+    private void flush(Batch batch) {
+
+        openBatches.remove(batch.walletId, batch);
+        List<PendingDebit> debits = batch.close();
+        if (debits == null || debits.isEmpty()) {
+            return;
+        }
+
+        WalletDebitBatchRequest request = WalletDebitBatchRequest.builder()
+                .debits(debits.stream().map(PendingDebit::debit).toList())
+                .build();
+        try {
+            bulkhead.executeSupplier(() -> call(batch.walletId, request))
+                    .whenComplete((response, error) -> complete(debits, response, error));
+        } catch (BulkheadFullException e) {
+            rejectedByBulkhead.add(debits.size());
+            fail(debits, new WalletUnavailableException("Too many wallet calls in flight, please try again", e));
+        }
+    }
+
+    private WalletDebitBatchResponse call(UUID walletId, WalletDebitBatchRequest request) {
+
+        long start = System.nanoTime();
+        try {
+            return circuitBreaker.executeSupplier(() -> walletClient.debit(walletId, request));
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            calls.increment();
+            sent.add(request.getDebits().size());
+            totalCallNanos.add(elapsed);
+            maxCallNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private void complete(List<PendingDebit> debits, WalletDebitBatchResponse response, Throwable error) {
+
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CallNotPermittedException) {
+                rejectedByCircuitBreaker.add(debits.size());
+                fail(debits, new WalletUnavailableException("Wallet service is unavailable, please try again", cause));
+            } else {
+                failed.add(debits.size());
+                logger.warn("Wallet debit call for {} debits failed: {}", debits.size(), cause.getMessage());
+                fail(debits, new WalletUnavailableException("Wallet service call failed, please try again", cause));
+            }
+            return;
+        }
+
+        Map<UUID, WalletDebitResult> results = response == null || response.getResults() == null ? Map.of()
+                : response.getResults().stream().collect(Collectors.toMap(
+                        WalletDebitResult::getReference, Function.identity(), (first, second) -> first));
+
+        for (PendingDebit debit : debits) {
+            WalletDebitResult result = results.get(debit.debit().getReference());
+            if (result == null) {
+                failed.increment();
+                debit.result().completeExceptionally(new WalletUnavailableException(
+                        "Wallet service returned no result for debit " + debit.debit().getReference()));
+                continue;
+            }
+            if (!result.isAccepted()) {
+                declined.increment();
+            }
+            debit.result().complete(result);
+        }
+    }
+
+    private static void fail(List<PendingDebit> debits, WalletUnavailableException e) {
+        debits.forEach(debit -> debit.result().completeExceptionally(e));
+    }
+
+    public Stats stats() {
+
+        long callCount = calls.sum();
+
+        return Stats.builder()
+                .circuitBreakerState(circuitBreaker.getState().name())
+                .openBatches(openBatches.size())
+                .debitsRequested(requested.sum())
+                .walletCalls(callCount)
+                .averageBatchSize(callCount == 0 ? 0 : sent.sum() / (double) callCount)
+                .debitsDeclined(declined.sum())
+                .debitsFailed(failed.sum())
+                .rejectedByBulkhead(rejectedByBulkhead.sum())
+                .rejectedByCircuitBreaker(rejectedByCircuitBreaker.sum())
+                .averageCallMillis(callCount == 0 ? 0 : totalCallNanos.sum() / (double) callCount / 1_000_000.0)
+                .maxCallMillis(maxCallNanos.get() / 1_000_000.0)
+                .build();
+    }
+
+    private record PendingDebit(WalletDebit debit, CompletableFuture<WalletDebitResult> result) {
+    }
+
+    // Debits waiting for one wallet. Closed once sent; a closed batch takes no more.
+    private final class Batch {
+
+        private final UUID walletId;
+        private final List<PendingDebit> debits = new ArrayList<>();
+        private boolean closed;
+
+        private Batch(UUID walletId) {
+            this.walletId = walletId;
+        }
+
+        // Returns the batch size after adding, or 0 if the batch is closed or full.
+        synchronized int add(PendingDebit debit) {
+
+            if (closed || debits.size() >= maxBatchSize) {
+                return 0;
+            }
+            debits.add(debit);
+            return debits.size();
+        }
+
+        // Returns the debits to send, or null if another thread already closed the batch.
+        synchronized List<PendingDebit> close() {
+
+            if (closed) {
+                return null;
+            }
+            closed = true;
+            return debits;
+        }
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private String circuitBreakerState;
+
+        // Wallets with debits waiting for their batch window to end.
+        private int openBatches;
+
+        private long debitsRequested;
+
+        private long walletCalls;
+
+        private double averageBatchSize;
+
+        private long debitsDeclined;
+
+        // Debits whose call failed or timed out.
+        private long debitsFailed;
+
+        // Debits refused without a call because every bulkhead thread and queue slot was busy.
+        private long rejectedByBulkhead;
+
+        // Debits refused without a call because the circuit breaker was open.
+        private long rejectedByCircuitBreaker;
+
+        private double averageCallMillis;
+
+        private double maxCallMillis;
+    }
+}
@@ -0,0 +1,576 @@
+package com.lunch.micro.wallet;
+
+import com.lunch.micro.exception.WalletUnavailableException;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.WalletHoldLedgerEntry;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.WalletHoldLedgerRepository;
+import com.lunch.micro.scheduling.ClusterSingleton;
+import com.lunch.micro.service.NodeIdentity;
+import com.lunch.micro.web.dto.WalletHold;
+import com.lunch.micro.web.dto.WalletHoldRequest;
+import com.lunch.micro.web.dto.WalletSettlement;
+import com.lunch.micro.web.dto.WalletSettlementBatchRequest;
+import com.lunch.micro.web.dto.WalletSettlementBatchResponse;
+import com.lunch.micro.web.dto.WalletSettlementResult;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Local spending allowances for wallet.mode=hold. The wallet service reserves wallet.hold.amount per wallet at a time;
+// orders are paid by taking their total off that allowance with a CAS on an AtomicLong of cents, so the hot path
+// makes no remote call. When an allowance runs low it is topped up in the background; only an order that finds it
+// empty waits for a hold, and concurrent ones share that call.
+// What was spent is settled in one batched call per run, net of refunds for cancelled orders. A settlement keeps its
+// id until the wallet confirms it, so one resent after a failed call is applied once. Each run also records this
+// node's position per wallet in wallet_hold_ledger. Reconciliation runs on one node of the cluster; it compares, per
+// wallet, the totals of its PAID and COMPLETED orders with what the wallet has settled and books the difference,
+// e.g. a refund lost to a crash. It only looks at wallets that no live node has anything unsettled on or has used
+// lately, so another node's spending on its way to being settled is never taken for drift.
+@Component
+public class WalletHolds {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletHolds.class);
+    private static final Set<OrderStatus> PAID_STATUSES = EnumSet.of(OrderStatus.PAID, OrderStatus.COMPLETED);
+    public static final String WALLET_RECONCILE_JOB = "wallet-hold-reconcile";
+    // Rows of nodes gone this long are dropped; by then reconciliation has booked what they left unsettled.
+    private static final Duration LEDGER_RETENTION = Duration.ofDays(1);
+
+    private final WalletClient walletClient;
+    private final LunchOrderRepository repository;
+    private final WalletHoldLedgerRepository ledgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final long holdCents;
+    private final long refillBelowCents;
+    private final long idleReleaseNanos;
+    private final long reconcileQuietNanos;
+    private final Duration ledgerTtl;
+    private final int settlementBatchSize;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService refills;
+
+    private final Map<UUID, Allowance> allowances = new ConcurrentHashMap<>();
+
+    private final LongAdder spent = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder refunded = new LongAdder();
+    private final LongAdder holdCalls = new LongAdder();
+    private final LongAdder ordersWaitingForHold = new LongAdder();
+    private final LongAdder settlementCalls = new LongAdder();
+    private final LongAdder settlementFailures = new LongAdder();
+    private final LongAdder reconciliationCorrections = new LongAdder();
+    private final AtomicLong settledCents = new AtomicLong();
+
+    public WalletHolds(WalletClient walletClient,
+                       LunchOrderRepository repository,
+                       WalletHoldLedgerRepository ledgerRepository,
+                       PlatformTransactionManager transactionManager,
+                       NodeIdentity nodeIdentity,
+                       @Value("${wallet.hold.amount:50.00}") BigDecimal holdAmount,
+                       @Value("${wallet.hold.refill-below:10.00}") BigDecimal refillBelow,
+                       @Value("${wallet.hold.idle-release-minutes:30}") long idleReleaseMinutes,
+                       @Value("${wallet.hold.reconcile-quiet-seconds:60}") long reconcileQuietSeconds,
+                       @Value("${wallet.hold.ledger-ttl-seconds:300}") long ledgerTtlSeconds,
+                       @Value("${wallet.hold.settlement-batch-size:500}") int settlementBatchSize,
+                       @Value("${wallet.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                       @Value("${wallet.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                       @Value("${wallet.circuit-breaker.open-ms:10000}") long openMillis) {
+        this.walletClient = walletClient;
+        this.repository = repository;
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodeId = nodeIdentity.getNodeId();
+        this.holdCents = toCents(holdAmount);
+        this.refillBelowCents = toCents(refillBelow);
+        this.idleReleaseNanos = TimeUnit.MINUTES.toNanos(idleReleaseMinutes);
+        this.reconcileQuietNanos = TimeUnit.SECONDS.toNanos(reconcileQuietSeconds);
+        this.ledgerTtl = Duration.ofSeconds(ledgerTtlSeconds);
+        this.settlementBatchSize = settlementBatchSize;
+
+        // Holds and settlements are a different load from per-order debits, so they get their own breaker.
+        this.circuitBreaker = CircuitBreaker.of("wallet-holds", CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.min(slidingWindowSize, 10))
+                .waitDurationInOpenState(Duration.ofMillis(openMillis))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .build());
+
+        this.refills = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "wallet-hold-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Settles what was spent and hands every unused allowance back.
+    @PreDestroy
+    public void shutdown() {
+
+        refills.shutdownNow();
+        if (allowances.isEmpty()) {
+            return;
+        }
+        try {
+            settle();
+            releaseAll();
+        } catch (RuntimeException e) {
+            logger.warn("Could not settle wallet holds on shutdown; reconciliation will book them: {}", e.getMessage());
+        }
+    }
+
+    // Returns false if the wallet has not enough money for the amount; throws WalletUnavailableException if the
+    // allowance is empty and the wallet service cannot be asked for more.
+    public boolean spend(UUID walletId, BigDecimal amount) {
+
+        long cents = toCents(amount);
+        Allowance allowance = allowances.computeIfAbsent(walletId, Allowance::new);
+        allowance.touch();
+
+        while (!allowance.tryTake(cents)) {
+            ordersWaitingForHold.increment();
+            long granted = await(allowance.refill(cents));
+            if (granted == 0) {
+                declined.increment();
+                return false;
+            }
+        }
+        allowance.unsettled.addAndGet(cents);
+        spent.increment();
+
+        if (allowance.remaining.get() < refillBelowCents) {
+            refillInBackground(allowance);
+        }
+        return true;
+    }
+
+    // Gives an amount back to the allowance: a cancelled order, or one paid for but never saved.
+    public void refund(UUID walletId, BigDecimal amount) {
+
+        long cents = toCents(amount);
+        Allowance allowance = allowances.computeIfAbsent(walletId, Allowance::new);
+        allowance.touch();
+        allowance.remaining.addAndGet(cents);
+        allowance.unsettled.addAndGet(-cents);
+        refunded.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.hold.settle-interval-ms:5000}")
+    public synchronized void settle() {
+
+        List<Allowance> due = new ArrayList<>();
+        for (Allowance allowance : allowances.values()) {
+            if (allowance.pending == null) {
+                long cents = allowance.unsettled.getAndSet(0);
+                if (cents != 0) {
+                    allowance.pending = WalletSettlement.builder()
+                            .settlementId(UUID.randomUUID())
+                            .walletId(allowance.walletId)
+                            .amount(fromCents(cents))
+                            .build();
+                }
+            }
+            if (allowance.pending != null) {
+                due.add(allowance);
+            }
+        }
+
+        for (int from = 0; from < due.size(); from += settlementBatchSize) {
+            sendSettlements(due.subList(from, Math.min(from + settlementBatchSize, due.size())));
+        }
+
+        releaseIdle();
+        recordLedger();
+    }
+
+    // Writes the rows whose position changed since the last run and marks the rest as still current.
+    private void recordLedger() {
+
+        Instant now = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+
+                Map<UUID, WalletHoldLedgerEntry> rows = new HashMap<>();
+                ledgerRepository.findByNodeId(nodeId).forEach(row -> rows.put(row.getWalletId(), row));
+
+                List<WalletHoldLedgerEntry> added = new ArrayList<>();
+                for (Allowance allowance : allowances.values()) {
+                    BigDecimal unsettled = fromCents(allowance.owedCents());
+                    Instant lastUsedOn = Instant.ofEpochMilli(allowance.lastUsedMillis);
+                    WalletHoldLedgerEntry row = rows.get(allowance.walletId);
+                    if (row == null) {
+                        added.add(WalletHoldLedgerEntry.builder()
+                                .nodeId(nodeId)
+                                .walletId(allowance.walletId)
+                                .unsettled(unsettled)
+                                .lastUsedOn(lastUsedOn)
+                                .recordedOn(now)
+                                .build());
+                    } else if (row.getUnsettled().compareTo(unsettled) != 0 || !row.getLastUsedOn().equals(lastUsedOn)) {
+                        row.setUnsettled(unsettled);
+                        row.setLastUsedOn(lastUsedOn);
+                    }
+                }
+                ledgerRepository.saveAll(added);
+                ledgerRepository.markRecorded(nodeId, now);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not record wallet holds in the ledger: {}", e.getMessage());
+        }
+    }
+
+    private void sendSettlements(List<Allowance> batch) {
+
+        WalletSettlementBatchRequest request = WalletSettlementBatchRequest.builder()
+                .settlements(batch.stream().map(allowance -> allowance.pending).toList())
+                .build();
+
+        WalletSettlementBatchResponse response;
+        try {
+            response = call(() -> walletClient.settle(request));
+            settlementCalls.increment();
+        } catch (WalletUnavailableException e) {
+            // Kept as pending with the same ids; the next run sends them again.
+            settlementFailures.increment();
+            logger.warn("Settling {} wallets failed, retrying next run: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        Set<UUID> applied = response.getResults() == null ? Set.of() : response.getResults().stream()
+                .filter(WalletSettlementResult::isApplied)
+                .map(WalletSettlementResult::getSettlementId)
+                .collect(Collectors.toSet());
+
+        for (Allowance allowance : batch) {
+            if (applied.contains(allowance.pending.getSettlementId())) {
+                settledCents.addAndGet(toCents(allowance.pending.getAmount()));
+                allowance.pending = null;
+            } else {
+                settlementFailures.increment();
+                logger.warn("Wallet {} did not apply settlement {}, retrying next run",
+                        allowance.walletId, allowance.pending.getSettlementId());
+            }
+        }
+    }
+
+    // Compares each settled-up wallet's paid orders with what it has settled, and books the difference as a
+    // settlement. A wallet is only compared once nothing is unsettled or pending on it on any live node, and neither
+    // its orders nor any node's allowance for it have changed for reconcile-quiet-seconds: an order in flight is
+    // counted by its node before it is committed, and its settlement can be on its way while the ledger still shows
+    // it. Wallets that never settle up are left for a later run. Rows of nodes that have not recorded for
+    // ledger-ttl-seconds are taken as gone; what they left unsettled is booked as drift.
+    @Scheduled(fixedDelayString = "${wallet.hold.reconcile-interval-ms:600000}",
+            initialDelayString = "${wallet.hold.reconcile-interval-ms:600000}")
+    @ClusterSingleton(WALLET_RECONCILE_JOB)
+    public synchronized void reconcile() {
+
+        settle();
+
+        Instant now = Instant.now();
+        Instant quietSince = now.minusNanos(reconcileQuietNanos);
+        Instant liveSince = now.minus(ledgerTtl);
+
+        Set<UUID> wallets = new HashSet<>(allowances.keySet());
+        Set<UUID> busy = new HashSet<>();
+        for (WalletHoldLedgerEntry row : ledgerRepository.findAll()) {
+            wallets.add(row.getWalletId());
+            boolean live = row.getRecordedOn().isAfter(liveSince);
+            // This node's own position is read from memory below.
+            if (live && !row.getNodeId().equals(nodeId)
+                    && (row.getUnsettled().signum() != 0 || row.getLastUsedOn().isAfter(quietSince))) {
+                busy.add(row.getWalletId());
+            }
+        }
+
+        int corrected = 0;
+        long nowNanos = System.nanoTime();
+        for (UUID walletId : wallets) {
+
+            Allowance local = allowances.get(walletId);
+            if (busy.contains(walletId) || local != null && (local.owedCents() != 0
+                    || nowNanos - local.lastUsedNanos < reconcileQuietNanos)) {
+                continue;
+            }
+            try {
+                Instant lastChange = repository.findLastUpdatedOnByWalletId(walletId);
+                if (lastChange != null && lastChange.isAfter(quietSince)) {
+                    continue;
+                }
+                long expected = toCents(repository.sumTotalByWalletIdAndStatusIn(walletId, PAID_STATUSES));
+                long settled = toCents(call(() -> walletClient.balance(walletId)).getSettled());
+                long drift = expected - settled;
+                if (drift == 0) {
+                    continue;
+                }
+                Allowance allowance = allowances.computeIfAbsent(walletId, Allowance::new);
+                if (drift > allowance.remaining.get()) {
+                    // Settlements are taken from what is held, so cover the difference with a hold first.
+                    await(allowance.refill(drift - allowance.remaining.get()));
+                }
+                logger.warn("Wallet {} is off by {}: orders total {}, settled {}; booking the difference",
+                        walletId, fromCents(drift), fromCents(expected), fromCents(settled));
+                allowance.remaining.addAndGet(-drift);
+                allowance.unsettled.addAndGet(drift);
+                reconciliationCorrections.increment();
+                corrected++;
+            } catch (WalletUnavailableException e) {
+                logger.warn("Could not reconcile wallet {}: {}", walletId, e.getMessage());
+            }
+        }
+
+        if (corrected > 0) {
+            settle();
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                ledgerRepository.deleteRecordedBefore(now.minus(LEDGER_RETENTION)));
+    }
+
+    // Hands back allowances no order has touched for wallet.hold.idle-release-minutes.
+    private void releaseIdle() {
+
+        long now = System.nanoTime();
+        allowances.values().stream()
+                .filter(allowance -> now - allowance.lastUsedNanos >= idleReleaseNanos)
+                .forEach(this::release);
+    }
+
+    public synchronized void releaseAll() {
+        allowances.values().forEach(this::release);
+    }
+
+    private void release(Allowance allowance) {
+
+        long cents = allowance.remaining.getAndUpdate(remaining -> Math.min(remaining, 0));
+        if (cents <= 0) {
+            return;
+        }
+        try {
+            call(() -> walletClient.release(allowance.walletId, WalletHoldRequest.builder()
+                    .holdId(UUID.randomUUID())
+                    .amount(fromCents(cents))
+                    .build()));
+        } catch (WalletUnavailableException e) {
+            allowance.remaining.addAndGet(cents);
+            logger.warn("Could not release {} held on wallet {}: {}", fromCents(cents), allowance.walletId, e.getMessage());
+        }
+    }
+
+    private void refillInBackground(Allowance allowance) {
+
+        if (allowance.refill.get() != null) {
+            return;
+        }
+        try {
+            refills.execute(() -> {
+                try {
+                    allowance.refill(0).join();
+                } catch (RuntimeException e) {
+                    logger.warn("Background hold for wallet {} failed: {}", allowance.walletId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the next order that needs it asks in the foreground.
+        }
+    }
+
+    private long requestHold(UUID walletId, long cents) {
+
+        WalletHold hold = call(() -> walletClient.hold(walletId, WalletHoldRequest.builder()
+                .holdId(UUID.randomUUID())
+                .amount(fromCents(cents))
+                .build()));
+        holdCalls.increment();
+        return hold == null || hold.getAmount() == null ? 0 : toCents(hold.getAmount());
+    }
+
+    private <T> T call(Supplier<T> walletCall) {
+
+        try {
+            return circuitBreaker.executeSupplier(walletCall);
+        } catch (CallNotPermittedException e) {
+            throw new WalletUnavailableException("Wallet service is unavailable, please try again", e);
+        } catch (RuntimeException e) {
+            throw new WalletUnavailableException("Wallet service call failed, please try again", e);
+        }
+    }
+
+    private static long await(CompletableFuture<Long> refill) {
+
+        try {
+            return refill.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof WalletUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new WalletUnavailableException("Wallet service call failed, please try again", e.getCause());
+        }
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public Stats stats() {
+
+        long remaining = 0;
+        long unsettled = 0;
+        for (Allowance allowance : allowances.values()) {
+            remaining += allowance.remaining.get();
+            unsettled += allowance.unsettled.get() + (allowance.pending != null ? toCents(allowance.pending.getAmount()) : 0);
+        }
+
+        return Stats.builder()
+                .circuitBreakerState(circuitBreaker.getState().name())
+                .wallets(allowances.size())
+                .heldRemaining(fromCents(remaining))
+                .unsettled(fromCents(unsettled))
+                .settled(fromCents(settledCents.get()))
+                .ordersPaid(spent.sum())
+                .ordersDeclined(declined.sum())
+                .ordersRefunded(refunded.sum())
+                .holdCalls(holdCalls.sum())
+                .ordersWaitingForHold(ordersWaitingForHold.sum())
+                .settlementCalls(settlementCalls.sum())
+                .settlementFailures(settlementFailures.sum())
+                .reconciliationCorrections(reconciliationCorrections.sum())
+                .build();
+    }
+
+    // One wallet's allowance. remaining and unsettled change without locks; pending is only touched by settle(),
+    // which is synchronized.
+    private final class Allowance {
+
+        private final UUID walletId;
+        private final AtomicLong remaining = new AtomicLong();
+        private final AtomicLong unsettled = new AtomicLong();
+        private final AtomicReference<CompletableFuture<Long>> refill = new AtomicReference<>();
+        private volatile WalletSettlement pending;
+        private volatile long lastUsedNanos = System.nanoTime();
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+
+        private Allowance(UUID walletId) {
+            this.walletId = walletId;
+        }
+
+        void touch() {
+            lastUsedNanos = System.nanoTime();
+            lastUsedMillis = System.currentTimeMillis();
+        }
+
+        // Spent and not confirmed settled yet: unsettled plus a settlement sent but not acknowledged.
+        long owedCents() {
+            WalletSettlement inFlight = pending;
+            return unsettled.get() + (inFlight != null ? toCents(inFlight.getAmount()) : 0);
+        }
+
+        boolean tryTake(long cents) {
+
+            long current = remaining.get();
+            while (current >= cents) {
+                if (remaining.compareAndSet(current, current - cents)) {
+                    return true;
+                }
+                current = remaining.get();
+            }
+            return false;
+        }
+
+        // Asks the wallet for a new hold of at least the given amount, unless a request is already out, in which
+        // case its result is shared. Completes with the amount granted.
+        CompletableFuture<Long> refill(long atLeastCents) {
+
+            CompletableFuture<Long> mine = new CompletableFuture<>();
+            CompletableFuture<Long> current = refill.compareAndExchange(null, mine);
+            if (current != null) {
+                return current;
+            }
+            try {
+                long granted = requestHold(walletId, Math.max(holdCents, atLeastCents));
+                remaining.addAndGet(granted);
+                mine.complete(granted);
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+            } finally {
+                refill.set(null);
+            }
+            return mine;
+        }
+    }
+
+    @Builder
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+
+        private String circuitBreakerState;
+
+        // Wallets this node holds money for.
+        private int wallets;
+
+        // Held by this node and not spent yet.
+        private BigDecimal heldRemaining;
+
+        // Spent locally, net of refunds, and not yet confirmed by the wallet service.
+        private BigDecimal unsettled;
+
+        private BigDecimal settled;
+
+        private long ordersPaid;
+
+        private long ordersDeclined;
+
+        private long ordersRefunded;
+
+        private long holdCalls;
+
+        // Times an order found its allowance empty and waited for a hold.
+        private long ordersWaitingForHold;
+
+        private long settlementCalls;
+
+        private long settlementFailures;
+
+        private long reconciliationCorrections;
+    }
+}
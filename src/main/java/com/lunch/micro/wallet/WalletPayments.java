@@ -0,0 +1,156 @@
+package com.lunch.micro.wallet;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.exception.WalletUnavailableException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.UuidV7Generator;
+import com.lunch.micro.web.dto.WalletDebitResult;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Pays for orders before they are saved as PAID.
+// wallet.mode=debit: one remote debit per order, batched per wallet. The order's id is assigned here and used as the
+// debit reference, so the wallet can recognise a debit it has already taken and a debit can be traced to its order.
+// wallet.mode=hold: orders are paid from a local allowance the wallet has reserved (WalletHolds) and settled later;
+// cancelled orders are refunded to it.
+// wallet.mode=none (the default): orders are saved as PAID without a wallet call, as before.
+@Component
+@Timed("lunch.service")
+public class WalletPayments {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletPayments.class);
+    private static final String DEBIT_MODE = "debit";
+    private static final String HOLD_MODE = "hold";
+
+    private final WalletDebitBatcher debitBatcher;
+    private final WalletHolds walletHolds;
+    private final boolean debit;
+    private final boolean hold;
+    private final long awaitTimeoutMillis;
+
+    public WalletPayments(WalletDebitBatcher debitBatcher,
+                          WalletHolds walletHolds,
+                          @Value("${wallet.mode:none}") String walletMode,
+                          @Value("${wallet.debit.await-timeout-ms:2000}") long awaitTimeoutMillis) {
+        this.debitBatcher = debitBatcher;
+        this.walletHolds = walletHolds;
+        this.debit = DEBIT_MODE.equalsIgnoreCase(walletMode);
+        this.hold = HOLD_MODE.equalsIgnoreCase(walletMode);
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+    }
+
+    public boolean isEnabled() {
+        return debit || hold;
+    }
+
+    // Only held payments can be given back here; a remote debit has no refund call.
+    public boolean refundsCancelledOrders() {
+        return hold;
+    }
+
+    // Throws DomainException if the wallet declines and WalletUnavailableException if it cannot be asked.
+    public void pay(LunchOrder order) {
+
+        if (hold) {
+            if (!walletHolds.spend(order.getWalletId(), order.getTotal())) {
+                throw new DomainException("Payment declined: insufficient funds");
+            }
+            return;
+        }
+        if (!debit) {
+            return;
+        }
+        WalletDebitResult result = await(debit(order));
+        if (!result.isAccepted()) {
+            throw new DomainException("Payment declined: " + result.getReason());
+        }
+    }
+
+    // Returns, per order, null if it was paid or the reason it was not. Debits are all sent before any is awaited,
+    // so orders on the same wallet share calls.
+    public List<String> payAll(List<LunchOrder> orders) {
+
+        List<String> errors = new ArrayList<>(orders.size());
+        if (hold) {
+            for (LunchOrder order : orders) {
+                try {
+                    pay(order);
+                    errors.add(null);
+                } catch (DomainException | WalletUnavailableException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+            return errors;
+        }
+        if (!debit) {
+            orders.forEach(order -> errors.add(null));
+            return errors;
+        }
+
+        List<CompletableFuture<WalletDebitResult>> debits = orders.stream().map(this::debit).toList();
+        for (CompletableFuture<WalletDebitResult> debit : debits) {
+            try {
+                WalletDebitResult result = await(debit);
+                errors.add(result.isAccepted() ? null : "Payment declined: " + result.getReason());
+            } catch (WalletUnavailableException e) {
+                errors.add(e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    // Gives back the payment for orders that were paid for but not saved.
+    public void refundUnsaved(List<LunchOrder> orders) {
+
+        if (hold) {
+            orders.forEach(order -> walletHolds.refund(order.getWalletId(), order.getTotal()));
+        } else if (debit) {
+            orders.forEach(order -> logger.error("Order {} was paid from wallet {} but not saved; debit {} needs a refund",
+                    order.getId(), order.getWalletId(), order.getId()));
+        }
+    }
+
+    public void refundCancelled(UUID walletId, BigDecimal total) {
+
+        if (hold) {
+            walletHolds.refund(walletId, total);
+        }
+    }
+
+    private CompletableFuture<WalletDebitResult> debit(LunchOrder order) {
+
+        if (order.getId() == null) {
+            order.setId(UuidV7Generator.generate());
+        }
+        return debitBatcher.debit(order.getWalletId(), order.getId(), order.getTotal());
+    }
+
+    private WalletDebitResult await(CompletableFuture<WalletDebitResult> debit) {
+
+        try {
+            return debit.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WalletUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new WalletUnavailableException("Wallet service call failed, please try again", e.getCause());
+        } catch (TimeoutException e) {
+            throw new WalletUnavailableException("Wallet service did not answer in time, please try again", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalletUnavailableException("Interrupted while waiting for the wallet service", e);
+        }
+    }
+}
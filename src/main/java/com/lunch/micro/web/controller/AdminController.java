@@ -0,0 +1,142 @@
+package com.lunch.micro.web.controller;
+
+import com.lunch.micro.jfr.OrderJfrStats;
+import com.lunch.micro.model.CompletionPartition;
+import com.lunch.micro.outbox.OrderOutboxFeed;
+import com.lunch.micro.outbox.OrderOutboxRelay;
+import com.lunch.micro.scheduling.LeaseMetrics;
+import com.lunch.micro.service.ChildOrdersCache;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.GroupCommitOrderIntake;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.service.PartitionedCompletionService;
+import com.lunch.micro.stream.OrderStatusStream;
+import com.lunch.micro.wallet.WalletDebitBatcher;
+import com.lunch.micro.wallet.WalletHolds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+public class AdminController {
+
+    private final OrderCompletionService orderCompletionService;
+    private final PartitionedCompletionService partitionedCompletionService;
+    private final LeaseMetrics leaseMetrics;
+    private final ChildOrdersCache childOrdersCache;
+    private final GroupCommitOrderIntake groupCommitOrderIntake;
+    private final OrderOutboxRelay orderOutboxRelay;
+    private final OrderOutboxFeed orderOutboxFeed;
+    private final OrderStatusStream orderStatusStream;
+    private final WalletDebitBatcher walletDebitBatcher;
+    private final WalletHolds walletHolds;
+    private final OrderJfrStats orderJfrStats;
+
+    @Autowired
+    public AdminController(OrderCompletionService orderCompletionService,
+                           PartitionedCompletionService partitionedCompletionService,
+                           LeaseMetrics leaseMetrics,
+                           ChildOrdersCache childOrdersCache,
+                           GroupCommitOrderIntake groupCommitOrderIntake,
+                           OrderOutboxRelay orderOutboxRelay,
+                           OrderOutboxFeed orderOutboxFeed,
+                           OrderStatusStream orderStatusStream,
+                           WalletDebitBatcher walletDebitBatcher,
+                           WalletHolds walletHolds,
+                           OrderJfrStats orderJfrStats) {
+        this.orderCompletionService = orderCompletionService;
+        this.partitionedCompletionService = partitionedCompletionService;
+        this.leaseMetrics = leaseMetrics;
+        this.childOrdersCache = childOrdersCache;
+        this.groupCommitOrderIntake = groupCommitOrderIntake;
+        this.orderOutboxRelay = orderOutboxRelay;
+        this.orderOutboxFeed = orderOutboxFeed;
+        this.orderStatusStream = orderStatusStream;
+        this.walletDebitBatcher = walletDebitBatcher;
+        this.walletHolds = walletHolds;
+        this.orderJfrStats = orderJfrStats;
+    }
+
+    @GetMapping("/completion/stats")
+    public ResponseEntity<CompletionRunStats> getCompletionStats() {
+
+        return Stream.of(orderCompletionService.getLastRunStats(), partitionedCompletionService.getLastRunStats())
+                .flatMap(Optional::stream)
+                .max(Comparator.comparing(CompletionRunStats::getFinishedOn))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/completion/partitions")
+    public ResponseEntity<List<CompletionPartition>> getCompletionPartitions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        return ResponseEntity.ok(partitionedCompletionService.getPartitions(date != null ? date : LocalDate.now()));
+    }
+
+    @GetMapping("/leases")
+    public ResponseEntity<Map<String, LeaseMetrics.LeaseStats>> getLeaseStats() {
+
+        return ResponseEntity.ok(leaseMetrics.snapshot());
+    }
+
+    @GetMapping("/cache/child-orders")
+    public ResponseEntity<ChildOrdersCache.Stats> getChildOrdersCacheStats() {
+
+        return ResponseEntity.ok(childOrdersCache.stats());
+    }
+
+    @GetMapping("/intake/stats")
+    public ResponseEntity<GroupCommitOrderIntake.Stats> getIntakeStats() {
+
+        return ResponseEntity.ok(groupCommitOrderIntake.stats());
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<OrderOutboxRelay.Stats> getOutboxStats() {
+
+        return ResponseEntity.ok(orderOutboxRelay.stats());
+    }
+
+    @GetMapping("/outbox/feed/stats")
+    public ResponseEntity<OrderOutboxFeed.Stats> getOutboxFeedStats() {
+
+        return ResponseEntity.ok(orderOutboxFeed.stats());
+    }
+
+    @GetMapping("/stream/stats")
+    public ResponseEntity<OrderStatusStream.Stats> getStreamStats() {
+
+        return ResponseEntity.ok(orderStatusStream.stats());
+    }
+
+    @GetMapping("/wallet/stats")
+    public ResponseEntity<WalletDebitBatcher.Stats> getWalletStats() {
+
+        return ResponseEntity.ok(walletDebitBatcher.stats());
+    }
+
+    @GetMapping("/wallet/holds/stats")
+    public ResponseEntity<WalletHolds.Stats> getWalletHoldStats() {
+
+        return ResponseEntity.ok(walletHolds.stats());
+    }
+
+    @GetMapping("/jfr/stats")
+    public ResponseEntity<Map<String, OrderJfrStats.Stats>> getJfrStats() {
+
+        return ResponseEntity.ok(orderJfrStats.stats());
+    }
+}
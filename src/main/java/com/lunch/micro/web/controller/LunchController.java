@@ -1,8 +1,13 @@
 package com.lunch.micro.web.controller;
 
 import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.service.GroupCommitOrderIntake;
+import com.lunch.micro.service.IdempotentOrderService;
 import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.web.dto.LunchOrderBatchRequest;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
 import com.lunch.micro.web.dto.LunchOrderRequest;
+import com.lunch.micro.web.dto.LunchOrderResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -16,25 +21,62 @@ import java.util.UUID;
 @RequestMapping("/api/v1/children")
 public class LunchController {
 
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final LunchOrderService lunchOrderService;
+    private final IdempotentOrderService idempotentOrderService;
+    private final GroupCommitOrderIntake groupCommitOrderIntake;
 
     @Autowired
-    public LunchController(LunchOrderService lunchOrderService) {
+    public LunchController(LunchOrderService lunchOrderService, IdempotentOrderService idempotentOrderService,
+                           GroupCommitOrderIntake groupCommitOrderIntake) {
         this.lunchOrderService = lunchOrderService;
+        this.idempotentOrderService = idempotentOrderService;
+        this.groupCommitOrderIntake = groupCommitOrderIntake;
     }
 
+    // With an Idempotency-Key, a retried request returns the order created by the first one, with 200 and
+    // Idempotent-Replayed: true instead of 201, so a client can tell a replay from a new order. Without one, and with
+    // order.intake.mode=group-commit, the order is committed together with the others queued in the same few ms.
+    // The body has the same shape as the GET list, without the entity's internal columns.
     @PostMapping("/{childId}/lunches")
-    public ResponseEntity<LunchOrder> createLunchOrder(@PathVariable UUID childId,
-                                                       @Valid @RequestBody LunchOrderRequest request) {
+    public ResponseEntity<LunchOrderResponse> createLunchOrder(@PathVariable UUID childId,
+                                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                               @Valid @RequestBody LunchOrderRequest request) {
         request.setChildId(childId);
-        LunchOrder response = lunchOrderService.createAndPayOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        if (idempotencyKey != null) {
+            IdempotentOrderService.KeyedOrder keyed = idempotentOrderService.createAndPayOrder(request, idempotencyKey);
+            if (keyed.replayed()) {
+                return ResponseEntity.ok()
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(LunchOrderResponse.from(keyed.order()));
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(LunchOrderResponse.from(keyed.order()));
+        }
+        LunchOrder order = groupCommitOrderIntake.isEnabled()
+                ? groupCommitOrderIntake.createAndPayOrder(request)
+                : lunchOrderService.createAndPayOrder(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(LunchOrderResponse.from(order));
+    }
+
+    // One call for a whole week, or for several children. 201 when every order was created, 207 when some were
+    // rejected, 400 when none were; the body carries the result of each item.
+    @PostMapping("/lunches/batch")
+    public ResponseEntity<LunchOrderBatchResponse> createLunchOrders(@Valid @RequestBody LunchOrderBatchRequest request) {
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(request.getOrders());
+
+        HttpStatus status = response.getRejected() == 0 ? HttpStatus.CREATED
+                : response.getCreated() == 0 ? HttpStatus.BAD_REQUEST
+                : HttpStatus.MULTI_STATUS;
+
+        return ResponseEntity.status(status).body(response);
     }
 
     @GetMapping("/{childId}/lunches")
-    public ResponseEntity<List<LunchOrder>> getLunchesForChild(@PathVariable UUID childId) {
+    public ResponseEntity<List<LunchOrderResponse>> getLunchesForChild(@PathVariable UUID childId) {
 
-        List<LunchOrder> lunches = lunchOrderService.getByChild(childId);
+        List<LunchOrderResponse> lunches = lunchOrderService.getByChild(childId);
 
         return ResponseEntity.ok(lunches);
     }
@@ -0,0 +1,41 @@
+package com.lunch.micro.web.controller;
+
+import com.lunch.micro.stream.OrderStatusStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.UUID;
+
+// Streams of order changes (text/event-stream). Each event is named after its type (CREATED, CANCELLED, COMPLETED)
+// and carries an OrderEvent. After a reconnect, read the orders once with GET /children/{childId}/lunches: changes
+// made while disconnected are not replayed.
+@RestController
+@RequestMapping("/api/v1")
+public class OrderStreamController {
+
+    private final OrderStatusStream orderStatusStream;
+
+    @Autowired
+    public OrderStreamController(OrderStatusStream orderStatusStream) {
+        this.orderStatusStream = orderStatusStream;
+    }
+
+    @GetMapping(path = "/children/lunches/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChildren(@RequestParam("childId") List<UUID> childIds) {
+
+        return orderStatusStream.subscribeChildren(childIds);
+    }
+
+    @GetMapping(path = "/parents/{parentId}/lunches/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamParent(@PathVariable UUID parentId) {
+
+        return orderStatusStream.subscribeParent(parentId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.time.DayOfWeek;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LunchOrderBatchItemResult {
+
+    // Position of the item in the request.
+    private int index;
+
+    private UUID childId;
+
+    private DayOfWeek dayOfWeek;
+
+    private boolean created;
+
+    // Set when the order was created.
+    private LunchOrderResponse order;
+
+    // Set when the order was rejected.
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.lunch.micro.web.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LunchOrderBatchRequest {
+
+    public static final int MAX_ORDERS = 1000;
+
+    // Unlike the single-order endpoint, each item names its own child.
+    @NotEmpty(message = "At least one order is required")
+    @Size(max = MAX_ORDERS, message = "At most " + MAX_ORDERS + " orders can be placed in one batch")
+    private List<@Valid LunchOrderRequest> orders;
+}
@@ -0,0 +1,19 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LunchOrderBatchResponse {
+
+    private int created;
+
+    private int rejected;
+
+    private List<LunchOrderBatchItemResult> results;
+}
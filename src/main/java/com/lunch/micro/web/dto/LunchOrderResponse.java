@@ -1,9 +1,14 @@
 package com.lunch.micro.web.dto;
 
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
 import com.lunch.micro.model.OrderStatus;
 import lombok.*;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.UUID;
 
 @Builder
 @Getter
@@ -12,11 +17,35 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class LunchOrderResponse {
 
-    private String order;
+    private UUID id;
 
-    private LocalDateTime createdOn;
+    private UUID parentId;
+
+    private UUID walletId;
+
+    private UUID childId;
+
+    private Meal meal;
+
+    private int quantity;
+
+    private DayOfWeek dayOfWeek;
+
+    private BigDecimal unitPrice;
+
+    private BigDecimal total;
 
     private OrderStatus status;
 
+    private Instant createdOn;
+
+    private Instant updatedOn;
+
+    private Instant completedOn;
 
+    public static LunchOrderResponse from(LunchOrder order) {
+        return new LunchOrderResponse(order.getId(), order.getParentId(), order.getWalletId(), order.getChildId(),
+                order.getMeal(), order.getQuantity(), order.getDayOfWeek(), order.getUnitPrice(), order.getTotal(),
+                order.getStatus(), order.getCreatedOn(), order.getUpdatedOn(), order.getCompletedOn());
+    }
 }
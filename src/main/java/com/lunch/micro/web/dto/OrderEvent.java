@@ -0,0 +1,43 @@
+package com.lunch.micro.web.dto;
+
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderOutboxEvent;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.UUID;
+
+// What downstream consumers receive for an order lifecycle change. Delivery is at-least-once: a consumer may see
+// the same eventId again and should ignore it.
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+
+    private UUID eventId;
+
+    private OrderEventType eventType;
+
+    private UUID orderId;
+
+    private UUID childId;
+
+    private UUID parentId;
+
+    private UUID walletId;
+
+    private DayOfWeek dayOfWeek;
+
+    private BigDecimal total;
+
+    private Instant occurredOn;
+
+    public static OrderEvent from(OrderOutboxEvent event) {
+        return new OrderEvent(event.getId(), event.getEventType(), event.getOrderId(), event.getChildId(),
+                event.getParentId(), event.getWalletId(), event.getDayOfWeek(), event.getTotal(), event.getOccurredOn());
+    }
+}
@@ -0,0 +1,24 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalance {
+
+    private UUID walletId;
+
+    private BigDecimal available;
+
+    // Reserved for lunch-svc by holds and not settled yet.
+    private BigDecimal held;
+
+    // Everything settled to lunch-svc so far, net of refunds.
+    private BigDecimal settled;
+}
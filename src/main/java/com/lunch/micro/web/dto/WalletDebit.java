@@ -0,0 +1,19 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDebit {
+
+    // The order being paid for; the wallet service treats a repeated reference as the same debit.
+    private UUID reference;
+
+    private BigDecimal amount;
+}
@@ -0,0 +1,15 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDebitBatchRequest {
+
+    private List<WalletDebit> debits;
+}
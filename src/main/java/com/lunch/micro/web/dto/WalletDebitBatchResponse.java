@@ -0,0 +1,16 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDebitBatchResponse {
+
+    // One per debit in the request, in any order.
+    private List<WalletDebitResult> results;
+}
@@ -0,0 +1,20 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletDebitResult {
+
+    private UUID reference;
+
+    private boolean accepted;
+
+    // Set when the debit was declined, e.g. insufficient funds.
+    private String reason;
+}
@@ -0,0 +1,19 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletHold {
+
+    private UUID holdId;
+
+    // What the wallet reserved or released; a hold may be granted less than requested, or nothing.
+    private BigDecimal amount;
+}
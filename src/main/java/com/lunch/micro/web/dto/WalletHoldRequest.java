@@ -0,0 +1,19 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletHoldRequest {
+
+    // Identifies the request, so a retried hold is not granted twice.
+    private UUID holdId;
+
+    private BigDecimal amount;
+}
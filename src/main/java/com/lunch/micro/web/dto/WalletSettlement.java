@@ -0,0 +1,22 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSettlement {
+
+    // Identifies the settlement, so one resent after a failed call is applied once.
+    private UUID settlementId;
+
+    private UUID walletId;
+
+    // Positive moves held money to lunch-svc; negative returns settled money to the hold (cancelled orders).
+    private BigDecimal amount;
+}
@@ -0,0 +1,16 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSettlementBatchResponse {
+
+    // One per settlement in the request, in any order.
+    private List<WalletSettlementResult> results;
+}
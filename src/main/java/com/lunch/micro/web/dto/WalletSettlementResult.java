@@ -0,0 +1,17 @@
+package com.lunch.micro.web.dto;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSettlementResult {
+
+    private UUID settlementId;
+
+    private boolean applied;
+}
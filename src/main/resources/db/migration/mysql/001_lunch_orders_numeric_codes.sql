@@ -0,0 +1,80 @@
+-- Converts lunch_orders.status and lunch_orders.day_of_week from names to the numeric codes
+-- written by OrderStatusConverter / DayOfWeekConverter, backfills child_bucket and adds the
+-- composite indexes used by the completion scan and the per-child lookup.
+--
+-- Run once against an existing database before starting the new build (ddl-auto=update does
+-- not change column types). MySQL commits each DDL statement, so run it during a quiet window.
+--
+-- If the new build did start first, ddl-auto will have added child_bucket and created both indexes
+-- on the old columns. MySQL has no IF [NOT] EXISTS for these, so those statements are guarded through
+-- information_schema: the indexes are dropped up front and rebuilt on the converted columns at the end,
+-- and child_bucket is only added when missing.
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'lunch_orders'
+                 AND index_name = 'idx_lunch_orders_status_day') > 0,
+              'DROP INDEX idx_lunch_orders_status_day ON lunch_orders', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'lunch_orders'
+                 AND index_name = 'idx_lunch_orders_child_status_completed') > 0,
+              'DROP INDEX idx_lunch_orders_child_status_completed ON lunch_orders', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- status: PAID=1, CANCELLED=2, COMPLETED=3
+ALTER TABLE lunch_orders ADD COLUMN status_code TINYINT NULL;
+
+UPDATE lunch_orders
+SET status_code = CASE status
+                      WHEN 'PAID' THEN 1
+                      WHEN 'CANCELLED' THEN 2
+                      WHEN 'COMPLETED' THEN 3
+                  END;
+
+ALTER TABLE lunch_orders DROP COLUMN status;
+ALTER TABLE lunch_orders RENAME COLUMN status_code TO status;
+
+-- day_of_week: ISO day number, MONDAY=1 ... SUNDAY=7
+ALTER TABLE lunch_orders ADD COLUMN day_of_week_code TINYINT NULL;
+
+UPDATE lunch_orders
+SET day_of_week_code = CASE day_of_week
+                           WHEN 'MONDAY' THEN 1
+                           WHEN 'TUESDAY' THEN 2
+                           WHEN 'WEDNESDAY' THEN 3
+                           WHEN 'THURSDAY' THEN 4
+                           WHEN 'FRIDAY' THEN 5
+                           WHEN 'SATURDAY' THEN 6
+                           WHEN 'SUNDAY' THEN 7
+                       END;
+
+ALTER TABLE lunch_orders DROP COLUMN day_of_week;
+ALTER TABLE lunch_orders RENAME COLUMN day_of_week_code TO day_of_week;
+ALTER TABLE lunch_orders MODIFY COLUMN day_of_week TINYINT NOT NULL;
+
+-- child_bucket: low 6 bits of the child id (LunchOrder.bucketOf). UUIDs are stored as their 16
+-- big-endian bytes, so those bits live in byte 16. It is read by position rather than as the last
+-- byte, because schemas created by Hibernate 5 pad the column to BINARY(255) with zeros until
+-- 002_uuid_columns_binary16.sql narrows it. Added nullable, backfilled, then made NOT NULL like the
+-- entity column.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'lunch_orders'
+                 AND column_name = 'child_bucket') = 0,
+              'ALTER TABLE lunch_orders ADD COLUMN child_bucket TINYINT NULL', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+UPDATE lunch_orders
+SET child_bucket = ORD(SUBSTRING(child_id, 16, 1)) & 63
+WHERE child_bucket IS NULL;
+
+ALTER TABLE lunch_orders MODIFY COLUMN child_bucket TINYINT NOT NULL;
+
+CREATE INDEX idx_lunch_orders_status_day ON lunch_orders (status, day_of_week);
+CREATE INDEX idx_lunch_orders_child_status_completed ON lunch_orders (child_id, status, completed_on);
@@ -0,0 +1,45 @@
+-- Narrows the UUID columns of lunch_orders to BINARY(16). Needed only for schemas first created by
+-- Hibernate 5, which mapped java.util.UUID to BINARY(255): every key and every secondary-index entry then carries 255 bytes, of which
+-- the last 239 are zero padding. Schemas created by the current build already use BINARY(16); check with
+--
+--   SELECT table_name, column_name, column_type FROM information_schema.columns
+--   WHERE table_schema = DATABASE() AND table_name = 'lunch_orders' AND data_type IN ('binary', 'char');
+--
+-- and skip this script if they all report binary(16). Hibernate writes a UUID as its 16 big-endian bytes
+-- followed by the padding, so LEFT(col, 16) recovers the value. (For CHAR(36) columns use
+-- UNHEX(REPLACE(col, '-', '')) instead.)
+--
+-- Existing ids are kept as they are: they are random (version 4) and stay where they are in the index;
+-- new orders get time-ordered version 7 ids (UuidV7Generator) and are appended at the end of it.
+-- The table is rebuilt; run during a quiet window, after 001_lunch_orders_numeric_codes.sql. The tables
+-- added since (completion_checkpoints, completion_partitions, job_runs) were never created with wide columns.
+
+DROP INDEX idx_lunch_orders_child_status_completed ON lunch_orders;
+
+ALTER TABLE lunch_orders
+    ADD COLUMN id_bin16 BINARY(16) NULL,
+    ADD COLUMN parent_id_bin16 BINARY(16) NULL,
+    ADD COLUMN wallet_id_bin16 BINARY(16) NULL,
+    ADD COLUMN child_id_bin16 BINARY(16) NULL;
+
+UPDATE lunch_orders
+SET id_bin16        = LEFT(id, 16),
+    parent_id_bin16 = LEFT(parent_id, 16),
+    wallet_id_bin16 = LEFT(wallet_id, 16),
+    child_id_bin16  = LEFT(child_id, 16);
+
+ALTER TABLE lunch_orders
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    DROP COLUMN parent_id,
+    DROP COLUMN wallet_id,
+    DROP COLUMN child_id;
+
+ALTER TABLE lunch_orders
+    CHANGE COLUMN id_bin16 id BINARY(16) NOT NULL FIRST,
+    CHANGE COLUMN parent_id_bin16 parent_id BINARY(16) NOT NULL,
+    CHANGE COLUMN wallet_id_bin16 wallet_id BINARY(16) NOT NULL,
+    CHANGE COLUMN child_id_bin16 child_id BINARY(16) NOT NULL,
+    ADD PRIMARY KEY (id);
+
+CREATE INDEX idx_lunch_orders_child_status_completed ON lunch_orders (child_id, status, completed_on);
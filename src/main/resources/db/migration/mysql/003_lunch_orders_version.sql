@@ -0,0 +1,6 @@
+-- Adds the optimistic-locking version column read by LunchOrder.version. Existing rows start at 0.
+--
+-- Run once against an existing database before starting the new build; ddl-auto=update would add
+-- the column as nullable, and Hibernate cannot compare against a NULL version.
+
+ALTER TABLE lunch_orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Adds the index behind the per-parent order stream (OrderStatusStream), which looks up the children of a parent
+-- that still have PAID orders when a parent subscribes. It covers that query, so no table rows are read.
+--
+-- Run once against an existing database before starting the new build. InnoDB builds the index online.
+
+CREATE INDEX idx_lunch_orders_parent_status_child ON lunch_orders (parent_id, status, child_id);
@@ -0,0 +1,6 @@
+-- Adds the index behind wallet-hold reconciliation (WalletHolds.reconcile), which sums a wallet's PAID and COMPLETED
+-- order totals.
+--
+-- Run once against an existing database before starting the new build. InnoDB builds the index online.
+
+CREATE INDEX idx_lunch_orders_wallet_status ON lunch_orders (wallet_id, status);
@@ -0,0 +1,11 @@
+-- Gives order_outbox a database-assigned sequence (OrderOutboxEvent.seq) and relays events in its order instead of by
+-- their UUIDv7 ids, which each node takes from its own clock. InnoDB numbers the existing rows in primary key order,
+-- which is id order.
+--
+-- Run once against an existing database before starting the new build. The table is rebuilt, so run it while the
+-- outbox is small, e.g. right after the nightly purge.
+
+ALTER TABLE order_outbox ADD COLUMN seq BIGINT NOT NULL AUTO_INCREMENT UNIQUE;
+
+DROP INDEX idx_order_outbox_published_id ON order_outbox;
+CREATE INDEX idx_order_outbox_published_seq ON order_outbox (published_on, seq);
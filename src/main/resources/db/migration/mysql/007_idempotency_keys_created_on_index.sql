@@ -0,0 +1,6 @@
+-- Adds the index behind the nightly purge of idempotency keys (IdempotentOrderService.purgeExpiredKeys), which
+-- deletes the keys older than order.idempotency.retention-hours.
+--
+-- Run once against an existing database before starting the new build. InnoDB builds the index online.
+
+CREATE INDEX idx_idempotency_keys_created_on ON idempotency_keys (created_on);
@@ -77,7 +77,11 @@ class LunchOrderApiTest {
                 .andExpect(jsonPath("$.total").value(5.00))
                 .andExpect(jsonPath("$.unitPrice").value(2.50))
                 .andExpect(jsonPath("$.childId").value(childId.toString()))
-                .andExpect(jsonPath("$.parentId").value(parentId.toString()));
+                .andExpect(jsonPath("$.parentId").value(parentId.toString()))
+                .andExpect(jsonPath("$.createdOn").exists())
+                .andExpect(jsonPath("$.updatedOn").exists())
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andExpect(jsonPath("$.childBucket").doesNotExist());
     }
 
     @Test
@@ -174,7 +178,7 @@ class LunchOrderApiTest {
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek(dayOfWeek.name())
+                .dayOfWeek(dayOfWeek)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(status)
@@ -0,0 +1,113 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.web.dto.LunchOrderBatchRequest;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchOrderIntakeBenchmark {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 10_000);
+    private static final int BATCH = Integer.getInteger("benchmark.batch", LunchOrderBatchRequest.MAX_ORDERS);
+    private static final long SEED = 42L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Test
+    void compareSingleOrderPostsWithBatchEndpoint() {
+
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, SEED);
+        List<LunchOrderRequest> requests = weeklyOrders(ORDERS);
+
+        // Warm both paths up so neither pays for class loading and JIT alone.
+        List<LunchOrderRequest> warmUp = weeklyOrders(BATCH);
+        warmUp.forEach(lunchOrderService::createAndPayOrder);
+        lunchOrderService.createAndPayOrders(warmUp);
+
+        seeder.truncate();
+        BenchmarkProbe.Measurement<Integer> single = BenchmarkProbe.measure(
+                "createAndPayOrder x " + ORDERS, () -> {
+                    requests.forEach(lunchOrderService::createAndPayOrder);
+                    return requests.size();
+                });
+        int singleRows = countOrders();
+
+        seeder.truncate();
+        BenchmarkProbe.Measurement<Integer> batched = BenchmarkProbe.measure(
+                "createAndPayOrders (" + BATCH + " per call)", () -> {
+                    int created = 0;
+                    for (int from = 0; from < requests.size(); from += BATCH) {
+                        created += lunchOrderService.createAndPayOrders(
+                                requests.subList(from, Math.min(from + BATCH, requests.size()))).getCreated();
+                    }
+                    return created;
+                });
+        int batchedRows = countOrders();
+
+        System.out.printf("[benchmark] single: %.0f orders/s, batched: %.0f orders/s (%.1fx)%n",
+                ordersPerSecond(single), ordersPerSecond(batched), ordersPerSecond(batched) / ordersPerSecond(single));
+
+        seeder.truncate();
+
+        assertThat(singleRows).isEqualTo(ORDERS);
+        assertThat(batchedRows).isEqualTo(ORDERS);
+    }
+
+    // Monday to Friday for each child, the way parents order a week ahead; never today, so no cut-off applies.
+    private List<LunchOrderRequest> weeklyOrders(int count) {
+
+        DayOfWeek today = LocalDate.now().getDayOfWeek();
+        List<DayOfWeek> days = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day != today && day.getValue() <= DayOfWeek.FRIDAY.getValue()) {
+                days.add(day);
+            }
+        }
+
+        List<LunchOrderRequest> requests = new ArrayList<>(count);
+        UUID childId = null;
+        for (int i = 0; i < count; i++) {
+            if (i % days.size() == 0) {
+                childId = UUID.randomUUID();
+            }
+            requests.add(LunchOrderRequest.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(childId)
+                    .meal(Meal.values()[i % Meal.values().length])
+                    .quantity(1)
+                    .dayOfWeek(days.get(i % days.size()))
+                    .build());
+        }
+        return requests;
+    }
+
+    private int countOrders() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lunch_orders", Integer.class);
+    }
+
+    private static double ordersPerSecond(BenchmarkProbe.Measurement<Integer> measurement) {
+        return measurement.result() * 1000.0 / Math.max(measurement.elapsedMillis(), 1);
+    }
+}
@@ -0,0 +1,133 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class BenchmarkDataSeeder {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final String INSERT_SQL = "INSERT INTO lunch_orders " +
+            "(id, parent_id, wallet_id, child_id, child_bucket, meal, quantity, day_of_week, unit_price, total, status, created_on, updated_on, completed_on, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public BenchmarkDataSeeder(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    public void truncate() {
+        jdbcTemplate.execute("DELETE FROM lunch_orders");
+    }
+
+    // Seeds a mixed history: roughly 30% PAID, 60% COMPLETED and 10% CANCELLED orders spread over Monday - Friday.
+    public void seedOrders(int rows) {
+        seedOrders(rows, 1);
+    }
+
+    // Same mix, with ordersPerChild consecutive orders sharing a child (and its parent). Returns the children.
+    public List<UUID> seedOrders(int rows, int ordersPerChild) {
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        List<UUID> children = new ArrayList<>(rows / ordersPerChild + 1);
+        UUID parentId = null;
+        UUID childId = null;
+        Instant now = Instant.now();
+        Meal[] meals = Meal.values();
+
+        for (int i = 0; i < rows; i++) {
+
+            int roll = random.nextInt(10);
+            OrderStatus status = roll < 3 ? OrderStatus.PAID : roll < 9 ? OrderStatus.COMPLETED : OrderStatus.CANCELLED;
+            DayOfWeek day = DayOfWeek.of(1 + random.nextInt(5));
+            Timestamp createdOn = Timestamp.from(now.minusSeconds(random.nextInt(365 * 24 * 60 * 60)));
+            Timestamp completedOn = status == OrderStatus.COMPLETED ? createdOn : null;
+
+            if (i % ordersPerChild == 0) {
+                parentId = UUID.randomUUID();
+                childId = UUID.randomUUID();
+                children.add(childId);
+            }
+
+            batch.add(new Object[]{
+                    UUID.randomUUID(), parentId, UUID.randomUUID(), childId, LunchOrder.bucketOf(childId),
+                    meals[random.nextInt(meals.length)].name(), 1, day.getValue(),
+                    new BigDecimal("2.50"), new BigDecimal("2.50"), status.getCode(),
+                    createdOn, createdOn, completedOn});
+
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+
+        return children;
+    }
+
+    // Seeds one child's school-day history going back the given number of years: one COMPLETED order per
+    // weekday (about 5% CANCELLED), one order completed within the last hour and PAID orders for the coming week.
+    public int seedChildHistory(UUID childId, int years) {
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Instant now = Instant.now();
+        LocalDate today = LocalDate.now();
+        int rows = 0;
+
+        for (LocalDate date = today.minusYears(years); date.isBefore(today); date = date.plusDays(1)) {
+
+            if (date.getDayOfWeek().getValue() > 5) {
+                continue;
+            }
+
+            boolean cancelled = random.nextInt(20) == 0;
+            Timestamp createdOn = Timestamp.from(date.minusDays(2).atTime(18, 0).atZone(ZoneId.systemDefault()).toInstant());
+            Timestamp completedOn = cancelled ? null : Timestamp.from(date.atTime(13, 0).atZone(ZoneId.systemDefault()).toInstant());
+
+            batch.add(childOrder(childId, date.getDayOfWeek(), cancelled ? OrderStatus.CANCELLED : OrderStatus.COMPLETED, createdOn, completedOn));
+            rows++;
+        }
+
+        batch.add(childOrder(childId, today.getDayOfWeek(), OrderStatus.COMPLETED,
+                Timestamp.from(now.minusSeconds(86_400)), Timestamp.from(now.minusSeconds(3_600))));
+        rows++;
+
+        for (int i = 1; i <= 5; i++) {
+            batch.add(childOrder(childId, DayOfWeek.of(i), OrderStatus.PAID, Timestamp.from(now), null));
+            rows++;
+        }
+
+        for (int from = 0; from < batch.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch.subList(from, Math.min(from + BATCH_SIZE, batch.size())));
+        }
+
+        return rows;
+    }
+
+    private Object[] childOrder(UUID childId, DayOfWeek day, OrderStatus status, Timestamp createdOn, Timestamp completedOn) {
+        Meal[] meals = Meal.values();
+        return new Object[]{
+                UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), childId, LunchOrder.bucketOf(childId),
+                meals[random.nextInt(meals.length)].name(), 1, day.getValue(),
+                new BigDecimal("2.50"), new BigDecimal("2.50"), status.getCode(),
+                createdOn, createdOn, completedOn};
+    }
+}
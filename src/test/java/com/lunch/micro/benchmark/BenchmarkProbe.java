@@ -0,0 +1,56 @@
+package com.lunch.micro.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.function.Supplier;
+
+public final class BenchmarkProbe {
+
+    private BenchmarkProbe() {
+    }
+
+    public record Measurement<T>(String name, T result, long elapsedMillis, long allocatedBytes, long peakHeapBytes) {
+
+        public void print() {
+            System.out.printf("[benchmark] %-40s result=%-10s time=%8d ms  allocated=%10.1f MB  peakHeap=%10.1f MB%n",
+                    name, result, elapsedMillis, allocatedBytes / 1_048_576.0, peakHeapBytes / 1_048_576.0);
+        }
+    }
+
+    // Runs the action on the calling thread and records wall-clock time, bytes allocated by
+    // the thread and the peak heap occupancy observed while it ran.
+    public static <T> Measurement<T> measure(String name, Supplier<T> action) {
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        T result = action.get();
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        Measurement<T> measurement = new Measurement<>(name, result, elapsedMillis, allocated, peakHeap);
+        measurement.print();
+        return measurement;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,115 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class ChildOrderLookupBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int YEARS = Integer.getInteger("benchmark.years", 5);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 2_000);
+    private static final long SEED = 42L;
+
+    // The child lookup before and after the UNION ALL rewrite, both run over JDBC so only the predicate differs.
+    private static final String LEGACY_SQL = "SELECT * FROM lunch_orders WHERE child_id = ? AND status <> 2 " +
+            "AND (status <> 3 OR (completed_on IS NOT NULL AND completed_on > ?))";
+    private static final String UNION_ALL_SQL = "SELECT * FROM lunch_orders WHERE child_id = ? AND status = 1 " +
+            "UNION ALL SELECT * FROM lunch_orders WHERE child_id = ? AND status = 3 AND completed_on > ?";
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Test
+    void compareLegacyPredicateWithUnionAll() {
+
+        UUID childId = UUID.randomUUID();
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, SEED);
+
+        seeder.truncate();
+        seeder.seedOrders(ROWS);
+        int history = seeder.seedChildHistory(childId, YEARS);
+        System.out.printf("[benchmark] child history: %d orders over %d years, %d other orders%n", history, YEARS, ROWS);
+
+        Instant sevenHoursAgo = Instant.now().minusSeconds(7 * 60 * 60);
+        Supplier<List<Map<String, Object>>> legacy = () -> jdbcTemplate.queryForList(LEGACY_SQL, childId, sevenHoursAgo);
+        Supplier<List<Map<String, Object>>> unionAll = () -> jdbcTemplate.queryForList(UNION_ALL_SQL,
+                childId, childId, sevenHoursAgo);
+
+        long[] legacyNanos = sample(legacy);
+        long[] unionAllNanos = sample(unionAll);
+
+        print("status != / OR predicate", legacyNanos, rowsExamined(LEGACY_SQL, childId, sevenHoursAgo));
+        print("UNION ALL (PAID | COMPLETED > ?)", unionAllNanos, rowsExamined(UNION_ALL_SQL, childId, childId, sevenHoursAgo));
+
+        // The repository query getByChild runs returns the same rows.
+        assertThat(repository.findOrderResponsesByChildId(childId, OrderStatus.PAID, OrderStatus.COMPLETED, sevenHoursAgo))
+                .extracting(LunchOrderResponse::getId)
+                .containsExactlyInAnyOrderElementsOf(legacy.get().stream().map(row -> (UUID) row.get("ID")).toList())
+                .hasSize(6);
+
+        seeder.truncate();
+    }
+
+    private long[] sample(Supplier<List<Map<String, Object>>> query) {
+
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            query.get();
+        }
+
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    // Sums the per-table scan counts H2 reports for EXPLAIN ANALYZE.
+    private long rowsExamined(String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN ANALYZE " + sql, String.class, args);
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        long rows = 0;
+        while (matcher.find()) {
+            rows += Long.parseLong(matcher.group(1));
+        }
+        return rows;
+    }
+
+    private void print(String name, long[] sortedNanos, long rowsExamined) {
+        System.out.printf("[benchmark] %-40s rowsExamined=%-6d p50=%8.3f ms  p95=%8.3f ms  p99=%8.3f ms  max=%8.3f ms%n",
+                name, rowsExamined, percentile(sortedNanos, 0.50), percentile(sortedNanos, 0.95),
+                percentile(sortedNanos, 0.99), sortedNanos[sortedNanos.length - 1] / 1_000_000.0);
+    }
+
+    private double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.service.GroupCommitOrderIntake;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A cut-off rush: many clients posting single orders at once against a small connection pool. Each request is timed
+// from the call to the returned (committed) order; the direct path commits one transaction per order, the
+// group-commit intake one per batch.
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "order.intake.mode=group-commit",
+        "spring.datasource.hikari.maximum-pool-size=10"
+})
+@ActiveProfiles("test")
+class GroupCommitIntakeBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 200);
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 20_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private GroupCommitOrderIntake groupCommitOrderIntake;
+
+    @Test
+    void compareLatencyUnderBurst() throws Exception {
+
+        // Warm both paths up so neither pays for class loading and JIT alone.
+        burst("warm-up direct", lunchOrderService::createAndPayOrder, ORDERS / 4);
+        burst("warm-up group commit", groupCommitOrderIntake::createAndPayOrder, ORDERS / 4);
+        truncate();
+
+        Result direct = burst("direct", lunchOrderService::createAndPayOrder, ORDERS);
+        int directRows = countOrders();
+        truncate();
+
+        long batchesBefore = groupCommitOrderIntake.stats().getBatchCount();
+        Result groupCommit = burst("group commit", groupCommitOrderIntake::createAndPayOrder, ORDERS);
+        int groupCommitRows = countOrders();
+        GroupCommitOrderIntake.Stats stats = groupCommitOrderIntake.stats();
+        truncate();
+
+        direct.print();
+        groupCommit.print();
+        System.out.printf("[benchmark] group commit: %d transactions, average batch %.1f orders, largest %d, " +
+                        "average commit %.2f ms, max commit %.2f ms%n",
+                stats.getBatchCount() - batchesBefore, stats.getAverageBatchSize(), stats.getLargestBatchSize(),
+                stats.getAverageCommitMillis(), stats.getMaxCommitMillis());
+
+        assertThat(directRows).isEqualTo(ORDERS);
+        assertThat(groupCommitRows).isEqualTo(ORDERS);
+    }
+
+    private Result burst(String name, Function<LunchOrderRequest, LunchOrder> intake, int orders) throws Exception {
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<LunchOrderRequest> requests = requests(orders);
+        long[] latencies = new long[orders];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int client = 0; client < CLIENTS; client++) {
+            int first = client;
+            futures.add(clients.submit(() -> {
+                start.await();
+                for (int i = first; i < orders; i += CLIENTS) {
+                    long began = System.nanoTime();
+                    intake.apply(requests.get(i));
+                    latencies[i] = System.nanoTime() - began;
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - began;
+        clients.shutdown();
+
+        Arrays.sort(latencies);
+        return new Result(name, orders, elapsedNanos, latencies);
+    }
+
+    private List<LunchOrderRequest> requests(int count) {
+
+        DayOfWeek day = LocalDate.now().getDayOfWeek().plus(2);
+        List<LunchOrderRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(LunchOrderRequest.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(UUID.randomUUID())
+                    .meal(Meal.values()[i % Meal.values().length])
+                    .quantity(1)
+                    .dayOfWeek(day)
+                    .build());
+        }
+        return requests;
+    }
+
+    private void truncate() {
+        jdbcTemplate.execute("DELETE FROM lunch_orders");
+    }
+
+    private int countOrders() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lunch_orders", Integer.class);
+    }
+
+    private record Result(String name, int orders, long elapsedNanos, long[] sortedLatencies) {
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        void print() {
+            System.out.printf("[benchmark] %-13s %d orders from %d clients: %7.0f orders/s  p50=%7.2f ms  p99=%7.2f ms  max=%7.2f ms%n",
+                    name, orders, CLIENTS, orders * 1_000_000_000.0 / elapsedNanos,
+                    percentileMillis(50), percentileMillis(99), percentileMillis(100));
+        }
+    }
+}
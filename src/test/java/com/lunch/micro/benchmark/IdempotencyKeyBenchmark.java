@@ -0,0 +1,143 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.repository.IdempotencyKeyRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.IdempotentOrderService;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyKeyBenchmark {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private LunchOrderRepository lunchOrderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void measureKeyOverheadAndReplayLatency() {
+
+        // Same beans, no front cache: every replay goes to the idempotency_keys table.
+        IdempotentOrderService uncached = new IdempotentOrderService(lunchOrderService, idempotencyKeyRepository,
+                lunchOrderRepository, transactionManager, 0, 60, 48);
+
+        // One untimed round first, so the measured round does not pay for class loading and JIT.
+        for (int round = 0; round < 2; round++) {
+
+            List<LunchOrderRequest> requests = requests(REQUESTS);
+            List<String> keys = keys(REQUESTS);
+            truncate();
+            long[] plain = sample(i -> lunchOrderService.createAndPayOrder(requests.get(i)));
+            truncate();
+            long[] withKey = sample(i -> idempotentOrderService.createAndPayOrder(requests.get(i), keys.get(i)));
+            long[] replayFromCache = sample(i -> idempotentOrderService.createAndPayOrder(requests.get(i), keys.get(i)));
+            long[] replayFromTable = sample(i -> uncached.createAndPayOrder(requests.get(i), keys.get(i)));
+
+            assertThat(countRows("lunch_orders")).isEqualTo(REQUESTS);
+            assertThat(countRows("idempotency_keys")).isEqualTo(REQUESTS);
+
+            if (round == 1) {
+                print("create, no key", plain);
+                print("create with Idempotency-Key", withKey);
+                print("replay, front cache", replayFromCache);
+                print("replay, idempotency_keys table", replayFromTable);
+                System.out.printf("[benchmark] key overhead per create: p50=%+.3f ms%n",
+                        percentile(withKey, 0.50) - percentile(plain, 0.50));
+            }
+        }
+
+        truncate();
+    }
+
+    private long[] sample(IntConsumer action) {
+
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            action.accept(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private List<String> keys(int count) {
+
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private List<LunchOrderRequest> requests(int count) {
+
+        DayOfWeek day = LocalDate.now().getDayOfWeek().plus(2);
+        List<LunchOrderRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(LunchOrderRequest.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(UUID.randomUUID())
+                    .meal(Meal.values()[i % Meal.values().length])
+                    .quantity(1)
+                    .dayOfWeek(day)
+                    .build());
+        }
+        return requests;
+    }
+
+    private void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE idempotency_keys");
+        jdbcTemplate.execute("TRUNCATE TABLE lunch_orders");
+    }
+
+    private long countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private void print(String name, long[] sortedNanos) {
+        System.out.printf("[benchmark] %-32s p50=%8.3f ms  p95=%8.3f ms  p99=%8.3f ms%n",
+                name, percentile(sortedNanos, 0.50), percentile(sortedNanos, 0.95), percentile(sortedNanos, 0.99));
+    }
+
+    private double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,195 @@
+package com.lunch.micro.benchmark;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Open-model HTTP load: each stream starts its requests at a constant rate whatever the responses do, and a latency is
+// measured from the moment the request was due, not from when it was sent. A stall therefore shows up in the
+// percentiles of every request that should have started during it, instead of holding back the senders
+// (no coordinated omission). Latencies go into one HdrHistogram per endpoint, in microseconds.
+public class OpenLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient client;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public OpenLoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    // A request stream. requests may return null to leave a slot empty (nothing to cancel yet, say); onResponse sees
+    // every successful response.
+    public record Arrivals(String endpoint, double perSecond, Supplier<HttpRequest> requests,
+                           Consumer<HttpResponse<String>> onResponse) {
+    }
+
+    // Dispatches the stream for the given time on its own thread and returns that thread.
+    public Thread start(Arrivals arrivals, Duration duration) {
+
+        Endpoint endpoint = endpoint(arrivals.endpoint());
+        Thread dispatcher = new Thread(() -> {
+
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / arrivals.perSecond());
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+
+            // When the dispatcher falls behind, late requests go out at once and keep their original due time.
+            for (long due = start; due < end; due += interval) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                HttpRequest request = arrivals.requests().get();
+                if (request != null) {
+                    send(endpoint, arrivals, request, due);
+                }
+            }
+        }, "load-" + arrivals.endpoint());
+
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    // Records an operation that is not an HTTP call, such as a job run.
+    public void record(String endpoint, long nanos, boolean ok) {
+        endpoint(endpoint).record(nanos, ok);
+    }
+
+    // Waits until every request sent has been answered or has failed.
+    public void awaitResponses(Duration timeout) throws InterruptedException {
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        if (inFlight.get() > 0) {
+            throw new IllegalStateException(inFlight.get() + " requests still unanswered after " + timeout);
+        }
+    }
+
+    public Map<String, EndpointStats> stats() {
+
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> stats.put(entry.getKey(), entry.getValue().stats()));
+        return stats;
+    }
+
+    // Full percentile distributions in HdrHistogram's .hgrm format, in milliseconds, one file per endpoint.
+    public void writeHistograms(Path directory) throws IOException {
+
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            String name = entry.getKey().replaceAll("[^A-Za-z0-9]+", "-").replaceAll("(^-|-$)", "");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name + ".hgrm")))) {
+                entry.getValue().histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private void send(Endpoint endpoint, Arrivals arrivals, HttpRequest request, long due) {
+
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            try {
+                boolean ok = error == null && response.statusCode() < 400;
+                endpoint.record(System.nanoTime() - due, ok);
+                if (ok && arrivals.onResponse() != null) {
+                    arrivals.onResponse().accept(response);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, key -> new Endpoint());
+    }
+
+    private static class Endpoint {
+
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong firstNanos = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong lastNanos = new AtomicLong(Long.MIN_VALUE);
+
+        void record(long nanos, boolean ok) {
+
+            long now = System.nanoTime();
+            firstNanos.accumulateAndGet(now - nanos, Math::min);
+            lastNanos.accumulateAndGet(now, Math::max);
+            histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        EndpointStats stats() {
+
+            long requests = histogram.getTotalCount();
+            double seconds = Math.max(lastNanos.get() - firstNanos.get(), 1) / 1e9;
+            return EndpointStats.builder()
+                    .requests(requests)
+                    .errors(errors.sum())
+                    .requestsPerSecond(requests / seconds)
+                    .p50Millis(histogram.getValueAtPercentile(50) / 1000.0)
+                    .p90Millis(histogram.getValueAtPercentile(90) / 1000.0)
+                    .p99Millis(histogram.getValueAtPercentile(99) / 1000.0)
+                    .p999Millis(histogram.getValueAtPercentile(99.9) / 1000.0)
+                    .maxMillis(histogram.getMaxValue() / 1000.0)
+                    .build();
+        }
+    }
+
+    @Builder
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EndpointStats {
+
+        private long requests;
+
+        // Answered with 4xx or 5xx, or not answered at all.
+        private long errors;
+
+        private double requestsPerSecond;
+
+        private double p50Millis;
+
+        private double p90Millis;
+
+        private double p99Millis;
+
+        private double p999Millis;
+
+        private double maxMillis;
+    }
+}
@@ -0,0 +1,96 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.OrderCompletionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderCompletionBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final long SEED = 42L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void compareFindAllAndSaveWithChunkedUpdate() {
+
+        LocalDate businessDate = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+        DayOfWeek day = businessDate.getDayOfWeek();
+        checkpointRepository.deleteAll();
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, SEED);
+
+        seeder.truncate();
+        seeder.seedOrders(ROWS);
+        BenchmarkProbe.Measurement<Integer> legacy = BenchmarkProbe.measure(
+                "findAll + save (" + ROWS + " rows)", () -> legacyCompletion(day));
+
+        seeder = new BenchmarkDataSeeder(jdbcTemplate, SEED);
+        seeder.truncate();
+        seeder.seedOrders(ROWS);
+        BenchmarkProbe.Measurement<CompletionRunStats> chunked = BenchmarkProbe.measure(
+                "chunked UPDATE (" + ROWS + " rows)", () -> completionService.completePaidOrders(businessDate, Instant.now()));
+        System.out.printf("[benchmark] chunked: %d chunks of %d, %.0f rows/s, avg lock hold %.2f ms, max lock hold %.2f ms%n",
+                chunked.result().getChunks(), chunked.result().getChunkSize(), chunked.result().getRowsPerSecond(),
+                chunked.result().getAvgLockHoldMillis(), chunked.result().getMaxLockHoldMillis());
+
+        seeder.truncate();
+        checkpointRepository.deleteAll();
+
+        assertThat(chunked.result().getRowsCompleted()).isEqualTo(legacy.result().longValue());
+    }
+
+    // The completion algorithm as it was before the set-based UPDATE, kept here as the baseline.
+    private int legacyCompletion(DayOfWeek day) {
+
+        return transactionTemplate.execute(status -> {
+
+            List<LunchOrder> paidOrders = repository.findAll().stream()
+                    .filter(order -> order.getStatus() == OrderStatus.PAID)
+                    .filter(order -> order.getDayOfWeek() == day)
+                    .toList();
+
+            Instant now = Instant.now();
+            for (LunchOrder order : paidOrders) {
+                order.setStatus(OrderStatus.COMPLETED);
+                order.setCompletedOn(now);
+                repository.save(order);
+            }
+
+            return paidOrders.size();
+        });
+    }
+}
@@ -0,0 +1,257 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.stream.OrderStatusStream;
+import com.lunch.micro.web.dto.OrderEvent;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The 13:00 completion run with 20k parents watching. Every child has one PAID order and one in-process subscriber
+// (an emitter that records when its event would hit the wire), a slice of the children also have a real SSE
+// connection through Tomcat, and 1% extra subscribers are slow readers watching many children. The in-process
+// subscribers stand in for sockets: 20k connections need 40k descriptors in one JVM, client and server side. Tomcat
+// still has to accept that many on a real node, so the run first checks the connector's limit covers them.
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderStreamBenchmark {
+
+    private static final int SUBSCRIBERS = Integer.getInteger("benchmark.subscribers", 20_000);
+    private static final int HTTP_SUBSCRIBERS = Integer.getInteger("benchmark.http-subscribers", 500);
+    private static final int SLOW_SUBSCRIBERS = SUBSCRIBERS / 100;
+    private static final int BUFFER_SIZE = 16;
+    private static final long SLOW_SEND_MILLIS = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ServletWebServerApplicationContext webServerContext;
+
+    @Autowired
+    private OrderEventBus eventBus;
+
+    @Autowired
+    private OrderStatusStream httpStream;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Test
+    void fanOutCompletionRunToSubscribers() throws Exception {
+
+        // Every subscriber holds a connection for as long as it watches; Tomcat's default of 8192 would refuse the rest.
+        TomcatWebServer tomcat = (TomcatWebServer) webServerContext.getWebServer();
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) tomcat.getTomcat().getConnector().getProtocolHandler();
+        assertThat(protocol.getMaxConnections()).isGreaterThanOrEqualTo(SUBSCRIBERS + SLOW_SUBSCRIBERS);
+
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        List<UUID> children = seedPaidOrders(monday.getDayOfWeek());
+
+        // Smaller buffer than production, so a slow reader watching 20 children overflows within one run.
+        List<TimedEmitter> fast = new CopyOnWriteArrayList<>();
+        OrderStatusStream stream = new OrderStatusStream(eventBus, orderRepository, BUFFER_SIZE, 4, 20, 30, 15_000) {
+            @Override
+            protected SseEmitter newEmitter() {
+                return new TimedEmitter(0);
+            }
+        };
+        stream.listen();
+        stream.start();
+
+        long heapBefore = usedHeap();
+        for (UUID child : children) {
+            fast.add((TimedEmitter) stream.subscribeChildren(List.of(child)));
+        }
+        long heapPerSubscriber = (usedHeap() - heapBefore) / SUBSCRIBERS;
+
+        OrderStatusStream slowStream = new OrderStatusStream(eventBus, orderRepository, BUFFER_SIZE, 4, 20, 30, 15_000) {
+            @Override
+            protected SseEmitter newEmitter() {
+                return new TimedEmitter(SLOW_SEND_MILLIS);
+            }
+        };
+        slowStream.listen();
+        slowStream.start();
+        for (int i = 0; i < SLOW_SUBSCRIBERS; i++) {
+            int first = (i * 20) % (children.size() - 20);
+            slowStream.subscribeChildren(children.subList(first, first + 20));
+        }
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        List<AtomicInteger> httpEvents = new ArrayList<>();
+        List<CompletableFuture<?>> connections = new ArrayList<>();
+        for (int i = 0; i < HTTP_SUBSCRIBERS; i++) {
+            AtomicInteger received = new AtomicInteger();
+            httpEvents.add(received);
+            connections.add(httpClient.sendAsync(
+                            HttpRequest.newBuilder(URI.create("http://localhost:" + port +
+                                    "/api/v1/children/lunches/stream?childId=" + children.get(i))).build(),
+                            HttpResponse.BodyHandlers.ofLines())
+                    .thenAcceptAsync(response -> countEvents(response.body(), received)));
+        }
+        awaitTrue(() -> httpStream.stats().getSubscribers() == HTTP_SUBSCRIBERS, 60);
+
+        Instant runStartedOn = Instant.now();
+        long runStart = System.nanoTime();
+        completionService.completePaidOrders(monday, runStartedOn);
+        long runMillis = (System.nanoTime() - runStart) / 1_000_000;
+
+        awaitTrue(() -> fast.stream().allMatch(emitter -> emitter.events.get() == 1), 120);
+        awaitTrue(() -> httpEvents.stream().allMatch(received -> received.get() == 1), 60);
+
+        long[] latencies = fast.stream().mapToLong(emitter -> emitter.firstEventNanos - runStart).sorted().toArray();
+        OrderStatusStream.Stats stats = stream.stats();
+        OrderStatusStream.Stats slowStats = slowStream.stats();
+
+        System.out.printf("[benchmark] %d subscribers (+%d over HTTP, +%d slow): %d B heap per subscriber%n",
+                SUBSCRIBERS, HTTP_SUBSCRIBERS, SLOW_SUBSCRIBERS, heapPerSubscriber);
+        System.out.printf("[benchmark] completion run of %d orders took %d ms; completion run start -> event sent: " +
+                        "p50=%d ms  p99=%d ms  max=%d ms%n",
+                children.size(), runMillis, percentileMillis(latencies, 50), percentileMillis(latencies, 99),
+                percentileMillis(latencies, 100));
+        System.out.printf("[benchmark] delivered %d, slow subscribers evicted %d of %d, events sent to slow ones %d%n",
+                stats.getEventsDelivered(), slowStats.getSlowConsumersEvicted(), SLOW_SUBSCRIBERS,
+                slowStats.getEventsDelivered());
+
+        assertThat(stats.getEventsDelivered()).isEqualTo(SUBSCRIBERS);
+        assertThat(slowStats.getSlowConsumersEvicted()).isEqualTo(SLOW_SUBSCRIBERS);
+
+        connections.forEach(connection -> connection.cancel(true));
+        stream.stop();
+        stream.shutdownWriters();
+        slowStream.stop();
+        slowStream.shutdownWriters();
+        outboxRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        checkpointRepository.deleteAll();
+    }
+
+    private List<UUID> seedPaidOrders(DayOfWeek day) {
+
+        List<UUID> children = new ArrayList<>(SUBSCRIBERS);
+        List<LunchOrder> orders = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            UUID child = UUID.randomUUID();
+            children.add(child);
+            orders.add(LunchOrder.builder()
+                    .parentId(UUID.randomUUID())
+                    .walletId(UUID.randomUUID())
+                    .childId(child)
+                    .meal(Meal.values()[i % Meal.values().length])
+                    .quantity(1)
+                    .dayOfWeek(day)
+                    .unitPrice(new BigDecimal("2.50"))
+                    .total(new BigDecimal("2.50"))
+                    .status(OrderStatus.PAID)
+                    .build());
+            if (orders.size() == 1000) {
+                orderRepository.saveAll(orders);
+                orders.clear();
+            }
+        }
+        orderRepository.saveAll(orders);
+        return children;
+    }
+
+    private static void countEvents(Stream<String> lines, AtomicInteger received) {
+        lines.filter(line -> line.startsWith("event:")).forEach(line -> received.incrementAndGet());
+    }
+
+    private static long percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within %d s", seconds).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    // Records the first event it would have written; sendMillis > 0 makes it a reader that keeps the writer waiting.
+    static class TimedEmitter extends SseEmitter {
+
+        final AtomicInteger events = new AtomicInteger();
+        volatile long firstEventNanos;
+        private final long sendMillis;
+
+        TimedEmitter(long sendMillis) {
+            this.sendMillis = sendMillis;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+
+            boolean isEvent = builder.build().stream().anyMatch(part -> part.getData() instanceof OrderEvent);
+            if (sendMillis > 0) {
+                try {
+                    Thread.sleep(sendMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (isEvent && events.incrementAndGet() == 1) {
+                firstEventNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+}
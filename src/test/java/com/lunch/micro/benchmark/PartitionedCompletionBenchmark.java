@@ -0,0 +1,106 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.outbox.OrderOutbox;
+import com.lunch.micro.repository.CompletionPartitionRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.ChildOrdersCache;
+import com.lunch.micro.service.NodeIdentity;
+import com.lunch.micro.service.PartitionedCompletionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class PartitionedCompletionBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int THREADS_PER_NODE = Integer.getInteger("benchmark.threads", 2);
+    private static final int[] NODES = {1, 2, 4};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private CompletionPartitionRepository partitionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChildOrdersCache childOrdersCache;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private SchedulerLeaseService leaseService;
+
+    @Test
+    void wallClockTimeByNodeCount() throws Exception {
+
+        LocalDate businessDate = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+
+        for (int nodes : NODES) {
+
+            BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, 42L);
+            seeder.truncate();
+            seeder.seedOrders(ROWS);
+            partitionRepository.deleteAll();
+
+            List<PartitionedCompletionService> cluster = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                cluster.add(new PartitionedCompletionService(orderRepository, partitionRepository,
+                        new NodeIdentity("bench-node-" + i), leaseService, transactionManager, childOrdersCache, orderOutbox, 2000, 64, THREADS_PER_NODE, 120));
+            }
+
+            BenchmarkProbe.measure(nodes + " node(s) x " + THREADS_PER_NODE + " threads (" + ROWS + " rows)",
+                    () -> runCluster(cluster, businessDate));
+        }
+
+        new BenchmarkDataSeeder(jdbcTemplate, 42L).truncate();
+        partitionRepository.deleteAll();
+    }
+
+    private Long runCluster(List<PartitionedCompletionService> cluster, LocalDate businessDate) {
+
+        ExecutorService executor = Executors.newFixedThreadPool(cluster.size());
+        try {
+            Instant now = Instant.now();
+            Future<CompletionRunStats> coordinator = executor.submit(() -> cluster.get(0).completePaidOrders(businessDate, now));
+            for (PartitionedCompletionService joiner : cluster.subList(1, cluster.size())) {
+                executor.submit(() -> {
+                    while (!joiner.isFinished(businessDate)) {
+                        joiner.joinOpenPartitions(businessDate, now);
+                    }
+                    return null;
+                });
+            }
+            return coordinator.get().getRowsCompleted();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
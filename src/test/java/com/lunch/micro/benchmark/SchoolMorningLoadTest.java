@@ -0,0 +1,245 @@
+package com.lunch.micro.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mvn -Pbenchmark test -Dtest=SchoolMorningLoadTest
+//     [-Dloadtest.rush-seconds=20 -Dloadtest.completion-seconds=10 -Dloadtest.post-rate=20 -Dloadtest.get-rate=40
+//      -Dloadtest.cancel-rate=2 -Dloadtest.seed-rows=20000]
+//     [-Dloadtest.baseline=<file>] [-Dloadtest.max-regression-percent=25] [-Dloadtest.update-baseline=true]
+// A school morning replayed against this service, started on a random port with the test profile (H2):
+// - before the 10:00 cutoff: orders POSTed for the next school day, parents polling GET, some orders cancelled;
+// - at 13:00: the completion run for that day while the polling goes on.
+// The cutoff and the completion are phases of the run, not wall-clock times. Per-endpoint percentiles are printed,
+// written to target/loadtest (JSON and .hgrm) and compared with the stored baseline.
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class SchoolMorningLoadTest {
+
+    private static final Duration RUSH = Duration.ofSeconds(Integer.getInteger("loadtest.rush-seconds", 20));
+    private static final Duration COMPLETION = Duration.ofSeconds(Integer.getInteger("loadtest.completion-seconds", 10));
+    private static final double POST_RATE = Double.parseDouble(System.getProperty("loadtest.post-rate", "20"));
+    private static final double GET_RATE = Double.parseDouble(System.getProperty("loadtest.get-rate", "40"));
+    private static final double CANCEL_RATE = Double.parseDouble(System.getProperty("loadtest.cancel-rate", "2"));
+    private static final int SEED_ROWS = Integer.getInteger("loadtest.seed-rows", 20_000);
+
+    private static final Path RESULTS = Path.of("target", "loadtest");
+    private static final String BASELINE = System.getProperty("loadtest.baseline",
+            "src/test/resources/loadtest/school-morning-baseline.json");
+    private static final String MAX_REGRESSION_PERCENT = System.getProperty("loadtest.max-regression-percent");
+
+    private static final String POST = "POST /children/{childId}/lunches";
+    private static final String GET = "GET /children/{childId}/lunches";
+    private static final String DELETE = "DELETE /children/{childId}/lunches/{lunchId}";
+    private static final String COMPLETION_RUN = "completion run";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void replaySchoolMorning() throws Exception {
+
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(jdbcTemplate, 42L);
+        seeder.truncate();
+        jdbcTemplate.execute("DELETE FROM completion_checkpoints");
+        List<UUID> children = seeder.seedOrders(SEED_ROWS, 20);
+
+        LocalDate businessDate = LocalDate.now().plusDays(1);
+        while (businessDate.getDayOfWeek().getValue() > 5) {
+            businessDate = businessDate.plusDays(1);
+        }
+        DayOfWeek orderDay = businessDate.getDayOfWeek();
+
+        Queue<UUID[]> cancellable = new ConcurrentLinkedQueue<>();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "load-client");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+        OpenLoadGenerator load = new OpenLoadGenerator(client);
+
+        Thread polling = load.start(new OpenLoadGenerator.Arrivals(GET, GET_RATE,
+                () -> get(random(children)), null), RUSH.plus(COMPLETION));
+        Thread ordering = load.start(new OpenLoadGenerator.Arrivals(POST, POST_RATE,
+                () -> post(random(children), orderDay), response -> remember(response, cancellable)), RUSH);
+        Thread cancelling = load.start(new OpenLoadGenerator.Arrivals(DELETE, CANCEL_RATE,
+                () -> cancel(cancellable.poll()), null), RUSH);
+        ordering.join();
+        cancelling.join();
+
+        long start = System.nanoTime();
+        CompletionRunStats completion = completionService.completePaidOrders(businessDate, Instant.now());
+        load.record(COMPLETION_RUN, System.nanoTime() - start, true);
+        polling.join();
+        load.awaitResponses(Duration.ofSeconds(60));
+
+        Map<String, OpenLoadGenerator.EndpointStats> stats = load.stats();
+        print(stats);
+        System.out.printf("[loadtest] completion run: %d orders in %d ms%n",
+                completion.getRowsCompleted(), completion.getElapsedMillis());
+
+        Files.createDirectories(RESULTS);
+        ObjectMapper json = objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+        json.writeValue(RESULTS.resolve("school-morning.json").toFile(), stats);
+        load.writeHistograms(RESULTS);
+        if (Boolean.getBoolean("loadtest.update-baseline")) {
+            Files.createDirectories(Path.of(BASELINE).toAbsolutePath().getParent());
+            json.writeValue(new File(BASELINE), stats);
+            System.out.printf("[loadtest] baseline updated: %s%n", BASELINE);
+        } else if (new File(BASELINE).exists()) {
+            compareWithBaseline(stats, json.readValue(new File(BASELINE), new TypeReference<>() { }));
+        }
+
+        for (String endpoint : List.of(POST, GET, DELETE)) {
+            assertThat(stats.get(endpoint).getRequests()).as(endpoint).isPositive();
+            assertThat(stats.get(endpoint).getErrors()).as(endpoint).isLessThanOrEqualTo(stats.get(endpoint).getRequests() / 100);
+        }
+        assertThat(completion.getRowsCompleted()).isPositive();
+    }
+
+    // p50, p99 and p99.9 of each endpoint against the baseline; lower is better.
+    private void compareWithBaseline(Map<String, OpenLoadGenerator.EndpointStats> current,
+                                     Map<String, OpenLoadGenerator.EndpointStats> baseline) {
+
+        Map<String, Double> regressions = new LinkedHashMap<>();
+        for (Map.Entry<String, OpenLoadGenerator.EndpointStats> entry : current.entrySet()) {
+
+            OpenLoadGenerator.EndpointStats before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("[loadtest] %-45s no baseline%n", entry.getKey());
+                continue;
+            }
+            OpenLoadGenerator.EndpointStats now = entry.getValue();
+            compare(regressions, entry.getKey() + " p50", before.getP50Millis(), now.getP50Millis());
+            compare(regressions, entry.getKey() + " p99", before.getP99Millis(), now.getP99Millis());
+            compare(regressions, entry.getKey() + " p99.9", before.getP999Millis(), now.getP999Millis());
+        }
+
+        if (MAX_REGRESSION_PERCENT != null) {
+            double limit = Double.parseDouble(MAX_REGRESSION_PERCENT);
+            assertThat(regressions).allSatisfy((metric, regression) ->
+                    assertThat(regression).as(metric).isLessThanOrEqualTo(limit));
+        }
+    }
+
+    private static void compare(Map<String, Double> regressions, String metric, double was, double now) {
+
+        double regression = 100.0 * (now - was) / Math.max(was, 0.001);
+        System.out.printf("[loadtest] %-51s %10.2f -> %10.2f ms (%+.1f%%)%n", metric, was, now, regression);
+        regressions.put(metric, regression);
+    }
+
+    private static void print(Map<String, OpenLoadGenerator.EndpointStats> stats) {
+
+        System.out.printf("[loadtest] %-45s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.forEach((endpoint, s) -> System.out.printf(
+                "[loadtest] %-45s %8d %7d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint, s.getRequests(),
+                s.getErrors(), s.getRequestsPerSecond(), s.getP50Millis(), s.getP90Millis(), s.getP99Millis(),
+                s.getP999Millis(), s.getMaxMillis()));
+    }
+
+    private HttpRequest get(UUID childId) {
+        return HttpRequest.newBuilder(uri("/api/v1/children/" + childId + "/lunches"))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(UUID childId, DayOfWeek orderDay) {
+
+        LunchOrderRequest request = LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .meal(Meal.values()[ThreadLocalRandom.current().nextInt(Meal.values().length)])
+                .quantity(1)
+                .dayOfWeek(orderDay)
+                .build();
+        try {
+            return HttpRequest.newBuilder(uri("/api/v1/children/" + childId + "/lunches"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest cancel(UUID[] order) {
+
+        if (order == null) {
+            return null;
+        }
+        return HttpRequest.newBuilder(uri("/api/v1/children/" + order[1] + "/lunches/" + order[0]))
+                .timeout(Duration.ofSeconds(30))
+                .DELETE()
+                .build();
+    }
+
+    // Roughly one order in ten is cancelled again, as the cancel rate is a tenth of the order rate.
+    private void remember(HttpResponse<String> response, Queue<UUID[]> cancellable) {
+        try {
+            var order = objectMapper.readTree(response.body());
+            cancellable.add(new UUID[]{UUID.fromString(order.get("id").asText()), UUID.fromString(order.get("childId").asText())});
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static UUID random(List<UUID> children) {
+        return children.get(ThreadLocalRandom.current().nextInt(children.size()));
+    }
+}
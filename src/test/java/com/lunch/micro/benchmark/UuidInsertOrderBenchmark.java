@@ -0,0 +1,136 @@
+package com.lunch.micro.benchmark;
+
+import com.lunch.micro.model.UuidV7Generator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Inserts the same number of rows keyed by random (v4) and by time-ordered (v7) ids into a file-backed H2 table
+// shaped like lunch_orders' keys: BINARY(16) primary key plus the (child_id, ...) secondary index.
+// Reports insert latency per batch as the table grows and the size of the store file before and after compaction.
+@Tag("benchmark")
+class UuidInsertOrderBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int BATCH = Integer.getInteger("benchmark.batch", 1_000);
+    private static final Path DIRECTORY = Path.of("target", "benchmark", "uuid-insert");
+
+    @Test
+    void compareRandomWithTimeOrderedIds() throws Exception {
+
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+        Files.createDirectories(DIRECTORY);
+
+        Result random = insert("random v4", UUID::randomUUID);
+        Result timeOrdered = insert("time-ordered v7", UuidV7Generator::generate);
+
+        random.print();
+        timeOrdered.print();
+
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+
+        assertThat(random.rows()).isEqualTo(ROWS);
+        assertThat(timeOrdered.rows()).isEqualTo(ROWS);
+    }
+
+    private Result insert(String name, Supplier<UUID> ids) throws Exception {
+
+        Path file = DIRECTORY.toAbsolutePath().resolve(name.replace(' ', '-'));
+        String url = "jdbc:h2:file:" + file + ";DB_CLOSE_ON_EXIT=FALSE";
+        UUID[] children = new UUID[10_000];
+        Arrays.setAll(children, i -> UUID.randomUUID());
+        long[] batchNanos = new long[ROWS / BATCH];
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE orders (id BINARY(16) PRIMARY KEY, child_id BINARY(16) NOT NULL, " +
+                        "status TINYINT NOT NULL, completed_on TIMESTAMP)");
+                statement.execute("CREATE INDEX idx_orders_child_status_completed ON orders (child_id, status, completed_on)");
+            }
+            connection.setAutoCommit(false);
+
+            Timestamp now = Timestamp.from(Instant.now());
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO orders (id, child_id, status, completed_on) VALUES (?, ?, 1, ?)")) {
+
+                for (int batch = 0; batch < batchNanos.length; batch++) {
+
+                    long start = System.nanoTime();
+                    for (int i = 0; i < BATCH; i++) {
+                        insert.setBytes(1, toBytes(ids.get()));
+                        insert.setBytes(2, toBytes(children[(batch * BATCH + i) % children.length]));
+                        insert.setTimestamp(3, now);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    connection.commit();
+                    batchNanos[batch] = System.nanoTime() - start;
+                }
+            }
+
+            long rows;
+            try (Statement statement = connection.createStatement()) {
+                ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM orders");
+                count.next();
+                rows = count.getLong(1);
+            }
+
+            // Before compaction the store file also holds the copies of every page rewritten by a split;
+            // afterwards it holds only the live pages of the table and its indexes.
+            long fileBytes = Files.size(Path.of(file + ".mv.db"));
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN COMPACT");
+            }
+            long compactedBytes = Files.size(Path.of(file + ".mv.db"));
+
+            return new Result(name, rows, fileBytes, compactedBytes, batchNanos);
+        }
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    private record Result(String name, long rows, long fileBytes, long compactedBytes, long[] batchNanos) {
+
+        void print() {
+
+            long totalNanos = Arrays.stream(batchNanos).sum();
+            long[] lastDecile = Arrays.copyOfRange(batchNanos, batchNanos.length - batchNanos.length / 10, batchNanos.length);
+            long[] sorted = batchNanos.clone();
+            Arrays.sort(sorted);
+            Arrays.sort(lastDecile);
+
+            System.out.printf("[benchmark] %-16s rows=%d  %.0f rows/s  file=%.1f MB  compacted=%.1f MB  " +
+                            "per %d-row batch: p50=%.2f ms p99=%.2f ms, last 10%% of the load p50=%.2f ms p99=%.2f ms%n",
+                    name, rows, rows * 1e9 / totalNanos, fileBytes / 1_048_576.0, compactedBytes / 1_048_576.0, BATCH,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    percentile(lastDecile, 0.50), percentile(lastDecile, 0.99));
+        }
+
+        private static double percentile(long[] sortedNanos, double percentile) {
+            int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -254,6 +255,45 @@ class GlobalExceptionHandlerTest {
         verify(exception, atLeastOnce()).getStatusCode();
     }
 
+    @Test
+    void handleOrderConflictException_ReturnsConflict() {
+
+        OrderConflictException exception = new OrderConflictException("Order is being changed by another request, please try again");
+
+        ResponseEntity<Map<String, String>> response = globalExceptionHandler.handleOrderConflictException(exception);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().get("error")).isEqualTo(exception.getMessage());
+        assertThat(response.getBody().get("timestamp")).isNotNull();
+    }
+
+    @Test
+    void handleOptimisticLockingFailureException_ReturnsConflictWithoutInternals() {
+
+        ObjectOptimisticLockingFailureException exception =
+                new ObjectOptimisticLockingFailureException("com.lunch.micro.model.LunchOrder", "42");
+
+        ResponseEntity<Map<String, String>> response = globalExceptionHandler.handleOptimisticLockingFailureException(exception);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().get("message")).isEqualTo("The order was changed by another request, please try again");
+    }
+
+    @Test
+    void handleIntakeOverloadedException_ReturnsServiceUnavailableWithRetryAfter() {
+
+        IntakeOverloadedException exception = new IntakeOverloadedException("Too many orders are being placed right now, please try again");
+
+        ResponseEntity<Map<String, String>> response = globalExceptionHandler.handleIntakeOverloadedException(exception);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().get("error")).isEqualTo(exception.getMessage());
+    }
+
     @Test
     void handleResourceAccessException_WithMessage_ReturnsServiceUnavailable() {
 
@@ -0,0 +1,209 @@
+package com.lunch.micro.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.repository.IdempotencyKeyRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.IdempotentOrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: each request has to commit on its own for the key to be seen by the next one.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyKeyIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID childId;
+    private String requestJson;
+
+    @BeforeEach
+    void setUp() {
+
+        idempotencyKeyRepository.deleteAll();
+        orderRepository.deleteAll();
+        childId = UUID.randomUUID();
+        requestJson = orderJson(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        idempotencyKeyRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void retriedPost_ReturnsTheOriginalOrderWithoutASecondInsert() throws Exception {
+
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = postOrder(key, requestJson);
+        MockHttpServletResponse retry = postOrder(key, requestJson);
+
+        assertThat(first.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        assertThat(first.getHeader("Idempotent-Replayed")).isNull();
+        assertThat(retry.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(retry.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        UUID firstId = orderId(first);
+        assertThat(orderId(retry)).isEqualTo(firstId);
+        assertThat(orderRepository.findAll()).hasSize(1);
+        assertThat(idempotencyKeyRepository.findByIdempotencyKey(key)).get()
+                .extracting("orderId").isEqualTo(firstId);
+    }
+
+    @Test
+    void sameKeyWithDifferentRequest_IsRejected() throws Exception {
+
+        String key = UUID.randomUUID().toString();
+        postOrder(key, requestJson);
+
+        mockMvc.perform(post("/api/v1/children/{childId}/lunches", childId)
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(orderJson(3)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Idempotency-Key was already used for a different request"));
+
+        assertThat(orderRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void postsWithoutKey_AreNotDeduplicated() throws Exception {
+
+        assertThat(postOrder(null, requestJson).getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        assertThat(postOrder(null, requestJson).getStatus()).isEqualTo(HttpStatus.CREATED.value());
+
+        assertThat(orderRepository.findAll()).hasSize(2);
+        assertThat(idempotencyKeyRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void concurrentRetriesWithOneKey_CreateOneOrder() throws Exception {
+
+        String key = UUID.randomUUID().toString();
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < requests; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return postOrder(key, requestJson);
+                }));
+            }
+            start.countDown();
+
+            UUID first = orderId(responses.get(0).get(30, TimeUnit.SECONDS));
+            int created = 0;
+            for (Future<MockHttpServletResponse> response : responses) {
+                assertThat(orderId(response.get(30, TimeUnit.SECONDS))).isEqualTo(first);
+                if (response.get().getStatus() == HttpStatus.CREATED.value()) {
+                    created++;
+                }
+            }
+            assertThat(created).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(orderRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void purge_DeletesOnlyKeysOlderThanTheRetention() throws Exception {
+
+        String expired = UUID.randomUUID().toString();
+        String recent = UUID.randomUUID().toString();
+        postOrder(expired, requestJson);
+        postOrder(recent, requestJson);
+        jdbcTemplate.update("UPDATE idempotency_keys SET created_on = ? WHERE idempotency_key = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(3))), expired);
+
+        idempotentOrderService.purgeExpiredKeys();
+
+        assertThat(idempotencyKeyRepository.findByIdempotencyKey(expired)).isEmpty();
+        assertThat(idempotencyKeyRepository.findByIdempotencyKey(recent)).isPresent();
+    }
+
+    private MockHttpServletResponse postOrder(String key, String json) throws Exception {
+
+        var request = post("/api/v1/children/{childId}/lunches", childId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+        if (key != null) {
+            request.header("Idempotency-Key", key);
+        }
+
+        return mockMvc.perform(request)
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse();
+    }
+
+    private UUID orderId(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readValue(response.getContentAsString(), LunchOrder.class).getId();
+    }
+
+    private String orderJson(int quantity) {
+
+        DayOfWeek futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        return String.format("""
+                {
+                    "parentId": "%s",
+                    "walletId": "%s",
+                    "meal": "FRIED_CHICKEN_WITH_YOGURT_SOUS",
+                    "quantity": %d,
+                    "dayOfWeek": "%s"
+                }
+                """, new UUID(0, 1), new UUID(0, 2), quantity, futureDay);
+    }
+}
@@ -0,0 +1,154 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.model.JobRunStatus;
+import com.lunch.micro.repository.JobRunRepository;
+import com.lunch.micro.service.JobExecutionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JobExecutionIntegrationTest {
+
+    private static final String JOB = "test-job";
+
+    @Autowired
+    private JobExecutionService jobExecutionService;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    private LocalDate businessDate;
+
+    @BeforeEach
+    void setUp() {
+        jobRunRepository.deleteAll();
+        businessDate = LocalDate.now();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobRunRepository.deleteAll();
+    }
+
+    @Test
+    void runOnce_FirstRun_ExecutesWorkAndRecordsSuccess() {
+
+        Optional<JobRun> run = jobExecutionService.runOnce(JOB, businessDate, () -> 7L);
+
+        assertThat(run).isPresent();
+        JobRun saved = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+        assertThat(saved.getRowsProcessed()).isEqualTo(7L);
+        assertThat(saved.getAttempts()).isEqualTo(1);
+        assertThat(saved.getStartedOn()).isNotNull();
+        assertThat(saved.getFinishedOn()).isNotNull();
+        assertThat(jobExecutionService.hasSucceeded(JOB, businessDate)).isTrue();
+    }
+
+    @Test
+    void runOnce_AlreadySucceeded_DoesNotExecuteWorkAgain() {
+
+        AtomicInteger executions = new AtomicInteger();
+
+        jobExecutionService.runOnce(JOB, businessDate, executions::incrementAndGet);
+        Optional<JobRun> second = jobExecutionService.runOnce(JOB, businessDate, executions::incrementAndGet);
+
+        assertThat(second).isEmpty();
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void runOnce_PreviousAttemptFailed_RetriesAndSucceeds() {
+
+        assertThatThrownBy(() -> jobExecutionService.runOnce(JOB, businessDate, () -> {
+            throw new IllegalStateException("database unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        JobRun failed = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(JobRunStatus.FAILED);
+        assertThat(failed.getErrorMessage()).isEqualTo("database unavailable");
+
+        Optional<JobRun> retried = jobExecutionService.runOnce(JOB, businessDate, () -> 3L);
+
+        assertThat(retried).isPresent();
+        JobRun saved = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+        assertThat(saved.getAttempts()).isEqualTo(2);
+        assertThat(saved.getErrorMessage()).isNull();
+    }
+
+    @Test
+    void runOnce_RunningElsewhere_SkipsUntilStale() {
+
+        jobRunRepository.save(JobRun.builder()
+                .jobName(JOB)
+                .businessDate(businessDate)
+                .status(JobRunStatus.RUNNING)
+                .attempts(1)
+                .owner("other-node")
+                .startedOn(Instant.now())
+                .build());
+
+        assertThat(jobExecutionService.runOnce(JOB, businessDate, () -> 1L)).isEmpty();
+
+        JobRun running = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        running.setStartedOn(Instant.now().minus(2, ChronoUnit.HOURS));
+        jobRunRepository.save(running);
+
+        Optional<JobRun> takenOver = jobExecutionService.runOnce(JOB, businessDate, () -> 1L);
+
+        assertThat(takenOver).isPresent();
+        assertThat(takenOver.get().getAttempts()).isEqualTo(2);
+        assertThat(takenOver.get().getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+    }
+
+    @Test
+    void runOnce_TakenOverWhileRunning_DoesNotOverwriteTheNewAttempt() {
+
+        Optional<JobRun> first = jobExecutionService.runOnce(JOB, businessDate, () -> {
+            // This attempt overruns the stale timeout; a second worker takes the run over and finishes first.
+            JobRun running = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+            running.setStartedOn(Instant.now().minus(2, ChronoUnit.HOURS));
+            jobRunRepository.save(running);
+            assertThat(jobExecutionService.runOnce(JOB, businessDate, () -> 5L)).isPresent();
+            return 1L;
+        });
+
+        assertThat(first).isEmpty();
+        JobRun saved = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+        assertThat(saved.getAttempts()).isEqualTo(2);
+        assertThat(saved.getRowsProcessed()).isEqualTo(5L);
+    }
+
+    @Test
+    void runOnce_FailingAfterTakeover_LeavesTheNewAttemptSucceeded() {
+
+        assertThatThrownBy(() -> jobExecutionService.runOnce(JOB, businessDate, () -> {
+            JobRun running = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+            running.setStartedOn(Instant.now().minus(2, ChronoUnit.HOURS));
+            jobRunRepository.save(running);
+            jobExecutionService.runOnce(JOB, businessDate, () -> 5L);
+            throw new IllegalStateException("connection reset");
+        })).isInstanceOf(IllegalStateException.class);
+
+        JobRun saved = jobRunRepository.findByJobNameAndBusinessDate(JOB, businessDate).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+        assertThat(saved.getErrorMessage()).isNull();
+    }
+}
@@ -82,6 +82,7 @@ class LunchOrderIntegrationTest {
         LunchOrder createdOrder = objectMapper.readValue(responseJson, LunchOrder.class);
         UUID createdOrderId = createdOrder.getId();
         assertThat(createdOrderId).isNotNull();
+        assertThat(createdOrderId.version()).isEqualTo(7);
 
         LunchOrder savedOrder = repository.findById(createdOrderId).orElseThrow();
         assertThat(savedOrder.getStatus()).isEqualTo(OrderStatus.PAID);
@@ -132,6 +133,63 @@ class LunchOrderIntegrationTest {
                 .andExpect(jsonPath("$.error").value("Order not found"));
     }
 
+    @Test
+    void createLunchOrders_Batch_CreatesValidItemsAndReportsRejectedOnes() throws Exception {
+
+        UUID secondChildId = UUID.randomUUID();
+        DayOfWeek futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        String requestJson = String.format("""
+                {
+                    "orders": [
+                        { "parentId": "%1$s", "walletId": "%2$s", "childId": "%3$s",
+                          "meal": "FRIED_CHICKEN_WITH_YOGURT_SOUS", "quantity": 1, "dayOfWeek": "%5$s" },
+                        { "parentId": "%1$s", "walletId": "%2$s", "childId": "%4$s",
+                          "meal": "FRIED_CHICKEN_WITH_YOGURT_SOUS", "quantity": 2, "dayOfWeek": "%5$s" },
+                        { "parentId": "%1$s", "walletId": "%2$s",
+                          "meal": "FRIED_CHICKEN_WITH_YOGURT_SOUS", "quantity": 1, "dayOfWeek": "%5$s" }
+                    ]
+                }
+                """, parentId, walletId, childId, secondChildId, futureDay);
+
+        mockMvc.perform(post("/api/v1/children/lunches/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].created").value(true))
+                .andExpect(jsonPath("$.results[0].order.status").value("PAID"))
+                .andExpect(jsonPath("$.results[1].order.total").value(5.00))
+                .andExpect(jsonPath("$.results[2].created").value(false))
+                .andExpect(jsonPath("$.results[2].error").value("Child ID is required"));
+
+        assertThat(repository.findAll()).extracting(LunchOrder::getChildId)
+                .containsExactlyInAnyOrder(childId, secondChildId);
+
+        mockMvc.perform(get("/api/v1/children/{childId}/lunches", secondChildId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].quantity").value(2));
+    }
+
+    @Test
+    void createLunchOrders_InvalidItem_RejectsTheWholeBatch() throws Exception {
+
+        String requestJson = String.format("""
+                {
+                    "orders": [
+                        { "parentId": "%s", "childId": "%s", "meal": "FRIED_CHICKEN_WITH_YOGURT_SOUS", "quantity": 0 }
+                    ]
+                }
+                """, parentId, childId);
+
+        mockMvc.perform(post("/api/v1/children/lunches/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isBadRequest());
+
+        assertThat(repository.findAll()).isEmpty();
+    }
+
     private LunchOrder createTestOrder(UUID childId, OrderStatus status, DayOfWeek dayOfWeek) {
         return LunchOrder.builder()
                 .id(UUID.randomUUID())
@@ -140,7 +198,7 @@ class LunchOrderIntegrationTest {
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek(dayOfWeek.name())
+                .dayOfWeek(dayOfWeek)
                 .unitPrice(new java.math.BigDecimal("2.50"))
                 .total(new java.math.BigDecimal("2.50"))
                 .status(status)
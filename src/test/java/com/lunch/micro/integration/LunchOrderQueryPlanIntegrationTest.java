@@ -0,0 +1,183 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Plans are taken for the SQL Hibernate generates for the repository methods, captured as it is sent.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.lunch.micro.integration.LunchOrderQueryPlanIntegrationTest$CapturingStatementInspector")
+@ActiveProfiles("test")
+class LunchOrderQueryPlanIntegrationTest {
+
+    // The child lookup as it was before the UNION ALL rewrite.
+    private static final String LEGACY_CHILD_SQL = "SELECT id FROM lunch_orders WHERE child_id = ? AND status <> 2 " +
+            "AND (status <> 3 OR (completed_on IS NOT NULL AND completed_on > ?))";
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void statusAndDayOfWeek_AreStoredAsNumericCodes() {
+
+        LunchOrder order = repository.save(createOrder(UUID.randomUUID(), OrderStatus.CANCELLED, DayOfWeek.THURSDAY));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT status, day_of_week FROM lunch_orders WHERE id = ?", order.getId());
+
+        assertThat(((Number) row.get("STATUS")).intValue()).isEqualTo(2);
+        assertThat(((Number) row.get("DAY_OF_WEEK")).intValue()).isEqualTo(4);
+        assertThat(repository.findById(order.getId()))
+                .get()
+                .satisfies(stored -> {
+                    assertThat(stored.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+                    assertThat(stored.getDayOfWeek()).isEqualTo(DayOfWeek.THURSDAY);
+                });
+    }
+
+    @Test
+    void completionScan_UsesStatusDayIndex() {
+
+        Instant now = Instant.now();
+        UUID afterId = UUID.randomUUID();
+        String sql = generatedSql(() -> repository.findPaidOrderIdsForDayAfter(
+                DayOfWeek.WEDNESDAY, OrderStatus.PAID, now, afterId, Limit.of(100)));
+
+        String plan = explain(sql, 1, 3, Timestamp.from(now), afterId, 100);
+
+        assertThat(plan).containsIgnoringCase("idx_lunch_orders_status_day");
+    }
+
+    @Test
+    void partitionedCompletionScan_UsesStatusDayIndex() {
+
+        Instant now = Instant.now();
+        UUID afterId = UUID.randomUUID();
+        String sql = generatedSql(() -> repository.findPaidOrderIdsForDayAndBucketsAfter(
+                DayOfWeek.WEDNESDAY, OrderStatus.PAID, 0, 8, now, afterId, Limit.of(100)));
+
+        String plan = explain(sql, 1, 3, 0, 8, Timestamp.from(now), afterId, 100);
+
+        assertThat(plan).containsIgnoringCase("idx_lunch_orders_status_day");
+    }
+
+    @Test
+    void childOrderResponses_MatchTheLegacyChildPredicate() {
+
+        UUID childId = UUID.randomUUID();
+        Instant sevenHoursAgo = Instant.now().minus(7, ChronoUnit.HOURS);
+
+        LunchOrder paid = repository.save(createOrder(childId, OrderStatus.PAID, DayOfWeek.MONDAY));
+        LunchOrder recent = repository.save(createOrder(childId, OrderStatus.COMPLETED, DayOfWeek.TUESDAY));
+        LunchOrder old = createOrder(childId, OrderStatus.COMPLETED, DayOfWeek.WEDNESDAY);
+        old.setCompletedOn(sevenHoursAgo.minus(1, ChronoUnit.DAYS));
+        repository.save(old);
+        repository.save(createOrder(childId, OrderStatus.CANCELLED, DayOfWeek.THURSDAY));
+        repository.save(createOrder(UUID.randomUUID(), OrderStatus.PAID, DayOfWeek.MONDAY));
+
+        List<UUID> legacy = jdbcTemplate.queryForList(LEGACY_CHILD_SQL, UUID.class, childId, sevenHoursAgo);
+
+        List<LunchOrderResponse> projected = repository.findOrderResponsesByChildId(
+                childId, OrderStatus.PAID, OrderStatus.COMPLETED, sevenHoursAgo);
+
+        assertThat(projected).extracting(LunchOrderResponse::getId)
+                .containsExactly(paid.getId(), recent.getId())
+                .containsExactlyInAnyOrderElementsOf(legacy);
+    }
+
+    @Test
+    void childLookup_UsesChildStatusCompletedIndexInBothBranches() {
+
+        UUID childId = UUID.randomUUID();
+        Instant sevenHoursAgo = Instant.now().minus(7, ChronoUnit.HOURS);
+        String sql = generatedSql(() -> repository.findOrderResponsesByChildId(
+                childId, OrderStatus.PAID, OrderStatus.COMPLETED, sevenHoursAgo));
+
+        String plan = explain(sql, childId, 1, childId, 3, Timestamp.from(sevenHoursAgo));
+
+        assertThat(plan.toLowerCase().split("idx_lunch_orders_child_status_completed", -1)).hasSize(3);
+    }
+
+    // The one statement the query sends from this thread.
+    private static String generatedSql(Runnable query) {
+
+        List<String> statements = new ArrayList<>();
+        CapturingStatementInspector.CAPTURED.set(statements);
+        try {
+            query.run();
+        } finally {
+            CapturingStatementInspector.CAPTURED.remove();
+        }
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            List<String> statements = CAPTURED.get();
+            if (statements != null) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    private LunchOrder createOrder(UUID childId, OrderStatus status, DayOfWeek dayOfWeek) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(dayOfWeek)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(status)
+                .completedOn(status == OrderStatus.COMPLETED ? Instant.now() : null)
+                .build();
+    }
+}
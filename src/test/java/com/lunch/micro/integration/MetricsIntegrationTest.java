@@ -0,0 +1,159 @@
+package com.lunch.micro.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lunch.micro.metrics.OrderMetrics;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.JobRunRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.service.JobExecutionService;
+import com.lunch.micro.service.OrderCompletionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.UUID;
+
+import static com.lunch.micro.service.OrderCompletionService.ORDER_COMPLETION_JOB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JobExecutionService jobExecutionService;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        jobRunRepository.deleteAll();
+    }
+
+    @Test
+    void orderLifecycle_IsExposedInPrometheusFormat() throws Exception {
+
+        double cancelledBefore = transitions(OrderStatus.CANCELLED);
+        double completedBefore = transitions(OrderStatus.COMPLETED);
+
+        UUID childId = UUID.randomUUID();
+        String created = mockMvc.perform(post("/api/v1/children/{childId}/lunches", childId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("""
+                                {
+                                    "parentId": "%s",
+                                    "walletId": "%s",
+                                    "meal": "BEAN_WITH_SALAD",
+                                    "quantity": 1,
+                                    "dayOfWeek": "%s"
+                                }
+                                """, UUID.randomUUID(), UUID.randomUUID(), LocalDate.now().getDayOfWeek().plus(2))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        UUID orderId = objectMapper.readValue(created, LunchOrder.class).getId();
+
+        mockMvc.perform(get("/api/v1/children/{childId}/lunches", childId)).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/v1/children/{childId}/lunches/{lunchId}", childId, orderId))
+                .andExpect(status().isNoContent());
+
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        orderRepository.save(paidOrder(DayOfWeek.MONDAY));
+        orderRepository.save(paidOrder(DayOfWeek.MONDAY));
+        jobExecutionService.runOnce(ORDER_COMPLETION_JOB, monday,
+                () -> completionService.completePaidOrders(monday, Instant.now()).getRowsCompleted());
+
+        assertThat(transitions(OrderStatus.CANCELLED)).isEqualTo(cancelledBefore + 1);
+        assertThat(transitions(OrderStatus.COMPLETED)).isEqualTo(completedBefore + 2);
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                // Endpoint and service method timers, with histogram buckets for percentiles.
+                .containsPattern("http_server_requests_seconds_bucket\\{.*method=\"POST\".*uri=\"/api/v1/children/\\{childId}/lunches\"")
+                .containsPattern("http_server_requests_seconds_bucket\\{.*method=\"DELETE\".*uri=\"/api/v1/children/\\{childId}/lunches/\\{lunchId}\"")
+                .containsPattern("lunch_service_seconds_bucket\\{.*class=\"com.lunch.micro.service.LunchOrderService\".*method=\"createAndPayOrder\"")
+                .containsPattern("lunch_service_seconds_bucket\\{.*class=\"com.lunch.micro.service.LunchOrderService\".*method=\"cancelOrder\"")
+                .containsPattern("lunch_service_seconds_bucket\\{.*class=\"com.lunch.micro.service.OrderCompletionService\".*method=\"completePaidOrders\"")
+                // Status transitions, including the one not seen yet.
+                .containsPattern("lunch_orders_transitions_total\\{.*from=\"NONE\",to=\"PAID\"")
+                .containsPattern("lunch_orders_transitions_total\\{.*from=\"PAID\",to=\"CANCELLED\"")
+                .containsPattern("lunch_orders_transitions_total\\{.*from=\"PAID\",to=\"COMPLETED\"")
+                // Completion job duration and rows.
+                .containsPattern("lunch_jobs_duration_seconds_bucket\\{.*job=\"order-completion\",outcome=\"succeeded\"")
+                .containsPattern("lunch_jobs_rows_total\\{.*job=\"order-completion\"")
+                // Connection pool wait and per repository method query latency.
+                .containsPattern("hikaricp_connections_acquire_seconds_bucket\\{")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{.*method=\"cancelPaidOrder\".*repository=\"LunchOrderRepository\"")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{.*method=\"completePaidOrdersByIds\".*repository=\"LunchOrderRepository\"");
+    }
+
+    private double transitions(OrderStatus to) {
+        return meterRegistry.get(OrderMetrics.TRANSITIONS).tag("from", OrderStatus.PAID.name()).tag("to", to.name())
+                .counter().count();
+    }
+
+    private LunchOrder paidOrder(DayOfWeek day) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(day)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build();
+    }
+}
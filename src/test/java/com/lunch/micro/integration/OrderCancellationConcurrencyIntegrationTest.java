@@ -0,0 +1,165 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.LunchOrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Every order is cancelled by a parent and completed by the completion run at the same moment.
+// Exactly one of them may win, and the loser has to see the winner's result.
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderCancellationConcurrencyIntegrationTest {
+
+    private static final int ORDERS = 200;
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+    private UUID childId;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        executor = Executors.newFixedThreadPool(16);
+        childId = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        repository.deleteAll();
+    }
+
+    @Test
+    void cancelRacingCompletion_ExactlyOneWinsPerOrder() throws Exception {
+
+        DayOfWeek futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orderIds.add(repository.save(paidOrder(futureDay)).getId());
+        }
+
+        Map<UUID, String> cancelOutcome = new ConcurrentHashMap<>();
+        AtomicInteger completedByRun = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (UUID orderId : orderIds) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                try {
+                    lunchOrderService.cancelOrder(orderId, childId);
+                    cancelOutcome.put(orderId, "cancelled");
+                } catch (DomainException e) {
+                    cancelOutcome.put(orderId, e.getMessage());
+                }
+            }));
+            futures.add(executor.submit(() -> {
+                await(start);
+                Integer updated = transactionTemplate.execute(status -> repository.completePaidOrdersByIds(
+                        List.of(orderId), OrderStatus.PAID, OrderStatus.COMPLETED, Instant.now()));
+                completedByRun.addAndGet(updated);
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        int cancelled = 0;
+        for (UUID orderId : orderIds) {
+            LunchOrder order = repository.findById(orderId).orElseThrow();
+            String outcome = cancelOutcome.get(orderId);
+
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                assertThat(outcome).isEqualTo("cancelled");
+                assertThat(order.getCompletedOn()).isNull();
+                cancelled++;
+            } else {
+                assertThat(order.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+                assertThat(outcome).isEqualTo("Cannot cancel a completed order");
+            }
+        }
+
+        System.out.printf("[race] %d orders: %d cancelled, %d completed%n", ORDERS, cancelled, completedByRun.get());
+        assertThat(cancelled + completedByRun.get()).isEqualTo(ORDERS);
+    }
+
+    @Test
+    void concurrentCancelsOfOneOrder_AllSucceedAndCancelOnce() throws Exception {
+
+        UUID orderId = repository.save(paidOrder(LocalDate.now().getDayOfWeek().plus(2))).getId();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                lunchOrderService.cancelOrder(orderId, childId);
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(repository.findById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    private LunchOrder paidOrder(DayOfWeek day) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(day)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
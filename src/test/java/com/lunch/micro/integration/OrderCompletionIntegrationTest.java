@@ -0,0 +1,171 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.CompletionCheckpoint;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.OrderCompletionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "order.completion.chunk-size=2")
+@ActiveProfiles("test")
+class OrderCompletionIntegrationTest {
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        checkpointRepository.deleteAll();
+        monday = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void completePaidOrders_UpdatesOnlyPaidOrdersForGivenDay() {
+
+        LunchOrder paidMonday = repository.save(createOrder(OrderStatus.PAID, DayOfWeek.MONDAY));
+        LunchOrder paidTuesday = repository.save(createOrder(OrderStatus.PAID, DayOfWeek.TUESDAY));
+        LunchOrder cancelledMonday = repository.save(createOrder(OrderStatus.CANCELLED, DayOfWeek.MONDAY));
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        CompletionRunStats stats = completionService.completePaidOrders(monday, now);
+
+        assertThat(stats.getRowsCompleted()).isEqualTo(1);
+
+        LunchOrder completed = repository.findById(paidMonday.getId()).orElseThrow();
+        assertThat(completed.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(completed.getCompletedOn()).isEqualTo(now);
+
+        assertThat(repository.findById(paidTuesday.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(repository.findById(cancelledMonday.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void completePaidOrders_ProcessesOrdersInChunksAndRecordsCheckpoint() {
+
+        for (int i = 0; i < 5; i++) {
+            repository.save(createOrder(OrderStatus.PAID, DayOfWeek.MONDAY));
+        }
+
+        CompletionRunStats stats = completionService.completePaidOrders(monday, Instant.now());
+
+        assertThat(stats.getRowsCompleted()).isEqualTo(5);
+        assertThat(stats.getChunks()).isEqualTo(3);
+        assertThat(stats.getChunkSize()).isEqualTo(2);
+        assertThat(completionService.getLastRunStats()).contains(stats);
+
+        CompletionCheckpoint checkpoint = checkpointRepository
+                .findByJobNameAndBusinessDate(OrderCompletionService.ORDER_COMPLETION_JOB, monday)
+                .orElseThrow();
+        assertThat(checkpoint.getRowsCompleted()).isEqualTo(5);
+        assertThat(checkpoint.getChunksCompleted()).isEqualTo(3);
+        assertThat(repository.findAll()).allMatch(order -> order.getStatus() == OrderStatus.COMPLETED);
+    }
+
+    @Test
+    void completePaidOrders_ResumesAfterExistingCheckpoint() {
+
+        for (int i = 0; i < 4; i++) {
+            repository.save(createOrder(OrderStatus.PAID, DayOfWeek.MONDAY));
+        }
+
+        List<UUID> orderedIds = repository.findPaidOrderIdsForDayAfter(
+                DayOfWeek.MONDAY, OrderStatus.PAID, OrderCompletionService.completionInstant(monday),
+                new UUID(0L, 0L), Limit.of(4));
+
+        checkpointRepository.save(CompletionCheckpoint.builder()
+                .jobName(OrderCompletionService.ORDER_COMPLETION_JOB)
+                .businessDate(monday)
+                .lastOrderId(orderedIds.get(1))
+                .rowsCompleted(2)
+                .chunksCompleted(1)
+                .build());
+
+        CompletionRunStats stats = completionService.completePaidOrders(monday, Instant.now());
+
+        assertThat(stats.getRowsCompleted()).isEqualTo(2);
+        assertThat(repository.findById(orderedIds.get(0)).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(repository.findById(orderedIds.get(1)).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(repository.findById(orderedIds.get(2)).orElseThrow().getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(repository.findById(orderedIds.get(3)).orElseThrow().getStatus()).isEqualTo(OrderStatus.COMPLETED);
+
+        CompletionCheckpoint checkpoint = checkpointRepository
+                .findByJobNameAndBusinessDate(OrderCompletionService.ORDER_COMPLETION_JOB, monday)
+                .orElseThrow();
+        assertThat(checkpoint.getRowsCompleted()).isEqualTo(4);
+        assertThat(checkpoint.getLastOrderId()).isEqualTo(orderedIds.get(3));
+    }
+
+    @Test
+    void completePaidOrders_PastBusinessDate_LeavesOrdersPlacedForFollowingWeek() {
+
+        LocalDate lastMonday = LocalDate.now().minusDays(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LunchOrder nextWeekOrder = repository.save(createOrder(OrderStatus.PAID, DayOfWeek.MONDAY));
+
+        CompletionRunStats stats = completionService.completePaidOrders(lastMonday, Instant.now());
+
+        assertThat(stats.getRowsCompleted()).isZero();
+        assertThat(repository.findById(nextWeekOrder.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    void completePaidOrders_NoMatchingOrders_ReturnsZero() {
+
+        repository.save(createOrder(OrderStatus.COMPLETED, DayOfWeek.MONDAY));
+
+        CompletionRunStats stats = completionService.completePaidOrders(monday, Instant.now());
+
+        assertThat(stats.getRowsCompleted()).isZero();
+        assertThat(stats.getChunks()).isZero();
+    }
+
+    private LunchOrder createOrder(OrderStatus status, DayOfWeek dayOfWeek) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(dayOfWeek)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(status)
+                .build();
+    }
+}
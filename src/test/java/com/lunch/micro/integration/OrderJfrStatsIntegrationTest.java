@@ -0,0 +1,158 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.jfr.CompletionBatchEvent;
+import com.lunch.micro.jfr.OrderJfrStats;
+import com.lunch.micro.jfr.OrderOperationEvent;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "order.jfr.stream.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderJfrStatsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private OrderJfrStats orderJfrStats;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void orderOperationsAndCompletionBatches_AreStreamedIntoRollingStats() throws Exception {
+
+        UUID childId = UUID.randomUUID();
+        LunchOrder order = lunchOrderService.createAndPayOrder(LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .build());
+
+        // A miss that queries the database, then a hit that does not.
+        lunchOrderService.getByChild(childId);
+        lunchOrderService.getByChild(childId);
+        lunchOrderService.cancelOrder(order.getId(), childId);
+
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        for (int i = 0; i < 3; i++) {
+            orderRepository.save(paidOrder());
+        }
+        completionService.completePaidOrders(monday, Instant.now());
+
+        Map<String, OrderJfrStats.Stats> stats = awaitStats();
+
+        OrderJfrStats.Stats created = stats.get(OrderOperationEvent.CREATE);
+        assertThat(created.getCount()).isEqualTo(1);
+        assertThat(created.getRows()).isEqualTo(1);
+        assertThat(created.getAvgDbMillis()).isPositive().isLessThanOrEqualTo(created.getAvgMillis());
+
+        OrderJfrStats.Stats reads = stats.get(OrderOperationEvent.GET_BY_CHILD);
+        assertThat(reads.getCount()).isEqualTo(2);
+        assertThat(reads.getRows()).isEqualTo(2);
+        assertThat(reads.getDbPercent()).isPositive().isLessThan(100);
+
+        OrderJfrStats.Stats cancelled = stats.get(OrderOperationEvent.CANCEL);
+        assertThat(cancelled.getCount()).isEqualTo(1);
+        assertThat(cancelled.getRows()).isEqualTo(1);
+
+        OrderJfrStats.Stats batches = stats.get(CompletionBatchEvent.OPERATION);
+        assertThat(batches.getCount()).isEqualTo(1);
+        assertThat(batches.getRows()).isEqualTo(3);
+        assertThat(batches.getMaxAt()).isNotNull();
+
+        mockMvc.perform(get("/api/v1/admin/jfr/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.createAndPayOrder.count").value(1))
+                .andExpect(jsonPath("$.getByChild.count").value(2))
+                .andExpect(jsonPath("$.cancelOrder.rows").value(1))
+                .andExpect(jsonPath("$.completionBatch.rows").value(3))
+                .andExpect(jsonPath("$.completionBatch.windowSeconds").value(60));
+    }
+
+    // Events reach the stream when the recording is flushed, about once a second.
+    private Map<String, OrderJfrStats.Stats> awaitStats() throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Map<String, OrderJfrStats.Stats> stats = orderJfrStats.stats();
+        while (!complete(stats) && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            stats = orderJfrStats.stats();
+        }
+        return stats;
+    }
+
+    private static boolean complete(Map<String, OrderJfrStats.Stats> stats) {
+        return stats.containsKey(OrderOperationEvent.CREATE) && stats.containsKey(OrderOperationEvent.CANCEL)
+                && stats.containsKey(CompletionBatchEvent.OPERATION)
+                && stats.containsKey(OrderOperationEvent.GET_BY_CHILD)
+                && stats.get(OrderOperationEvent.GET_BY_CHILD).getCount() == 2;
+    }
+
+    private LunchOrder paidOrder() {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build();
+    }
+}
@@ -0,0 +1,428 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.UuidV7Generator;
+import com.lunch.micro.outbox.OrderEventSink;
+import com.lunch.micro.outbox.OrderOutboxFeed;
+import com.lunch.micro.outbox.OrderOutboxRelay;
+import com.lunch.micro.repository.CompletionCheckpointRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.scheduling.LeaseMetrics;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import com.lunch.micro.web.dto.OrderEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "order.outbox.relay.batch-size=50")
+@ActiveProfiles("test")
+class OrderOutboxIntegrationTest {
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private OrderCompletionService completionService;
+
+    @Autowired
+    private OrderOutboxRelay relay;
+
+    @Autowired
+    private OrderOutboxFeed feed;
+
+    @Autowired
+    private OrderEventBus eventBus;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private CompletionCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LeaseMetrics leaseMetrics;
+
+    private final List<OrderEvent> busEvents = new CopyOnWriteArrayList<>();
+    private DayOfWeek futureDay;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        eventBus.subscribe(busEvents::addAll);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        sink.reset();
+    }
+
+    @Test
+    void lifecycleChanges_AreDeliveredInOrder() {
+
+        UUID childId = UUID.randomUUID();
+        LunchOrder cancelled = lunchOrderService.createAndPayOrder(request(childId));
+        LunchOrder completed = lunchOrderService.createAndPayOrder(request(childId));
+
+        lunchOrderService.cancelOrder(cancelled.getId(), childId);
+        lunchOrderService.updateOrderToCompleted(completed.getId());
+
+        assertThat(relay.drain()).isEqualTo(4);
+
+        assertThat(sink.delivered()).extracting(OrderEvent::getEventType, OrderEvent::getOrderId).containsExactly(
+                tuple(OrderEventType.CREATED, cancelled.getId()),
+                tuple(OrderEventType.CREATED, completed.getId()),
+                tuple(OrderEventType.CANCELLED, cancelled.getId()),
+                tuple(OrderEventType.COMPLETED, completed.getId()));
+        assertThat(sink.delivered()).allSatisfy(event -> {
+            assertThat(event.getChildId()).isEqualTo(childId);
+            assertThat(event.getTotal()).isEqualByComparingTo("2.50");
+        });
+        assertThat(outboxRepository.countUnpublished()).isZero();
+    }
+
+    @Test
+    void eventWithAnIdFromASlowerClock_IsStillDeliveredInCommitOrder() {
+
+        LunchOrder order = lunchOrderService.createAndPayOrder(request(UUID.randomUUID()));
+        // Another node, its clock a minute behind, cancels the order.
+        UUID behind = UuidV7Generator.generate(System.currentTimeMillis() - 60_000, new Random());
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.appendForOrder(behind, OrderEventType.CANCELLED, order.getId(), Instant.now()));
+
+        assertThat(relay.drain()).isEqualTo(2);
+
+        assertThat(sink.delivered()).extracting(OrderEvent::getEventType)
+                .containsExactly(OrderEventType.CREATED, OrderEventType.CANCELLED);
+    }
+
+    @Test
+    void relay_TakesTheLeaseOnlyWhenThereIsSomethingToDeliver() {
+
+        long acquired = relayLeasesAcquired();
+        relay.relay();
+        assertThat(relayLeasesAcquired()).isEqualTo(acquired);
+
+        lunchOrderService.createAndPayOrder(request(UUID.randomUUID()));
+        relay.relay();
+
+        assertThat(relayLeasesAcquired()).isEqualTo(acquired + 1);
+        assertThat(outboxRepository.countUnpublished()).isZero();
+    }
+
+    @Test
+    void eventCommittingAfterAHigherSeq_IsDeliveredOnTheNextRun() throws Exception {
+
+        UUID slowChild = UUID.randomUUID();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                LunchOrder order = orderRepository.saveAndFlush(paidOrder(futureDay, slowChild));
+                outboxRepository.appendForOrder(UuidV7Generator.generate(), OrderEventType.CREATED,
+                        order.getId(), Instant.now());
+                inserted.countDown();
+                await(release);
+            }));
+            assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            LunchOrder fast = lunchOrderService.createAndPayOrder(request(UUID.randomUUID()));
+            assertThat(relay.drain()).isEqualTo(1);
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            assertThat(relay.drain()).isEqualTo(1);
+
+            assertThat(sink.delivered()).extracting(OrderEvent::getOrderId, OrderEvent::getChildId)
+                    .first().isEqualTo(tuple(fast.getId(), fast.getChildId()));
+            assertThat(sink.delivered()).last().extracting(OrderEvent::getChildId).isEqualTo(slowChild);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void feed_PublishesCommittedChangesToTheEventBus() {
+
+        UUID childId = UUID.randomUUID();
+        transactionTemplate.executeWithoutResult(status -> {
+            lunchOrderService.createAndPayOrder(request(childId));
+            status.setRollbackOnly();
+        });
+        LunchOrder order = lunchOrderService.createAndPayOrder(request(childId));
+        lunchOrderService.cancelOrder(order.getId(), childId);
+
+        feed.poll();
+
+        assertThat(onBus(childId)).extracting(OrderEvent::getEventType, OrderEvent::getOrderId).containsExactly(
+                tuple(OrderEventType.CREATED, order.getId()),
+                tuple(OrderEventType.CANCELLED, order.getId()));
+    }
+
+    @Test
+    void feed_PublishesAnEventThatCommitsAfterAHigherSeq() throws Exception {
+
+        UUID slowChild = UUID.randomUUID();
+        UUID fastChild = UUID.randomUUID();
+        long lateBefore = feed.stats().getPublishedLateCount();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Takes its seq now and commits only after a later insert has been published.
+            Future<?> slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                LunchOrder order = orderRepository.saveAndFlush(paidOrder(futureDay, slowChild));
+                outboxRepository.appendForOrder(UuidV7Generator.generate(), OrderEventType.CREATED,
+                        order.getId(), Instant.now());
+                inserted.countDown();
+                await(release);
+            }));
+            assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            lunchOrderService.createAndPayOrder(request(fastChild));
+            feed.poll();
+            assertThat(onBus(fastChild)).hasSize(1);
+            assertThat(onBus(slowChild)).isEmpty();
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+            feed.poll();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertThat(onBus(slowChild)).extracting(OrderEvent::getEventType).containsExactly(OrderEventType.CREATED);
+        assertThat(feed.stats().getPublishedLateCount()).isGreaterThan(lateBefore);
+    }
+
+    @Test
+    void rolledBackChange_LeavesNoEvent() {
+
+        transactionTemplate.executeWithoutResult(status -> {
+            lunchOrderService.createAndPayOrder(request(UUID.randomUUID()));
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxRepository.count()).isZero();
+        assertThat(relay.drain()).isZero();
+    }
+
+    @Test
+    void completionRun_AppendsAnEventPerCompletedOrder() {
+
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        for (int i = 0; i < 5; i++) {
+            orderRepository.save(paidOrder(DayOfWeek.MONDAY));
+        }
+        orderRepository.save(paidOrder(DayOfWeek.TUESDAY));
+
+        completionService.completePaidOrders(monday, Instant.now());
+        relay.drain();
+
+        assertThat(sink.delivered()).hasSize(5)
+                .allSatisfy(event -> {
+                    assertThat(event.getEventType()).isEqualTo(OrderEventType.COMPLETED);
+                    assertThat(event.getDayOfWeek()).isEqualTo(DayOfWeek.MONDAY);
+                });
+    }
+
+    @Test
+    void failedDelivery_IsOfferedAgainBeforeLaterEvents() {
+
+        UUID childId = UUID.randomUUID();
+        LunchOrder order = lunchOrderService.createAndPayOrder(request(childId));
+
+        sink.failNext();
+        assertThat(relay.drain()).isZero();
+        assertThat(outboxRepository.countUnpublished()).isEqualTo(1);
+
+        lunchOrderService.cancelOrder(order.getId(), childId);
+        assertThat(relay.drain()).isEqualTo(2);
+
+        assertThat(sink.delivered()).extracting(OrderEvent::getEventType)
+                .containsExactly(OrderEventType.CREATED, OrderEventType.CANCELLED);
+        assertThat(relay.stats().getDeliveryFailures()).isPositive();
+    }
+
+    @Test
+    void manyEvents_AreDrainedInBatchesKeepingEachOrdersEventsInOrder() {
+
+        List<UUID> children = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<LunchOrderRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            requests.add(request(children.get(i % children.size())));
+        }
+        lunchOrderService.createAndPayOrders(requests);
+
+        List<LunchOrder> orders = orderRepository.findAll();
+        for (int i = 0; i < orders.size(); i += 2) {
+            lunchOrderService.cancelOrder(orders.get(i).getId(), orders.get(i).getChildId());
+        }
+
+        long start = System.nanoTime();
+        int delivered = relay.drain();
+        OrderOutboxRelay.Stats stats = relay.stats();
+
+        System.out.printf("[outbox] %d events in batches of %s in %d ms: %.0f events/s, max lag %d ms%n",
+                delivered, sink.batchSizes(), (System.nanoTime() - start) / 1_000_000,
+                stats.getLastRunEventsPerSecond(), stats.getMaxLagMillis());
+
+        assertThat(delivered).isEqualTo(180);
+        assertThat(sink.batchSizes()).containsExactly(50, 50, 50, 30);
+        assertThat(stats.getPendingCount()).isZero();
+
+        // An order's CANCELLED never overtakes its CREATED.
+        Map<UUID, List<OrderEventType>> byOrder = sink.delivered().stream()
+                .collect(Collectors.groupingBy(OrderEvent::getOrderId,
+                        Collectors.mapping(OrderEvent::getEventType, Collectors.toList())));
+        byOrder.values().forEach(types -> assertThat(types).first().isEqualTo(OrderEventType.CREATED));
+    }
+
+    private long relayLeasesAcquired() {
+        LeaseMetrics.LeaseStats stats = leaseMetrics.snapshot().get(OrderOutboxRelay.ORDER_OUTBOX_RELAY_JOB);
+        return stats == null ? 0 : stats.getAcquired();
+    }
+
+    private LunchOrderRequest request(UUID childId) {
+        return LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(futureDay)
+                .build();
+    }
+
+    private List<OrderEvent> onBus(UUID childId) {
+        return busEvents.stream().filter(event -> event.getChildId().equals(childId)).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LunchOrder paidOrder(DayOfWeek day) {
+        return paidOrder(day, UUID.randomUUID());
+    }
+
+    private LunchOrder paidOrder(DayOfWeek day, UUID childId) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(day)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build();
+    }
+
+    // In-memory stand-in for a downstream consumer; failNext() rejects the next batch.
+    static class RecordingSink implements OrderEventSink {
+
+        private final List<OrderEvent> delivered = new CopyOnWriteArrayList<>();
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean failNext = new AtomicBoolean();
+
+        @Override
+        public void publish(List<OrderEvent> events) {
+            if (failNext.compareAndSet(true, false)) {
+                throw new IllegalStateException("consumer unavailable");
+            }
+            delivered.addAll(events);
+            batchSizes.add(events.size());
+        }
+
+        void failNext() {
+            failNext.set(true);
+        }
+
+        List<OrderEvent> delivered() {
+            return delivered;
+        }
+
+        List<Integer> batchSizes() {
+            return batchSizes;
+        }
+
+        void reset() {
+            delivered.clear();
+            batchSizes.clear();
+            failNext.set(false);
+        }
+    }
+
+    @TestConfiguration
+    static class SinkConfiguration {
+
+        @Bean
+        @Primary
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.stream.OrderStatusStream;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderStreamIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private OrderStatusStream orderStatusStream;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<CompletableFuture<?>> streams = new ArrayList<>();
+    private DayOfWeek futureDay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        futureDay = LocalDate.now().getDayOfWeek().plus(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streams.forEach(stream -> stream.cancel(true));
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void childStream_ReceivesCommittedChangesOnly() throws Exception {
+
+        UUID childId = UUID.randomUUID();
+        BlockingQueue<String> lines = open("/api/v1/children/lunches/stream?childId=" + childId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            lunchOrderService.createAndPayOrder(request(childId, UUID.randomUUID()));
+            status.setRollbackOnly();
+        });
+        LunchOrder order = lunchOrderService.createAndPayOrder(request(childId, UUID.randomUUID()));
+        lunchOrderService.cancelOrder(order.getId(), childId);
+
+        assertThat(nextEvent(lines)).isEqualTo("CREATED");
+        assertThat(nextData(lines)).contains("\"orderId\":\"" + order.getId() + "\"");
+        assertThat(nextEvent(lines)).isEqualTo("CANCELLED");
+        assertThat(nextData(lines)).contains("\"orderId\":\"" + order.getId() + "\"");
+    }
+
+    @Test
+    void parentStream_FollowsEveryChildOfTheParent() throws Exception {
+
+        UUID parentId = UUID.randomUUID();
+        UUID firstChild = UUID.randomUUID();
+        UUID secondChild = UUID.randomUUID();
+        LunchOrder existing = lunchOrderService.createAndPayOrder(request(firstChild, parentId));
+
+        BlockingQueue<String> lines = open("/api/v1/parents/" + parentId + "/lunches/stream");
+
+        lunchOrderService.cancelOrder(existing.getId(), firstChild);
+        LunchOrder created = lunchOrderService.createAndPayOrder(request(secondChild, parentId));
+        lunchOrderService.updateOrderToCompleted(created.getId());
+        lunchOrderService.createAndPayOrder(request(UUID.randomUUID(), UUID.randomUUID()));
+
+        assertThat(nextEvent(lines)).isEqualTo("CANCELLED");
+        assertThat(nextData(lines)).contains(firstChild.toString());
+        assertThat(nextEvent(lines)).isEqualTo("CREATED");
+        assertThat(nextData(lines)).contains(secondChild.toString());
+        assertThat(nextEvent(lines)).isEqualTo("COMPLETED");
+        assertThat(nextData(lines)).contains(secondChild.toString());
+        assertThat(lines.poll(500, TimeUnit.MILLISECONDS)).satisfiesAnyOf(
+                line -> assertThat(line).isNull(),
+                line -> assertThat(line).isEmpty());
+    }
+
+    @Test
+    void tooManyChildren_IsABadRequest() throws Exception {
+
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < 21; i++) {
+            query.append(i == 0 ? "?" : "&").append("childId=").append(UUID.randomUUID());
+        }
+
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(url("/api/v1/children/lunches/stream" + query))).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    // Opens the stream and returns its lines as they arrive, once the subscription is registered.
+    private BlockingQueue<String> open(String path) throws Exception {
+
+        int subscribersBefore = orderStatusStream.stats().getSubscribers();
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+        CompletableFuture<HttpResponse<Stream<String>>> response = httpClient.sendAsync(
+                HttpRequest.newBuilder(URI.create(url(path))).header("Accept", "text/event-stream").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        streams.add(response.thenAcceptAsync(stream -> stream.body().forEach(lines::add)));
+
+        assertThat(response.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (orderStatusStream.stats().getSubscribers() <= subscribersBefore && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return lines;
+    }
+
+    private static String nextEvent(BlockingQueue<String> lines) throws InterruptedException {
+        return nextWithPrefix(lines, "event:");
+    }
+
+    private static String nextData(BlockingQueue<String> lines) throws InterruptedException {
+        return nextWithPrefix(lines, "data:");
+    }
+
+    // Skips ids, blank separators and heartbeat comments.
+    private static String nextWithPrefix(BlockingQueue<String> lines, String prefix) throws InterruptedException {
+
+        while (true) {
+            String line = lines.poll(5, TimeUnit.SECONDS);
+            assertThat(line).as("stream line starting with " + prefix).isNotNull();
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length());
+            }
+        }
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private LunchOrderRequest request(UUID childId, UUID parentId) {
+        return LunchOrderRequest.builder()
+                .parentId(parentId)
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(futureDay)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.service.LunchOrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 10k concurrent cancel/complete operations: every order is cancelled by the parent while updateOrderToCompleted
+// (the entity read-modify-write guarded by @Version) completes it. Without the version check a completion that read
+// the order before the cancel committed would overwrite it, and the parent would have been told it was cancelled.
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderVersionConflictStressIntegrationTest {
+
+    private static final int ORDERS = Integer.getInteger("stress.orders", 5_000);
+
+    @Autowired
+    private LunchOrderRepository repository;
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ExecutorService executor;
+    private UUID childId;
+    private DayOfWeek futureDay;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        executor = Executors.newFixedThreadPool(32);
+        childId = UUID.randomUUID();
+        futureDay = LocalDate.now().getDayOfWeek().plus(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        repository.deleteAll();
+    }
+
+    @Test
+    void concurrentCancelAndComplete_NoLostUpdates() throws Exception {
+
+        List<LunchOrder> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(paidOrder());
+        }
+        List<UUID> orderIds = repository.saveAll(orders).stream().map(LunchOrder::getId).toList();
+
+        Map<UUID, String> cancelOutcome = new ConcurrentHashMap<>();
+        List<Runnable> operations = new ArrayList<>(ORDERS * 2);
+
+        for (UUID orderId : orderIds) {
+            operations.add(() -> {
+                try {
+                    lunchOrderService.cancelOrder(orderId, childId);
+                    cancelOutcome.put(orderId, "cancelled");
+                } catch (DomainException e) {
+                    cancelOutcome.put(orderId, e.getMessage());
+                }
+            });
+            operations.add(() -> lunchOrderService.updateOrderToCompleted(orderId));
+        }
+        Collections.shuffle(operations);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        long began = System.nanoTime();
+        for (Runnable operation : operations) {
+            futures.add(executor.submit(() -> {
+                await(start);
+                operation.run();
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+
+        int cancelled = 0;
+        int completed = 0;
+        for (LunchOrder order : repository.findAllById(orderIds)) {
+
+            String outcome = cancelOutcome.get(order.getId());
+
+            if (outcome.equals("cancelled")) {
+                assertThat(order.getStatus()).as("order %s was reported cancelled", order.getId())
+                        .isEqualTo(OrderStatus.CANCELLED);
+                assertThat(order.getCompletedOn()).isNull();
+                cancelled++;
+            } else {
+                assertThat(outcome).isEqualTo("Cannot cancel a completed order");
+                assertThat(order.getStatus()).isEqualTo(OrderStatus.COMPLETED);
+                completed++;
+            }
+            assertThat(order.getVersion()).isEqualTo(1L);
+        }
+
+        System.out.printf("[stress] %d operations on %d orders in %d ms: %d cancelled, %d completed%n",
+                operations.size(), ORDERS, elapsedMillis, cancelled, completed);
+
+        assertThat(cancelled + completed).isEqualTo(ORDERS);
+    }
+
+    @Test
+    void uncontendedCancel_IsOneUpdatePlusItsOutboxEvent() {
+
+        UUID orderId = repository.save(paidOrder()).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        try {
+            lunchOrderService.cancelOrder(orderId, childId);
+
+            // Previously findById, refresh and the UPDATE written at flush; now the conditional UPDATE and the
+            // INSERT ... SELECT of its outbox event.
+            System.out.printf("[stress] uncontended cancel: %d statements%n", statistics.getPrepareStatementCount());
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        LunchOrder order = repository.findById(orderId).orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(order.getVersion()).isEqualTo(1L);
+    }
+
+    private LunchOrder paidOrder() {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(childId)
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(futureDay)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
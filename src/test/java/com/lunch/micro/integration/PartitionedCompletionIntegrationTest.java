@@ -0,0 +1,224 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.model.CompletionPartition;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.PartitionStatus;
+import com.lunch.micro.outbox.OrderOutbox;
+import com.lunch.micro.repository.CompletionPartitionRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import com.lunch.micro.service.CompletionRunStats;
+import com.lunch.micro.service.ChildOrdersCache;
+import com.lunch.micro.service.NodeIdentity;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.service.PartitionedCompletionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartitionedCompletionIntegrationTest {
+
+    private static final int PAID_ORDERS = 300;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private CompletionPartitionRepository partitionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChildOrdersCache childOrdersCache;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private SchedulerLeaseService leaseService;
+
+    private LocalDate businessDate;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        partitionRepository.deleteAll();
+        businessDate = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        partitionRepository.deleteAll();
+    }
+
+    @Test
+    void severalNodes_CompleteEveryPaidOrderExactlyOnce() throws Exception {
+
+        List<LunchOrder> orders = new ArrayList<>();
+        for (int i = 0; i < PAID_ORDERS; i++) {
+            orders.add(createOrder(OrderStatus.PAID, DayOfWeek.WEDNESDAY));
+        }
+        orders.add(createOrder(OrderStatus.PAID, DayOfWeek.THURSDAY));
+        orders.add(createOrder(OrderStatus.CANCELLED, DayOfWeek.WEDNESDAY));
+        orderRepository.saveAll(orders);
+
+        PartitionedCompletionService coordinator = node("node-0");
+        List<PartitionedCompletionService> joiners = List.of(node("node-1"), node("node-2"));
+        ExecutorService cluster = Executors.newFixedThreadPool(3);
+
+        try {
+            Instant now = Instant.now();
+            Future<CompletionRunStats> coordinated = cluster.submit(() -> coordinator.completePaidOrders(businessDate, now));
+
+            List<Future<CompletionRunStats>> joined = new ArrayList<>();
+            for (PartitionedCompletionService joiner : joiners) {
+                joined.add(cluster.submit(() -> {
+                    CompletionRunStats stats = joiner.joinOpenPartitions(businessDate, now);
+                    while (!joiner.isFinished(businessDate)) {
+                        stats = joiner.joinOpenPartitions(businessDate, now);
+                    }
+                    return stats;
+                }));
+            }
+
+            CompletionRunStats total = coordinated.get();
+            for (Future<CompletionRunStats> future : joined) {
+                future.get();
+            }
+
+            assertThat(total.getRowsCompleted()).isEqualTo(PAID_ORDERS);
+        } finally {
+            cluster.shutdownNow();
+        }
+
+        List<CompletionPartition> partitions = partitionRepository
+                .findByJobNameAndBusinessDateOrderByPartitionNo(OrderCompletionService.ORDER_COMPLETION_JOB, businessDate);
+        assertThat(partitions).hasSize(8);
+        assertThat(partitions).allMatch(partition -> partition.getStatus() == PartitionStatus.DONE);
+        assertThat(partitions.stream().mapToLong(CompletionPartition::getRowsCompleted).sum()).isEqualTo(PAID_ORDERS);
+
+        List<LunchOrder> stored = orderRepository.findAll();
+        assertThat(stored.stream().filter(order -> order.getStatus() == OrderStatus.COMPLETED)).hasSize(PAID_ORDERS);
+        assertThat(stored.stream().filter(order -> order.getDayOfWeek() == DayOfWeek.THURSDAY))
+                .allMatch(order -> order.getStatus() == OrderStatus.PAID);
+    }
+
+    @Test
+    void expiredClaimOfDeadNode_IsTakenOverAndResumedFromItsCheckpoint() {
+
+        for (int i = 0; i < 50; i++) {
+            orderRepository.save(createOrder(OrderStatus.PAID, DayOfWeek.WEDNESDAY));
+        }
+
+        List<CompletionPartition> plan = new ArrayList<>();
+        for (int partitionNo = 0; partitionNo < 8; partitionNo++) {
+            plan.add(CompletionPartition.builder()
+                    .jobName(OrderCompletionService.ORDER_COMPLETION_JOB)
+                    .businessDate(businessDate)
+                    .partitionNo(partitionNo)
+                    .bucketFrom(partitionNo * 8)
+                    .bucketTo((partitionNo + 1) * 8)
+                    .status(PartitionStatus.CLAIMED)
+                    .owner("dead-node")
+                    .attempts(1)
+                    .claimedUntil(Instant.now().minusSeconds(60))
+                    .build());
+        }
+        partitionRepository.saveAll(plan);
+
+        CompletionRunStats stats = node("node-0").completePaidOrders(businessDate, Instant.now());
+
+        assertThat(stats.getRowsCompleted()).isEqualTo(50);
+        assertThat(partitionRepository.findAll())
+                .allMatch(partition -> partition.getStatus() == PartitionStatus.DONE)
+                .allMatch(partition -> partition.getOwner().equals("node-0"))
+                .allMatch(partition -> partition.getAttempts() == 2);
+    }
+
+    @Test
+    void coordinatorWaitingOnAnotherNode_KeepsItsLeaseBeyondTheLeaseDuration() throws Exception {
+
+        for (int i = 0; i < 20; i++) {
+            orderRepository.save(createOrder(OrderStatus.PAID, DayOfWeek.WEDNESDAY));
+        }
+
+        // One partition is held by a node that stops working on it; its claim runs out after 3 s.
+        List<CompletionPartition> plan = new ArrayList<>();
+        for (int partitionNo = 0; partitionNo < 8; partitionNo++) {
+            plan.add(CompletionPartition.builder()
+                    .jobName(OrderCompletionService.ORDER_COMPLETION_JOB)
+                    .businessDate(businessDate)
+                    .partitionNo(partitionNo)
+                    .bucketFrom(partitionNo * 8)
+                    .bucketTo((partitionNo + 1) * 8)
+                    .status(partitionNo == 0 ? PartitionStatus.CLAIMED : PartitionStatus.PENDING)
+                    .owner(partitionNo == 0 ? "stalled-node" : null)
+                    .attempts(partitionNo == 0 ? 1 : 0)
+                    .claimedUntil(partitionNo == 0 ? Instant.now().plusSeconds(3) : null)
+                    .build());
+        }
+        partitionRepository.saveAll(plan);
+
+        String leaseName = "partitioned-completion-test";
+        ExecutorService coordinatorThread = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<CompletionRunStats>> coordinated = coordinatorThread.submit(() ->
+                    leaseService.runWithLease(leaseName, Duration.ofSeconds(1),
+                            () -> node("node-0").completePaidOrders(businessDate, Instant.now())));
+
+            Thread.sleep(2000);
+            assertThat(leaseService.tryAcquire(leaseName, Duration.ofSeconds(1))).isEmpty();
+
+            assertThat(coordinated.get(30, TimeUnit.SECONDS))
+                    .hasValueSatisfying(stats -> assertThat(stats.getRowsCompleted()).isEqualTo(20));
+        } finally {
+            coordinatorThread.shutdownNow();
+        }
+    }
+
+    private PartitionedCompletionService node(String nodeId) {
+        return new PartitionedCompletionService(orderRepository, partitionRepository, new NodeIdentity(nodeId), leaseService,
+                transactionManager, childOrdersCache, orderOutbox, 10, 8, 2, 60);
+    }
+
+    private LunchOrder createOrder(OrderStatus status, DayOfWeek dayOfWeek) {
+        return LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(dayOfWeek)
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(status)
+                .build();
+    }
+}
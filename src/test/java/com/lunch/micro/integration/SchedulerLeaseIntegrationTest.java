@@ -0,0 +1,181 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.exception.LeaseLostException;
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.repository.JobRunRepository;
+import com.lunch.micro.repository.SchedulerLeaseRepository;
+import com.lunch.micro.scheduling.Lease;
+import com.lunch.micro.scheduling.LeaseMetrics;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
+import com.lunch.micro.service.NodeIdentity;
+import com.lunch.micro.service.OrderCompletionService;
+import com.lunch.micro.service.OrderStatusUpdateService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SchedulerLeaseIntegrationTest {
+
+    private static final String LEASE = "test-lease";
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LeaseMetrics leaseMetrics;
+
+    @Autowired
+    private OrderStatusUpdateService orderStatusUpdateService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        leaseRepository.deleteAll();
+        jobRunRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leaseRepository.deleteAll();
+        jobRunRepository.deleteAll();
+    }
+
+    @Test
+    void tryAcquire_HeldByAnotherNode_IsRejectedUntilReleased() {
+
+        SchedulerLeaseService nodeA = node("node-a");
+        SchedulerLeaseService nodeB = node("node-b");
+
+        Lease leaseA = nodeA.tryAcquire(LEASE, Duration.ofMinutes(5)).orElseThrow();
+
+        assertThat(nodeB.tryAcquire(LEASE, Duration.ofMinutes(5))).isEmpty();
+
+        nodeA.release(leaseA);
+
+        Lease leaseB = nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)).orElseThrow();
+        assertThat(leaseB.fencingToken()).isGreaterThan(leaseA.fencingToken());
+        assertThat(leaseB.owner()).startsWith("node-b:");
+    }
+
+    @Test
+    void tryAcquire_HeldByAnotherThreadOfTheSameNode_IsRejectedAndHolderKeepsIt() throws Exception {
+
+        SchedulerLeaseService node = node("node-a");
+
+        Lease catchUp = node.tryAcquire(LEASE, Duration.ofMinutes(5)).orElseThrow();
+
+        ExecutorService scheduler = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(scheduler.submit(() -> node.tryAcquire(LEASE, Duration.ofMinutes(5))).get()).isEmpty();
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> node.renew(catchUp));
+        assertThat(leaseRepository.findById(LEASE).orElseThrow().getFencingToken()).isEqualTo(catchUp.fencingToken());
+    }
+
+    @Test
+    void tryAcquire_ExpiredLease_IsTakenOverAndOldHolderIsFenced() throws Exception {
+
+        SchedulerLeaseService nodeA = node("node-a");
+        SchedulerLeaseService nodeB = node("node-b");
+
+        Lease leaseA = nodeA.tryAcquire(LEASE, Duration.ofMillis(50)).orElseThrow();
+        Thread.sleep(100);
+
+        Lease leaseB = nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)).orElseThrow();
+
+        assertThat(leaseB.fencingToken()).isEqualTo(leaseA.fencingToken() + 1);
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> nodeA.renew(leaseA)))
+                .isInstanceOf(LeaseLostException.class);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> nodeB.renew(leaseB));
+    }
+
+    @Test
+    void tryAcquire_ConcurrentNodes_ExactlyOneAcquires() throws Exception {
+
+        int nodes = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Lease>>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < nodes; i++) {
+                SchedulerLeaseService node = node("node-" + i);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return node.tryAcquire(LEASE, Duration.ofMinutes(5));
+                }));
+            }
+            start.countDown();
+
+            int acquired = 0;
+            for (Future<Optional<Lease>> result : results) {
+                if (result.get().isPresent()) {
+                    acquired++;
+                }
+            }
+            assertThat(acquired).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void clusterSingletonJob_LeaseHeldElsewhere_SkipsCompletion() {
+
+        SchedulerLeaseService otherNode = node("other-node");
+        Lease foreignLease = otherNode.tryAcquire(OrderCompletionService.ORDER_COMPLETION_JOB, Duration.ofMinutes(5)).orElseThrow();
+
+        orderStatusUpdateService.updateOrderStatusesCron();
+
+        assertThat(jobRunRepository.findByJobNameAndBusinessDate(OrderCompletionService.ORDER_COMPLETION_JOB, LocalDate.now())).isEmpty();
+
+        otherNode.release(foreignLease);
+
+        orderStatusUpdateService.updateOrderStatusesCron();
+
+        JobRun run = jobRunRepository.findByJobNameAndBusinessDate(OrderCompletionService.ORDER_COMPLETION_JOB, LocalDate.now()).orElseThrow();
+        assertThat(run.getFencingToken()).isEqualTo(foreignLease.fencingToken() + 1);
+        assertThat(leaseMetrics.snapshot().get(OrderCompletionService.ORDER_COMPLETION_JOB).getContended()).isPositive();
+    }
+
+    private SchedulerLeaseService node(String nodeId) {
+        SchedulerLeaseService node = new SchedulerLeaseService(leaseRepository, new NodeIdentity(nodeId), leaseMetrics, transactionManager);
+        ReflectionTestUtils.setField(node, "entityManager", entityManager);
+        return node;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.dataset.SyntheticOrderGenerator;
+import com.lunch.micro.model.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SyntheticOrderGeneratorIntegrationTest {
+
+    private static final int ROWS = 20_000;
+    private static final LocalDate END_DATE = LocalDate.of(2026, 3, 4);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void clean() {
+        jdbcTemplate.execute("DELETE FROM lunch_orders");
+    }
+
+    @Test
+    void generatesTheRequestedRowsWithTheConfiguredShape() {
+
+        SyntheticOrderGenerator.Stats stats = generator(42L, 1).generate();
+
+        System.out.printf("[dataset] %d rows in %d ms (%.0f rows/s), %d statements%n",
+                stats.getRows(), stats.getElapsedMillis(), stats.getRowsPerSecond(), stats.getStatements());
+        assertThat(stats.getRows()).isEqualTo(ROWS);
+        assertThat(count("SELECT COUNT(*) FROM lunch_orders")).isEqualTo(ROWS);
+        assertThat(stats.getStatements()).isEqualTo(ROWS / 500);
+
+        // Past orders are COMPLETED or CANCELLED, at about the cancel rate; the week from END_DATE is PAID.
+        assertThat(count("SELECT COUNT(*) FROM lunch_orders WHERE status = " + OrderStatus.CANCELLED.getCode()))
+                .isEqualTo(stats.getCancelled());
+        assertThat((double) stats.getCancelled() / (stats.getCancelled() + stats.getCompleted())).isCloseTo(0.05, within(0.01));
+        assertThat(stats.getPaid()).isPositive();
+        assertThat(count("SELECT COUNT(*) FROM lunch_orders WHERE status = " + OrderStatus.COMPLETED.getCode()
+                + " AND completed_on IS NULL")).isZero();
+
+        // Multi-year histories: the longest runs to hundreds of school days.
+        assertThat(count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM lunch_orders GROUP BY child_id)")).isGreaterThan(200);
+        assertThat(stats.getParents()).isLessThan(stats.getChildren());
+
+        // Zipf popularity with skew 1.5 in the one school: about 57% of orders for the favourite, 5% for the least liked.
+        List<Long> byMeal = jdbcTemplate.queryForList(
+                "SELECT COUNT(*) c FROM lunch_orders GROUP BY meal ORDER BY c DESC", Long.class);
+        assertThat(byMeal).hasSize(5);
+        assertThat(byMeal.get(0)).isGreaterThan(ROWS / 2);
+        assertThat(byMeal.get(4)).isLessThan(byMeal.get(0) / 5);
+    }
+
+    @Test
+    void sameSeed_GivesTheSameRows() {
+
+        generator(7L, 20).generate();
+        List<UUID> first = ids();
+        clean();
+
+        generator(7L, 20).generate();
+        List<UUID> second = ids();
+        clean();
+
+        generator(8L, 20).generate();
+        List<UUID> otherSeed = ids();
+
+        assertThat(first).hasSize(ROWS).isEqualTo(second);
+        assertThat(otherSeed).doesNotContainAnyElementsOf(first);
+    }
+
+    private SyntheticOrderGenerator generator(long seed, int schools) {
+        return new SyntheticOrderGenerator(jdbcTemplate, SyntheticOrderGenerator.Settings.builder()
+                .rows(ROWS)
+                .seed(seed)
+                .schools(schools)
+                .childrenPerSchool(50)
+                .years(3)
+                .endDate(END_DATE)
+                .orderRate(0.7)
+                .cancelRate(0.05)
+                .mealSkew(1.5)
+                .maxChildrenPerParent(3)
+                .rowsPerStatement(500)
+                .writerThreads(4)
+                .truncate(false)
+                .build());
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private List<UUID> ids() {
+        return jdbcTemplate.queryForList("SELECT id FROM lunch_orders ORDER BY id", UUID.class);
+    }
+}
@@ -0,0 +1,239 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.exception.WalletUnavailableException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.wallet.StubWalletService;
+import com.lunch.micro.wallet.WalletDebitBatcher;
+import com.lunch.micro.web.dto.LunchOrderBatchItemResult;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "wallet.mode=debit",
+        "wallet.debit.batch-window-ms=50",
+        "wallet.bulkhead.max-concurrent-calls=2",
+        "wallet.bulkhead.queue-capacity=2",
+        "wallet.circuit-breaker.sliding-window-size=10",
+        "wallet.circuit-breaker.open-ms=500",
+        "spring.cloud.openfeign.client.config.wallet.read-timeout=300"
+})
+@ActiveProfiles("test")
+class WalletDebitIntegrationTest {
+
+    private static final StubWalletService wallet = StubWalletService.start();
+
+    @DynamicPropertySource
+    static void walletUrl(DynamicPropertyRegistry registry) {
+        registry.add("wallet.url", wallet::url);
+    }
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private WalletDebitBatcher debitBatcher;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(32);
+
+    @BeforeEach
+    void setUp() {
+        wallet.reset();
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @AfterAll
+    static void stopWallet() {
+        wallet.stop();
+    }
+
+    @Test
+    void concurrentOrdersOnOneWallet_ShareOneDebitCall() throws Exception {
+
+        UUID walletId = UUID.randomUUID();
+        List<Future<LunchOrder>> orders = submitAll(20, i -> request(walletId));
+
+        for (Future<LunchOrder> order : orders) {
+            assertThat(order.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(OrderStatus.PAID);
+        }
+
+        System.out.printf("[wallet] 20 debits on one wallet took %d calls%n", wallet.debitCalls());
+        assertThat(wallet.debitCalls()).isLessThanOrEqualTo(3);
+        assertThat(wallet.balance(walletId)).isEqualByComparingTo("950.00");
+        assertThat(orderRepository.count()).isEqualTo(20);
+    }
+
+    @Test
+    void debitReference_IsTheOrderId() {
+
+        UUID walletId = UUID.randomUUID();
+
+        LunchOrder order = lunchOrderService.createAndPayOrder(request(walletId));
+
+        assertThat(orderRepository.findById(order.getId())).isPresent();
+        assertThat(wallet.balance(walletId)).isEqualByComparingTo("997.50");
+    }
+
+    @Test
+    void declinedDebit_SavesNoOrder() {
+
+        UUID walletId = UUID.randomUUID();
+        wallet.setBalance(walletId, new BigDecimal("1.00"));
+
+        assertThatThrownBy(() -> lunchOrderService.createAndPayOrder(request(walletId)))
+                .isInstanceOf(DomainException.class)
+                .hasMessageContaining("insufficient funds");
+
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    @Test
+    void batchRequest_ReportsDeclinedItemsAndSavesTheRest() {
+
+        UUID richWallet = UUID.randomUUID();
+        UUID poorWallet = UUID.randomUUID();
+        wallet.setBalance(poorWallet, BigDecimal.ZERO);
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(List.of(
+                request(richWallet), request(poorWallet), request(richWallet)));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(LunchOrderBatchItemResult::isCreated)
+                .containsExactly(true, false, true);
+        assertThat(response.getResults().get(1).getError()).contains("insufficient funds");
+        assertThat(wallet.debitCalls()).isEqualTo(2);
+        assertThat(orderRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void slowWallet_TimesOutWithoutSavingTheOrder() {
+
+        wallet.setLatencyMillis(600);
+
+        assertThatThrownBy(() -> lunchOrderService.createAndPayOrder(request(UUID.randomUUID())))
+                .isInstanceOf(WalletUnavailableException.class);
+
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    @Test
+    void failingWallet_OpensTheCircuitAndRecovers() throws Exception {
+
+        // Earlier calls in this context share the breaker's window, so it may open before the tenth failure.
+        wallet.failNextCalls(Integer.MAX_VALUE);
+        for (int i = 0; i < 10 && !"OPEN".equals(debitBatcher.stats().getCircuitBreakerState()); i++) {
+            assertThatThrownBy(() -> lunchOrderService.createAndPayOrder(request(UUID.randomUUID())))
+                    .isInstanceOf(WalletUnavailableException.class);
+        }
+        assertThat(debitBatcher.stats().getCircuitBreakerState()).isEqualTo("OPEN");
+        wallet.failNextCalls(0);
+
+        // Shed without a call while open.
+        long rejectedBefore = debitBatcher.stats().getRejectedByCircuitBreaker();
+        assertThatThrownBy(() -> lunchOrderService.createAndPayOrder(request(UUID.randomUUID())))
+                .isInstanceOf(WalletUnavailableException.class);
+        assertThat(debitBatcher.stats().getRejectedByCircuitBreaker()).isEqualTo(rejectedBefore + 1);
+
+        Thread.sleep(600);
+        for (int i = 0; i < 3; i++) {
+            assertThat(lunchOrderService.createAndPayOrder(request(UUID.randomUUID())).getStatus())
+                    .isEqualTo(OrderStatus.PAID);
+        }
+        assertThat(debitBatcher.stats().getCircuitBreakerState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void burstAcrossManyWallets_IsCappedByTheBulkhead() throws Exception {
+
+        wallet.setLatencyMillis(150);
+
+        List<Future<LunchOrder>> orders = submitAll(12, i -> request(UUID.randomUUID()));
+
+        int paid = 0;
+        int shed = 0;
+        for (Future<LunchOrder> order : orders) {
+            try {
+                order.get(10, TimeUnit.SECONDS);
+                paid++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(WalletUnavailableException.class);
+                shed++;
+            }
+        }
+
+        assertThat(wallet.maxInFlight()).isLessThanOrEqualTo(2);
+        assertThat(shed).isPositive();
+        assertThat(paid).isPositive();
+        assertThat(orderRepository.count()).isEqualTo(paid);
+    }
+
+    private List<Future<LunchOrder>> submitAll(int count, IntFunction<LunchOrderRequest> requests) {
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LunchOrder>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LunchOrderRequest request = requests.apply(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return lunchOrderService.createAndPayOrder(request);
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    private LunchOrderRequest request(UUID walletId) {
+        return LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(walletId)
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .build();
+    }
+}
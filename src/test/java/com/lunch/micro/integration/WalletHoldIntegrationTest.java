@@ -0,0 +1,293 @@
+package com.lunch.micro.integration;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.WalletHoldLedgerEntry;
+import com.lunch.micro.repository.IdempotencyKeyRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.repository.OrderOutboxRepository;
+import com.lunch.micro.repository.WalletHoldLedgerRepository;
+import com.lunch.micro.service.IdempotentOrderService;
+import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.wallet.StubWalletService;
+import com.lunch.micro.wallet.WalletHolds;
+import com.lunch.micro.web.dto.LunchOrderBatchItemResult;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "wallet.mode=hold",
+        "wallet.hold.amount=25.00",
+        "wallet.hold.refill-below=5.00",
+        "wallet.hold.reconcile-quiet-seconds=0"
+})
+@ActiveProfiles("test")
+class WalletHoldIntegrationTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    private static final StubWalletService wallet = StubWalletService.start();
+
+    @DynamicPropertySource
+    static void walletUrl(DynamicPropertyRegistry registry) {
+        registry.add("wallet.url", wallet::url);
+    }
+
+    @Autowired
+    private LunchOrderService lunchOrderService;
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @Autowired
+    private WalletHolds walletHolds;
+
+    @Autowired
+    private LunchOrderRepository orderRepository;
+
+    @Autowired
+    private OrderOutboxRepository outboxRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private WalletHoldLedgerRepository ledgerRepository;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(32);
+
+    @BeforeEach
+    void setUp() {
+        wallet.reset();
+        outboxRepository.deleteAll();
+        idempotencyKeyRepository.deleteAll();
+        orderRepository.deleteAll();
+        ledgerRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        walletHolds.settle();
+        walletHolds.releaseAll();
+        outboxRepository.deleteAll();
+        idempotencyKeyRepository.deleteAll();
+        orderRepository.deleteAll();
+        ledgerRepository.deleteAll();
+    }
+
+    @AfterAll
+    static void stopWallet() {
+        wallet.stop();
+    }
+
+    @Test
+    void ordersCancelsFailedSettlementsAndDrift_ConvergeWithTheWallet() throws Exception {
+
+        List<UUID> wallets = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LunchOrder>> futures = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            LunchOrderRequest request = request(wallets.get(i % wallets.size()));
+            futures.add(executor.submit(() -> {
+                start.await();
+                return lunchOrderService.createAndPayOrder(request);
+            }));
+        }
+        start.countDown();
+        List<LunchOrder> orders = new ArrayList<>();
+        for (Future<LunchOrder> future : futures) {
+            orders.add(future.get(10, TimeUnit.SECONDS));
+        }
+
+        System.out.printf("[wallet] 80 held payments on 4 wallets took %d hold calls%n", wallet.holdCalls());
+        assertThat(wallet.holdCalls()).isLessThanOrEqualTo(20);
+
+        // The first settlement call fails; its settlements are resent with the same ids.
+        wallet.failNextSettlements(1);
+        walletHolds.settle();
+        assertThat(walletHolds.stats().getSettlementFailures()).isPositive();
+
+        for (int i = 0; i < 8; i++) {
+            LunchOrder order = orders.get(i);
+            lunchOrderService.cancelOrder(order.getId(), order.getChildId());
+        }
+        walletHolds.settle();
+
+        // Drift the wallet cannot know about: an order saved without paying, and a cancel whose refund was lost.
+        orderRepository.save(LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(wallets.get(0))
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(2)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("5.00"))
+                .status(OrderStatus.PAID)
+                .build());
+        LunchOrder lostRefund = orderRepository.findById(orders.get(9).getId()).orElseThrow();
+        lostRefund.setStatus(OrderStatus.CANCELLED);
+        orderRepository.save(lostRefund);
+
+        assertThat(reconcile()).isEqualTo(2);
+        assertThat(reconcile()).isZero();
+        walletHolds.releaseAll();
+
+        for (UUID walletId : wallets) {
+            BigDecimal charged = orderRepository.sumTotalByWalletIdAndStatusIn(walletId,
+                    EnumSet.of(OrderStatus.PAID, OrderStatus.COMPLETED));
+            assertThat(wallet.settled(walletId)).isEqualByComparingTo(charged);
+            assertThat(wallet.held(walletId)).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(wallet.balance(walletId).add(wallet.settled(walletId))).isEqualByComparingTo(INITIAL_BALANCE);
+        }
+        assertThat(walletHolds.stats().getUnsettled()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(walletHolds.stats().getHeldRemaining()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void emptyWallet_DeclinesWithoutSavingTheOrder() {
+
+        UUID walletId = UUID.randomUUID();
+        wallet.setBalance(walletId, new BigDecimal("1.00"));
+
+        assertThatThrownBy(() -> lunchOrderService.createAndPayOrder(request(walletId)))
+                .isInstanceOf(DomainException.class)
+                .hasMessageContaining("insufficient funds");
+
+        assertThat(orderRepository.count()).isZero();
+        walletHolds.releaseAll();
+        assertThat(wallet.balance(walletId)).isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void smallHold_PaysWhatItCoversAndDeclinesTheRest() {
+
+        UUID walletId = UUID.randomUUID();
+        wallet.setBalance(walletId, new BigDecimal("6.00"));
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(List.of(
+                request(walletId), request(walletId), request(walletId)));
+
+        assertThat(response.getResults()).extracting(LunchOrderBatchItemResult::isCreated)
+                .containsExactly(true, true, false);
+        assertThat(response.getResults().get(2).getError()).contains("insufficient funds");
+
+        walletHolds.settle();
+        walletHolds.releaseAll();
+        assertThat(wallet.settled(walletId)).isEqualByComparingTo("5.00");
+        assertThat(wallet.balance(walletId)).isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void concurrentRetriesWithOneIdempotencyKey_ChargeTheWalletOnce() throws Exception {
+
+        UUID walletId = UUID.randomUUID();
+        LunchOrderRequest request = request(walletId);
+        String key = UUID.randomUUID().toString();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LunchOrder>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return idempotentOrderService.createAndPayOrder(request, key).order();
+            }));
+        }
+        start.countDown();
+        for (Future<LunchOrder> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(OrderStatus.PAID);
+        }
+
+        // Every request paid before the key decided between them; the losers' payments went back to the hold.
+        assertThat(orderRepository.count()).isEqualTo(1);
+        walletHolds.settle();
+        walletHolds.releaseAll();
+        assertThat(wallet.settled(walletId)).isEqualByComparingTo("2.50");
+        assertThat(wallet.balance(walletId)).isEqualByComparingTo("997.50");
+    }
+
+    @Test
+    void anotherNodesUnsettledSpending_IsNotBookedAsDrift_UntilThatNodeIsGone() {
+
+        UUID walletId = UUID.randomUUID();
+        lunchOrderService.createAndPayOrder(request(walletId));
+        walletHolds.settle();
+
+        // node-b has taken 2.50 off its own allowance for an order it committed, and not settled it yet.
+        orderRepository.save(LunchOrder.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(walletId)
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .unitPrice(new BigDecimal("2.50"))
+                .total(new BigDecimal("2.50"))
+                .status(OrderStatus.PAID)
+                .build());
+        WalletHoldLedgerEntry nodeB = ledgerRepository.save(WalletHoldLedgerEntry.builder()
+                .nodeId("node-b")
+                .walletId(walletId)
+                .unsettled(new BigDecimal("2.50"))
+                .lastUsedOn(Instant.now().minusSeconds(30))
+                .recordedOn(Instant.now())
+                .build());
+
+        assertThat(reconcile()).isZero();
+        assertThat(wallet.settled(walletId)).isEqualByComparingTo("2.50");
+
+        // node-b stops recording before it settles; its spending is now booked here.
+        nodeB.setRecordedOn(Instant.now().minus(Duration.ofMinutes(10)));
+        ledgerRepository.save(nodeB);
+
+        assertThat(reconcile()).isEqualTo(1);
+        assertThat(wallet.settled(walletId)).isEqualByComparingTo("5.00");
+    }
+
+    private long reconcile() {
+        long before = walletHolds.stats().getReconciliationCorrections();
+        walletHolds.reconcile();
+        return walletHolds.stats().getReconciliationCorrections() - before;
+    }
+
+    private LunchOrderRequest request(UUID walletId) {
+        return LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(walletId)
+                .childId(UUID.randomUUID())
+                .meal(Meal.BEAN_WITH_SALAD)
+                .quantity(1)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .build();
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -28,7 +29,7 @@ class LunchOrderTest {
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
@@ -158,7 +159,7 @@ class LunchOrderTest {
         UUID originalChildId = lunchOrder.getChildId();
         Meal originalMeal = lunchOrder.getMeal();
         int originalQuantity = lunchOrder.getQuantity();
-        String originalDayOfWeek = lunchOrder.getDayOfWeek();
+        DayOfWeek originalDayOfWeek = lunchOrder.getDayOfWeek();
         BigDecimal originalUnitPrice = lunchOrder.getUnitPrice();
         BigDecimal originalTotal = lunchOrder.getTotal();
         OrderStatus originalStatus = lunchOrder.getStatus();
@@ -217,7 +218,7 @@ class LunchOrderTest {
                 .childId(UUID.randomUUID())
                 .meal(Meal.BAKED_FISH_WITH_VEGETABLES)
                 .quantity(3)
-                .dayOfWeek("FRIDAY")
+                .dayOfWeek(DayOfWeek.FRIDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("7.50"))
                 .status(OrderStatus.COMPLETED)
@@ -0,0 +1,67 @@
+package com.lunch.micro.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void generate_SetsVersionSevenAndRfcVariant() {
+
+        UUID uuid = UuidV7Generator.generate();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @Test
+    void generate_EmbedsTheCurrentTimeInMilliseconds() {
+
+        long now = System.currentTimeMillis();
+
+        UUID uuid = UuidV7Generator.generate(new AtomicLong(), now);
+
+        assertThat(UuidV7Generator.timestampOf(uuid)).isEqualTo(now);
+    }
+
+    @Test
+    void generate_ManyIdsInOneMillisecond_AreStrictlyIncreasingAsStoredBytes() {
+
+        AtomicLong state = new AtomicLong();
+        long now = System.currentTimeMillis();
+        byte[] previous = toBytes(UuidV7Generator.generate(state, now));
+
+        // More ids than the 12-bit counter holds, so the timestamp has to move forward as well.
+        for (int i = 0; i < 10_000; i++) {
+            byte[] next = toBytes(UuidV7Generator.generate(state, now));
+            assertThat(Arrays.compareUnsigned(next, previous)).isPositive();
+            previous = next;
+        }
+    }
+
+    @Test
+    void generate_ClockGoingBackwards_DoesNotReorderIds() {
+
+        AtomicLong state = new AtomicLong();
+        long now = System.currentTimeMillis();
+        UUID first = UuidV7Generator.generate(state, now);
+        UUID second = UuidV7Generator.generate(state, now - 5_000);
+
+        assertThat(Arrays.compareUnsigned(toBytes(second), toBytes(first))).isPositive();
+        assertThat(second.version()).isEqualTo(7);
+    }
+
+    // The big-endian layout Hibernate writes to a BINARY(16) column.
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
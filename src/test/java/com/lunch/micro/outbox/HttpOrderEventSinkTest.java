@@ -0,0 +1,88 @@
+package com.lunch.micro.outbox;
+
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.web.dto.OrderEvent;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpOrderEventSinkTest {
+
+    private HttpServer server;
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(204);
+    private HttpOrderEventSink sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/events", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+
+        sink = new HttpOrderEventSink(RestClient.builder(),
+                "http://localhost:" + server.getAddress().getPort() + "/events", 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void publish_PostsTheBatchAsAJsonArray() {
+
+        OrderEvent event = event();
+
+        sink.publish(List.of(event, event()));
+
+        assertThat(bodies).hasSize(1);
+        assertThat(bodies.get(0))
+                .startsWith("[")
+                .contains("\"eventId\":\"" + event.getEventId() + "\"")
+                .contains("\"eventType\":\"CANCELLED\"");
+    }
+
+    @Test
+    void publish_ThrowsWhenTheConsumerRejectsTheBatch() {
+
+        status.set(503);
+
+        assertThatThrownBy(() -> sink.publish(List.of(event()))).isInstanceOf(RestClientException.class);
+    }
+
+    private OrderEvent event() {
+        return OrderEvent.builder()
+                .eventId(UUID.randomUUID())
+                .eventType(OrderEventType.CANCELLED)
+                .orderId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .dayOfWeek(DayOfWeek.FRIDAY)
+                .total(new BigDecimal("2.50"))
+                .occurredOn(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChildOrdersCacheConcurrencyTest {
+
+    private static final int READERS = 1_000;
+    private static final long LOAD_MILLIS = 50;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(READERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentReadersOfOneChild_ShareASingleLoad() throws Exception {
+
+        // Entries expire immediately, so only the in-flight coalescing can save database hits.
+        ChildOrdersCache cache = new ChildOrdersCache(new OrderEventBus(), 100, 0, 0);
+        UUID childId = UUID.randomUUID();
+        AtomicInteger dbHits = new AtomicInteger();
+
+        List<List<LunchOrderResponse>> results = readConcurrently(READERS, i -> childId, cache, slowLoader(dbHits, pastDueOrder()));
+
+        System.out.printf("[coalescing] %d concurrent readers of one child -> %d database loads, %d saved%n",
+                READERS, dbHits.get(), READERS - dbHits.get());
+
+        assertThat(dbHits.get()).isEqualTo(1);
+        assertThat(results).hasSize(READERS).allSatisfy(orders -> assertThat(orders).hasSize(1));
+        assertThat(cache.stats().getCoalescedCount()).isEqualTo(READERS - 1);
+    }
+
+    @Test
+    void concurrentReadersOfManyChildren_LoadEachChildOnce() throws Exception {
+
+        ChildOrdersCache cache = new ChildOrdersCache(new OrderEventBus(), 100, 0, 0);
+        List<UUID> children = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            children.add(UUID.randomUUID());
+        }
+        AtomicInteger dbHits = new AtomicInteger();
+
+        readConcurrently(READERS, i -> children.get(i % children.size()), cache, slowLoader(dbHits, pastDueOrder()));
+
+        System.out.printf("[coalescing] %d concurrent readers over %d children -> %d database loads, %d saved%n",
+                READERS, children.size(), dbHits.get(), READERS - dbHits.get());
+
+        assertThat(dbHits.get()).isEqualTo(children.size());
+    }
+
+    @Test
+    void invalidationDuringLoad_StaleResultIsNotCached() throws Exception {
+
+        ChildOrdersCache cache = new ChildOrdersCache(new OrderEventBus(), 100, 30, 0);
+        UUID childId = UUID.randomUUID();
+        AtomicInteger version = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        Future<List<LunchOrderResponse>> stale = executor.submit(() -> cache.get(childId, key -> {
+            version.incrementAndGet();
+            loading.countDown();
+            await(invalidated);
+            return List.of();
+        }));
+
+        loading.await(5, TimeUnit.SECONDS);
+        cache.invalidate(childId);
+        invalidated.countDown();
+        stale.get(5, TimeUnit.SECONDS);
+
+        cache.get(childId, key -> {
+            version.incrementAndGet();
+            return List.of();
+        });
+
+        assertThat(version).hasValue(2);
+    }
+
+    @Test
+    void failedLoad_IsSharedWithWaitersAndNotCached() throws Exception {
+
+        ChildOrdersCache cache = new ChildOrdersCache(new OrderEventBus(), 100, 30, 0);
+        UUID childId = UUID.randomUUID();
+        AtomicInteger dbHits = new AtomicInteger();
+        Function<UUID, List<LunchOrderResponse>> failing = key -> {
+            dbHits.incrementAndGet();
+            sleep(LOAD_MILLIS);
+            throw new IllegalStateException("database unavailable");
+        };
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<LunchOrderResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.get(childId, failing);
+            }));
+        }
+        start.countDown();
+
+        for (Future<List<LunchOrderResponse>> future : futures) {
+            assertThatThrownBy(future::get).hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(dbHits.get()).isLessThan(50);
+
+        assertThat(cache.get(childId, key -> List.of())).isEmpty();
+    }
+
+    private List<List<LunchOrderResponse>> readConcurrently(int readers, Function<Integer, UUID> keyOf, ChildOrdersCache cache,
+                                                    Function<UUID, List<LunchOrderResponse>> loader) throws Exception {
+
+        CountDownLatch ready = new CountDownLatch(readers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<LunchOrderResponse>>> futures = new ArrayList<>();
+
+        for (int i = 0; i < readers; i++) {
+            UUID childId = keyOf.apply(i);
+            Callable<List<LunchOrderResponse>> reader = () -> {
+                ready.countDown();
+                start.await();
+                return cache.get(childId, loader);
+            };
+            futures.add(executor.submit(reader));
+        }
+
+        ready.await(30, TimeUnit.SECONDS);
+        start.countDown();
+
+        List<List<LunchOrderResponse>> results = new ArrayList<>();
+        for (Future<List<LunchOrderResponse>> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    // The load takes long enough for every reader to arrive while it is still in flight.
+    private Function<UUID, List<LunchOrderResponse>> slowLoader(AtomicInteger dbHits, LunchOrderResponse order) {
+        return key -> {
+            dbHits.incrementAndGet();
+            sleep(LOAD_MILLIS * 4);
+            return List.of(order);
+        };
+    }
+
+    // A PAID order past its completion run, which makes the entry expire after the recheck delay (0 here).
+    private LunchOrderResponse pastDueOrder() {
+        return LunchOrderResponse.builder()
+                .id(UUID.randomUUID())
+                .status(OrderStatus.PAID)
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .createdOn(Instant.EPOCH)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.web.dto.LunchOrderResponse;
+import com.lunch.micro.web.dto.OrderEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChildOrdersCacheTest {
+
+    private ChildOrdersCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChildOrdersCache(new OrderEventBus(), 100, 30, 0);
+    }
+
+    @Test
+    void expiresAt_NoOrders_NeverExpiresOnItsOwn() {
+
+        assertThat(cache.expiresAt(List.of(), Instant.now())).isEqualTo(Instant.MAX);
+    }
+
+    @Test
+    void expiresAt_CompletedOrder_ExpiresWhenItLeavesTheVisibilityWindow() {
+
+        Instant now = Instant.now();
+        Instant completedOn = now.minus(Duration.ofHours(2));
+        LunchOrderResponse older = completedOrder(completedOn);
+        LunchOrderResponse newer = completedOrder(now.minus(Duration.ofMinutes(5)));
+
+        assertThat(cache.expiresAt(List.of(newer, older), now))
+                .isEqualTo(completedOn.plus(LunchOrderService.COMPLETED_VISIBILITY));
+    }
+
+    @Test
+    void expiresAt_PaidOrder_ExpiresAtItsCompletionRun() {
+
+        Instant now = Instant.now();
+        LocalDate nextWednesday = LocalDate.now().plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.WEDNESDAY));
+        LunchOrderResponse paid = paidOrder(DayOfWeek.WEDNESDAY, OrderCompletionService.completionInstant(nextWednesday.minusDays(1)));
+
+        assertThat(cache.expiresAt(List.of(paid), now))
+                .isEqualTo(OrderCompletionService.completionInstant(nextWednesday));
+    }
+
+    @Test
+    void expiresAt_PaidOrderPastItsCompletionRun_IsRecheckedShortly() {
+
+        Instant now = Instant.now();
+        LocalDate lastMonday = LocalDate.now().minusDays(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LunchOrderResponse paid = paidOrder(DayOfWeek.MONDAY, OrderCompletionService.completionInstant(lastMonday).minus(Duration.ofDays(1)));
+
+        assertThat(cache.expiresAt(List.of(paid), now)).isEqualTo(now.plusSeconds(30));
+    }
+
+    @Test
+    void completionDue_OrderCreatedAfterCutOff_BelongsToNextWeek() {
+
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        LunchOrderResponse paid = paidOrder(DayOfWeek.MONDAY, OrderCompletionService.completionInstant(monday).plusSeconds(1));
+
+        assertThat(ChildOrdersCache.completionDue(paid, Instant.now()))
+                .isEqualTo(OrderCompletionService.completionInstant(monday.plusWeeks(1)));
+    }
+
+    @Test
+    void expiresAt_MaxStaleness_CapsTheEntryLifetime() {
+
+        ChildOrdersCache capped = new ChildOrdersCache(new OrderEventBus(), 100, 30, 60);
+        Instant now = Instant.now();
+
+        assertThat(capped.expiresAt(List.of(), now)).isEqualTo(now.plusSeconds(60));
+    }
+
+    @Test
+    void invalidateInATransaction_IsRepeatedOnceItCommits() {
+
+        UUID childId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(childId);
+            // A read between the write and its commit still sees the old rows.
+            cache.get(childId, key -> loadCounting(loads));
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cache.get(childId, key -> loadCounting(loads));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void orderEventsFromAnyNode_InvalidateTheirChildren() {
+
+        OrderEventBus eventBus = new OrderEventBus();
+        ChildOrdersCache listening = new ChildOrdersCache(eventBus, 100, 30, 0);
+        listening.listen();
+        UUID changed = UUID.randomUUID();
+        UUID untouched = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        listening.get(changed, key -> loadCounting(loads));
+        listening.get(untouched, key -> loadCounting(loads));
+        eventBus.publish(List.of(OrderEvent.builder().eventType(OrderEventType.CANCELLED).childId(changed).build()));
+        listening.get(changed, key -> loadCounting(loads));
+        listening.get(untouched, key -> loadCounting(loads));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void invalidate_ForcesReload() {
+
+        UUID childId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(childId, key -> loadCounting(loads));
+        cache.get(childId, key -> loadCounting(loads));
+        cache.invalidate(childId);
+        cache.get(childId, key -> loadCounting(loads));
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().getHitCount()).isEqualTo(1);
+        assertThat(cache.stats().getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void get_EntryPastItsExpiry_IsReloaded() {
+
+        UUID childId = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+        LunchOrderResponse expired = completedOrder(Instant.now().minus(LunchOrderService.COMPLETED_VISIBILITY).minusSeconds(1));
+
+        cache.get(childId, key -> {
+            loads.incrementAndGet();
+            return List.of(expired);
+        });
+        cache.get(childId, key -> loadCounting(loads));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private List<LunchOrderResponse> loadCounting(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return List.of();
+    }
+
+    private LunchOrderResponse completedOrder(Instant completedOn) {
+        return LunchOrderResponse.builder()
+                .id(UUID.randomUUID())
+                .status(OrderStatus.COMPLETED)
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .completedOn(completedOn)
+                .build();
+    }
+
+    private LunchOrderResponse paidOrder(DayOfWeek dayOfWeek, Instant createdOn) {
+        return LunchOrderResponse.builder()
+                .id(UUID.randomUUID())
+                .status(OrderStatus.PAID)
+                .dayOfWeek(dayOfWeek)
+                .createdOn(createdOn)
+                .build();
+    }
+}
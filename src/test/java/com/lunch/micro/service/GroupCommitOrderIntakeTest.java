@@ -0,0 +1,293 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.exception.IntakeOverloadedException;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitOrderIntakeTest {
+
+    @Mock
+    private LunchOrderService lunchOrderService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+    private GroupCommitOrderIntake intake;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(64);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        if (intake != null) {
+            intake.stop();
+        }
+    }
+
+    @Test
+    void directMode_CommitsEachOrderOnTheCallersThread() {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "direct", 10, 10, 5, 10, 10_000);
+        intake.start();
+        LunchOrderRequest request = request();
+        when(lunchOrderService.createAndPayOrder(request)).thenReturn(saved(request));
+
+        assertThat(intake.isEnabled()).isFalse();
+        assertThat(intake.createAndPayOrder(request).getChildId()).isEqualTo(request.getChildId());
+        verify(lunchOrderService, never()).savePaidOrders(anyList());
+    }
+
+    @Test
+    void concurrentOrders_AreCommittedInFewerTransactions_AndEachCallerGetsItsOrder() throws Exception {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 1000, 100, 20, 1000, 10_000);
+        prepareOrders();
+        AtomicInteger transactions = new AtomicInteger();
+        when(lunchOrderService.savePaidOrders(anyList())).thenAnswer(invocation -> {
+            transactions.incrementAndGet();
+            List<LunchOrder> orders = invocation.getArgument(0);
+            return orders;
+        });
+        intake.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<LunchOrderRequest> requests = new ArrayList<>();
+        List<Future<LunchOrder>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            LunchOrderRequest request = request();
+            requests.add(request);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return intake.createAndPayOrder(request);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(10, TimeUnit.SECONDS).getChildId()).isEqualTo(requests.get(i).getChildId());
+        }
+
+        GroupCommitOrderIntake.Stats stats = intake.stats();
+        assertThat(transactions.get()).isLessThan(200);
+        assertThat(stats.getCommittedCount()).isEqualTo(200);
+        assertThat(stats.getBatchCount()).isEqualTo(transactions.get());
+        assertThat(stats.getLargestBatchSize()).isGreaterThan(1).isLessThanOrEqualTo(100);
+        assertThat(stats.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void invalidOrder_IsRejectedOnTheCallersThreadWithoutQueueing() {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 10, 10, 5, 10, 10_000);
+        intake.start();
+        doThrow(new DomainException("Orders for today must be placed before 10:00 AM."))
+                .when(lunchOrderService).preparePaidOrder(any());
+
+        assertThatThrownBy(() -> intake.createAndPayOrder(request()))
+                .isInstanceOf(DomainException.class);
+
+        assertThat(intake.stats().getAcceptedCount()).isZero();
+        verify(lunchOrderService, never()).savePaidOrders(anyList());
+    }
+
+    @Test
+    void groupCommittedOrders_AreTimedAsLunchOrderServiceCreates() {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 10, 10, 5, 10, 10_000);
+        prepareOrders();
+        when(lunchOrderService.savePaidOrders(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        intake.start();
+
+        intake.createAndPayOrder(request());
+        intake.createAndPayOrder(request());
+
+        Timer timer = meterRegistry.find("lunch.service")
+                .tag("class", LunchOrderService.class.getName())
+                .tag("method", "createAndPayOrder")
+                .tag("exception", "none")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    void failedGroupCommit_IsRetriedPerOrder_SoOnlyTheBadOrderFails() throws Exception {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 100, 100, 50, 1000, 10_000);
+        prepareOrders();
+        LunchOrderRequest bad = request();
+        when(lunchOrderService.savePaidOrders(anyList())).thenAnswer(invocation -> {
+            List<LunchOrder> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(order -> order.getChildId().equals(bad.getChildId()))) {
+                throw new IllegalStateException("Data truncation");
+            }
+            return orders;
+        });
+        intake.start();
+
+        List<Future<LunchOrder>> good = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            good.add(executor.submit(() -> intake.createAndPayOrder(request())));
+        }
+        Future<LunchOrder> failing = executor.submit(() -> intake.createAndPayOrder(bad));
+
+        for (Future<LunchOrder> future : good) {
+            assertThat(future.get(10, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThatThrownBy(() -> failing.get(10, TimeUnit.SECONDS))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(intake.stats().getFailedCount()).isEqualTo(1);
+        assertThat(intake.stats().getCommittedCount()).isEqualTo(4);
+        verify(lunchOrderService).refundUnsavedOrders(argThat(orders ->
+                orders.size() == 1 && orders.get(0).getChildId().equals(bad.getChildId())));
+    }
+
+    @Test
+    void failedCommit_FailsEveryCallerInTheBatch() throws Exception {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 100, 100, 50, 1000, 10_000);
+        prepareOrders();
+        when(lunchOrderService.savePaidOrders(anyList())).thenThrow(new IllegalStateException("database unavailable"));
+        intake.start();
+
+        List<Future<LunchOrder>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.submit(() -> intake.createAndPayOrder(request())));
+        }
+
+        for (Future<LunchOrder> future : futures) {
+            assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(intake.stats().getFailedCount()).isEqualTo(5);
+        assertThat(intake.stats().getCommittedCount()).isZero();
+        verify(lunchOrderService, times(5)).refundUnsavedOrders(argThat(orders -> orders.size() == 1));
+    }
+
+    @Test
+    void fullQueue_RejectsAfterOfferTimeout() throws Exception {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 1, 1, 0, 20, 10_000);
+        prepareOrders();
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        when(lunchOrderService.savePaidOrders(anyList())).thenAnswer(invocation -> {
+            commitStarted.countDown();
+            releaseCommit.await(10, TimeUnit.SECONDS);
+            List<LunchOrder> orders = invocation.getArgument(0);
+            return orders;
+        });
+        intake.start();
+
+        // One order held in a slow commit, one filling the queue; the third finds no room.
+        Future<LunchOrder> inCommit = executor.submit(() -> intake.createAndPayOrder(request()));
+        assertThat(commitStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        Future<LunchOrder> queued = executor.submit(() -> intake.createAndPayOrder(request()));
+        while (intake.stats().getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> intake.createAndPayOrder(request()))
+                .isInstanceOf(IntakeOverloadedException.class);
+
+        releaseCommit.countDown();
+        assertThat(inCommit.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(intake.stats().getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void stalledWriter_TimesCallersOut_AndWithdrawsOrdersItHasNotTaken() throws Exception {
+
+        intake = new GroupCommitOrderIntake(lunchOrderService, meterRegistry, "group-commit", 10, 1, 0, 1000, 200);
+        prepareOrders();
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        when(lunchOrderService.savePaidOrders(anyList())).thenAnswer(invocation -> {
+            commitStarted.countDown();
+            releaseCommit.await(10, TimeUnit.SECONDS);
+            List<LunchOrder> orders = invocation.getArgument(0);
+            return orders;
+        });
+        intake.start();
+
+        LunchOrderRequest inCommit = request();
+        Future<LunchOrder> stuck = executor.submit(() -> intake.createAndPayOrder(inCommit));
+        assertThat(commitStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        LunchOrderRequest queued = request();
+
+        assertThatThrownBy(() -> intake.createAndPayOrder(queued))
+                .isInstanceOf(IntakeOverloadedException.class);
+        assertThatThrownBy(() -> stuck.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IntakeOverloadedException.class);
+
+        releaseCommit.countDown();
+        intake.stop();
+
+        // The order already in the writer's commit is saved; the queued one is refunded and never saved.
+        verify(lunchOrderService).savePaidOrders(argThat(orders ->
+                orders.size() == 1 && orders.get(0).getChildId().equals(inCommit.getChildId())));
+        verify(lunchOrderService).refundUnsavedOrders(argThat(orders ->
+                orders.size() == 1 && orders.get(0).getChildId().equals(queued.getChildId())));
+        verify(lunchOrderService, times(1)).savePaidOrders(anyList());
+        verify(lunchOrderService, times(1)).refundUnsavedOrders(anyList());
+        assertThat(intake.stats().getTimedOutCount()).isEqualTo(2);
+        assertThat(intake.stats().getCommittedCount()).isEqualTo(1);
+    }
+
+    // Validation and payment are LunchOrderService's; here they just build the order.
+    private void prepareOrders() {
+        when(lunchOrderService.preparePaidOrder(any()))
+                .thenAnswer(invocation -> saved(invocation.getArgument(0)));
+    }
+
+    private static LunchOrderRequest request() {
+        return LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(LocalDate.now().getDayOfWeek().plus(2))
+                .build();
+    }
+
+    private static LunchOrder saved(LunchOrderRequest request) {
+        return LunchOrder.builder()
+                .id(UUID.randomUUID())
+                .childId(request.getChildId())
+                .dayOfWeek(request.getDayOfWeek())
+                .build();
+    }
+}
@@ -0,0 +1,191 @@
+package com.lunch.micro.service;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.IdempotencyKey;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.model.Meal;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.IdempotencyKeyRepository;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentOrderServiceTest {
+
+    private static final String KEY = "retry-7f3a";
+
+    @Mock
+    private LunchOrderService lunchOrderService;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private LunchOrderRepository lunchOrderRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotentOrderService service;
+    private LunchOrderRequest request;
+    private LunchOrder order;
+
+    @BeforeEach
+    void setUp() {
+
+        service = new IdempotentOrderService(lunchOrderService, idempotencyKeyRepository, lunchOrderRepository,
+                transactionManager, 100, 60, 48);
+
+        request = LunchOrderRequest.builder()
+                .parentId(UUID.randomUUID())
+                .walletId(UUID.randomUUID())
+                .childId(UUID.randomUUID())
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(1)
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .build();
+
+        order = LunchOrder.builder()
+                .id(UUID.randomUUID())
+                .childId(request.getChildId())
+                .status(OrderStatus.PAID)
+                .build();
+    }
+
+    @Test
+    void createAndPayOrder_NewKey_StoresKeyInTheOrdersTransaction() {
+
+        when(idempotencyKeyRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.empty());
+        createdOrder(order);
+
+        IdempotentOrderService.KeyedOrder result = service.createAndPayOrder(request, KEY);
+
+        ArgumentCaptor<IdempotencyKey> keyCaptor = ArgumentCaptor.forClass(IdempotencyKey.class);
+        verify(idempotencyKeyRepository).saveAndFlush(keyCaptor.capture());
+        assertThat(keyCaptor.getValue().getIdempotencyKey()).isEqualTo(KEY);
+        assertThat(keyCaptor.getValue().getOrderId()).isEqualTo(order.getId());
+        assertThat(keyCaptor.getValue().getRequestHash()).isEqualTo(IdempotentOrderService.requestHash(request));
+        assertThat(result.order()).isSameAs(order);
+        assertThat(result.replayed()).isFalse();
+    }
+
+    @Test
+    void createAndPayOrder_ReplayFromCache_SkipsTheKeyLookupAndReturnsTheCurrentOrder() {
+
+        when(idempotencyKeyRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.empty());
+        createdOrder(order);
+        service.createAndPayOrder(request, KEY);
+
+        LunchOrder completed = LunchOrder.builder().id(order.getId()).status(OrderStatus.COMPLETED).build();
+        when(lunchOrderRepository.findById(order.getId())).thenReturn(Optional.of(completed));
+
+        IdempotentOrderService.KeyedOrder replayed = service.createAndPayOrder(request, KEY);
+
+        assertThat(replayed.order().getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        assertThat(replayed.replayed()).isTrue();
+        verify(lunchOrderService, times(1)).createAndPayOrder(eq(request), any());
+        verify(idempotencyKeyRepository, times(1)).findByIdempotencyKey(KEY);
+    }
+
+    @Test
+    void createAndPayOrder_KeyOnlyInTable_ReturnsStoredOrderWithoutCreatingAnother() {
+
+        when(idempotencyKeyRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.of(storedKey()));
+        when(lunchOrderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+
+        IdempotentOrderService.KeyedOrder replayed = service.createAndPayOrder(request, KEY);
+
+        assertThat(replayed.order()).isSameAs(order);
+        assertThat(replayed.replayed()).isTrue();
+        verify(lunchOrderService, never()).createAndPayOrder(any(), any());
+        verify(idempotencyKeyRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createAndPayOrder_ConcurrentRequestWonTheKey_ReplaysItsOrder() {
+
+        when(idempotencyKeyRepository.findByIdempotencyKey(KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(storedKey()));
+        // LunchOrderService rolls the losing order back and refunds it before rethrowing.
+        when(lunchOrderService.createAndPayOrder(eq(request), any()))
+                .thenThrow(new DataIntegrityViolationException("uk_idempotency_keys_key"));
+        when(lunchOrderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+
+        IdempotentOrderService.KeyedOrder result = service.createAndPayOrder(request, KEY);
+
+        assertThat(result.order()).isSameAs(order);
+        assertThat(result.replayed()).isTrue();
+    }
+
+    @Test
+    void createAndPayOrder_KeyReusedForDifferentRequest_ThrowsDomainException() {
+
+        when(idempotencyKeyRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.empty());
+        createdOrder(order);
+        service.createAndPayOrder(request, KEY);
+
+        request.setQuantity(3);
+
+        assertThatThrownBy(() -> service.createAndPayOrder(request, KEY))
+                .isInstanceOf(DomainException.class)
+                .hasMessage("Idempotency-Key was already used for a different request");
+    }
+
+    @Test
+    void createAndPayOrder_BlankKey_ThrowsDomainException() {
+
+        assertThatThrownBy(() -> service.createAndPayOrder(request, " "))
+                .isInstanceOf(DomainException.class);
+        verifyNoInteractions(lunchOrderService, idempotencyKeyRepository);
+    }
+
+    @Test
+    void purgeExpiredKeys_DeletesKeysCreatedBeforeTheRetention() {
+
+        Instant before = Instant.now();
+        service.purgeExpiredKeys();
+
+        ArgumentCaptor<Instant> createdBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(idempotencyKeyRepository).deleteCreatedBefore(createdBefore.capture());
+        assertThat(createdBefore.getValue())
+                .isBetween(before.minus(Duration.ofHours(48)), Instant.now().minus(Duration.ofHours(48)));
+    }
+
+    // LunchOrderService runs the key insert inside the order's transaction.
+    private void createdOrder(LunchOrder created) {
+        when(lunchOrderService.createAndPayOrder(eq(request), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<LunchOrder>>getArgument(1).accept(created);
+            return created;
+        });
+    }
+
+    private IdempotencyKey storedKey() {
+        return IdempotencyKey.builder()
+                .idempotencyKey(KEY)
+                .requestHash(IdempotentOrderService.requestHash(request))
+                .orderId(order.getId())
+                .build();
+    }
+}
@@ -1,27 +1,37 @@
 package com.lunch.micro.service;
 
 import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.exception.OrderConflictException;
 import com.lunch.micro.model.LunchOrder;
 import com.lunch.micro.model.Meal;
 import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.outbox.OrderOutbox;
 import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.stream.OrderEventBus;
+import com.lunch.micro.wallet.WalletPayments;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
 import com.lunch.micro.web.dto.LunchOrderRequest;
-import jakarta.persistence.EntityManager;
+import com.lunch.micro.web.dto.LunchOrderResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,10 +48,15 @@ class LunchOrderServiceTest {
     @Mock
     private LunchOrderRepository repository;
 
+    @Spy
+    private ChildOrdersCache childOrdersCache = new ChildOrdersCache(new OrderEventBus(), 100, 30, 300);
+
+    @Mock
+    private OrderOutbox orderOutbox;
+
     @Mock
-    private EntityManager entityManager;
+    private PlatformTransactionManager transactionManager;
 
-    @InjectMocks
     private LunchOrderService lunchOrderService;
 
     private UUID parentId;
@@ -52,11 +67,10 @@ class LunchOrderServiceTest {
     private LunchOrder sampleOrder;
 
     @BeforeEach
-    void setUp() throws Exception {
+    void setUp() {
 
-        Field entityManagerField = LunchOrderService.class.getDeclaredField("entityManager");
-        entityManagerField.setAccessible(true);
-        entityManagerField.set(lunchOrderService, entityManager);
+        lunchOrderService = new LunchOrderService(repository, childOrdersCache, orderOutbox,
+                new WalletPayments(null, null, "none", 0), transactionManager, 3);
 
         parentId = UUID.randomUUID();
         walletId = UUID.randomUUID();
@@ -79,7 +93,7 @@ class LunchOrderServiceTest {
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(2)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("5.00"))
                 .status(OrderStatus.PAID)
@@ -175,7 +189,7 @@ class LunchOrderServiceTest {
         assertThat(capturedOrder.getChildId()).isEqualTo(childId);
         assertThat(capturedOrder.getMeal()).isEqualTo(validRequest.getMeal());
         assertThat(capturedOrder.getQuantity()).isEqualTo(validRequest.getQuantity());
-        assertThat(capturedOrder.getDayOfWeek()).isEqualTo(validRequest.getDayOfWeek().name());
+        assertThat(capturedOrder.getDayOfWeek()).isEqualTo(validRequest.getDayOfWeek());
     }
 
     @Test
@@ -211,23 +225,43 @@ class LunchOrderServiceTest {
     @Test
     void cancelOrder_Success() {
 
-        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
-        doNothing().when(entityManager).refresh(any(LunchOrder.class));
-        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+        when(repository.cancelPaidOrder(eq(orderId), eq(childId), eq(OrderStatus.PAID), eq(OrderStatus.CANCELLED),
+                anyCollection(), any(Instant.class))).thenReturn(1);
+
+        lunchOrderService.cancelOrder(orderId, childId);
 
-        sampleOrder.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(2).name());
+        verify(repository, times(1)).cancelPaidOrder(eq(orderId), eq(childId), eq(OrderStatus.PAID),
+                eq(OrderStatus.CANCELLED), anyCollection(), any(Instant.class));
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any(LunchOrder.class));
+        verify(childOrdersCache, times(1)).invalidate(childId);
+    }
 
+    @Test
+    void cancelOrder_ExcludesTodayFromCancellableDaysOnlyAfterCutoff() {
+
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(1);
+        LocalTime cutoff = LocalTime.of(10, 0);
+        DayOfWeek today = LocalDate.now().getDayOfWeek();
+
+        boolean afterCutoffBefore = !LocalTime.now().isBefore(cutoff);
         lunchOrderService.cancelOrder(orderId, childId);
+        boolean afterCutoffAfter = !LocalTime.now().isBefore(cutoff);
 
-        verify(repository, times(1)).findById(orderId);
-        verify(entityManager, times(1)).refresh(sampleOrder);
-        verify(repository, times(1)).save(any(LunchOrder.class));
-        assertThat(sampleOrder.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        ArgumentCaptor<Collection<DayOfWeek>> daysCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).cancelPaidOrder(any(), any(), any(), any(), daysCaptor.capture(), any());
+        assertThat(daysCaptor.getValue()).containsAll(EnumSet.complementOf(EnumSet.of(today)));
+
+        // Only decidable when the cut-off was not crossed during the call.
+        if (afterCutoffBefore == afterCutoffAfter) {
+            assertThat(daysCaptor.getValue().contains(today)).isEqualTo(!afterCutoffBefore);
+        }
     }
 
     @Test
     void cancelOrder_OrderNotFound_ThrowsException() {
 
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0);
         when(repository.findById(orderId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> lunchOrderService.cancelOrder(orderId, childId))
@@ -235,22 +269,21 @@ class LunchOrderServiceTest {
                 .hasMessageContaining("Order not found");
 
         verify(repository, times(1)).findById(orderId);
-        verify(repository, never()).save(any(LunchOrder.class));
+        verify(childOrdersCache, never()).invalidate(any());
     }
 
     @Test
     void cancelOrder_OrderDoesNotBelongToChild_ThrowsException() {
 
         UUID differentChildId = UUID.randomUUID();
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0);
         when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
-        doNothing().when(entityManager).refresh(any(LunchOrder.class));
 
         assertThatThrownBy(() -> lunchOrderService.cancelOrder(orderId, differentChildId))
                 .isInstanceOf(DomainException.class)
                 .hasMessageContaining("Order does not belong to the specified child");
 
         verify(repository, times(1)).findById(orderId);
-        verify(entityManager, times(1)).refresh(sampleOrder);
         verify(repository, never()).save(any(LunchOrder.class));
     }
 
@@ -259,15 +292,55 @@ class LunchOrderServiceTest {
 
         sampleOrder.setStatus(OrderStatus.COMPLETED);
         sampleOrder.setCompletedOn(Instant.now());
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0);
         when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
-        doNothing().when(entityManager).refresh(any(LunchOrder.class));
 
         assertThatThrownBy(() -> lunchOrderService.cancelOrder(orderId, childId))
                 .isInstanceOf(DomainException.class)
                 .hasMessageContaining("Cannot cancel a completed order");
 
         verify(repository, times(1)).findById(orderId);
-        verify(entityManager, times(1)).refresh(sampleOrder);
+        verify(repository, never()).save(any(LunchOrder.class));
+    }
+
+    @Test
+    void cancelOrder_AlreadyCancelled_Succeeds() {
+
+        sampleOrder.setStatus(OrderStatus.CANCELLED);
+        sampleOrder.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(2));
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0);
+        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        lunchOrderService.cancelOrder(orderId, childId);
+
+        verify(repository, never()).save(any(LunchOrder.class));
+    }
+
+    @Test
+    void cancelOrder_StillPaidAfterEveryAttempt_ThrowsConflict() {
+
+        sampleOrder.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(2));
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0);
+        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        assertThatThrownBy(() -> lunchOrderService.cancelOrder(orderId, childId))
+                .isInstanceOf(OrderConflictException.class)
+                .hasMessageContaining("please try again");
+
+        verify(repository, times(3)).cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void cancelOrder_StillPaidAfterFirstAttempt_RetriesAndCancels() {
+
+        sampleOrder.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(2));
+        when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(0, 1);
+        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+
+        lunchOrderService.cancelOrder(orderId, childId);
+
+        verify(repository, times(2)).cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any());
         verify(repository, never()).save(any(LunchOrder.class));
     }
 
@@ -276,12 +349,14 @@ class LunchOrderServiceTest {
     void cancelOrder_After10AMOnOrderDay_ThrowsException() {
 
         DayOfWeek today = LocalDate.now().getDayOfWeek();
-        sampleOrder.setDayOfWeek(today.name());
+        sampleOrder.setDayOfWeek(today);
         sampleOrder.setStatus(OrderStatus.PAID);
         
-        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
-        doNothing().when(entityManager).refresh(any(LunchOrder.class));
-        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+        // Before the cut-off the statement cancels the order; afterwards it matches nothing.
+        int matched = LocalTime.now().isBefore(LocalTime.of(10, 0)) ? 1 : 0;
+        lenient().when(repository.cancelPaidOrder(any(), any(), any(), any(), anyCollection(), any())).thenReturn(matched);
+        lenient().when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+        lenient().when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
 
         try {
             lunchOrderService.cancelOrder(orderId, childId);
@@ -311,6 +386,43 @@ class LunchOrderServiceTest {
         assertThat(sampleOrder.getCompletedOn()).isNotNull();
     }
 
+    @Test
+    void updateOrderToCompleted_VersionConflict_RetriesOnFreshRow() {
+
+        LunchOrder cancelledMeanwhile = LunchOrder.builder()
+                .id(orderId)
+                .childId(childId)
+                .status(OrderStatus.CANCELLED)
+                .build();
+        sampleOrder.setStatus(OrderStatus.PAID);
+        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder), Optional.of(cancelledMeanwhile));
+        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+        doThrow(new ObjectOptimisticLockingFailureException(LunchOrder.class, orderId))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        lunchOrderService.updateOrderToCompleted(orderId);
+
+        verify(repository, times(2)).findById(orderId);
+        verify(repository, times(1)).save(any(LunchOrder.class));
+        assertThat(cancelledMeanwhile.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(cancelledMeanwhile.getCompletedOn()).isNull();
+    }
+
+    @Test
+    void updateOrderToCompleted_ConflictOnEveryAttempt_GivesUpAfterMaxAttempts() {
+
+        sampleOrder.setStatus(OrderStatus.PAID);
+        when(repository.findById(orderId)).thenReturn(Optional.of(sampleOrder));
+        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+        doThrow(new ObjectOptimisticLockingFailureException(LunchOrder.class, orderId))
+                .when(transactionManager).commit(any());
+
+        lunchOrderService.updateOrderToCompleted(orderId);
+
+        verify(repository, times(3)).findById(orderId);
+    }
+
     @Test
     void updateOrderToCompleted_OrderNotFound_HandlesGracefully() {
 
@@ -435,40 +547,40 @@ class LunchOrderServiceTest {
     void getByChild_Success() {
 
         UUID childId1 = UUID.randomUUID();
-        LunchOrder paidOrder = LunchOrder.builder()
+        LunchOrderResponse paidOrder = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .build();
 
-        LunchOrder recentCompletedOrder = LunchOrder.builder()
+        LunchOrderResponse recentCompletedOrder = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(3600))
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .build();
 
-        List<LunchOrder> orders = List.of(paidOrder, recentCompletedOrder);
+        List<LunchOrderResponse> orders = List.of(paidOrder, recentCompletedOrder);
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).hasSize(2);
         assertThat(result).contains(paidOrder, recentCompletedOrder);
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -476,22 +588,22 @@ class LunchOrderServiceTest {
     void getByChild_NoOrders_ReturnsEmptyList() {
 
         UUID childId1 = UUID.randomUUID();
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(new ArrayList<>());
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).isEmpty();
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -499,40 +611,40 @@ class LunchOrderServiceTest {
     void getByChild_OnlyPaidOrders_ReturnsPaidOrders() {
 
         UUID childId1 = UUID.randomUUID();
-        LunchOrder paidOrder1 = LunchOrder.builder()
+        LunchOrderResponse paidOrder1 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .build();
 
-        LunchOrder paidOrder2 = LunchOrder.builder()
+        LunchOrderResponse paidOrder2 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .build();
 
-        List<LunchOrder> orders = List.of(paidOrder1, paidOrder2);
+        List<LunchOrderResponse> orders = List.of(paidOrder1, paidOrder2);
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).hasSize(2);
         assertThat(result).allMatch(order -> order.getStatus() == OrderStatus.PAID);
         assertThat(result).containsExactlyInAnyOrder(paidOrder1, paidOrder2);
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -540,42 +652,42 @@ class LunchOrderServiceTest {
     void getByChild_OnlyCompletedOrders_ReturnsCompletedOrders() {
 
         UUID childId1 = UUID.randomUUID();
-        LunchOrder completedOrder1 = LunchOrder.builder()
+        LunchOrderResponse completedOrder1 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(3600))
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .build();
 
-        LunchOrder completedOrder2 = LunchOrder.builder()
+        LunchOrderResponse completedOrder2 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(7200))
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .build();
 
-        List<LunchOrder> orders = List.of(completedOrder1, completedOrder2);
+        List<LunchOrderResponse> orders = List.of(completedOrder1, completedOrder2);
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).hasSize(2);
         assertThat(result).allMatch(order -> order.getStatus() == OrderStatus.COMPLETED);
         assertThat(result).containsExactlyInAnyOrder(completedOrder1, completedOrder2);
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -583,46 +695,46 @@ class LunchOrderServiceTest {
     void getByChild_MixedOrders_ReturnsBothPaidAndCompleted() {
 
         UUID childId1 = UUID.randomUUID();
-        LunchOrder paidOrder1 = LunchOrder.builder()
+        LunchOrderResponse paidOrder1 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .build();
 
-        LunchOrder paidOrder2 = LunchOrder.builder()
+        LunchOrderResponse paidOrder2 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("WEDNESDAY")
+                .dayOfWeek(DayOfWeek.WEDNESDAY)
                 .build();
 
-        LunchOrder completedOrder1 = LunchOrder.builder()
+        LunchOrderResponse completedOrder1 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(3600))
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .build();
 
-        LunchOrder completedOrder2 = LunchOrder.builder()
+        LunchOrderResponse completedOrder2 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(10800))
-                .dayOfWeek("THURSDAY")
+                .dayOfWeek(DayOfWeek.THURSDAY)
                 .build();
 
-        List<LunchOrder> orders = List.of(paidOrder1, paidOrder2, completedOrder1, completedOrder2);
+        List<LunchOrderResponse> orders = List.of(paidOrder1, paidOrder2, completedOrder1, completedOrder2);
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).hasSize(4);
@@ -634,10 +746,10 @@ class LunchOrderServiceTest {
         assertThat(paidCount).isEqualTo(2);
         assertThat(completedCount).isEqualTo(2);
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -645,12 +757,12 @@ class LunchOrderServiceTest {
     void getByChild_CalculatesSevenHoursAgoCorrectly() {
 
         UUID childId1 = UUID.randomUUID();
-        List<LunchOrder> orders = new ArrayList<>();
+        List<LunchOrderResponse> orders = new ArrayList<>();
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
@@ -659,10 +771,10 @@ class LunchOrderServiceTest {
         lunchOrderService.getByChild(childId1);
 
         ArgumentCaptor<Instant> instantCaptor = ArgumentCaptor.forClass(Instant.class);
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 instantCaptor.capture());
 
         Instant capturedInstant = instantCaptor.getValue();
@@ -676,21 +788,21 @@ class LunchOrderServiceTest {
     void getByChild_CallsRepositoryWithCorrectStatusParameters() {
 
         UUID childId1 = UUID.randomUUID();
-        List<LunchOrder> orders = new ArrayList<>();
+        List<LunchOrderResponse> orders = new ArrayList<>();
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
         lunchOrderService.getByChild(childId1);
 
-        verify(repository, times(1)).findAllByChildIdExcludingOldCompleted(
+        verify(repository, times(1)).findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class));
     }
 
@@ -698,37 +810,102 @@ class LunchOrderServiceTest {
     void getByChild_ReturnsOrdersWithCorrectChildId() {
 
         UUID childId1 = UUID.randomUUID();
-        LunchOrder order1 = LunchOrder.builder()
+        LunchOrderResponse order1 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.PAID)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .build();
 
-        LunchOrder order2 = LunchOrder.builder()
+        LunchOrderResponse order2 = LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .childId(childId1)
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(3600))
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .build();
 
-        List<LunchOrder> orders = List.of(order1, order2);
+        List<LunchOrderResponse> orders = List.of(order1, order2);
 
-        when(repository.findAllByChildIdExcludingOldCompleted(
+        when(repository.findOrderResponsesByChildId(
                 eq(childId1),
+                eq(OrderStatus.PAID),
                 eq(OrderStatus.COMPLETED),
-                eq(OrderStatus.CANCELLED),
                 any(Instant.class)))
                 .thenReturn(orders);
 
-        List<LunchOrder> result = lunchOrderService.getByChild(childId1);
+        List<LunchOrderResponse> result = lunchOrderService.getByChild(childId1);
 
         assertThat(result).isNotNull();
         assertThat(result).allMatch(order -> childId1.equals(order.getChildId()));
         assertThat(result).hasSize(2);
     }
 
+    @Test
+    void getByChild_SecondCall_IsServedFromCache() {
+
+        UUID childId1 = UUID.randomUUID();
+
+        when(repository.findOrderResponsesByChildId(
+                eq(childId1),
+                eq(OrderStatus.PAID),
+                eq(OrderStatus.COMPLETED),
+                any(Instant.class)))
+                .thenReturn(new ArrayList<>());
+
+        lunchOrderService.getByChild(childId1);
+        lunchOrderService.getByChild(childId1);
+
+        verify(repository, times(1)).findOrderResponsesByChildId(
+                eq(childId1),
+                eq(OrderStatus.PAID),
+                eq(OrderStatus.COMPLETED),
+                any(Instant.class));
+        assertThat(childOrdersCache.stats().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void createAndPayOrder_InvalidatesCachedOrdersOfChild() {
+
+        validRequest.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(1));
+
+        when(repository.findOrderResponsesByChildId(
+                eq(childId),
+                eq(OrderStatus.PAID),
+                eq(OrderStatus.COMPLETED),
+                any(Instant.class)))
+                .thenReturn(new ArrayList<>());
+        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+
+        lunchOrderService.getByChild(childId);
+        lunchOrderService.createAndPayOrder(validRequest);
+        lunchOrderService.getByChild(childId);
+
+        verify(childOrdersCache).invalidate(childId);
+        verify(repository, times(2)).findOrderResponsesByChildId(
+                eq(childId),
+                eq(OrderStatus.PAID),
+                eq(OrderStatus.COMPLETED),
+                any(Instant.class));
+    }
+
+    @Test
+    void createAndPayOrder_WriteInTheSameTransactionFails_RefundsTheOrder() {
+
+        WalletPayments walletPayments = spy(new WalletPayments(null, null, "none", 0));
+        LunchOrderService service = new LunchOrderService(repository, childOrdersCache, orderOutbox, walletPayments,
+                transactionManager, 3);
+        validRequest.setDayOfWeek(LocalDate.now().getDayOfWeek().plus(2));
+        when(repository.save(any(LunchOrder.class))).thenReturn(sampleOrder);
+
+        assertThatThrownBy(() -> service.createAndPayOrder(validRequest, saved -> {
+            throw new DataIntegrityViolationException("uk_idempotency_keys_key");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(walletPayments).refundUnsaved(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
     @Test
     void createAndPayOrder_MultipleQuantities_CalculatesTotalCorrectly() {
 
@@ -757,4 +934,111 @@ class LunchOrderServiceTest {
         assertThat(result.getTotal()).isEqualByComparingTo(new BigDecimal("12.50"));
     }
 
+    @Test
+    void createAndPayOrders_AllValid_SavesThemInOneCallAndReportsEachItem() {
+
+        DayOfWeek futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        UUID otherChildId = UUID.randomUUID();
+        List<LunchOrderRequest> requests = List.of(
+                batchItem(childId, futureDay),
+                batchItem(childId, futureDay.plus(1)),
+                batchItem(otherChildId, futureDay));
+
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> withIds(invocation.getArgument(0)));
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(requests);
+
+        ArgumentCaptor<List<LunchOrder>> ordersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).saveAll(ordersCaptor.capture());
+        verify(repository, never()).save(any(LunchOrder.class));
+        assertThat(ordersCaptor.getValue()).hasSize(3)
+                .allSatisfy(order -> {
+                    assertThat(order.getStatus()).isEqualTo(OrderStatus.PAID);
+                    assertThat(order.getTotal()).isEqualByComparingTo(new BigDecimal("5.00"));
+                });
+
+        assertThat(response.getCreated()).isEqualTo(3);
+        assertThat(response.getRejected()).isZero();
+        assertThat(response.getResults()).extracting("index").containsExactly(0, 1, 2);
+        assertThat(response.getResults()).allSatisfy(result -> {
+            assertThat(result.isCreated()).isTrue();
+            assertThat(result.getOrder().getId()).isNotNull();
+        });
+        verify(childOrdersCache, times(1)).invalidate(childId);
+        verify(childOrdersCache, times(1)).invalidate(otherChildId);
+    }
+
+    @Test
+    void createAndPayOrders_InvalidItems_AreRejectedAndNotSaved() {
+
+        DayOfWeek futureDay = LocalDate.now().getDayOfWeek().plus(2);
+        List<LunchOrderRequest> requests = List.of(
+                batchItem(childId, futureDay),
+                batchItem(null, futureDay));
+
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> withIds(invocation.getArgument(0)));
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(requests);
+
+        ArgumentCaptor<List<LunchOrder>> ordersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(ordersCaptor.capture());
+        assertThat(ordersCaptor.getValue()).extracting(LunchOrder::getChildId).containsExactly(childId);
+
+        assertThat(response.getCreated()).isEqualTo(1);
+        assertThat(response.getRejected()).isEqualTo(1);
+        assertThat(response.getResults().get(0).isCreated()).isTrue();
+        assertThat(response.getResults().get(1).isCreated()).isFalse();
+        assertThat(response.getResults().get(1).getOrder()).isNull();
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Child ID is required");
+    }
+
+    @Test
+    void createAndPayOrders_NothingValid_DoesNotTouchTheRepository() {
+
+        List<LunchOrderRequest> requests = List.of(batchItem(null, DayOfWeek.MONDAY));
+
+        LunchOrderBatchResponse response = lunchOrderService.createAndPayOrders(requests);
+
+        verify(repository, never()).saveAll(anyList());
+        assertThat(response.getCreated()).isZero();
+        assertThat(response.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void savePaidOrders_SavesEveryRequestInOneCallAndInvalidatesEachChild() {
+
+        UUID secondChild = UUID.randomUUID();
+        List<LunchOrderRequest> requests = List.of(
+                batchItem(childId, DayOfWeek.MONDAY),
+                batchItem(secondChild, DayOfWeek.TUESDAY),
+                batchItem(childId, DayOfWeek.WEDNESDAY));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> withIds(invocation.getArgument(0)));
+
+        List<LunchOrder> saved = lunchOrderService.savePaidOrders(
+                requests.stream().map(lunchOrderService::preparePaidOrder).toList());
+
+        verify(repository, times(1)).saveAll(anyList());
+        assertThat(saved).hasSize(3).allSatisfy(order -> {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.PAID);
+            assertThat(order.getTotal()).isEqualByComparingTo("5.00");
+        });
+        verify(childOrdersCache).invalidate(childId);
+        verify(childOrdersCache).invalidate(secondChild);
+    }
+
+    private LunchOrderRequest batchItem(UUID child, DayOfWeek day) {
+        return LunchOrderRequest.builder()
+                .parentId(parentId)
+                .walletId(walletId)
+                .childId(child)
+                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                .quantity(2)
+                .dayOfWeek(day)
+                .build();
+    }
+
+    private static List<LunchOrder> withIds(List<LunchOrder> orders) {
+        orders.forEach(order -> order.setId(UUID.randomUUID()));
+        return orders;
+    }
 }
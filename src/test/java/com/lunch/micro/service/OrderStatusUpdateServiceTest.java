@@ -1,26 +1,27 @@
 package com.lunch.micro.service;
 
-import com.lunch.micro.model.LunchOrder;
-import com.lunch.micro.model.Meal;
-import com.lunch.micro.model.OrderStatus;
-import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.model.JobRun;
+import com.lunch.micro.model.JobRunStatus;
+import com.lunch.micro.scheduling.SchedulerLeaseService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.function.LongSupplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,249 +29,163 @@ import static org.mockito.Mockito.*;
 class OrderStatusUpdateServiceTest {
 
     @Mock
-    private LunchOrderRepository repository;
+    private OrderCompletionService completionService;
 
-    @InjectMocks
-    private OrderStatusUpdateService orderStatusUpdateService;
-
-    private UUID orderId1;
-    private UUID orderId2;
-    private DayOfWeek today;
-
-    @BeforeEach
-    void setUp() {
-        orderId1 = UUID.randomUUID();
-        orderId2 = UUID.randomUUID();
-        today = LocalDate.now().getDayOfWeek();
-    }
-
-    @Test
-    @DisplayName("Should update PAID orders for today to COMPLETED status")
-    void updateOrderStatusesCron_UpdatesPaidOrdersForToday_ToCompleted() {
-        // Given
-        LunchOrder paidOrderForToday = createPaidOrder(orderId1, today);
-        List<LunchOrder> allOrders = List.of(paidOrderForToday);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenReturn(paidOrderForToday);
-
-        // When
-        orderStatusUpdateService.updateOrderStatusesCron();
-
-        // Then
-        ArgumentCaptor<LunchOrder> orderCaptor = ArgumentCaptor.forClass(LunchOrder.class);
-        verify(repository, times(1)).save(orderCaptor.capture());
-        assertThat(orderCaptor.getValue().getStatus()).isEqualTo(OrderStatus.COMPLETED);
-    }
-
-    @Test
-    @DisplayName("Should set completedOn timestamp when updating order status")
-    void updateOrderStatusesCron_SetsCompletedOnTimestamp() {
-        // Given
-        LunchOrder paidOrderForToday = createPaidOrder(orderId1, today);
-        List<LunchOrder> allOrders = List.of(paidOrderForToday);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenReturn(paidOrderForToday);
+    @Mock
+    private PartitionedCompletionService partitionedCompletionService;
 
-        // When
-        orderStatusUpdateService.updateOrderStatusesCron();
+    @Mock
+    private JobExecutionService jobExecutionService;
 
-        // Then
-        ArgumentCaptor<LunchOrder> orderCaptor = ArgumentCaptor.forClass(LunchOrder.class);
-        verify(repository).save(orderCaptor.capture());
-        assertThat(orderCaptor.getValue().getCompletedOn()).isNotNull();
-    }
+    @Mock
+    private SchedulerLeaseService leaseService;
 
-    @Test
-    @DisplayName("Should not update orders for different days")
-    void updateOrderStatusesCron_DoesNotUpdateOrdersForDifferentDays() {
-        // Given
-        DayOfWeek differentDay = today.plus(1);
-        LunchOrder paidOrderForDifferentDay = createPaidOrder(orderId1, differentDay);
-        List<LunchOrder> allOrders = List.of(paidOrderForDifferentDay);
-        
-        when(repository.findAll()).thenReturn(allOrders);
+    private OrderStatusUpdateService orderStatusUpdateService;
 
-        // When
-        orderStatusUpdateService.updateOrderStatusesCron();
+    private LocalDate today;
 
-        // Then
-        verify(repository, never()).save(any(LunchOrder.class));
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now();
+        orderStatusUpdateService = new OrderStatusUpdateService(
+                completionService, partitionedCompletionService, jobExecutionService, leaseService, "chunked", true, 6);
     }
 
-    @Test
-    @DisplayName("Should not update non-PAID orders")
-    void updateOrderStatusesCron_DoesNotUpdateNonPaidOrders() {
-        // Given
-        LunchOrder completedOrder = createOrderWithStatus(orderId1, today, OrderStatus.COMPLETED);
-        LunchOrder cancelledOrder = createOrderWithStatus(orderId2, today, OrderStatus.CANCELLED);
-        List<LunchOrder> allOrders = List.of(completedOrder, cancelledOrder);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-
-        // When
-        orderStatusUpdateService.updateOrderStatusesCron();
-
-        // Then
-        verify(repository, never()).save(any(LunchOrder.class));
+    private void runLedgerWork() {
+        when(jobExecutionService.runOnce(eq(OrderCompletionService.ORDER_COMPLETION_JOB), any(LocalDate.class), any(LongSupplier.class)))
+                .thenAnswer(invocation -> {
+                    LocalDate businessDate = invocation.getArgument(1);
+                    long rows = invocation.<LongSupplier>getArgument(2).getAsLong();
+                    return Optional.of(JobRun.builder()
+                            .jobName(OrderCompletionService.ORDER_COMPLETION_JOB)
+                            .businessDate(businessDate)
+                            .status(JobRunStatus.SUCCEEDED)
+                            .rowsProcessed(rows)
+                            .build());
+                });
     }
 
     @Test
-    @DisplayName("Should update multiple PAID orders for today")
-    void updateOrderStatusesCron_UpdatesMultiplePaidOrdersForToday() {
+    @DisplayName("Should complete PAID orders for today's business date")
+    void updateOrderStatusesCron_CompletesPaidOrdersForToday() {
         // Given
-        LunchOrder paidOrder1 = createPaidOrder(orderId1, today);
-        LunchOrder paidOrder2 = createPaidOrder(orderId2, today);
-        List<LunchOrder> allOrders = List.of(paidOrder1, paidOrder2);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        runLedgerWork();
+        when(completionService.completePaidOrders(eq(today), any(Instant.class))).thenReturn(stats(2));
 
         // When
         orderStatusUpdateService.updateOrderStatusesCron();
 
         // Then
-        verify(repository, times(2)).save(any(LunchOrder.class));
+        verify(completionService, times(1)).completePaidOrders(eq(today), any(Instant.class));
     }
 
     @Test
-    @DisplayName("Should handle empty order list gracefully")
-    void updateOrderStatusesCron_HandlesEmptyOrderList() {
+    @DisplayName("Should pass the current instant as completedOn timestamp")
+    void updateOrderStatusesCron_PassesCurrentInstant() {
         // Given
-        when(repository.findAll()).thenReturn(new ArrayList<>());
+        runLedgerWork();
+        Instant before = Instant.now();
+        when(completionService.completePaidOrders(eq(today), any(Instant.class))).thenReturn(stats(1));
 
         // When
         orderStatusUpdateService.updateOrderStatusesCron();
 
         // Then
-        verify(repository, never()).save(any(LunchOrder.class));
-        verify(repository, times(1)).findAll();
+        ArgumentCaptor<Instant> nowCaptor = ArgumentCaptor.forClass(Instant.class);
+        verify(completionService).completePaidOrders(eq(today), nowCaptor.capture());
+        assertThat(nowCaptor.getValue()).isBetween(before, Instant.now());
     }
 
     @Test
-    @DisplayName("Should skip orders with invalid day of week")
-    void updateOrderStatusesCron_SkipsOrdersWithInvalidDayOfWeek() {
+    @DisplayName("Should handle no PAID orders gracefully")
+    void updateOrderStatusesCron_HandlesNoPaidOrders() {
         // Given
-        LunchOrder orderWithInvalidDay = LunchOrder.builder()
-                .id(orderId1)
-                .status(OrderStatus.PAID)
-                .dayOfWeek("INVALID_DAY")
-                .build();
-        
-        List<LunchOrder> allOrders = List.of(orderWithInvalidDay);
-        when(repository.findAll()).thenReturn(allOrders);
+        runLedgerWork();
+        when(completionService.completePaidOrders(eq(today), any(Instant.class))).thenReturn(stats(0));
 
         // When
         orderStatusUpdateService.updateOrderStatusesCron();
 
         // Then
-        verify(repository, never()).save(any(LunchOrder.class));
+        verify(completionService, times(1)).completePaidOrders(eq(today), any(Instant.class));
+        verifyNoMoreInteractions(completionService);
     }
 
     @Test
-    @DisplayName("Should only update PAID orders that match today's day")
-    void updateOrderStatusesCron_OnlyUpdatesPaidOrdersMatchingToday() {
+    @DisplayName("Should not complete orders when the ledger reports the run as already done")
+    void updateOrderStatusesCron_AlreadyRun_SkipsCompletion() {
         // Given
-        DayOfWeek differentDay = today.plus(1);
-        LunchOrder paidOrderForToday = createPaidOrder(orderId1, today);
-        LunchOrder paidOrderForDifferentDay = createPaidOrder(orderId2, differentDay);
-        LunchOrder completedOrderForToday = createOrderWithStatus(UUID.randomUUID(), today, OrderStatus.COMPLETED);
-        
-        List<LunchOrder> allOrders = List.of(paidOrderForToday, paidOrderForDifferentDay, completedOrderForToday);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(jobExecutionService.runOnce(eq(OrderCompletionService.ORDER_COMPLETION_JOB), eq(today), any(LongSupplier.class)))
+                .thenReturn(Optional.empty());
 
         // When
         orderStatusUpdateService.updateOrderStatusesCron();
 
         // Then
-        ArgumentCaptor<LunchOrder> orderCaptor = ArgumentCaptor.forClass(LunchOrder.class);
-        verify(repository, times(1)).save(orderCaptor.capture());
-        assertThat(orderCaptor.getValue().getId()).isEqualTo(orderId1);
-        assertThat(orderCaptor.getValue().getStatus()).isEqualTo(OrderStatus.COMPLETED);
+        verifyNoInteractions(completionService);
     }
 
     @Test
-    @DisplayName("Should set same completedOn timestamp for all updated orders")
-    void updateOrderStatusesCron_SetsSameCompletedOnTimestampForAllOrders() {
+    @DisplayName("Should catch up only business dates without a succeeded ledger entry")
+    void catchUpMissedCompletions_RunsOnlyMissingDates() {
         // Given
-        LunchOrder paidOrder1 = createPaidOrder(orderId1, today);
-        LunchOrder paidOrder2 = createPaidOrder(orderId2, today);
-        List<LunchOrder> allOrders = List.of(paidOrder1, paidOrder2);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        runLedgerWork();
+        LocalDate lastDue = LocalTime.now().isBefore(OrderCompletionService.COMPLETION_TIME) ? today.minusDays(1) : today;
+        List<JobRun> succeededRuns = new ArrayList<>();
+        for (LocalDate date = today.minusDays(6); !date.isAfter(lastDue); date = date.plusDays(1)) {
+            if (!date.equals(today.minusDays(2))) {
+                succeededRuns.add(JobRun.builder().businessDate(date).status(JobRunStatus.SUCCEEDED).build());
+            }
+        }
+        when(jobExecutionService.findRuns(OrderCompletionService.ORDER_COMPLETION_JOB, today.minusDays(6), lastDue))
+                .thenReturn(succeededRuns);
+        when(completionService.completePaidOrders(any(LocalDate.class), any(Instant.class))).thenReturn(stats(3));
 
         // When
-        orderStatusUpdateService.updateOrderStatusesCron();
+        orderStatusUpdateService.catchUpMissedCompletions();
 
         // Then
-        ArgumentCaptor<LunchOrder> orderCaptor = ArgumentCaptor.forClass(LunchOrder.class);
-        verify(repository, times(2)).save(orderCaptor.capture());
-        List<LunchOrder> capturedOrders = orderCaptor.getAllValues();
-        
-        assertThat(capturedOrders).hasSize(2);
-        assertThat(capturedOrders.get(0).getCompletedOn()).isNotNull();
-        assertThat(capturedOrders.get(1).getCompletedOn()).isNotNull();
-        // Both should have been set at approximately the same time (within same second)
-        long timeDiff = Math.abs(capturedOrders.get(0).getCompletedOn().getEpochSecond() - 
-                                 capturedOrders.get(1).getCompletedOn().getEpochSecond());
-        assertThat(timeDiff).isLessThanOrEqualTo(1);
+        verify(completionService, times(1)).completePaidOrders(eq(today.minusDays(2)), any(Instant.class));
+        verifyNoMoreInteractions(completionService);
     }
 
     @Test
-    @DisplayName("Should call repository.findAll to get all orders")
-    void updateOrderStatusesCron_CallsRepositoryFindAll() {
+    @DisplayName("Should not catch up when catch-up is disabled")
+    void catchUpMissedCompletions_Disabled_DoesNothing() {
         // Given
-        when(repository.findAll()).thenReturn(new ArrayList<>());
+        orderStatusUpdateService = new OrderStatusUpdateService(
+                completionService, partitionedCompletionService, jobExecutionService, leaseService, "chunked", false, 6);
 
         // When
-        orderStatusUpdateService.updateOrderStatusesCron();
+        orderStatusUpdateService.catchUpMissedCompletions();
 
         // Then
-        verify(repository, times(1)).findAll();
+        verifyNoInteractions(jobExecutionService, completionService);
     }
 
     @Test
-    @DisplayName("Should filter out CANCELLED orders")
-    void updateOrderStatusesCron_FiltersOutCancelledOrders() {
+    @DisplayName("Should run the partitioned engine when partitioned mode is configured")
+    void updateOrderStatusesCron_PartitionedMode_UsesPartitionedEngine() {
         // Given
-        LunchOrder paidOrder = createPaidOrder(orderId1, today);
-        LunchOrder cancelledOrder = createOrderWithStatus(orderId2, today, OrderStatus.CANCELLED);
-        List<LunchOrder> allOrders = List.of(paidOrder, cancelledOrder);
-        
-        when(repository.findAll()).thenReturn(allOrders);
-        when(repository.save(any(LunchOrder.class))).thenReturn(paidOrder);
+        orderStatusUpdateService = new OrderStatusUpdateService(
+                completionService, partitionedCompletionService, jobExecutionService, leaseService, "partitioned", true, 6);
+        runLedgerWork();
+        when(partitionedCompletionService.completePaidOrders(eq(today), any(Instant.class))).thenReturn(stats(4));
 
         // When
         orderStatusUpdateService.updateOrderStatusesCron();
 
         // Then
-        ArgumentCaptor<LunchOrder> orderCaptor = ArgumentCaptor.forClass(LunchOrder.class);
-        verify(repository, times(1)).save(orderCaptor.capture());
-        assertThat(orderCaptor.getValue().getId()).isEqualTo(orderId1);
+        verify(partitionedCompletionService, times(1)).completePaidOrders(eq(today), any(Instant.class));
+        verifyNoInteractions(completionService);
     }
 
     // Helper methods
-    private LunchOrder createPaidOrder(UUID orderId, DayOfWeek dayOfWeek) {
-        return LunchOrder.builder()
-                .id(orderId)
-                .status(OrderStatus.PAID)
-                .dayOfWeek(dayOfWeek.name())
-                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
-                .quantity(1)
-                .build();
-    }
-
-    private LunchOrder createOrderWithStatus(UUID orderId, DayOfWeek dayOfWeek, OrderStatus status) {
-        return LunchOrder.builder()
-                .id(orderId)
-                .status(status)
-                .dayOfWeek(dayOfWeek.name())
-                .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
-                .quantity(1)
+    private CompletionRunStats stats(long rowsCompleted) {
+        return CompletionRunStats.builder()
+                .jobName(OrderCompletionService.ORDER_COMPLETION_JOB)
+                .businessDate(today)
+                .rowsCompleted(rowsCompleted)
                 .build();
     }
 }
@@ -0,0 +1,244 @@
+package com.lunch.micro.stream;
+
+import com.lunch.micro.exception.DomainException;
+import com.lunch.micro.model.OrderEventType;
+import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.repository.LunchOrderRepository;
+import com.lunch.micro.web.dto.OrderEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatusStreamTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    @Mock
+    private LunchOrderRepository repository;
+
+    private final OrderEventBus eventBus = new OrderEventBus();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private CountDownLatch releaseWriters = new CountDownLatch(0);
+    private OrderStatusStream stream;
+
+    @BeforeEach
+    void setUp() {
+
+        stream = new OrderStatusStream(eventBus, repository, BUFFER_SIZE, 2, 3, 30, 60_000) {
+            @Override
+            protected SseEmitter newEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        stream.listen();
+        stream.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        releaseWriters.countDown();
+        stream.stop();
+        stream.shutdownWriters();
+    }
+
+    @Test
+    void childSubscriber_ReceivesOnlyItsChildrensEvents() {
+
+        UUID child = UUID.randomUUID();
+        stream.subscribeChildren(List.of(child));
+        RecordingEmitter emitter = emitters.get(0);
+
+        OrderEvent mine = event(OrderEventType.CREATED, child, UUID.randomUUID());
+        eventBus.publish(List.of(mine, event(OrderEventType.CREATED, UUID.randomUUID(), UUID.randomUUID())));
+
+        eventually(() -> emitter.events.size() == 1);
+        assertThat(emitter.events).containsExactly(mine);
+        assertThat(emitter.comments).isPositive();
+        assertThat(stream.stats().getEventsDelivered()).isEqualTo(1);
+    }
+
+    @Test
+    void parentSubscriber_FollowsChildrenItLearnsFromCreatedEvents() {
+
+        UUID parent = UUID.randomUUID();
+        UUID childWithPaidOrder = UUID.randomUUID();
+        UUID newChild = UUID.randomUUID();
+        when(repository.findChildIdsByParentIdAndStatus(parent, OrderStatus.PAID)).thenReturn(List.of(childWithPaidOrder));
+
+        stream.subscribeParent(parent);
+        RecordingEmitter emitter = emitters.get(0);
+
+        // Cancellations carry no parent; they are routed by child.
+        eventBus.publish(List.of(event(OrderEventType.CANCELLED, childWithPaidOrder, null)));
+        eventBus.publish(List.of(event(OrderEventType.CREATED, newChild, parent)));
+        eventBus.publish(List.of(event(OrderEventType.CANCELLED, newChild, null)));
+
+        eventually(() -> emitter.events.size() == 3);
+        assertThat(emitter.events).extracting(OrderEvent::getChildId)
+                .containsExactly(childWithPaidOrder, newChild, newChild);
+    }
+
+    @Test
+    void slowConsumer_IsDisconnectedWithoutHoldingUpOthers() {
+
+        UUID child = UUID.randomUUID();
+        releaseWriters = new CountDownLatch(1);
+        stream.subscribeChildren(List.of(child));
+        RecordingEmitter slow = emitters.get(0);
+        slow.blockOn(releaseWriters);
+
+        stream.subscribeChildren(List.of(child));
+        RecordingEmitter fast = emitters.get(1);
+
+        // The slow writer is stuck on its first send; its buffer fills and overflows while the fast one keeps up.
+        for (int i = 0; i < BUFFER_SIZE + 2; i++) {
+            eventBus.publish(List.of(event(OrderEventType.CREATED, child, UUID.randomUUID())));
+            int sent = i + 1;
+            eventually(() -> fast.events.size() == sent);
+        }
+
+        eventually(() -> fast.events.size() == BUFFER_SIZE + 2);
+        assertThat(stream.stats().getSlowConsumersEvicted()).isEqualTo(1);
+        assertThat(stream.stats().getSubscribers()).isEqualTo(1);
+
+        releaseWriters.countDown();
+        eventually(() -> slow.completed);
+    }
+
+    @Test
+    void idleSubscriber_GetsAHeartbeat() throws InterruptedException {
+
+        stream.stop();
+        stream.shutdownWriters();
+        stream = new OrderStatusStream(eventBus, repository, BUFFER_SIZE, 1, 3, 30, 0) {
+            @Override
+            protected SseEmitter newEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        stream.start();
+        stream.subscribeChildren(List.of(UUID.randomUUID()));
+        RecordingEmitter emitter = emitters.get(0);
+        eventually(() -> emitter.comments == 1);
+
+        stream.sendHeartbeats();
+
+        eventually(() -> emitter.comments == 2);
+    }
+
+    @Test
+    void closedConnection_IsUnregistered() {
+
+        UUID child = UUID.randomUUID();
+        stream.subscribeChildren(List.of(child));
+        emitters.get(0).failing = true;
+
+        eventBus.publish(List.of(event(OrderEventType.CREATED, child, UUID.randomUUID())));
+
+        eventually(() -> stream.stats().getSubscribers() == 0);
+        assertThat(stream.stats().getConnectionsLost()).isEqualTo(1);
+        assertThat(stream.stats().getWatchedChildren()).isZero();
+    }
+
+    @Test
+    void tooManyChildren_IsRejected() {
+
+        List<UUID> children = IntStream.range(0, 4).mapToObj(i -> UUID.randomUUID()).toList();
+
+        assertThatThrownBy(() -> stream.subscribeChildren(children)).isInstanceOf(DomainException.class);
+        assertThatThrownBy(() -> stream.subscribeChildren(List.of())).isInstanceOf(DomainException.class);
+    }
+
+    private static void eventually(BooleanSupplier condition) {
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static OrderEvent event(OrderEventType type, UUID childId, UUID parentId) {
+        return OrderEvent.builder()
+                .eventId(UUID.randomUUID())
+                .eventType(type)
+                .orderId(UUID.randomUUID())
+                .childId(childId)
+                .parentId(parentId)
+                .occurredOn(Instant.now())
+                .build();
+    }
+
+    // Records what would be written to the connection; blockOn simulates a client that stopped reading.
+    static class RecordingEmitter extends SseEmitter {
+
+        final List<OrderEvent> events = new CopyOnWriteArrayList<>();
+        volatile int comments;
+        volatile boolean completed;
+        volatile boolean failing;
+        private volatile CountDownLatch blocker = new CountDownLatch(0);
+
+        void blockOn(CountDownLatch latch) {
+            blocker = latch;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            Set<DataWithMediaType> parts = builder.build();
+            boolean hasData = false;
+            for (DataWithMediaType part : parts) {
+                if (part.getData() instanceof OrderEvent event && !MediaType.TEXT_PLAIN.equals(part.getMediaType())) {
+                    events.add(event);
+                    hasData = true;
+                }
+            }
+            if (!hasData) {
+                comments++;
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.lunch.micro.wallet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lunch.micro.web.dto.WalletBalance;
+import com.lunch.micro.web.dto.WalletDebit;
+import com.lunch.micro.web.dto.WalletDebitBatchRequest;
+import com.lunch.micro.web.dto.WalletDebitBatchResponse;
+import com.lunch.micro.web.dto.WalletDebitResult;
+import com.lunch.micro.web.dto.WalletHold;
+import com.lunch.micro.web.dto.WalletHoldRequest;
+import com.lunch.micro.web.dto.WalletSettlement;
+import com.lunch.micro.web.dto.WalletSettlementBatchRequest;
+import com.lunch.micro.web.dto.WalletSettlementBatchResponse;
+import com.lunch.micro.web.dto.WalletSettlementResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process wallet service for tests. Every wallet starts with the default balance; a reference already debited is
+// accepted again without a second debit. Holds move money from available to held, up to what is available;
+// settlements move it from held to settled (or back, when negative) and are applied once per settlement id.
+// Latency and failures can be injected while it runs.
+public class StubWalletService {
+
+    private static final BigDecimal DEFAULT_BALANCE = new BigDecimal("1000.00");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final Map<UUID, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final Map<UUID, BigDecimal> held = new ConcurrentHashMap<>();
+    private final Map<UUID, BigDecimal> settled = new ConcurrentHashMap<>();
+    private final Set<UUID> debited = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> appliedSettlements = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger debitCalls = new AtomicInteger();
+    private final AtomicInteger holdCalls = new AtomicInteger();
+    private final AtomicInteger settlementCalls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong latencyMillis = new AtomicLong();
+    private final AtomicInteger failNextCalls = new AtomicInteger();
+    private final AtomicInteger failNextSettlements = new AtomicInteger();
+
+    private StubWalletService() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-wallet");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/api/v1/wallets/", this::handle);
+        server.start();
+    }
+
+    public static StubWalletService start() {
+        try {
+            return new StubWalletService();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public void reset() {
+        balances.clear();
+        held.clear();
+        settled.clear();
+        debited.clear();
+        appliedSettlements.clear();
+        debitCalls.set(0);
+        holdCalls.set(0);
+        settlementCalls.set(0);
+        maxInFlight.set(0);
+        latencyMillis.set(0);
+        failNextCalls.set(0);
+        failNextSettlements.set(0);
+    }
+
+    public void setLatencyMillis(long millis) {
+        latencyMillis.set(millis);
+    }
+
+    // The next calls answer 500.
+    public void failNextCalls(int calls) {
+        failNextCalls.set(calls);
+    }
+
+    // The next settlement calls answer 500 after applying nothing.
+    public void failNextSettlements(int calls) {
+        failNextSettlements.set(calls);
+    }
+
+    public void setBalance(UUID walletId, BigDecimal balance) {
+        balances.put(walletId, balance);
+    }
+
+    public BigDecimal balance(UUID walletId) {
+        return balances.getOrDefault(walletId, DEFAULT_BALANCE);
+    }
+
+    public BigDecimal held(UUID walletId) {
+        return held.getOrDefault(walletId, BigDecimal.ZERO);
+    }
+
+    public BigDecimal settled(UUID walletId) {
+        return settled.getOrDefault(walletId, BigDecimal.ZERO);
+    }
+
+    public int debitCalls() {
+        return debitCalls.get();
+    }
+
+    public int holdCalls() {
+        return holdCalls.get();
+    }
+
+    public int settlementCalls() {
+        return settlementCalls.get();
+    }
+
+    // The most calls that were being served at the same time.
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            // /api/v1/wallets/settlements or /api/v1/wallets/{walletId}/{debits|holds|holds/release|balance}
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String operation = String.join("/", List.of(path).subList(Math.min(5, path.length), path.length));
+
+            sleep(latencyMillis.get());
+            if (failNextCalls.getAndUpdate(calls -> Math.max(calls - 1, 0)) > 0
+                    || path[4].equals("settlements") && failNextSettlements.getAndUpdate(calls -> Math.max(calls - 1, 0)) > 0) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            Object response;
+            if (path[4].equals("settlements")) {
+                settlementCalls.incrementAndGet();
+                response = settle(objectMapper.readValue(exchange.getRequestBody(), WalletSettlementBatchRequest.class));
+            } else {
+                UUID walletId = UUID.fromString(path[4]);
+                response = switch (operation) {
+                    case "debits" -> {
+                        debitCalls.incrementAndGet();
+                        yield debit(walletId, objectMapper.readValue(exchange.getRequestBody(),
+                                WalletDebitBatchRequest.class).getDebits());
+                    }
+                    case "holds" -> {
+                        holdCalls.incrementAndGet();
+                        yield hold(walletId, objectMapper.readValue(exchange.getRequestBody(), WalletHoldRequest.class));
+                    }
+                    case "holds/release" ->
+                            release(walletId, objectMapper.readValue(exchange.getRequestBody(), WalletHoldRequest.class));
+                    case "balance" -> walletBalance(walletId);
+                    default -> null;
+                };
+            }
+            if (response == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private WalletDebitBatchResponse debit(UUID walletId, List<WalletDebit> debits) {
+
+        List<WalletDebitResult> results = new ArrayList<>();
+        synchronized (balances) {
+            for (WalletDebit debit : debits) {
+                BigDecimal balance = balance(walletId);
+                boolean accepted = debited.contains(debit.getReference()) || balance.compareTo(debit.getAmount()) >= 0;
+                if (accepted && debited.add(debit.getReference())) {
+                    balances.put(walletId, balance.subtract(debit.getAmount()));
+                }
+                results.add(WalletDebitResult.builder()
+                        .reference(debit.getReference())
+                        .accepted(accepted)
+                        .reason(accepted ? null : "insufficient funds")
+                        .build());
+            }
+        }
+        return WalletDebitBatchResponse.builder().results(results).build();
+    }
+
+    private WalletHold hold(UUID walletId, WalletHoldRequest request) {
+
+        synchronized (balances) {
+            BigDecimal granted = balance(walletId).min(request.getAmount()).max(BigDecimal.ZERO);
+            balances.put(walletId, balance(walletId).subtract(granted));
+            held.put(walletId, held(walletId).add(granted));
+            return WalletHold.builder().holdId(request.getHoldId()).amount(granted).build();
+        }
+    }
+
+    private WalletHold release(UUID walletId, WalletHoldRequest request) {
+
+        synchronized (balances) {
+            BigDecimal released = held(walletId).min(request.getAmount()).max(BigDecimal.ZERO);
+            held.put(walletId, held(walletId).subtract(released));
+            balances.put(walletId, balance(walletId).add(released));
+            return WalletHold.builder().holdId(request.getHoldId()).amount(released).build();
+        }
+    }
+
+    // A positive amount is taken from what is held and, past that, from what is available.
+    private WalletSettlementBatchResponse settle(WalletSettlementBatchRequest request) {
+
+        List<WalletSettlementResult> results = new ArrayList<>();
+        synchronized (balances) {
+            for (WalletSettlement settlement : request.getSettlements()) {
+                UUID walletId = settlement.getWalletId();
+                if (appliedSettlements.add(settlement.getSettlementId())) {
+                    BigDecimal fromHeld = settlement.getAmount().min(held(walletId));
+                    held.put(walletId, held(walletId).subtract(fromHeld));
+                    balances.put(walletId, balance(walletId).subtract(settlement.getAmount().subtract(fromHeld)));
+                    settled.put(walletId, settled(walletId).add(settlement.getAmount()));
+                }
+                results.add(WalletSettlementResult.builder()
+                        .settlementId(settlement.getSettlementId())
+                        .applied(true)
+                        .build());
+            }
+        }
+        return WalletSettlementBatchResponse.builder().results(results).build();
+    }
+
+    private WalletBalance walletBalance(UUID walletId) {
+
+        synchronized (balances) {
+            return WalletBalance.builder()
+                    .walletId(walletId)
+                    .available(balance(walletId))
+                    .held(held(walletId))
+                    .settled(settled(walletId))
+                    .build();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.lunch.micro.web.controller;
 
-import com.lunch.micro.model.LunchOrder;
 import com.lunch.micro.model.Meal;
 import com.lunch.micro.model.OrderStatus;
+import com.lunch.micro.model.LunchOrder;
+import com.lunch.micro.service.GroupCommitOrderIntake;
+import com.lunch.micro.service.IdempotentOrderService;
 import com.lunch.micro.service.LunchOrderService;
+import com.lunch.micro.web.dto.LunchOrderBatchRequest;
+import com.lunch.micro.web.dto.LunchOrderBatchResponse;
+import com.lunch.micro.web.dto.LunchOrderRequest;
+import com.lunch.micro.web.dto.LunchOrderResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +37,12 @@ class LunchControllerTest {
     @Mock
     private LunchOrderService lunchOrderService;
 
+    @Mock
+    private IdempotentOrderService idempotentOrderService;
+
+    @Mock
+    private GroupCommitOrderIntake groupCommitOrderIntake;
+
     @InjectMocks
     private LunchController lunchController;
 
@@ -51,37 +64,37 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_ReturnsListOfLunches_WithOkStatus() {
 
-        LunchOrder order1 = LunchOrder.builder()
+        LunchOrderResponse order1 = LunchOrderResponse.builder()
                 .id(orderId1)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
                 .build();
 
-        LunchOrder order2 = LunchOrder.builder()
+        LunchOrderResponse order2 = LunchOrderResponse.builder()
                 .id(orderId2)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.BAKED_FISH_WITH_VEGETABLES)
                 .quantity(2)
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("5.00"))
                 .status(OrderStatus.PAID)
                 .build();
 
-        List<LunchOrder> expectedLunches = List.of(order1, order2);
+        List<LunchOrderResponse> expectedLunches = List.of(order1, order2);
 
         when(lunchOrderService.getByChild(childId)).thenReturn(expectedLunches);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -94,10 +107,10 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_NoLunches_ReturnsEmptyList_WithOkStatus() {
 
-        List<LunchOrder> emptyList = new ArrayList<>();
+        List<LunchOrderResponse> emptyList = new ArrayList<>();
         when(lunchOrderService.getByChild(childId)).thenReturn(emptyList);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -109,7 +122,7 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_CallsServiceWithCorrectChildId() {
 
-        List<LunchOrder> orders = new ArrayList<>();
+        List<LunchOrderResponse> orders = new ArrayList<>();
         when(lunchOrderService.getByChild(childId)).thenReturn(orders);
 
         lunchController.getLunchesForChild(childId);
@@ -121,23 +134,23 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_ReturnsSameListFromService() {
 
-        LunchOrder order = LunchOrder.builder()
+        LunchOrderResponse order = LunchOrderResponse.builder()
                 .id(orderId1)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
                 .build();
 
-        List<LunchOrder> serviceResult = List.of(order);
+        List<LunchOrderResponse> serviceResult = List.of(order);
         when(lunchOrderService.getByChild(childId)).thenReturn(serviceResult);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getBody()).isSameAs(serviceResult);
         assertThat(response.getBody()).containsExactly(order);
@@ -146,23 +159,23 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_SingleOrder_ReturnsSingleOrderInList() {
 
-        LunchOrder order = LunchOrder.builder()
+        LunchOrderResponse order = LunchOrderResponse.builder()
                 .id(orderId1)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
                 .build();
 
-        List<LunchOrder> orders = List.of(order);
+        List<LunchOrderResponse> orders = List.of(order);
         when(lunchOrderService.getByChild(childId)).thenReturn(orders);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -173,37 +186,37 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_MultipleOrdersWithDifferentStatuses_ReturnsAllOrders() {
 
-        LunchOrder paidOrder = LunchOrder.builder()
+        LunchOrderResponse paidOrder = LunchOrderResponse.builder()
                 .id(orderId1)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
                 .build();
 
-        LunchOrder completedOrder = LunchOrder.builder()
+        LunchOrderResponse completedOrder = LunchOrderResponse.builder()
                 .id(orderId2)
                 .parentId(parentId)
                 .walletId(walletId)
                 .childId(childId)
                 .meal(Meal.BAKED_FISH_WITH_VEGETABLES)
                 .quantity(1)
-                .dayOfWeek("TUESDAY")
+                .dayOfWeek(DayOfWeek.TUESDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.COMPLETED)
                 .completedOn(Instant.now().minusSeconds(3600))
                 .build();
 
-        List<LunchOrder> orders = List.of(paidOrder, completedOrder);
+        List<LunchOrderResponse> orders = List.of(paidOrder, completedOrder);
         when(lunchOrderService.getByChild(childId)).thenReturn(orders);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -214,10 +227,10 @@ class LunchControllerTest {
     @Test
     void getLunchesForChild_UsesResponseEntityOkWrapper() {
 
-        List<LunchOrder> orders = new ArrayList<>();
+        List<LunchOrderResponse> orders = new ArrayList<>();
         when(lunchOrderService.getByChild(childId)).thenReturn(orders);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
@@ -227,30 +240,140 @@ class LunchControllerTest {
     @DisplayName("Should return response with correct content type")
     void getLunchesForChild_ReturnsResponseWithCorrectContentType() {
 
-        List<LunchOrder> orders = new ArrayList<>();
+        List<LunchOrderResponse> orders = new ArrayList<>();
         when(lunchOrderService.getByChild(childId)).thenReturn(orders);
 
-        ResponseEntity<List<LunchOrder>> response = lunchController.getLunchesForChild(childId);
+        ResponseEntity<List<LunchOrderResponse>> response = lunchController.getLunchesForChild(childId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.hasBody()).isTrue();
         assertThat(response.getBody()).isNotNull();
     }
 
-    private LunchOrder createTestOrder(UUID childId) {
+    private LunchOrderResponse createTestOrder(UUID childId) {
 
-        return LunchOrder.builder()
+        return LunchOrderResponse.builder()
                 .id(UUID.randomUUID())
                 .parentId(UUID.randomUUID())
                 .walletId(UUID.randomUUID())
                 .childId(childId)
                 .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
                 .quantity(1)
-                .dayOfWeek("MONDAY")
+                .dayOfWeek(DayOfWeek.MONDAY)
                 .unitPrice(new BigDecimal("2.50"))
                 .total(new BigDecimal("2.50"))
                 .status(OrderStatus.PAID)
                 .build();
     }
-}
 
+    @Test
+    void createLunchOrders_AllCreated_ReturnsCreatedStatus() {
+
+        LunchOrderBatchRequest request = batchRequest();
+        when(lunchOrderService.createAndPayOrders(request.getOrders()))
+                .thenReturn(LunchOrderBatchResponse.builder().created(2).rejected(0).results(List.of()).build());
+
+        ResponseEntity<LunchOrderBatchResponse> response = lunchController.createLunchOrders(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody().getCreated()).isEqualTo(2);
+    }
+
+    @Test
+    void createLunchOrders_SomeRejected_ReturnsMultiStatus() {
+
+        LunchOrderBatchRequest request = batchRequest();
+        when(lunchOrderService.createAndPayOrders(request.getOrders()))
+                .thenReturn(LunchOrderBatchResponse.builder().created(1).rejected(1).results(List.of()).build());
+
+        ResponseEntity<LunchOrderBatchResponse> response = lunchController.createLunchOrders(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.MULTI_STATUS);
+    }
+
+    @Test
+    void createLunchOrders_AllRejected_ReturnsBadRequest() {
+
+        LunchOrderBatchRequest request = batchRequest();
+        when(lunchOrderService.createAndPayOrders(request.getOrders()))
+                .thenReturn(LunchOrderBatchResponse.builder().created(0).rejected(2).results(List.of()).build());
+
+        ResponseEntity<LunchOrderBatchResponse> response = lunchController.createLunchOrders(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void createLunchOrder_WithIdempotencyKey_GoesThroughIdempotentService() {
+
+        LunchOrderRequest request = batchRequest().getOrders().get(0);
+        LunchOrder order = LunchOrder.builder().id(orderId1).childId(childId).build();
+        when(idempotentOrderService.createAndPayOrder(request, "key-1"))
+                .thenReturn(new IdempotentOrderService.KeyedOrder(order, false));
+
+        ResponseEntity<LunchOrderResponse> response = lunchController.createLunchOrder(childId, "key-1", request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getHeaders().containsKey("Idempotent-Replayed")).isFalse();
+        assertThat(response.getBody().getId()).isEqualTo(orderId1);
+        verifyNoInteractions(lunchOrderService);
+    }
+
+    @Test
+    void createLunchOrder_ReplayedIdempotencyKey_ReturnsOkWithReplayHeader() {
+
+        LunchOrderRequest request = batchRequest().getOrders().get(0);
+        LunchOrder order = LunchOrder.builder().id(orderId1).childId(childId).build();
+        when(idempotentOrderService.createAndPayOrder(request, "key-1"))
+                .thenReturn(new IdempotentOrderService.KeyedOrder(order, true));
+
+        ResponseEntity<LunchOrderResponse> response = lunchController.createLunchOrder(childId, "key-1", request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(response.getBody().getId()).isEqualTo(orderId1);
+    }
+
+    @Test
+    void createLunchOrder_WithoutIdempotencyKey_CreatesOrderDirectly() {
+
+        LunchOrderRequest request = batchRequest().getOrders().get(0);
+        when(lunchOrderService.createAndPayOrder(request)).thenReturn(LunchOrder.builder().id(orderId1).build());
+
+        ResponseEntity<LunchOrderResponse> response = lunchController.createLunchOrder(childId, null, request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        verifyNoInteractions(idempotentOrderService);
+    }
+
+    @Test
+    void createLunchOrder_GroupCommitIntakeEnabled_QueuesOrder() {
+
+        LunchOrderRequest request = batchRequest().getOrders().get(0);
+        LunchOrder order = LunchOrder.builder().id(orderId1).childId(childId).build();
+        when(groupCommitOrderIntake.isEnabled()).thenReturn(true);
+        when(groupCommitOrderIntake.createAndPayOrder(request)).thenReturn(order);
+
+        ResponseEntity<LunchOrderResponse> response = lunchController.createLunchOrder(childId, null, request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody().getId()).isEqualTo(orderId1);
+        verify(lunchOrderService, never()).createAndPayOrder(any());
+    }
+
+    private LunchOrderBatchRequest batchRequest() {
+
+        List<LunchOrderRequest> orders = new ArrayList<>();
+        for (DayOfWeek day : List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY)) {
+            orders.add(LunchOrderRequest.builder()
+                    .parentId(parentId)
+                    .walletId(walletId)
+                    .childId(childId)
+                    .meal(Meal.FRIED_CHICKEN_WITH_YOGURT_SOUS)
+                    .quantity(1)
+                    .dayOfWeek(day)
+                    .build());
+        }
+        return LunchOrderBatchRequest.builder().orders(orders).build();
+    }
+}